@@ -47,4 +47,12 @@ public interface JobContext {
     default String getThreadName() {
         return Thread.currentThread().getName();
     }
+    
+    /**
+     * Reports how far the execution has progressed, as a fraction between 0.0 and 1.0.
+     * The engine exposes the latest value for running executions.
+     */
+    default void reportProgress(double progress) {
+        // Default implementation does nothing
+    }
 }
@@ -26,6 +26,7 @@ public final class JobExecutionInfo {
     private final int retryAttempt;
     private final String resultMessage;
     private final String errorMessage;
+    private final long logLinesSuppressed;
     
     private JobExecutionInfo(Builder builder) {
         this.executionId = Objects.requireNonNull(builder.executionId);
@@ -41,6 +42,7 @@ public final class JobExecutionInfo {
         this.retryAttempt = builder.retryAttempt;
         this.resultMessage = builder.resultMessage;
         this.errorMessage = builder.errorMessage;
+        this.logLinesSuppressed = builder.logLinesSuppressed;
     }
     
     public String getExecutionId() {
@@ -95,6 +97,14 @@ public final class JobExecutionInfo {
         return errorMessage;
     }
     
+    /**
+     * Returns the number of log lines left out of the execution's log because
+     * it reached its size cap or its job exceeded the log rate limit.
+     */
+    public long getLogLinesSuppressed() {
+        return logLinesSuppressed;
+    }
+    
     public long getDurationMillis() {
         if (endTime == null) {
             return 0;
@@ -120,6 +130,7 @@ public final class JobExecutionInfo {
         private int retryAttempt = 0;
         private String resultMessage;
         private String errorMessage;
+        private long logLinesSuppressed;
         
         private Builder(String executionId, String jobName) {
             this.executionId = executionId;
@@ -181,6 +192,11 @@ public final class JobExecutionInfo {
             return this;
         }
         
+        public Builder logLinesSuppressed(long logLinesSuppressed) {
+            this.logLinesSuppressed = logLinesSuppressed;
+            return this;
+        }
+        
         public JobExecutionInfo build() {
             return new JobExecutionInfo(this);
         }
@@ -5,6 +5,7 @@ import com.batchiller.api.PipelineConfiguration;
 import com.batchiller.api.PipelineFlow;
 import com.batchiller.server.config.BatchillerConfiguration;
 import com.batchiller.server.database.DatabaseManager;
+import com.batchiller.server.database.RetentionManager;
 import com.batchiller.server.engine.JobExecutionEngine;
 import com.batchiller.server.http.HttpServer;
 import com.batchiller.server.loader.DynamicJobLoader;
@@ -13,6 +14,10 @@ import com.batchiller.server.monitoring.SystemMonitor;
 import com.batchiller.server.sample.SampleJob;
 import com.batchiller.server.sample.SamplePipeline;
 import com.batchiller.server.scheduler.JobScheduler;
+import com.batchiller.server.store.ArchivingExecutionStore;
+import com.batchiller.server.store.ExecutionArchive;
+import com.batchiller.server.store.ExecutionArchiver;
+import com.batchiller.server.store.ExecutionStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -30,6 +35,9 @@ public class BatchillerApplication {
     
     private final BatchillerConfiguration config;
     private final DatabaseManager database;
+    private final ExecutionStore store;
+    private final ExecutionArchiver archiver;
+    private final RetentionManager retention;
     private final JobExecutionEngine engine;
     private final SystemMonitor monitor;
     private final JobScheduler scheduler;
@@ -42,9 +50,35 @@ public class BatchillerApplication {
         
         this.config = new BatchillerConfiguration();
         this.database = new DatabaseManager(config);
+        ExecutionStore hotStore = ExecutionStore.forType(config.getExecutionStoreType(), config, database);
+        if (config.isArchiveEnabled()) {
+            ExecutionArchive archive = new ExecutionArchive(config);
+            this.archiver = new ExecutionArchiver(config, hotStore, archive);
+            this.store = new ArchivingExecutionStore(hotStore, archive);
+        } else {
+            this.archiver = null;
+            this.store = hotStore;
+        }
         this.logManager = new LogManager(config);
-        this.engine = new JobExecutionEngine(config, database, logManager);
+        this.engine = new JobExecutionEngine(config, database, store, logManager);
+        this.retention = new RetentionManager(config, database, hotStore, engine.getResultStore());
         this.monitor = new SystemMonitor(engine.getExecutor());
+        this.monitor.registerMetrics("database_pool", database::getPoolMetrics);
+        if (config.isReadPoolEnabled()) {
+            this.monitor.registerMetrics("database_read_pool", database::getReadPoolMetrics);
+        }
+        this.monitor.registerMetrics("configuration_cache", database.getConfigurationCache()::getMetrics);
+        this.monitor.registerMetrics("execution_persistence", engine.getPersistenceQueue()::getMetrics);
+        this.monitor.registerMetrics("execution_store", store::getMetrics);
+        this.monitor.registerMetrics("execution_results", engine.getResultStore()::getMetrics);
+        if (engine.getJournal() != null) {
+            this.monitor.registerMetrics("execution_journal", engine::getJournalMetrics);
+        }
+        this.monitor.registerMetrics("retention", retention::getMetrics);
+        this.monitor.registerMetrics("execution_logs", logManager::getMetrics);
+        if (archiver != null) {
+            this.monitor.registerMetrics("execution_archive", archiver::getMetrics);
+        }
         this.scheduler = new JobScheduler(engine, database, config);
         this.httpServer = new HttpServer(config, engine, database, monitor, logManager, scheduler);
         this.jobLoader = new DynamicJobLoader(config, engine);
@@ -87,6 +121,12 @@ public class BatchillerApplication {
     public void start() {
         logger.info("Starting Batchiller Application...");
         jobLoader.start();
+        engine.recoverInterrupted();
+        engine.resumeBacklog();
+        retention.start();
+        if (archiver != null) {
+            archiver.start();
+        }
         httpServer.start();
         logger.info("Batchiller Application started successfully!");
         logger.info("Access the dashboard at: http://{}:{}", config.getServerHost(), config.getServerPort());
@@ -95,10 +135,15 @@ public class BatchillerApplication {
     public void stop() {
         logger.info("Stopping Batchiller Application...");
         httpServer.stop();
-        jobLoader.stop();
         scheduler.shutdown();
         engine.shutdown();
+        jobLoader.stop();
         logManager.shutdown();
+        retention.shutdown();
+        if (archiver != null) {
+            archiver.shutdown();
+        }
+        store.close();
         database.close();
         logger.info("Batchiller Application stopped");
     }
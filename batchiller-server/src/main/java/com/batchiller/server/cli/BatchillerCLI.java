@@ -1,20 +1,35 @@
 package com.batchiller.server.cli;
 
 import com.batchiller.api.JobExecutionInfo;
+import com.batchiller.api.JobStatus;
 import com.batchiller.server.config.BatchillerConfiguration;
 import com.batchiller.server.database.DatabaseManager;
 import com.batchiller.server.engine.JobExecutionEngine;
+import com.batchiller.server.logging.LogIndex;
+import com.batchiller.server.logging.LogLayout;
+import com.batchiller.server.logging.LogManager;
+import com.batchiller.server.store.ArchivingExecutionStore;
+import com.batchiller.server.store.ExecutionArchive;
+import com.batchiller.server.store.ExecutionPage;
+import com.batchiller.server.store.ExecutionQuery;
+import com.batchiller.server.store.ExecutionStore;
+import com.batchiller.server.store.ExecutionStoreException;
+import com.batchiller.server.store.JdbcExecutionStore;
 import picocli.CommandLine;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Option;
 import picocli.CommandLine.Parameters;
 
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.concurrent.Callable;
 
 /**
  * Command-line interface for interacting with the Batchiller application.
- * Provides commands to trigger jobs/pipelines, view execution history, and check system status.
+ * Provides commands to trigger jobs/pipelines, view execution history, check system status,
+ * rebuild the execution log index and migrate execution logs to the sharded layout.
  * 
  * @author Siddharth Mishra &lt;mishra.siddharth90@gmail.com&gt;
  * @version 1.0
@@ -61,23 +76,85 @@ public class BatchillerCLI implements Callable<Integer> {
     
     @Command(name = "history", description = "View job execution history")
     static class History implements Callable<Integer> {
-        @Parameters(index = "0", description = "Job name")
+        @Parameters(index = "0", arity = "0..1", description = "Job name (all jobs if omitted)")
         private String jobName;
         
         @Option(names = {"-l", "--limit"}, description = "Limit number of results", defaultValue = "10")
         private int limit;
         
+        @Option(names = {"-s", "--status"}, split = ",", description = "Only these statuses (comma-separated)")
+        private List<JobStatus> statuses;
+        
+        @Option(names = {"--pipeline"}, description = "Only executions of this pipeline")
+        private String pipelineName;
+        
+        @Option(names = {"--trigger-type"}, description = "Only executions with this trigger type")
+        private String triggerType;
+        
+        @Option(names = {"--from"}, description = "Only executions started at or after this time (yyyy-MM-ddTHH:mm:ss)")
+        private LocalDateTime from;
+        
+        @Option(names = {"--to"}, description = "Only executions started before this time (yyyy-MM-ddTHH:mm:ss)")
+        private LocalDateTime to;
+        
+        @Option(names = {"--min-duration"}, description = "Minimum duration in milliseconds")
+        private Long minDuration;
+        
+        @Option(names = {"--max-duration"}, description = "Maximum duration in milliseconds")
+        private Long maxDuration;
+        
+        @Option(names = {"-c", "--cursor"}, description = "Continue from the cursor printed by a previous page")
+        private String cursor;
+        
         @Override
         public Integer call() {
+            ExecutionQuery.Builder query = ExecutionQuery.builder()
+                .jobName(jobName)
+                .pipelineName(pipelineName)
+                .triggerType(triggerType)
+                .startedFrom(from)
+                .startedTo(to)
+                .minDurationMillis(minDuration)
+                .maxDurationMillis(maxDuration)
+                .limit(limit);
+            if (statuses != null) {
+                statuses.forEach(query::status);
+            }
+            try {
+                query.cursor(cursor);
+            } catch (IllegalArgumentException e) {
+                System.err.println(e.getMessage());
+                return 1;
+            }
+            
             BatchillerConfiguration config = new BatchillerConfiguration();
+            String storeType = config.getExecutionStoreType();
+            if (storeType != null && !storeType.isBlank() && !"jdbc".equalsIgnoreCase(storeType)) {
+                // The memory store lives in the server, and the log store's segments belong to it while it runs
+                System.err.println("history reads the database, but execution.store.type is " + storeType
+                    + "; query the running server instead: GET /api/executions");
+                return 1;
+            }
             DatabaseManager db = new DatabaseManager(config);
+            ExecutionStore store = new JdbcExecutionStore(db);
+            if (config.isArchiveEnabled()) {
+                store = new ArchivingExecutionStore(store, new ExecutionArchive(config));
+            }
             
-            List<JobExecutionInfo> history = db.getJobHistory(jobName, limit);
+            ExecutionPage page;
+            try {
+                page = store.query(query.build());
+            } catch (ExecutionStoreException e) {
+                System.err.println("Error reading execution history: " + e.getMessage());
+                store.close();
+                db.close();
+                return 1;
+            }
             
-            System.out.println("\nJob History for: " + jobName);
+            System.out.println("\nJob History for: " + (jobName != null ? jobName : "all jobs"));
             System.out.println("=".repeat(80));
             
-            for (JobExecutionInfo info : history) {
+            for (JobExecutionInfo info : page.getExecutions()) {
                 System.out.printf("%-36s | %-15s | %-20s | %dms%n",
                     info.getExecutionId(),
                     info.getStatus(),
@@ -86,6 +163,11 @@ public class BatchillerCLI implements Callable<Integer> {
                 );
             }
             
+            if (page.hasNext()) {
+                System.out.println("\nMore results: --cursor " + page.getNextCursor());
+            }
+            
+            store.close();
             db.close();
             return 0;
         }
@@ -125,6 +207,42 @@ public class BatchillerCLI implements Callable<Integer> {
         }
     }
     
+    @Command(name = "rebuild-log-index", description = "Rebuild the execution log index from the log directory (server must be stopped)")
+    static class RebuildLogIndex implements Callable<Integer> {
+        
+        @Override
+        public Integer call() {
+            BatchillerConfiguration config = new BatchillerConfiguration();
+            try (LogIndex index = new LogIndex(LogManager.getLogIndexFile(config),
+                    Paths.get(config.getLogDirectory(), "executions"))) {
+                int indexed = index.rebuild();
+                System.out.println("Indexed " + indexed + " execution logs");
+                return 0;
+            } catch (Exception e) {
+                System.err.println("Error rebuilding log index: " + e.getMessage());
+                return 1;
+            }
+        }
+    }
+    
+    @Command(name = "migrate-log-layout", description = "Move execution logs into the sharded layout (server must be stopped)")
+    static class MigrateLogLayout implements Callable<Integer> {
+        
+        @Override
+        public Integer call() {
+            BatchillerConfiguration config = new BatchillerConfiguration();
+            Path logsDirectory = Paths.get(config.getLogDirectory(), "executions");
+            try (LogIndex index = new LogIndex(LogManager.getLogIndexFile(config), logsDirectory)) {
+                int moved = new LogLayout(logsDirectory).migrate(index);
+                System.out.println("Moved " + moved + " execution logs into " + logsDirectory);
+                return 0;
+            } catch (Exception e) {
+                System.err.println("Error migrating execution logs: " + e.getMessage());
+                return 1;
+            }
+        }
+    }
+    
     @Override
     public Integer call() {
         CommandLine.usage(this, System.out);
@@ -136,6 +254,8 @@ public class BatchillerCLI implements Callable<Integer> {
         cmd.addSubcommand("trigger", new Trigger());
         cmd.addSubcommand("history", new History());
         cmd.addSubcommand("status", new Status());
+        cmd.addSubcommand("rebuild-log-index", new RebuildLogIndex());
+        cmd.addSubcommand("migrate-log-layout", new MigrateLogLayout());
         
         int exitCode = cmd.execute(args);
         System.exit(exitCode);
@@ -23,6 +23,16 @@ public class BatchillerConfiguration {
         loadConfiguration();
     }
     
+    /**
+     * Creates a configuration from the given properties instead of the
+     * configuration file, with defaults for anything they leave out.
+     */
+    public BatchillerConfiguration(Properties properties) {
+        this.properties = new Properties();
+        this.properties.putAll(properties);
+        setDefaults();
+    }
+    
     private void loadConfiguration() {
         Path configPath = Paths.get("batchiller.properties");
         
@@ -56,15 +66,80 @@ public class BatchillerConfiguration {
         properties.putIfAbsent("db.mysql.url", "jdbc:mysql://localhost:3306/batchiller");
         properties.putIfAbsent("db.mysql.username", "root");
         properties.putIfAbsent("db.mysql.password", "");
+        properties.putIfAbsent("db.pool.min.size", "2");
+        properties.putIfAbsent("db.pool.max.size", "10");
+        properties.putIfAbsent("db.pool.connection.timeout.ms", "30000");
+        properties.putIfAbsent("db.pool.validation.timeout.seconds", "5");
+        properties.putIfAbsent("db.pool.validation.idle.ms", "30000");
+        properties.putIfAbsent("db.pool.leak.detection.threshold.ms", "60000");
+        properties.putIfAbsent("db.pool.statement.cache.size", "32");
+        properties.putIfAbsent("db.read.pool.enabled", "true");
+        properties.putIfAbsent("db.read.pool.min.size", "1");
+        properties.putIfAbsent("db.read.pool.max.size", "4");
+        properties.putIfAbsent("db.mysql.read.url", "");
+        
+        properties.putIfAbsent("persistence.batch.size", "100");
+        properties.putIfAbsent("persistence.flush.interval.ms", "50");
+        properties.putIfAbsent("persistence.durability", "sync-on-terminal");
+        properties.putIfAbsent("persistence.sync.timeout.ms", "30000");
+        properties.putIfAbsent("execution.store.type", "jdbc");
+        properties.putIfAbsent("execution.store.memory.capacity", "100000");
+        properties.putIfAbsent("execution.store.log.directory", "./data/executions");
+        properties.putIfAbsent("execution.store.log.segment.size.mb", "64");
+        properties.putIfAbsent("result.compress.threshold.bytes", "1024");
+        properties.putIfAbsent("result.inline.max.bytes", "65536");
+        properties.putIfAbsent("result.max.bytes", "16777216");
+        properties.putIfAbsent("result.spill.directory", "./data/results");
+        properties.putIfAbsent("journal.enabled", "true");
+        properties.putIfAbsent("journal.directory", "./data/journal");
+        properties.putIfAbsent("journal.segment.size.mb", "16");
+        properties.putIfAbsent("journal.fsync.interval.ms", "100");
+        properties.putIfAbsent("journal.recovery.policy", "requeue-queued");
+        properties.putIfAbsent("journal.retry.interval.ms", "5000");
+        
+        properties.putIfAbsent("db.retention.days", "0");
+        properties.putIfAbsent("db.retention.max.per.job", "0");
+        properties.putIfAbsent("db.retention.chunk.size", "1000");
+        properties.putIfAbsent("db.retention.interval.minutes", "60");
+        properties.putIfAbsent("archive.enabled", "false");
+        properties.putIfAbsent("archive.directory", "./data/archive");
+        properties.putIfAbsent("archive.after.days", "30");
+        properties.putIfAbsent("archive.segment.max.rows", "50000");
+        properties.putIfAbsent("archive.interval.minutes", "60");
+        properties.putIfAbsent("archive.retention.days", "365");
+        properties.putIfAbsent("db.mysql.partitioning.enabled", "false");
+        properties.putIfAbsent("db.mysql.partitioning.days.ahead", "7");
+        
+        properties.putIfAbsent("stats.retention.minutes", "120");
+        properties.putIfAbsent("stats.retention.hours", "48");
+        properties.putIfAbsent("stats.retention.days", "90");
+        properties.putIfAbsent("stats.persist.interval.seconds", "60");
         
         properties.putIfAbsent("executor.core.pool.size", "10");
         properties.putIfAbsent("executor.max.pool.size", "50");
         properties.putIfAbsent("executor.queue.capacity", "100");
         properties.putIfAbsent("executor.keep.alive.seconds", "60");
+        properties.putIfAbsent("execution.id.generator", "time-ordered");
+        properties.putIfAbsent("engine.init.parallelism", "8");
+        properties.putIfAbsent("engine.init.timeout.seconds", "60");
+        properties.putIfAbsent("engine.shutdown.drain.seconds", "30");
         
         properties.putIfAbsent("log.retention.days", "30");
         properties.putIfAbsent("job.history.limit", "100");
         properties.putIfAbsent("log.directory", "./logs");
+        properties.putIfAbsent("log.execution.max.open.files", "256");
+        properties.putIfAbsent("log.execution.queue.size", "8192");
+        properties.putIfAbsent("log.execution.overflow", "block");
+        properties.putIfAbsent("log.execution.max.size.mb", "256");
+        properties.putIfAbsent("log.execution.max.lines", "0");
+        properties.putIfAbsent("log.execution.rate.limit", "5000");
+        properties.putIfAbsent("log.execution.rate.burst", "50000");
+        properties.putIfAbsent("log.execution.rate.overflow", "drop");
+        properties.putIfAbsent("log.execution.rate.sample", "100");
+        properties.putIfAbsent("log.compression.codec", "gzip");
+        properties.putIfAbsent("log.compression.level", "6");
+        properties.putIfAbsent("log.search.enabled", "true");
+        properties.putIfAbsent("log.search.max.size.mb", "512");
         
         properties.putIfAbsent("jobs.directory", "./jobs");
         properties.putIfAbsent("jobs.scan.interval.seconds", "10");
@@ -110,7 +185,9 @@ public class BatchillerConfiguration {
     
     public String getDatabaseUrl() {
         if ("h2".equals(getDatabaseType())) {
-            return "jdbc:h2:" + get("db.h2.path", "./data/batchiller");
+            // The application closes the database itself after draining the engine,
+            // so H2 must not close it from its own shutdown hook first
+            return "jdbc:h2:" + get("db.h2.path", "./data/batchiller") + ";DB_CLOSE_ON_EXIT=FALSE";
         } else {
             return get("db.mysql.url", "jdbc:mysql://localhost:3306/batchiller");
         }
@@ -132,6 +209,210 @@ public class BatchillerConfiguration {
         }
     }
     
+    public int getPoolMinSize() {
+        return getInt("db.pool.min.size", 2);
+    }
+    
+    public int getPoolMaxSize() {
+        return getInt("db.pool.max.size", 10);
+    }
+    
+    public long getPoolConnectionTimeoutMillis() {
+        return getInt("db.pool.connection.timeout.ms", 30000);
+    }
+    
+    public int getPoolValidationTimeoutSeconds() {
+        return getInt("db.pool.validation.timeout.seconds", 5);
+    }
+    
+    public long getPoolValidationIdleMillis() {
+        return getInt("db.pool.validation.idle.ms", 30000);
+    }
+    
+    public long getPoolLeakDetectionThresholdMillis() {
+        return getInt("db.pool.leak.detection.threshold.ms", 60000);
+    }
+    
+    public int getPoolStatementCacheSize() {
+        return getInt("db.pool.statement.cache.size", 32);
+    }
+    
+    public boolean isReadPoolEnabled() {
+        return Boolean.parseBoolean(get("db.read.pool.enabled", "true"));
+    }
+    
+    public int getReadPoolMinSize() {
+        return getInt("db.read.pool.min.size", 1);
+    }
+    
+    public int getReadPoolMaxSize() {
+        return getInt("db.read.pool.max.size", 4);
+    }
+    
+    /**
+     * Returns the URL that history queries read from: the MySQL read replica
+     * when one is configured, otherwise the primary database.
+     */
+    public String getDatabaseReadUrl() {
+        String replicaUrl = get("db.mysql.read.url", "");
+        if (!"h2".equals(getDatabaseType()) && !replicaUrl.isEmpty()) {
+            return replicaUrl;
+        }
+        return getDatabaseUrl();
+    }
+    
+    public String getDatabaseReadUsername() {
+        if ("h2".equals(getDatabaseType())) {
+            return getDatabaseUsername();
+        }
+        return get("db.mysql.read.username", getDatabaseUsername());
+    }
+    
+    public String getDatabaseReadPassword() {
+        if ("h2".equals(getDatabaseType())) {
+            return getDatabasePassword();
+        }
+        return get("db.mysql.read.password", getDatabasePassword());
+    }
+    
+    public int getPersistenceBatchSize() {
+        return getInt("persistence.batch.size", 100);
+    }
+    
+    public long getPersistenceFlushIntervalMillis() {
+        return getInt("persistence.flush.interval.ms", 50);
+    }
+    
+    public String getPersistenceDurability() {
+        return get("persistence.durability", "sync-on-terminal");
+    }
+    
+    public long getPersistenceSyncTimeoutMillis() {
+        return getInt("persistence.sync.timeout.ms", 30000);
+    }
+    
+    public int getExecutionRetentionDays() {
+        return getInt("db.retention.days", 0);
+    }
+    
+    public int getExecutionRetentionMaxPerJob() {
+        return getInt("db.retention.max.per.job", 0);
+    }
+    
+    public int getRetentionChunkSize() {
+        return getInt("db.retention.chunk.size", 1000);
+    }
+    
+    public int getRetentionIntervalMinutes() {
+        return getInt("db.retention.interval.minutes", 60);
+    }
+    
+    public boolean isArchiveEnabled() {
+        return Boolean.parseBoolean(get("archive.enabled", "false"));
+    }
+    
+    public String getArchiveDirectory() {
+        return get("archive.directory", "./data/archive");
+    }
+    
+    public int getArchiveAfterDays() {
+        return getInt("archive.after.days", 30);
+    }
+    
+    public int getArchiveSegmentMaxRows() {
+        return getInt("archive.segment.max.rows", 50000);
+    }
+    
+    public int getArchiveIntervalMinutes() {
+        return getInt("archive.interval.minutes", 60);
+    }
+    
+    public int getArchiveRetentionDays() {
+        return getInt("archive.retention.days", 365);
+    }
+    
+    public boolean isMysqlPartitioningEnabled() {
+        String value = get("db.mysql.partitioning.enabled", "false");
+        return Boolean.parseBoolean(value);
+    }
+    
+    public int getMysqlPartitioningDaysAhead() {
+        return getInt("db.mysql.partitioning.days.ahead", 7);
+    }
+    
+    public String getExecutionStoreType() {
+        return get("execution.store.type", "jdbc");
+    }
+    
+    public int getExecutionStoreMemoryCapacity() {
+        return getInt("execution.store.memory.capacity", 100000);
+    }
+    
+    public String getExecutionStoreLogDirectory() {
+        return get("execution.store.log.directory", "./data/executions");
+    }
+    
+    public int getExecutionStoreLogSegmentSizeMb() {
+        return getInt("execution.store.log.segment.size.mb", 64);
+    }
+    
+    public int getResultCompressThresholdBytes() {
+        return getInt("result.compress.threshold.bytes", 1024);
+    }
+    
+    public int getResultInlineMaxBytes() {
+        return getInt("result.inline.max.bytes", 65536);
+    }
+    
+    public int getResultMaxBytes() {
+        return getInt("result.max.bytes", 16777216);
+    }
+    
+    public String getResultSpillDirectory() {
+        return get("result.spill.directory", "./data/results");
+    }
+    
+    public boolean isJournalEnabled() {
+        String value = get("journal.enabled", "true");
+        return Boolean.parseBoolean(value);
+    }
+    
+    public String getJournalDirectory() {
+        return get("journal.directory", "./data/journal");
+    }
+    
+    public int getJournalSegmentSizeMb() {
+        return getInt("journal.segment.size.mb", 16);
+    }
+    
+    public int getJournalFsyncIntervalMillis() {
+        return getInt("journal.fsync.interval.ms", 100);
+    }
+    
+    public String getJournalRecoveryPolicy() {
+        return get("journal.recovery.policy", "requeue-queued");
+    }
+    
+    public int getJournalRetryIntervalMillis() {
+        return getInt("journal.retry.interval.ms", 5000);
+    }
+    
+    public int getStatsRetentionMinutes() {
+        return getInt("stats.retention.minutes", 120);
+    }
+    
+    public int getStatsRetentionHours() {
+        return getInt("stats.retention.hours", 48);
+    }
+    
+    public int getStatsRetentionDays() {
+        return getInt("stats.retention.days", 90);
+    }
+    
+    public int getStatsPersistIntervalSeconds() {
+        return getInt("stats.persist.interval.seconds", 60);
+    }
+    
     public int getCorePoolSize() {
         return getInt("executor.core.pool.size", 10);
     }
@@ -144,6 +425,22 @@ public class BatchillerConfiguration {
         return getInt("executor.queue.capacity", 100);
     }
     
+    public String getExecutionIdGenerator() {
+        return get("execution.id.generator", "time-ordered");
+    }
+    
+    public int getJobInitParallelism() {
+        return Math.max(1, getInt("engine.init.parallelism", 8));
+    }
+    
+    public int getJobInitTimeoutSeconds() {
+        return getInt("engine.init.timeout.seconds", 60);
+    }
+    
+    public int getShutdownDrainSeconds() {
+        return getInt("engine.shutdown.drain.seconds", 30);
+    }
+    
     public int getLogRetentionDays() {
         return getInt("log.retention.days", 30);
     }
@@ -156,6 +453,59 @@ public class BatchillerConfiguration {
         return get("log.directory", "./logs");
     }
     
+    public int getExecutionLogMaxOpenFiles() {
+        return getInt("log.execution.max.open.files", 256);
+    }
+    
+    public int getExecutionLogQueueSize() {
+        return getInt("log.execution.queue.size", 8192);
+    }
+    
+    public boolean isExecutionLogDropWhenFull() {
+        return "drop".equalsIgnoreCase(get("log.execution.overflow", "block"));
+    }
+    
+    public int getExecutionLogMaxSizeMb() {
+        return getInt("log.execution.max.size.mb", 256);
+    }
+    
+    public int getExecutionLogMaxLines() {
+        return getInt("log.execution.max.lines", 0);
+    }
+    
+    public int getExecutionLogRateLimit() {
+        return getInt("log.execution.rate.limit", 5000);
+    }
+    
+    public int getExecutionLogRateBurst() {
+        return getInt("log.execution.rate.burst", 50000);
+    }
+    
+    /**
+     * Returns how many records over the rate limit are dropped for each one
+     * kept, or 0 if they are all dropped.
+     */
+    public int getExecutionLogRateSample() {
+        return "sample".equalsIgnoreCase(get("log.execution.rate.overflow", "drop"))
+            ? Math.max(1, getInt("log.execution.rate.sample", 100)) : 0;
+    }
+    
+    public String getLogCompressionCodec() {
+        return get("log.compression.codec", "gzip");
+    }
+    
+    public int getLogCompressionLevel() {
+        return getInt("log.compression.level", 6);
+    }
+    
+    public boolean isLogSearchEnabled() {
+        return Boolean.parseBoolean(get("log.search.enabled", "true"));
+    }
+    
+    public int getLogSearchMaxSizeMb() {
+        return getInt("log.search.max.size.mb", 512);
+    }
+    
     public int getKeepAliveSeconds() {
         return getInt("executor.keep.alive.seconds", 60);
     }
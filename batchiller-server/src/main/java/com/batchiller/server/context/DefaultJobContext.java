@@ -24,6 +24,7 @@ public class DefaultJobContext implements JobContext {
     private final String triggeredBy;
     private final boolean isRetry;
     private final int retryAttempt;
+    private volatile double progress;
     
     public DefaultJobContext(String executionId, String jobName, String pipelineName,
                            Map<String, Object> parameters, String triggerType, String triggeredBy,
@@ -83,4 +84,13 @@ public class DefaultJobContext implements JobContext {
     public int getRetryAttempt() {
         return retryAttempt;
     }
+    
+    @Override
+    public void reportProgress(double progress) {
+        this.progress = Math.max(0.0, Math.min(1.0, progress));
+    }
+    
+    public double getProgress() {
+        return progress;
+    }
 }
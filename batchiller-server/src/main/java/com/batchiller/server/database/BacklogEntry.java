@@ -0,0 +1,61 @@
+package com.batchiller.server.database;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * A queued execution that was not started before shutdown and is persisted
+ * so that it can be re-enqueued on the next start.
+ * 
+ * @author Siddharth Mishra &lt;mishra.siddharth90@gmail.com&gt;
+ * @version 1.0
+ */
+public class BacklogEntry {
+    
+    private final String executionId;
+    private final String jobName;
+    private final String pipelineName;
+    private final Map<String, Object> parameters;
+    private final String triggeredBy;
+    private final String triggerType;
+    private final LocalDateTime enqueuedAt;
+    
+    public BacklogEntry(String executionId, String jobName, String pipelineName, Map<String, Object> parameters,
+                        String triggeredBy, String triggerType, LocalDateTime enqueuedAt) {
+        this.executionId = executionId;
+        this.jobName = jobName;
+        this.pipelineName = pipelineName;
+        this.parameters = parameters != null ? parameters : Map.of();
+        this.triggeredBy = triggeredBy;
+        this.triggerType = triggerType;
+        this.enqueuedAt = enqueuedAt;
+    }
+    
+    public String getExecutionId() {
+        return executionId;
+    }
+    
+    public String getJobName() {
+        return jobName;
+    }
+    
+    public String getPipelineName() {
+        return pipelineName;
+    }
+    
+    public Map<String, Object> getParameters() {
+        return parameters;
+    }
+    
+    public String getTriggeredBy() {
+        return triggeredBy;
+    }
+    
+    public String getTriggerType() {
+        return triggerType;
+    }
+    
+    public LocalDateTime getEnqueuedAt() {
+        return enqueuedAt;
+    }
+}
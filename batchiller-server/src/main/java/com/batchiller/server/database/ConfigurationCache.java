@@ -0,0 +1,186 @@
+package com.batchiller.server.database;
+
+import com.batchiller.server.scheduler.ScheduledJob;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A write-through cache of scheduled jobs and pipeline configurations, which
+ * the dashboard polls far more often than they change. Each table is read
+ * once, on first use; after that {@link DatabaseManager} applies its own
+ * successful writes here, so reads never go back to the database or re-parse
+ * the parameters JSON.
+ *
+ * <p>Every write bumps a version, which HTTP clients get as an ETag. Sorted
+ * snapshots are rebuilt lazily after a write and served lock-free until the
+ * next one.</p>
+ *
+ * @author Siddharth Mishra &lt;mishra.siddharth90@gmail.com&gt;
+ * @version 1.0
+ */
+public class ConfigurationCache {
+    
+    private static final Comparator<ScheduledJob> BY_NAME =
+        Comparator.comparing(ScheduledJob::getName, Comparator.nullsFirst(Comparator.naturalOrder()));
+    private static final Comparator<PipelineEntry> BY_UPDATED_DESC =
+        Comparator.comparing((PipelineEntry entry) -> entry.updatedAt).reversed();
+    
+    /**
+     * Reads a whole table; failures propagate so that they are not cached as an empty table.
+     */
+    interface Loader<T> {
+        List<T> load() throws SQLException;
+    }
+    
+    private final Object lock = new Object();
+    private final AtomicLong version = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong writes = new AtomicLong();
+    
+    // Both maps are null until loaded and guarded by the lock
+    private Map<String, ScheduledJob> schedules;
+    private Map<String, PipelineEntry> pipelines;
+    private volatile List<ScheduledJob> scheduleSnapshot;
+    private volatile List<Map<String, Object>> pipelineSnapshot;
+    
+    /**
+     * Returns the scheduled jobs ordered by name. The jobs are shared, so
+     * callers must copy them before changing them.
+     */
+    List<ScheduledJob> getScheduledJobs(Loader<ScheduledJob> loader) throws SQLException {
+        List<ScheduledJob> snapshot = scheduleSnapshot;
+        if (snapshot != null) {
+            hits.incrementAndGet();
+            return snapshot;
+        }
+        synchronized (lock) {
+            if (schedules == null) {
+                misses.incrementAndGet();
+                Map<String, ScheduledJob> loaded = new HashMap<>();
+                for (ScheduledJob job : loader.load()) {
+                    loaded.put(job.getId(), job);
+                }
+                schedules = loaded;
+            } else {
+                hits.incrementAndGet();
+            }
+            List<ScheduledJob> sorted = new ArrayList<>(schedules.values());
+            sorted.sort(BY_NAME);
+            snapshot = Collections.unmodifiableList(sorted);
+            scheduleSnapshot = snapshot;
+            return snapshot;
+        }
+    }
+    
+    ScheduledJob getScheduledJob(String id, Loader<ScheduledJob> loader) throws SQLException {
+        getScheduledJobs(loader);
+        synchronized (lock) {
+            return schedules.get(id);
+        }
+    }
+    
+    void putScheduledJob(ScheduledJob job) {
+        synchronized (lock) {
+            if (schedules != null) {
+                schedules.put(job.getId(), job.copy());
+            }
+            scheduleSnapshot = null;
+            written();
+        }
+    }
+    
+    void removeScheduledJob(String id) {
+        synchronized (lock) {
+            if (schedules != null) {
+                schedules.remove(id);
+            }
+            scheduleSnapshot = null;
+            written();
+        }
+    }
+    
+    /**
+     * Returns the pipeline configurations, most recently updated first.
+     */
+    List<Map<String, Object>> getPipelineConfigurations(Loader<Map<String, Object>> loader) throws SQLException {
+        List<Map<String, Object>> snapshot = pipelineSnapshot;
+        if (snapshot != null) {
+            hits.incrementAndGet();
+            return snapshot;
+        }
+        synchronized (lock) {
+            if (pipelines == null) {
+                misses.incrementAndGet();
+                Map<String, PipelineEntry> loaded = new HashMap<>();
+                for (Map<String, Object> configuration : loader.load()) {
+                    loaded.put((String) configuration.get("id"), new PipelineEntry(configuration));
+                }
+                pipelines = loaded;
+            } else {
+                hits.incrementAndGet();
+            }
+            List<PipelineEntry> sorted = new ArrayList<>(pipelines.values());
+            sorted.sort(BY_UPDATED_DESC);
+            List<Map<String, Object>> configurations = new ArrayList<>(sorted.size());
+            sorted.forEach(entry -> configurations.add(entry.configuration));
+            snapshot = Collections.unmodifiableList(configurations);
+            pipelineSnapshot = snapshot;
+            return snapshot;
+        }
+    }
+    
+    void putPipelineConfiguration(Map<String, Object> configuration) {
+        synchronized (lock) {
+            if (pipelines != null) {
+                pipelines.put((String) configuration.get("id"), new PipelineEntry(configuration));
+            }
+            pipelineSnapshot = null;
+            written();
+        }
+    }
+    
+    private void written() {
+        version.incrementAndGet();
+        writes.incrementAndGet();
+    }
+    
+    public long getVersion() {
+        return version.get();
+    }
+    
+    public Map<String, Object> getMetrics() {
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("version", version.get());
+        metrics.put("hits", hitCount);
+        metrics.put("misses", missCount);
+        metrics.put("hit_ratio", hitCount + missCount > 0 ? (double) hitCount / (hitCount + missCount) : 0.0);
+        metrics.put("writes", writes.get());
+        synchronized (lock) {
+            metrics.put("scheduled_jobs", schedules != null ? schedules.size() : -1);
+            metrics.put("pipeline_configurations", pipelines != null ? pipelines.size() : -1);
+        }
+        return metrics;
+    }
+    
+    private static final class PipelineEntry {
+        private final Map<String, Object> configuration;
+        private final LocalDateTime updatedAt;
+    
+        PipelineEntry(Map<String, Object> configuration) {
+            this.configuration = configuration;
+            this.updatedAt = java.sql.Timestamp.valueOf((String) configuration.get("updatedAt")).toLocalDateTime();
+        }
+    }
+}
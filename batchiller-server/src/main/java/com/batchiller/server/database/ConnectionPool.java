@@ -0,0 +1,267 @@
+package com.batchiller.server.database;
+
+import com.batchiller.server.config.BatchillerConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded JDBC connection pool. Idle connections are validated before reuse,
+ * connections held longer than the leak detection threshold are reported with
+ * the stack trace of the borrower, and every connection keeps its own
+ * prepared-statement cache.
+ * 
+ * @author Siddharth Mishra &lt;mishra.siddharth90@gmail.com&gt;
+ * @version 1.0
+ */
+public class ConnectionPool {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ConnectionPool.class);
+    
+    private final String name;
+    private final String url;
+    private final String username;
+    private final String password;
+    private final int minSize;
+    private final int maxSize;
+    private final long connectionTimeoutMillis;
+    private final int validationTimeoutSeconds;
+    private final long validationIdleMillis;
+    private final long leakDetectionThresholdMillis;
+    private final int statementCacheSize;
+    private final boolean readOnly;
+    private final String initSql;
+    
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Set<PooledConnection> inUse = ConcurrentHashMap.newKeySet();
+    private final Semaphore permits;
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final AtomicLong waitCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong leaksDetected = new AtomicLong();
+    private final AtomicLong statementCacheHits = new AtomicLong();
+    private final AtomicLong statementCacheMisses = new AtomicLong();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed;
+    
+    public ConnectionPool(String name, String url, String username, String password,
+                          BatchillerConfiguration config) throws SQLException {
+        this(name, url, username, password, config.getPoolMinSize(), config.getPoolMaxSize(), false, null, config);
+    }
+    
+    /**
+     * Creates a pool with its own size. Read-only pools mark every connection
+     * read-only, and {@code initSql}, when not null, runs once on every new
+     * connection to set up its session.
+     */
+    public ConnectionPool(String name, String url, String username, String password, int minSize, int maxSize,
+                          boolean readOnly, String initSql, BatchillerConfiguration config) throws SQLException {
+        this.name = name;
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.maxSize = Math.max(1, maxSize);
+        this.minSize = Math.max(0, Math.min(minSize, this.maxSize));
+        this.readOnly = readOnly;
+        this.initSql = initSql;
+        this.connectionTimeoutMillis = config.getPoolConnectionTimeoutMillis();
+        this.validationTimeoutSeconds = config.getPoolValidationTimeoutSeconds();
+        this.validationIdleMillis = config.getPoolValidationIdleMillis();
+        this.leakDetectionThresholdMillis = config.getPoolLeakDetectionThresholdMillis();
+        this.statementCacheSize = config.getPoolStatementCacheSize();
+        this.permits = new Semaphore(this.maxSize, true);
+        
+        for (int i = 0; i < this.minSize; i++) {
+            idle.offer(openConnection());
+        }
+        
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ConnectionPool-" + name);
+            t.setDaemon(true);
+            return t;
+        });
+        if (leakDetectionThresholdMillis > 0) {
+            long interval = Math.max(1000, leakDetectionThresholdMillis / 2);
+            housekeeper.scheduleWithFixedDelay(this::detectLeaks, interval, interval, TimeUnit.MILLISECONDS);
+        }
+        
+        logger.info("Connection pool '{}' started (min: {}, max: {}{})", name, this.minSize, this.maxSize,
+            readOnly ? ", read-only" : "");
+    }
+    
+    /**
+     * Borrows a connection, waiting up to the connection timeout for one to become available.
+     */
+    public PooledConnection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool '" + name + "' is closed");
+        }
+        
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(connectionTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                timeouts.incrementAndGet();
+                throw new SQLException("Timed out after " + connectionTimeoutMillis
+                    + "ms waiting for a connection from pool '" + name + "'");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection", e);
+        }
+        recordWait(System.nanoTime() - start);
+        
+        try {
+            PooledConnection connection = takeValidIdle();
+            if (connection == null) {
+                connection = openConnection();
+            }
+            connection.markBorrowed(leakDetectionThresholdMillis > 0);
+            inUse.add(connection);
+            return connection;
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+    
+    void release(PooledConnection connection) {
+        if (!inUse.remove(connection)) {
+            return;
+        }
+        try {
+            if (closed || connection.getConnection().isClosed()) {
+                discard(connection);
+                return;
+            }
+            if (!connection.getConnection().getAutoCommit()) {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+            connection.markReturned();
+            idle.offerFirst(connection);
+        } catch (SQLException e) {
+            logger.warn("Discarding broken connection from pool '{}': {}", name, e.getMessage());
+            discard(connection);
+        } finally {
+            permits.release();
+        }
+    }
+    
+    private PooledConnection takeValidIdle() {
+        PooledConnection connection;
+        while ((connection = idle.pollFirst()) != null) {
+            if (System.currentTimeMillis() - connection.getLastUsedMillis() < validationIdleMillis
+                    || isValid(connection)) {
+                return connection;
+            }
+            logger.warn("Discarding invalid idle connection from pool '{}'", name);
+            discard(connection);
+        }
+        return null;
+    }
+    
+    private boolean isValid(PooledConnection connection) {
+        try {
+            return connection.getConnection().isValid(validationTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+    
+    private PooledConnection openConnection() throws SQLException {
+        java.sql.Connection physical = DriverManager.getConnection(url, username, password);
+        try {
+            if (readOnly) {
+                physical.setReadOnly(true);
+            }
+            if (initSql != null) {
+                try (java.sql.Statement stmt = physical.createStatement()) {
+                    stmt.execute(initSql);
+                }
+            }
+        } catch (SQLException e) {
+            physical.close();
+            throw e;
+        }
+        PooledConnection connection = new PooledConnection(this, physical, statementCacheSize);
+        totalConnections.incrementAndGet();
+        return connection;
+    }
+    
+    private void discard(PooledConnection connection) {
+        totalConnections.decrementAndGet();
+        connection.closePhysical();
+    }
+    
+    private void recordWait(long nanos) {
+        waitCount.incrementAndGet();
+        totalWaitNanos.addAndGet(nanos);
+        maxWaitNanos.accumulateAndGet(nanos, Math::max);
+    }
+    
+    void recordStatementCacheHit() {
+        statementCacheHits.incrementAndGet();
+    }
+    
+    void recordStatementCacheMiss() {
+        statementCacheMisses.incrementAndGet();
+    }
+    
+    private void detectLeaks() {
+        long now = System.currentTimeMillis();
+        for (PooledConnection connection : inUse) {
+            if (!connection.isLeakReported() && now - connection.getBorrowedAtMillis() > leakDetectionThresholdMillis) {
+                connection.setLeakReported();
+                leaksDetected.incrementAndGet();
+                logger.warn("Possible connection leak in pool '{}': connection held for {}ms",
+                    name, now - connection.getBorrowedAtMillis(), connection.getBorrowTrace());
+            }
+        }
+    }
+    
+    public Map<String, Object> getMetrics() {
+        long waits = waitCount.get();
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("total_connections", totalConnections.get());
+        metrics.put("active_connections", inUse.size());
+        metrics.put("idle_connections", idle.size());
+        metrics.put("max_connections", maxSize);
+        metrics.put("read_only", readOnly);
+        metrics.put("pending_requests", permits.getQueueLength());
+        metrics.put("wait_avg_ms", waits > 0 ? totalWaitNanos.get() / waits / 1_000_000.0 : 0);
+        metrics.put("wait_max_ms", maxWaitNanos.get() / 1_000_000.0);
+        metrics.put("wait_timeouts", timeouts.get());
+        metrics.put("leaks_detected", leaksDetected.get());
+        metrics.put("statement_cache_hits", statementCacheHits.get());
+        metrics.put("statement_cache_misses", statementCacheMisses.get());
+        return metrics;
+    }
+    
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        PooledConnection connection;
+        while ((connection = idle.pollFirst()) != null) {
+            discard(connection);
+        }
+        if (!inUse.isEmpty()) {
+            logger.warn("Closing pool '{}' with {} connections still in use", name, inUse.size());
+        }
+        logger.info("Connection pool '{}' closed", name);
+    }
+}
@@ -3,7 +3,13 @@ package com.batchiller.server.database;
 import com.batchiller.api.JobExecutionInfo;
 import com.batchiller.api.JobStatus;
 import com.batchiller.server.config.BatchillerConfiguration;
+import com.batchiller.server.monitoring.DurationSketch;
+import com.batchiller.server.monitoring.StatsBucket;
 import com.batchiller.server.scheduler.ScheduledJob;
+import com.batchiller.server.store.ExecutionPage;
+import com.batchiller.server.store.ExecutionQuery;
+import com.batchiller.server.store.StoredResult;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import org.slf4j.Logger;
@@ -25,8 +31,10 @@ public class DatabaseManager {
     
     private static final Logger logger = LoggerFactory.getLogger(DatabaseManager.class);
     private final BatchillerConfiguration config;
-    private Connection connection;
+    private ConnectionPool pool;
+    private ConnectionPool readPool;
     private final ObjectMapper objectMapper;
+    private final ConfigurationCache configurationCache = new ConfigurationCache();
     
     public DatabaseManager(BatchillerConfiguration config) {
         this.config = config;
@@ -41,8 +49,17 @@ public class DatabaseManager {
             String username = config.getDatabaseUsername();
             String password = config.getDatabasePassword();
             
-            connection = DriverManager.getConnection(url, username, password);
-            createTables();
+            pool = new ConnectionPool("primary", url, username, password, config);
+            new SchemaMigrator(pool, config.getDatabaseType()).migrate();
+            readPool = pool;
+            if (config.isReadPoolEnabled()) {
+                try {
+                    readPool = createReadPool();
+                } catch (SQLException e) {
+                    logger.error("Failed to open read pool on " + config.getDatabaseReadUrl()
+                        + "; history queries will use the primary pool", e);
+                }
+            }
             logger.info("Database initialized successfully: {}", url);
         } catch (SQLException e) {
             logger.error("Failed to initialize database", e);
@@ -50,129 +67,156 @@ public class DatabaseManager {
         }
     }
     
-    private void createTables() throws SQLException {
-        String createJobExecutionsTable = """
-            CREATE TABLE IF NOT EXISTS job_executions (
-                execution_id VARCHAR(255) PRIMARY KEY,
-                job_name VARCHAR(255) NOT NULL,
-                pipeline_name VARCHAR(255),
-                status VARCHAR(50) NOT NULL,
-                start_time TIMESTAMP NOT NULL,
-                end_time TIMESTAMP,
-                thread_name VARCHAR(255),
-                triggered_by VARCHAR(255),
-                trigger_type VARCHAR(50),
-                is_retry BOOLEAN,
-                retry_attempt INT,
-                result_message TEXT,
-                error_message TEXT,
-                duration_millis BIGINT
-            )
-        """;
-        
-        String createPipelineConfigsTable = """
-            CREATE TABLE IF NOT EXISTS pipeline_configurations (
-                id VARCHAR(255) PRIMARY KEY,
-                name VARCHAR(255) NOT NULL,
-                description TEXT,
-                flow_type VARCHAR(50) NOT NULL,
-                config_json TEXT NOT NULL,
-                created_at TIMESTAMP NOT NULL,
-                updated_at TIMESTAMP NOT NULL
-            )
-        """;
-
-        String createScheduledJobsTable = """
-            CREATE TABLE IF NOT EXISTS scheduled_jobs (
-                id VARCHAR(255) PRIMARY KEY,
-                name VARCHAR(255) NOT NULL,
-                type VARCHAR(50) NOT NULL,
-                target_name VARCHAR(255) NOT NULL,
-                cron_expression VARCHAR(255) NOT NULL,
-                parameters TEXT,
-                enabled BOOLEAN NOT NULL,
-                last_execution_time TIMESTAMP,
-                next_execution_time TIMESTAMP,
-                created_at TIMESTAMP NOT NULL,
-                updated_at TIMESTAMP NOT NULL
-            )
-        """;
-        
-        try (Statement stmt = connection.createStatement()) {
-            stmt.execute(createJobExecutionsTable);
-            stmt.execute(createPipelineConfigsTable);
-            stmt.execute(createScheduledJobsTable);
-        }
+    /**
+     * History queries go through their own read-only pool, so dashboard
+     * polling cannot take the connections execution writes need. On H2 the
+     * read connections use snapshot isolation; MVCC readers never block
+     * writers. On MySQL the pool reads from the replica if one is configured.
+     */
+    private ConnectionPool createReadPool() throws SQLException {
+        String initSql = "h2".equals(config.getDatabaseType())
+            ? "SET SESSION CHARACTERISTICS AS TRANSACTION ISOLATION LEVEL SNAPSHOT"
+            : null;
+        return new ConnectionPool("read", config.getDatabaseReadUrl(), config.getDatabaseReadUsername(),
+            config.getDatabaseReadPassword(), config.getReadPoolMinSize(), config.getReadPoolMaxSize(),
+            true, initSql, config);
     }
     
-    public void saveJobExecution(JobExecutionInfo info) {
-        String sql = """
+    private static final String INSERT_EXECUTION_SQL = """
             INSERT INTO job_executions 
             (execution_id, job_name, pipeline_name, status, start_time, end_time, 
              thread_name, triggered_by, trigger_type, is_retry, retry_attempt, 
-             result_message, error_message, duration_millis)
-            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+             result_message, error_message, duration_millis, log_lines_suppressed)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
         """;
-        
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, info.getExecutionId());
-            pstmt.setString(2, info.getJobName());
-            pstmt.setString(3, info.getPipelineName());
-            pstmt.setString(4, info.getStatus().name());
-            pstmt.setTimestamp(5, Timestamp.valueOf(info.getStartTime()));
-            pstmt.setTimestamp(6, info.getEndTime() != null ? Timestamp.valueOf(info.getEndTime()) : null);
-            pstmt.setString(7, info.getThreadName());
-            pstmt.setString(8, info.getTriggeredBy());
-            pstmt.setString(9, info.getTriggerType());
-            pstmt.setBoolean(10, info.isRetry());
-            pstmt.setInt(11, info.getRetryAttempt());
-            pstmt.setString(12, info.getResultMessage());
-            pstmt.setString(13, info.getErrorMessage());
-            pstmt.setLong(14, info.getDurationMillis());
-            
-            pstmt.executeUpdate();
-        } catch (SQLException e) {
-            logger.error("Failed to save job execution: " + info.getExecutionId(), e);
-        }
-    }
     
-    public void updateJobExecution(JobExecutionInfo info) {
-        String sql = """
+    private static final String UPDATE_EXECUTION_SQL = """
             UPDATE job_executions 
-            SET status = ?, end_time = ?, result_message = ?, error_message = ?, duration_millis = ?
+            SET status = ?, end_time = ?, thread_name = ?, result_message = ?, error_message = ?, duration_millis = ?,
+                log_lines_suppressed = ?
             WHERE execution_id = ?
         """;
-        
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, info.getStatus().name());
-            pstmt.setTimestamp(2, info.getEndTime() != null ? Timestamp.valueOf(info.getEndTime()) : null);
-            pstmt.setString(3, info.getResultMessage());
-            pstmt.setString(4, info.getErrorMessage());
-            pstmt.setLong(5, info.getDurationMillis());
-            pstmt.setString(6, info.getExecutionId());
-            
+    
+    public void saveJobExecution(JobExecutionInfo info) throws SQLException {
+        try (PooledConnection conn = pool.getConnection()) {
+            PreparedStatement pstmt = conn.prepareStatement(INSERT_EXECUTION_SQL);
+            bindInsert(pstmt, info);
             pstmt.executeUpdate();
-        } catch (SQLException e) {
-            logger.error("Failed to update job execution: " + info.getExecutionId(), e);
         }
     }
     
+    /**
+     * Updates an execution, inserting it if no row matched (its insert failed or was lost).
+     */
+    public void updateJobExecution(JobExecutionInfo info) throws SQLException {
+        try (PooledConnection conn = pool.getConnection()) {
+            PreparedStatement pstmt = conn.prepareStatement(UPDATE_EXECUTION_SQL);
+            bindUpdate(pstmt, info);
+            if (pstmt.executeUpdate() == 0) {
+                insertMissing(conn, List.of(info));
+            }
+        }
+    }
+    
+    /**
+     * Writes a group of execution inserts and updates as JDBC batches in a single
+     * transaction. Updates that match no row are inserted instead.
+     */
+    public void writeJobExecutions(List<JobExecutionInfo> inserts, List<JobExecutionInfo> updates) throws SQLException {
+        try (PooledConnection conn = pool.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                if (!inserts.isEmpty()) {
+                    PreparedStatement insert = conn.prepareStatement(INSERT_EXECUTION_SQL);
+                    for (JobExecutionInfo info : inserts) {
+                        bindInsert(insert, info);
+                        insert.addBatch();
+                    }
+                    insert.executeBatch();
+                }
+                if (!updates.isEmpty()) {
+                    PreparedStatement update = conn.prepareStatement(UPDATE_EXECUTION_SQL);
+                    for (JobExecutionInfo info : updates) {
+                        bindUpdate(update, info);
+                        update.addBatch();
+                    }
+                    int[] counts = update.executeBatch();
+                    List<JobExecutionInfo> missing = new ArrayList<>();
+                    for (int i = 0; i < counts.length; i++) {
+                        if (counts[i] == 0) {
+                            missing.add(updates.get(i));
+                        }
+                    }
+                    insertMissing(conn, missing);
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+    
+    private void insertMissing(PooledConnection conn, List<JobExecutionInfo> missing) throws SQLException {
+        if (missing.isEmpty()) {
+            return;
+        }
+        PreparedStatement insert = conn.prepareStatement(INSERT_EXECUTION_SQL);
+        for (JobExecutionInfo info : missing) {
+            logger.warn("Execution {} had no row to update; inserting it", info.getExecutionId());
+            bindInsert(insert, info);
+            insert.addBatch();
+        }
+        insert.executeBatch();
+    }
+    
+    private void bindInsert(PreparedStatement pstmt, JobExecutionInfo info) throws SQLException {
+        pstmt.setString(1, info.getExecutionId());
+        pstmt.setString(2, info.getJobName());
+        pstmt.setString(3, info.getPipelineName());
+        pstmt.setString(4, info.getStatus().name());
+        pstmt.setTimestamp(5, Timestamp.valueOf(info.getStartTime()));
+        pstmt.setTimestamp(6, info.getEndTime() != null ? Timestamp.valueOf(info.getEndTime()) : null);
+        pstmt.setString(7, info.getThreadName());
+        pstmt.setString(8, info.getTriggeredBy());
+        pstmt.setString(9, info.getTriggerType());
+        pstmt.setBoolean(10, info.isRetry());
+        pstmt.setInt(11, info.getRetryAttempt());
+        pstmt.setString(12, info.getResultMessage());
+        pstmt.setString(13, info.getErrorMessage());
+        pstmt.setLong(14, info.getDurationMillis());
+        pstmt.setLong(15, info.getLogLinesSuppressed());
+    }
+    
+    private void bindUpdate(PreparedStatement pstmt, JobExecutionInfo info) throws SQLException {
+        pstmt.setString(1, info.getStatus().name());
+        pstmt.setTimestamp(2, info.getEndTime() != null ? Timestamp.valueOf(info.getEndTime()) : null);
+        pstmt.setString(3, info.getThreadName());
+        pstmt.setString(4, info.getResultMessage());
+        pstmt.setString(5, info.getErrorMessage());
+        pstmt.setLong(6, info.getDurationMillis());
+        pstmt.setLong(7, info.getLogLinesSuppressed());
+        pstmt.setString(8, info.getExecutionId());
+    }
+    
     public List<JobExecutionInfo> getJobHistory(String jobName, int limit) {
         String sql = """
             SELECT * FROM job_executions 
             WHERE job_name = ? 
-            ORDER BY start_time DESC 
+            ORDER BY job_name, start_time DESC, execution_id DESC 
             LIMIT ?
         """;
         
         List<JobExecutionInfo> history = new ArrayList<>();
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (PooledConnection conn = readPool.getConnection()) {
+            PreparedStatement pstmt = conn.prepareStatement(sql);
             pstmt.setString(1, jobName);
             pstmt.setInt(2, limit);
             
-            ResultSet rs = pstmt.executeQuery();
-            while (rs.next()) {
-                history.add(mapResultSetToJobExecutionInfo(rs));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    history.add(mapResultSetToJobExecutionInfo(rs));
+                }
             }
         } catch (SQLException e) {
             logger.error("Failed to get job history for: " + jobName, e);
@@ -180,16 +224,38 @@ public class DatabaseManager {
         return history;
     }
     
+    /**
+     * Returns an execution, or null if it has not been written. Read failures
+     * are thrown rather than reported as a missing row.
+     */
+    public JobExecutionInfo getExecution(String executionId) throws SQLException {
+        String sql = "SELECT * FROM job_executions WHERE execution_id = ?";
+        
+        try (PooledConnection conn = readPool.getConnection()) {
+            PreparedStatement pstmt = conn.prepareStatement(sql);
+            pstmt.setString(1, executionId);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return mapResultSetToJobExecutionInfo(rs);
+                }
+            }
+        }
+        return null;
+    }
+    
     public List<JobExecutionInfo> getAllExecutions(int limit) {
         String sql = "SELECT * FROM job_executions ORDER BY start_time DESC LIMIT ?";
         
         List<JobExecutionInfo> executions = new ArrayList<>();
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (PooledConnection conn = readPool.getConnection()) {
+            PreparedStatement pstmt = conn.prepareStatement(sql);
             pstmt.setInt(1, limit);
             
-            ResultSet rs = pstmt.executeQuery();
-            while (rs.next()) {
-                executions.add(mapResultSetToJobExecutionInfo(rs));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    executions.add(mapResultSetToJobExecutionInfo(rs));
+                }
             }
         } catch (SQLException e) {
             logger.error("Failed to get all executions", e);
@@ -197,6 +263,84 @@ public class DatabaseManager {
         return executions;
     }
     
+    /**
+     * Returns one page of execution history matching the query, newest first.
+     * Pages are keyed on {@code (start_time, execution_id)} rather than OFFSET.
+     */
+    public ExecutionPage queryExecutions(ExecutionQuery query) throws SQLException {
+        StringBuilder sql = new StringBuilder("SELECT * FROM job_executions WHERE 1 = 1");
+        List<Object> params = new ArrayList<>();
+        
+        if (query.getJobName() != null) {
+            sql.append(" AND job_name = ?");
+            params.add(query.getJobName());
+        }
+        if (query.getPipelineName() != null) {
+            sql.append(" AND pipeline_name = ?");
+            params.add(query.getPipelineName());
+        }
+        if (!query.getStatuses().isEmpty()) {
+            sql.append(" AND status IN (").append(String.join(", ", java.util.Collections.nCopies(query.getStatuses().size(), "?"))).append(")");
+            query.getStatuses().forEach(status -> params.add(status.name()));
+        }
+        if (query.getTriggerType() != null) {
+            sql.append(" AND trigger_type = ?");
+            params.add(query.getTriggerType());
+        }
+        if (query.getStartedFrom() != null) {
+            sql.append(" AND start_time >= ?");
+            params.add(Timestamp.valueOf(query.getStartedFrom()));
+        }
+        if (query.getStartedTo() != null) {
+            sql.append(" AND start_time < ?");
+            params.add(Timestamp.valueOf(query.getStartedTo()));
+        }
+        if (query.getMinDurationMillis() != null) {
+            sql.append(" AND duration_millis >= ?");
+            params.add(query.getMinDurationMillis());
+        }
+        if (query.getMaxDurationMillis() != null) {
+            sql.append(" AND duration_millis <= ?");
+            params.add(query.getMaxDurationMillis());
+        }
+        if (query.hasCursor()) {
+            // Expanded form of (start_time, execution_id) < (?, ?), which older MySQL versions do not turn into an index range
+            Timestamp cursorTime = Timestamp.valueOf(query.getCursorStartTime());
+            sql.append(" AND (start_time < ? OR (start_time = ? AND execution_id < ?))");
+            params.add(cursorTime);
+            params.add(cursorTime);
+            params.add(query.getCursorExecutionId());
+        }
+        // Leading with a filtered column that has a single value does not change the order, but lets H2
+        // read the page straight from that column's newest-first index instead of sorting every match
+        sql.append(" ORDER BY ");
+        if (query.getJobName() != null) {
+            sql.append("job_name, ");
+        } else if (query.getPipelineName() != null) {
+            sql.append("pipeline_name, ");
+        } else if (query.getStatuses().size() == 1) {
+            sql.append("status, ");
+        }
+        // One extra row tells whether there is a next page
+        sql.append("start_time DESC, execution_id DESC LIMIT ?");
+        params.add(query.getLimit() + 1);
+        
+        List<JobExecutionInfo> executions = new ArrayList<>();
+        try (PooledConnection conn = readPool.getConnection()) {
+            PreparedStatement pstmt = conn.prepareStatement(sql.toString());
+            for (int i = 0; i < params.size(); i++) {
+                pstmt.setObject(i + 1, params.get(i));
+            }
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    executions.add(mapResultSetToJobExecutionInfo(rs));
+                }
+            }
+        }
+        return ExecutionPage.of(executions, query.getLimit());
+    }
+    
     private JobExecutionInfo mapResultSetToJobExecutionInfo(ResultSet rs) throws SQLException {
         return JobExecutionInfo.builder(
                 rs.getString("execution_id"),
@@ -214,6 +358,7 @@ public class DatabaseManager {
             .retryAttempt(rs.getInt("retry_attempt"))
             .resultMessage(rs.getString("result_message"))
             .errorMessage(rs.getString("error_message"))
+            .logLinesSuppressed(rs.getLong("log_lines_suppressed"))
             .build();
     }
     
@@ -223,7 +368,8 @@ public class DatabaseManager {
             VALUES (?, ?, ?, ?, ?, ?, ?)
         """;
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (PooledConnection conn = pool.getConnection()) {
+            PreparedStatement pstmt = conn.prepareStatement(sql);
             Timestamp now = Timestamp.valueOf(LocalDateTime.now());
             pstmt.setString(1, id);
             pstmt.setString(2, name);
@@ -234,42 +380,474 @@ public class DatabaseManager {
             pstmt.setTimestamp(7, now);
             
             int rowsAffected = pstmt.executeUpdate();
+            configurationCache.putPipelineConfiguration(pipelineConfiguration(
+                id, name, description, flowType, configJson, now, now));
             logger.info("Saved pipeline configuration: {} (id: {})", name, id);
             return rowsAffected > 0;
         }
     }
     
+    /**
+     * Returns the pipeline configurations, most recently updated first, from
+     * the {@link ConfigurationCache}. The list and its maps are unmodifiable.
+     */
     public List<java.util.Map<String, Object>> getAllPipelineConfigurations() {
+        try {
+            return configurationCache.getPipelineConfigurations(this::loadPipelineConfigurations);
+        } catch (SQLException e) {
+            logger.error("Failed to get pipeline configurations", e);
+            return new ArrayList<>();
+        }
+    }
+    
+    private List<java.util.Map<String, Object>> loadPipelineConfigurations() throws SQLException {
         String sql = "SELECT * FROM pipeline_configurations ORDER BY updated_at DESC";
         
         List<java.util.Map<String, Object>> configs = new ArrayList<>();
-        try (Statement stmt = connection.createStatement()) {
-            ResultSet rs = stmt.executeQuery(sql);
-            while (rs.next()) {
-                configs.add(java.util.Map.of(
-                    "id", rs.getString("id"),
-                    "name", rs.getString("name"),
-                    "description", rs.getString("description") != null ? rs.getString("description") : "",
-                    "flowType", rs.getString("flow_type"),
-                    "configJson", rs.getString("config_json"),
-                    "createdAt", rs.getTimestamp("created_at").toString(),
-                    "updatedAt", rs.getTimestamp("updated_at").toString()
-                ));
+        try (PooledConnection conn = pool.getConnection(); Statement stmt = conn.createStatement()) {
+            try (ResultSet rs = stmt.executeQuery(sql)) {
+                while (rs.next()) {
+                    configs.add(pipelineConfiguration(
+                        rs.getString("id"),
+                        rs.getString("name"),
+                        rs.getString("description"),
+                        rs.getString("flow_type"),
+                        rs.getString("config_json"),
+                        rs.getTimestamp("created_at"),
+                        rs.getTimestamp("updated_at")
+                    ));
+                }
             }
-        } catch (SQLException e) {
-            logger.error("Failed to get pipeline configurations", e);
         }
         return configs;
     }
     
-    public void close() {
-        if (connection != null) {
+    private static java.util.Map<String, Object> pipelineConfiguration(String id, String name, String description,
+            String flowType, String configJson, Timestamp createdAt, Timestamp updatedAt) {
+        return java.util.Map.of(
+            "id", id,
+            "name", name,
+            "description", description != null ? description : "",
+            "flowType", flowType,
+            "configJson", configJson,
+            "createdAt", createdAt.toString(),
+            "updatedAt", updatedAt.toString()
+        );
+    }
+    
+    public void saveBacklogEntries(List<BacklogEntry> entries) {
+        String sql = """
+            INSERT INTO execution_backlog 
+            (execution_id, job_name, pipeline_name, parameters, triggered_by, trigger_type, enqueued_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?)
+        """;
+        
+        try (PooledConnection conn = pool.getConnection()) {
+            PreparedStatement pstmt = conn.prepareStatement(sql);
+            for (BacklogEntry entry : entries) {
+                pstmt.setString(1, entry.getExecutionId());
+                pstmt.setString(2, entry.getJobName());
+                pstmt.setString(3, entry.getPipelineName());
+                pstmt.setString(4, toJson(entry.getParameters(), entry.getExecutionId()));
+                pstmt.setString(5, entry.getTriggeredBy());
+                pstmt.setString(6, entry.getTriggerType());
+                pstmt.setTimestamp(7, Timestamp.valueOf(entry.getEnqueuedAt()));
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+            logger.info("Persisted {} queued executions to the backlog", entries.size());
+        } catch (SQLException e) {
+            logger.error("Failed to persist execution backlog", e);
+        }
+    }
+    
+    public List<BacklogEntry> getBacklogEntries() {
+        String sql = "SELECT * FROM execution_backlog ORDER BY enqueued_at, execution_id";
+        
+        List<BacklogEntry> entries = new ArrayList<>();
+        try (PooledConnection conn = pool.getConnection(); Statement stmt = conn.createStatement()) {
+            try (ResultSet rs = stmt.executeQuery(sql)) {
+                while (rs.next()) {
+                    Map<String, Object> parameters = Map.of();
+                    String paramsJson = rs.getString("parameters");
+                    if (paramsJson != null) {
+                        try {
+                            parameters = objectMapper.readValue(paramsJson, new TypeReference<Map<String, Object>>() {});
+                        } catch (com.fasterxml.jackson.core.JsonProcessingException e) {
+                            logger.error("Failed to parse parameters for backlog entry: " + rs.getString("execution_id"), e);
+                        }
+                    }
+                    entries.add(new BacklogEntry(
+                        rs.getString("execution_id"),
+                        rs.getString("job_name"),
+                        rs.getString("pipeline_name"),
+                        parameters,
+                        rs.getString("triggered_by"),
+                        rs.getString("trigger_type"),
+                        rs.getTimestamp("enqueued_at").toLocalDateTime()
+                    ));
+                }
+            }
+        } catch (SQLException e) {
+            logger.error("Failed to get execution backlog", e);
+        }
+        return entries;
+    }
+    
+    public void deleteBacklogEntry(String executionId) {
+        String sql = "DELETE FROM execution_backlog WHERE execution_id = ?";
+        try (PooledConnection conn = pool.getConnection()) {
+            PreparedStatement pstmt = conn.prepareStatement(sql);
+            pstmt.setString(1, executionId);
+            pstmt.executeUpdate();
+        } catch (SQLException e) {
+            logger.error("Failed to delete backlog entry: " + executionId, e);
+        }
+    }
+    
+    private String toJson(Map<String, Object> parameters, String executionId) {
+        if (parameters == null || parameters.isEmpty()) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(parameters);
+        } catch (com.fasterxml.jackson.core.JsonProcessingException e) {
+            logger.warn("Parameters of {} are not serializable and will be dropped: {}", executionId, e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * Inserts or replaces stats buckets in a single transaction.
+     */
+    public void saveStatsBuckets(List<StatsBucket> buckets) {
+        String sql = "mysql".equals(config.getDatabaseType())
+            ? """
+                INSERT INTO execution_stats (job_name, tier, bucket_start, execution_count, failure_count,
+                    duration_sum, duration_max, duration_sketch, wait_sum, wait_max)
+                VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+                ON DUPLICATE KEY UPDATE execution_count = VALUES(execution_count), failure_count = VALUES(failure_count),
+                    duration_sum = VALUES(duration_sum), duration_max = VALUES(duration_max),
+                    duration_sketch = VALUES(duration_sketch), wait_sum = VALUES(wait_sum), wait_max = VALUES(wait_max)
+              """
+            : """
+                MERGE INTO execution_stats (job_name, tier, bucket_start, execution_count, failure_count,
+                    duration_sum, duration_max, duration_sketch, wait_sum, wait_max)
+                KEY (job_name, tier, bucket_start)
+                VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+              """;
+        
+        try (PooledConnection conn = pool.getConnection()) {
+            conn.setAutoCommit(false);
             try {
-                connection.close();
-                logger.info("Database connection closed");
+                PreparedStatement pstmt = conn.prepareStatement(sql);
+                for (StatsBucket bucket : buckets) {
+                    pstmt.setString(1, bucket.getJobName());
+                    pstmt.setString(2, bucket.getTier().name());
+                    pstmt.setTimestamp(3, Timestamp.valueOf(bucket.getBucketStart()));
+                    pstmt.setLong(4, bucket.getCount());
+                    pstmt.setLong(5, bucket.getFailures());
+                    pstmt.setLong(6, bucket.getDurationSum());
+                    pstmt.setLong(7, bucket.getDurationMax());
+                    pstmt.setString(8, bucket.getDurationSketch().encode());
+                    pstmt.setLong(9, bucket.getWaitSum());
+                    pstmt.setLong(10, bucket.getWaitMax());
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+                conn.commit();
             } catch (SQLException e) {
-                logger.error("Failed to close database connection", e);
+                conn.rollback();
+                throw e;
             }
+        } catch (SQLException e) {
+            logger.error("Failed to save " + buckets.size() + " stats buckets", e);
+        }
+    }
+    
+    public List<StatsBucket> getStatsBuckets(StatsBucket.Tier tier, LocalDateTime since) {
+        String sql = "SELECT * FROM execution_stats WHERE tier = ? AND bucket_start >= ?";
+        
+        List<StatsBucket> buckets = new ArrayList<>();
+        try (PooledConnection conn = pool.getConnection()) {
+            PreparedStatement pstmt = conn.prepareStatement(sql);
+            pstmt.setString(1, tier.name());
+            pstmt.setTimestamp(2, Timestamp.valueOf(since));
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    buckets.add(new StatsBucket(
+                        rs.getString("job_name"),
+                        tier,
+                        rs.getTimestamp("bucket_start").toLocalDateTime(),
+                        rs.getLong("execution_count"),
+                        rs.getLong("failure_count"),
+                        rs.getLong("duration_sum"),
+                        rs.getLong("duration_max"),
+                        DurationSketch.decode(rs.getString("duration_sketch")),
+                        rs.getLong("wait_sum"),
+                        rs.getLong("wait_max")
+                    ));
+                }
+            }
+        } catch (SQLException e) {
+            logger.error("Failed to load stats buckets for tier: " + tier, e);
+        }
+        return buckets;
+    }
+    
+    public void deleteStatsBuckets(StatsBucket.Tier tier, LocalDateTime before) {
+        String sql = "DELETE FROM execution_stats WHERE tier = ? AND bucket_start < ?";
+        
+        try (PooledConnection conn = pool.getConnection()) {
+            PreparedStatement pstmt = conn.prepareStatement(sql);
+            pstmt.setString(1, tier.name());
+            pstmt.setTimestamp(2, Timestamp.valueOf(before));
+            pstmt.executeUpdate();
+        } catch (SQLException e) {
+            logger.error("Failed to delete stats buckets for tier: " + tier, e);
+        }
+    }
+    
+    public void saveExecutionResult(StoredResult result) {
+        String sql = "mysql".equals(config.getDatabaseType())
+            ? """
+                INSERT INTO execution_results (execution_id, encoding, size_bytes, data, spill_path, created_at)
+                VALUES (?, ?, ?, ?, ?, ?)
+                ON DUPLICATE KEY UPDATE encoding = VALUES(encoding), size_bytes = VALUES(size_bytes),
+                    data = VALUES(data), spill_path = VALUES(spill_path), created_at = VALUES(created_at)
+              """
+            : """
+                MERGE INTO execution_results (execution_id, encoding, size_bytes, data, spill_path, created_at)
+                KEY (execution_id)
+                VALUES (?, ?, ?, ?, ?, ?)
+              """;
+        
+        try (PooledConnection conn = pool.getConnection()) {
+            PreparedStatement pstmt = conn.prepareStatement(sql);
+            pstmt.setString(1, result.getExecutionId());
+            pstmt.setString(2, result.getEncoding());
+            pstmt.setLong(3, result.getSizeBytes());
+            pstmt.setBytes(4, result.getData());
+            pstmt.setString(5, result.getSpillPath());
+            pstmt.setTimestamp(6, Timestamp.valueOf(result.getCreatedAt()));
+            pstmt.executeUpdate();
+        } catch (SQLException e) {
+            logger.error("Failed to save result of execution: " + result.getExecutionId(), e);
+        }
+    }
+    
+    public StoredResult getExecutionResult(String executionId) {
+        String sql = "SELECT * FROM execution_results WHERE execution_id = ?";
+        
+        try (PooledConnection conn = pool.getConnection()) {
+            PreparedStatement pstmt = conn.prepareStatement(sql);
+            pstmt.setString(1, executionId);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return new StoredResult(
+                        executionId,
+                        rs.getString("encoding"),
+                        rs.getLong("size_bytes"),
+                        rs.getBytes("data"),
+                        rs.getString("spill_path"),
+                        rs.getTimestamp("created_at").toLocalDateTime()
+                    );
+                }
+            }
+        } catch (SQLException e) {
+            logger.error("Failed to get result of execution: " + executionId, e);
+        }
+        return null;
+    }
+    
+    /**
+     * Deletes execution results created before the cutoff, one committed chunk at a time.
+     */
+    public long purgeExecutionResultsBefore(LocalDateTime cutoff, int chunkSize) {
+        String sql = "DELETE FROM execution_results WHERE created_at < ? LIMIT ?";
+        long purged = 0;
+        try (PooledConnection conn = pool.getConnection()) {
+            PreparedStatement pstmt = conn.prepareStatement(sql);
+            int deleted;
+            do {
+                pstmt.setTimestamp(1, Timestamp.valueOf(cutoff));
+                pstmt.setInt(2, chunkSize);
+                deleted = pstmt.executeUpdate();
+                purged += deleted;
+            } while (deleted == chunkSize);
+        } catch (SQLException e) {
+            logger.error("Failed to purge execution results before " + cutoff, e);
+        }
+        return purged;
+    }
+    
+    /**
+     * Deletes executions started before the cutoff, one committed chunk at a time.
+     */
+    public long purgeExecutionsBefore(LocalDateTime cutoff, int chunkSize) throws SQLException {
+        Timestamp cutoffTime = Timestamp.valueOf(cutoff);
+        String sql = "SELECT execution_id FROM job_executions WHERE start_time < ? ORDER BY start_time LIMIT ?";
+        long purged = 0;
+        int deleted;
+        do {
+            deleted = deleteExecutionChunk(sql, 2, chunkSize, pstmt -> pstmt.setTimestamp(1, cutoffTime));
+            purged += deleted;
+        } while (deleted == chunkSize);
+        return purged;
+    }
+    
+    /**
+     * Deletes all but the newest {@code maxPerJob} executions of every job, one committed chunk at a time.
+     */
+    public long purgeExecutionsBeyond(int maxPerJob, int chunkSize) throws SQLException {
+        List<String> jobNames = new ArrayList<>();
+        try (PooledConnection conn = pool.getConnection()) {
+            PreparedStatement pstmt = conn.prepareStatement("SELECT DISTINCT job_name FROM job_executions");
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    jobNames.add(rs.getString("job_name"));
+                }
+            }
+        }
+    
+        long purged = 0;
+        for (String jobName : jobNames) {
+            // The newest row past the limit; it and everything older goes
+            Timestamp boundaryTime;
+            String boundaryId;
+            try (PooledConnection conn = pool.getConnection()) {
+                PreparedStatement pstmt = conn.prepareStatement("""
+                    SELECT start_time, execution_id FROM job_executions WHERE job_name = ?
+                    ORDER BY start_time DESC, execution_id DESC LIMIT 1 OFFSET ?
+                """);
+                pstmt.setString(1, jobName);
+                pstmt.setInt(2, maxPerJob);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (!rs.next()) {
+                        continue;
+                    }
+                    boundaryTime = rs.getTimestamp("start_time");
+                    boundaryId = rs.getString("execution_id");
+                }
+            }
+    
+            String sql = """
+                SELECT execution_id FROM job_executions WHERE job_name = ?
+                AND (start_time < ? OR (start_time = ? AND execution_id <= ?)) LIMIT ?
+            """;
+            int deleted;
+            do {
+                deleted = deleteExecutionChunk(sql, 5, chunkSize, pstmt -> {
+                    pstmt.setString(1, jobName);
+                    pstmt.setTimestamp(2, boundaryTime);
+                    pstmt.setTimestamp(3, boundaryTime);
+                    pstmt.setString(4, boundaryId);
+                });
+                purged += deleted;
+            } while (deleted == chunkSize);
+        }
+        return purged;
+    }
+    
+    /**
+     * Selects up to one chunk of execution IDs with {@code selectSql}, whose
+     * parameter at {@code limitIndex} is the chunk size, and deletes them in a
+     * single transaction.
+     */
+    private int deleteExecutionChunk(String selectSql, int limitIndex, int chunkSize, ParameterBinder binder) throws SQLException {
+        try (PooledConnection conn = pool.getConnection()) {
+            List<String> ids = new ArrayList<>();
+            PreparedStatement select = conn.prepareStatement(selectSql);
+            binder.bind(select);
+            select.setInt(limitIndex, chunkSize);
+            try (ResultSet rs = select.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getString("execution_id"));
+                }
+            }
+            if (ids.isEmpty()) {
+                return 0;
+            }
+            deleteExecutionIds(conn, ids);
+            return ids.size();
+        }
+    }
+    
+    /**
+     * Deletes the given executions, one committed chunk at a time.
+     */
+    public long deleteExecutions(List<String> executionIds, int chunkSize) throws SQLException {
+        long deleted = 0;
+        for (int from = 0; from < executionIds.size(); from += chunkSize) {
+            List<String> chunk = executionIds.subList(from, Math.min(from + chunkSize, executionIds.size()));
+            try (PooledConnection conn = pool.getConnection()) {
+                deleted += deleteExecutionIds(conn, chunk);
+            }
+        }
+        return deleted;
+    }
+    
+    private int deleteExecutionIds(PooledConnection conn, List<String> ids) throws SQLException {
+        conn.setAutoCommit(false);
+        try {
+            PreparedStatement delete = conn.prepareStatement("DELETE FROM job_executions WHERE execution_id = ?");
+            for (String id : ids) {
+                delete.setString(1, id);
+                delete.addBatch();
+            }
+            int deleted = 0;
+            for (int count : delete.executeBatch()) {
+                // Drivers may report SUCCESS_NO_INFO instead of a row count
+                deleted += count == Statement.SUCCESS_NO_INFO ? 1 : count;
+            }
+            conn.commit();
+            return deleted;
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        }
+    }
+    
+    public LocalDateTime getOldestExecutionStartTime() throws SQLException {
+        try (PooledConnection conn = pool.getConnection()) {
+            PreparedStatement pstmt = conn.prepareStatement("SELECT MIN(start_time) AS oldest FROM job_executions");
+            try (ResultSet rs = pstmt.executeQuery()) {
+                Timestamp oldest = rs.next() ? rs.getTimestamp("oldest") : null;
+                return oldest != null ? oldest.toLocalDateTime() : null;
+            }
+        }
+    }
+    
+    @FunctionalInterface
+    private interface ParameterBinder {
+        void bind(PreparedStatement pstmt) throws SQLException;
+    }
+    
+    ConnectionPool getPool() {
+        return pool;
+    }
+    
+    public Map<String, Object> getPoolMetrics() {
+        return pool.getMetrics();
+    }
+    
+    public Map<String, Object> getReadPoolMetrics() {
+        return readPool.getMetrics();
+    }
+    
+    public ConfigurationCache getConfigurationCache() {
+        return configurationCache;
+    }
+    
+    public void close() {
+        if (readPool != null && readPool != pool) {
+            readPool.close();
+        }
+        if (pool != null) {
+            pool.close();
+            logger.info("Database connection pool closed");
         }
     }
 
@@ -281,7 +859,8 @@ public class DatabaseManager {
             VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
         """;
 
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (PooledConnection conn = pool.getConnection()) {
+            PreparedStatement pstmt = conn.prepareStatement(sql);
             Timestamp now = Timestamp.valueOf(LocalDateTime.now());
             pstmt.setString(1, job.getId());
             pstmt.setString(2, job.getName());
@@ -295,6 +874,7 @@ public class DatabaseManager {
             pstmt.setTimestamp(10, now);
             pstmt.setTimestamp(11, now);
             pstmt.executeUpdate();
+            configurationCache.putScheduledJob(job);
             logger.info("Saved scheduled job: {}", job.getName());
         } catch (SQLException | com.fasterxml.jackson.core.JsonProcessingException e) {
             logger.error("Failed to save scheduled job: " + job.getName(), e);
@@ -302,26 +882,24 @@ public class DatabaseManager {
     }
 
     public ScheduledJob getScheduledJob(String id) {
-        String sql = "SELECT * FROM scheduled_jobs WHERE id = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, id);
-            ResultSet rs = pstmt.executeQuery();
-            if (rs.next()) {
-                return mapResultSetToScheduledJob(rs);
-            }
+        try {
+            ScheduledJob job = configurationCache.getScheduledJob(id, this::loadScheduledJobs);
+            return job != null ? job.copy() : null;
         } catch (SQLException e) {
             logger.error("Failed to get scheduled job: " + id, e);
         }
         return null;
     }
 
+    /**
+     * Returns copies of the cached scheduled jobs ordered by name, so callers
+     * can change them without touching the {@link ConfigurationCache}.
+     */
     public List<ScheduledJob> getAllScheduledJobs() {
-        String sql = "SELECT * FROM scheduled_jobs ORDER BY name";
         List<ScheduledJob> jobs = new ArrayList<>();
-        try (Statement stmt = connection.createStatement()) {
-            ResultSet rs = stmt.executeQuery(sql);
-            while (rs.next()) {
-                jobs.add(mapResultSetToScheduledJob(rs));
+        try {
+            for (ScheduledJob job : configurationCache.getScheduledJobs(this::loadScheduledJobs)) {
+                jobs.add(job.copy());
             }
         } catch (SQLException e) {
             logger.error("Failed to get all scheduled jobs", e);
@@ -329,6 +907,19 @@ public class DatabaseManager {
         return jobs;
     }
 
+    private List<ScheduledJob> loadScheduledJobs() throws SQLException {
+        String sql = "SELECT * FROM scheduled_jobs ORDER BY name";
+        List<ScheduledJob> jobs = new ArrayList<>();
+        try (PooledConnection conn = pool.getConnection(); Statement stmt = conn.createStatement()) {
+            try (ResultSet rs = stmt.executeQuery(sql)) {
+                while (rs.next()) {
+                    jobs.add(mapResultSetToScheduledJob(rs));
+                }
+            }
+        }
+        return jobs;
+    }
+
     public void updateScheduledJob(ScheduledJob job) {
         String sql = """
             UPDATE scheduled_jobs 
@@ -337,7 +928,8 @@ public class DatabaseManager {
             WHERE id = ?
         """;
 
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (PooledConnection conn = pool.getConnection()) {
+            PreparedStatement pstmt = conn.prepareStatement(sql);
             Timestamp now = Timestamp.valueOf(LocalDateTime.now());
             pstmt.setString(1, job.getName());
             pstmt.setString(2, job.getType());
@@ -350,6 +942,7 @@ public class DatabaseManager {
             pstmt.setTimestamp(9, now);
             pstmt.setString(10, job.getId());
             pstmt.executeUpdate();
+            configurationCache.putScheduledJob(job);
             logger.info("Updated scheduled job: {}", job.getName());
         } catch (SQLException | com.fasterxml.jackson.core.JsonProcessingException e) {
             logger.error("Failed to update scheduled job: " + job.getName(), e);
@@ -358,9 +951,11 @@ public class DatabaseManager {
 
     public void deleteScheduledJob(String id) {
         String sql = "DELETE FROM scheduled_jobs WHERE id = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (PooledConnection conn = pool.getConnection()) {
+            PreparedStatement pstmt = conn.prepareStatement(sql);
             pstmt.setString(1, id);
             pstmt.executeUpdate();
+            configurationCache.removeScheduledJob(id);
             logger.info("Deleted scheduled job: {}", id);
         } catch (SQLException e) {
             logger.error("Failed to delete scheduled job: " + id, e);
@@ -0,0 +1,310 @@
+package com.batchiller.server.database;
+
+import com.batchiller.api.JobExecutionInfo;
+import com.batchiller.server.config.BatchillerConfiguration;
+import com.batchiller.server.store.ExecutionStore;
+import com.batchiller.server.store.ExecutionStoreException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A write-behind queue for execution state. State transitions are coalesced per
+ * execution, so an execution that is queued, started and completed between two
+ * flushes costs a single INSERT, and each flush hands all pending rows to the
+ * {@link ExecutionStore} as one batch (JDBC batches in one transaction for the
+ * database store).
+ *
+ * <p>With {@link Durability#SYNC_ON_TERMINAL} the caller of a terminal state
+ * transition blocks until that state is committed, for at most
+ * {@code persistence.sync.timeout.ms}; every other transition returns
+ * immediately. The returned futures complete exceptionally for writes the
+ * store rejected.</p>
+ *
+ * @author Siddharth Mishra &lt;mishra.siddharth90@gmail.com&gt;
+ * @version 1.0
+ */
+public class ExecutionPersistenceQueue {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ExecutionPersistenceQueue.class);
+    
+    public enum Durability {
+        ASYNC,
+        SYNC_ON_TERMINAL;
+    
+        public static Durability forName(String name) {
+            return switch (name.trim().toLowerCase()) {
+                case "async" -> ASYNC;
+                case "sync-on-terminal" -> SYNC_ON_TERMINAL;
+                default -> throw new IllegalArgumentException("Unknown persistence durability: " + name);
+            };
+        }
+    }
+    
+    private final ExecutionStore store;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final Durability durability;
+    private final long syncTimeoutMillis;
+    private final Map<String, PendingWrite> pending = new ConcurrentHashMap<>();
+    private final Object signal = new Object();
+    private final Thread flusher;
+    private volatile boolean urgent;
+    private volatile boolean closed;
+    
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong rowsWritten = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong flushFailures = new AtomicLong();
+    private final AtomicLong rowsFailed = new AtomicLong();
+    private final AtomicLong syncTimeouts = new AtomicLong();
+    private final AtomicLong totalFlushNanos = new AtomicLong();
+    private final AtomicLong maxFlushNanos = new AtomicLong();
+    private volatile long lastFlushNanos;
+    
+    public ExecutionPersistenceQueue(ExecutionStore store, BatchillerConfiguration config) {
+        this.store = store;
+        this.batchSize = Math.max(1, config.getPersistenceBatchSize());
+        this.flushIntervalMillis = Math.max(1, config.getPersistenceFlushIntervalMillis());
+        this.durability = Durability.forName(config.getPersistenceDurability());
+        this.syncTimeoutMillis = Math.max(1, config.getPersistenceSyncTimeoutMillis());
+        this.flusher = new Thread(this::runFlusher, "batchiller-persistence");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+        logger.info("Execution persistence queue started (batch size: {}, flush interval: {}ms, durability: {})",
+            batchSize, flushIntervalMillis, durability);
+    }
+    
+    /**
+     * Queues the first write of an execution.
+     */
+    public CompletableFuture<Void> insert(JobExecutionInfo info) {
+        return submit(info, true);
+    }
+    
+    /**
+     * Queues a state transition of an execution. If the execution's insert has
+     * not been flushed yet, the insert is written with this state instead.
+     */
+    public CompletableFuture<Void> update(JobExecutionInfo info) {
+        return submit(info, false);
+    }
+    
+    /**
+     * Returns the latest state of an execution that has not been flushed yet, or null.
+     */
+    public JobExecutionInfo getPending(String executionId) {
+        PendingWrite write = pending.get(executionId);
+        return write != null ? write.info : null;
+    }
+    
+    public int getBacklog() {
+        return pending.size();
+    }
+    
+    private CompletableFuture<Void> submit(JobExecutionInfo info, boolean insert) {
+        if (closed) {
+            // Late writes after shutdown go straight to the store
+            PendingWrite late = new PendingWrite(info, insert);
+            writeIndividually(List.of(late));
+            return late.future;
+        }
+    
+        PendingWrite write = pending.compute(info.getExecutionId(), (id, existing) -> {
+            if (existing == null) {
+                return new PendingWrite(info, insert);
+            }
+            coalesced.incrementAndGet();
+            existing.info = info;
+            existing.insert |= insert;
+            return existing;
+        });
+    
+        boolean waitForCommit = durability == Durability.SYNC_ON_TERMINAL && info.getStatus().isTerminal();
+        if (waitForCommit || pending.size() >= batchSize) {
+            wakeFlusher(waitForCommit);
+        }
+        if (waitForCommit) {
+            try {
+                write.future.get(syncTimeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                syncTimeouts.incrementAndGet();
+                logger.error("Timed out after {}ms waiting for the terminal state of execution {} to be committed",
+                    syncTimeoutMillis, info.getExecutionId());
+            } catch (ExecutionException e) {
+                logger.error("Failed to persist terminal state of execution: " + info.getExecutionId(), e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return write.future;
+    }
+    
+    private void wakeFlusher(boolean now) {
+        synchronized (signal) {
+            if (now) {
+                urgent = true;
+            }
+            signal.notifyAll();
+        }
+    }
+    
+    private void runFlusher() {
+        while (!closed) {
+            try {
+                synchronized (signal) {
+                    long deadline = System.currentTimeMillis() + flushIntervalMillis;
+                    long remaining;
+                    while (!closed && !urgent && pending.size() < batchSize
+                            && (remaining = deadline - System.currentTimeMillis()) > 0) {
+                        signal.wait(remaining);
+                    }
+                    urgent = false;
+                }
+                flush();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                logger.error("Execution persistence flush failed", e);
+            }
+        }
+    }
+    
+    /**
+     * Writes every pending execution in a single transaction. Only the flusher
+     * thread (or {@link #close()} once the flusher has stopped) calls this, so
+     * writes for the same execution are committed in order.
+     */
+    private void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+    
+        List<PendingWrite> batch = new ArrayList<>();
+        Iterator<Map.Entry<String, PendingWrite>> it = pending.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, PendingWrite> entry = it.next();
+            // Removing through the map keeps a concurrent coalesce from being lost
+            if (pending.remove(entry.getKey(), entry.getValue())) {
+                batch.add(entry.getValue());
+            }
+        }
+    
+        long start = System.nanoTime();
+        try {
+            List<JobExecutionInfo> inserts = new ArrayList<>();
+            List<JobExecutionInfo> updates = new ArrayList<>();
+            for (PendingWrite write : batch) {
+                (write.insert ? inserts : updates).add(write.info);
+            }
+            try {
+                store.writeBatch(inserts, updates);
+                for (PendingWrite write : batch) {
+                    write.future.complete(null);
+                }
+            } catch (RuntimeException e) {
+                flushFailures.incrementAndGet();
+                logger.error("Batched write of " + batch.size() + " executions failed; writing them individually", e);
+                writeIndividually(batch);
+            }
+        } finally {
+            // Nothing may be left waiting on a write that was taken off the queue
+            int written = 0;
+            for (PendingWrite write : batch) {
+                if (!write.future.isDone()) {
+                    rowsFailed.incrementAndGet();
+                    write.future.completeExceptionally(new ExecutionStoreException(
+                        "Flush aborted before execution " + write.info.getExecutionId() + " was written", null));
+                } else if (!write.future.isCompletedExceptionally()) {
+                    written++;
+                }
+            }
+            recordFlush(System.nanoTime() - start, written);
+        }
+    }
+    
+    /**
+     * Writes each execution on its own, completing its future with the outcome.
+     */
+    private void writeIndividually(List<PendingWrite> writes) {
+        for (PendingWrite write : writes) {
+            try {
+                if (write.insert) {
+                    store.save(write.info);
+                } else {
+                    store.update(write.info);
+                }
+                write.future.complete(null);
+            } catch (RuntimeException e) {
+                rowsFailed.incrementAndGet();
+                logger.error("Failed to write execution: " + write.info.getExecutionId(), e);
+                write.future.completeExceptionally(e);
+            }
+        }
+    }
+    
+    private void recordFlush(long nanos, int rows) {
+        flushes.incrementAndGet();
+        rowsWritten.addAndGet(rows);
+        totalFlushNanos.addAndGet(nanos);
+        maxFlushNanos.accumulateAndGet(nanos, Math::max);
+        lastFlushNanos = nanos;
+    }
+    
+    public Map<String, Object> getMetrics() {
+        long count = flushes.get();
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("durability", durability.name());
+        metrics.put("backlog", pending.size());
+        metrics.put("flushes", count);
+        metrics.put("rows_written", rowsWritten.get());
+        metrics.put("coalesced_writes", coalesced.get());
+        metrics.put("flush_failures", flushFailures.get());
+        metrics.put("rows_failed", rowsFailed.get());
+        metrics.put("sync_timeouts", syncTimeouts.get());
+        metrics.put("sync_timeout_ms", syncTimeoutMillis);
+        metrics.put("flush_last_ms", lastFlushNanos / 1_000_000.0);
+        metrics.put("flush_avg_ms", count > 0 ? totalFlushNanos.get() / count / 1_000_000.0 : 0);
+        metrics.put("flush_max_ms", maxFlushNanos.get() / 1_000_000.0);
+        return metrics;
+    }
+    
+    /**
+     * Stops the flusher and writes whatever is still pending.
+     */
+    public void close() {
+        closed = true;
+        wakeFlusher(true);
+        try {
+            flusher.join(10_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        logger.info("Execution persistence queue closed ({} rows written in {} flushes)",
+            rowsWritten.get(), flushes.get());
+    }
+    
+    private static final class PendingWrite {
+        private volatile JobExecutionInfo info;
+        private boolean insert;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+    
+        PendingWrite(JobExecutionInfo info, boolean insert) {
+            this.info = info;
+            this.insert = insert;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.batchiller.server.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A connection borrowed from a {@link ConnectionPool}. Closing it returns the
+ * underlying JDBC connection to the pool. Prepared statements are cached per
+ * connection, so callers must not close the statements they obtain from
+ * {@link #prepareStatement(String)}. With a cache size of 0 nothing is cached
+ * and those statements are closed when the connection is returned instead.
+ * 
+ * @author Siddharth Mishra &lt;mishra.siddharth90@gmail.com&gt;
+ * @version 1.0
+ */
+public class PooledConnection implements AutoCloseable {
+    
+    private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(PooledConnection.class);
+    
+    private final ConnectionPool pool;
+    private final Connection connection;
+    private final int statementCacheSize;
+    private final Map<String, PreparedStatement> statementCache;
+    private final List<PreparedStatement> uncachedStatements = new ArrayList<>();
+    private volatile long lastUsedMillis = System.currentTimeMillis();
+    private volatile long borrowedAtMillis;
+    private volatile Throwable borrowTrace;
+    private volatile boolean leakReported;
+    
+    PooledConnection(ConnectionPool pool, Connection connection, int statementCacheSize) {
+        this.pool = pool;
+        this.connection = connection;
+        this.statementCacheSize = statementCacheSize;
+        this.statementCache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() > statementCacheSize) {
+                    closeQuietly(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+    
+    /**
+     * Returns a cached prepared statement for the given SQL, with its parameters cleared.
+     */
+    public PreparedStatement prepareStatement(String sql) throws SQLException {
+        if (statementCacheSize <= 0) {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            uncachedStatements.add(statement);
+            return statement;
+        }
+        PreparedStatement statement = statementCache.get(sql);
+        if (statement != null && !statement.isClosed()) {
+            pool.recordStatementCacheHit();
+            statement.clearParameters();
+            return statement;
+        }
+        pool.recordStatementCacheMiss();
+        statement = connection.prepareStatement(sql);
+        statementCache.put(sql, statement);
+        return statement;
+    }
+    
+    public Statement createStatement() throws SQLException {
+        return connection.createStatement();
+    }
+    
+    public void setAutoCommit(boolean autoCommit) throws SQLException {
+        connection.setAutoCommit(autoCommit);
+    }
+    
+    public void commit() throws SQLException {
+        connection.commit();
+    }
+    
+    public void rollback() throws SQLException {
+        connection.rollback();
+    }
+    
+    public Connection getConnection() {
+        return connection;
+    }
+    
+    @Override
+    public void close() {
+        closeUncached();
+        pool.release(this);
+    }
+    
+    void markBorrowed(boolean captureTrace) {
+        borrowedAtMillis = System.currentTimeMillis();
+        borrowTrace = captureTrace ? new Throwable("Connection borrowed here") : null;
+        leakReported = false;
+    }
+    
+    void markReturned() {
+        lastUsedMillis = System.currentTimeMillis();
+        borrowTrace = null;
+    }
+    
+    long getLastUsedMillis() {
+        return lastUsedMillis;
+    }
+    
+    long getBorrowedAtMillis() {
+        return borrowedAtMillis;
+    }
+    
+    Throwable getBorrowTrace() {
+        return borrowTrace;
+    }
+    
+    boolean isLeakReported() {
+        return leakReported;
+    }
+    
+    void setLeakReported() {
+        leakReported = true;
+    }
+    
+    private void closeUncached() {
+        uncachedStatements.forEach(PooledConnection::closeQuietly);
+        uncachedStatements.clear();
+    }
+    
+    void closePhysical() {
+        closeUncached();
+        statementCache.values().forEach(PooledConnection::closeQuietly);
+        statementCache.clear();
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            logger.debug("Failed to close pooled connection: {}", e.getMessage());
+        }
+    }
+    
+    private static void closeQuietly(Statement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            logger.debug("Failed to close cached statement: {}", e.getMessage());
+        }
+    }
+}
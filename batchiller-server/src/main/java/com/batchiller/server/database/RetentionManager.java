@@ -0,0 +1,251 @@
+package com.batchiller.server.database;
+
+import com.batchiller.server.config.BatchillerConfiguration;
+import com.batchiller.server.store.ExecutionResultStore;
+import com.batchiller.server.store.ExecutionStore;
+import com.batchiller.server.store.ExecutionStoreException;
+import com.batchiller.server.store.JdbcExecutionStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A class that purges execution history by age and by a per-job row count.
+ * The {@link ExecutionStore} deletes in small chunks, each committed on its
+ * own, so a purge never holds locks on {@code job_executions} for long.
+ *
+ * <p>On MySQL the table can optionally be partitioned by day; partitions that
+ * fall entirely out of retention are then dropped instead of deleted row by row.</p>
+ *
+ * @author Siddharth Mishra &lt;mishra.siddharth90@gmail.com&gt;
+ * @version 1.0
+ */
+public class RetentionManager {
+    
+    private static final Logger logger = LoggerFactory.getLogger(RetentionManager.class);
+    private static final DateTimeFormatter PARTITION_FORMAT = DateTimeFormatter.ofPattern("'p'yyyyMMdd");
+    private static final String FUTURE_PARTITION = "p_future";
+    
+    private final ExecutionStore store;
+    private final ExecutionResultStore results;
+    private final ConnectionPool pool;
+    private final int retentionDays;
+    private final int maxPerJob;
+    private final int chunkSize;
+    private final int intervalMinutes;
+    private final boolean partitioned;
+    private final int partitionDaysAhead;
+    private final ScheduledExecutorService purgeScheduler;
+    
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong rowsPurged = new AtomicLong();
+    private final AtomicLong partitionsDropped = new AtomicLong();
+    private volatile long lastRunRows;
+    private volatile long lastRunMillis;
+    private volatile long lagSeconds;
+    private volatile LocalDateTime lastRunAt;
+    
+    public RetentionManager(BatchillerConfiguration config, DatabaseManager databaseManager, ExecutionStore store,
+                            ExecutionResultStore results) {
+        this.store = store;
+        this.results = results;
+        this.pool = databaseManager.getPool();
+        this.retentionDays = config.getExecutionRetentionDays();
+        this.maxPerJob = config.getExecutionRetentionMaxPerJob();
+        this.chunkSize = Math.max(1, config.getRetentionChunkSize());
+        this.intervalMinutes = Math.max(1, config.getRetentionIntervalMinutes());
+        this.partitioned = store instanceof JdbcExecutionStore
+            && "mysql".equals(config.getDatabaseType()) && config.isMysqlPartitioningEnabled();
+        this.partitionDaysAhead = Math.max(1, config.getMysqlPartitioningDaysAhead());
+        this.purgeScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "RetentionPurge");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+    
+    public void start() {
+        if (partitioned) {
+            try {
+                maintainPartitions();
+            } catch (SQLException e) {
+                logger.error("Failed to set up job_executions partitions; falling back to chunked deletes", e);
+            }
+        }
+        purgeScheduler.scheduleWithFixedDelay(this::purge, 1, intervalMinutes, TimeUnit.MINUTES);
+        logger.info("Execution retention started (days: {}, max per job: {}, chunk size: {}, partitioned: {})",
+            retentionDays, maxPerJob, chunkSize, partitioned);
+    }
+    
+    /**
+     * Runs one purge pass. Called from the purge scheduler; safe to call directly.
+     */
+    public synchronized void purge() {
+        long start = System.currentTimeMillis();
+        long purged = 0;
+        try {
+            if (partitioned) {
+                maintainPartitions();
+            }
+            LocalDateTime cutoff = LocalDateTime.now().minusDays(retentionDays);
+            if (retentionDays > 0) {
+                purged += store.purgeBefore(cutoff, chunkSize);
+                results.purgeBefore(cutoff, chunkSize);
+            }
+            if (maxPerJob > 0) {
+                purged += store.purgeBeyond(maxPerJob, chunkSize);
+            }
+            lagSeconds = measureLag(cutoff);
+        } catch (SQLException | ExecutionStoreException e) {
+            logger.error("Execution retention purge failed", e);
+        } finally {
+            runs.incrementAndGet();
+            rowsPurged.addAndGet(purged);
+            lastRunRows = purged;
+            lastRunMillis = System.currentTimeMillis() - start;
+            lastRunAt = LocalDateTime.now();
+        }
+        if (purged > 0) {
+            logger.info("Purged {} executions in {}ms", purged, lastRunMillis);
+        }
+    }
+    
+    /**
+     * Returns how far the oldest stored execution is past the age cutoff, in
+     * seconds; zero when retention is keeping up.
+     */
+    private long measureLag(LocalDateTime cutoff) {
+        if (retentionDays <= 0) {
+            return 0;
+        }
+        LocalDateTime oldest = store.getOldestStartTime();
+        return oldest != null ? Math.max(0, Duration.between(oldest, cutoff).getSeconds()) : 0;
+    }
+    
+    /**
+     * Partitions job_executions by day on first use, creates partitions for the
+     * coming days and drops partitions that are entirely out of retention.
+     * MySQL requires the partitioning column in every unique key, so the primary
+     * key becomes (execution_id, start_time); TIMESTAMP columns can only be
+     * range-partitioned through UNIX_TIMESTAMP().
+     */
+    private void maintainPartitions() throws SQLException {
+        List<String> partitions = new ArrayList<>();
+        try (PooledConnection conn = pool.getConnection()) {
+            PreparedStatement pstmt = conn.prepareStatement("""
+                SELECT PARTITION_NAME FROM information_schema.PARTITIONS
+                WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'job_executions' AND PARTITION_NAME IS NOT NULL
+                ORDER BY PARTITION_ORDINAL_POSITION
+            """);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    partitions.add(rs.getString("PARTITION_NAME"));
+                }
+            }
+        }
+    
+        LocalDate today = LocalDate.now();
+        LocalDate lastDay = today.plusDays(partitionDaysAhead);
+        try (PooledConnection conn = pool.getConnection(); Statement stmt = conn.createStatement()) {
+            if (partitions.isEmpty()) {
+                logger.info("Partitioning job_executions by day; this rebuilds the table once");
+                stmt.execute("ALTER TABLE job_executions DROP PRIMARY KEY, ADD PRIMARY KEY (execution_id, start_time) "
+                    + "PARTITION BY RANGE (UNIX_TIMESTAMP(start_time)) ("
+                    + dayPartitions(today, lastDay) + ", " + futurePartition() + ")");
+                return;
+            }
+    
+            LocalDate newest = null;
+            List<String> expired = new ArrayList<>();
+            LocalDate cutoff = LocalDateTime.now().minusDays(retentionDays).toLocalDate();
+            for (String partition : partitions) {
+                LocalDate day = parsePartitionDay(partition);
+                if (day == null) {
+                    continue;
+                }
+                newest = day;
+                // A day partition holds rows started before the next day, so it may go once that day is past the cutoff
+                if (retentionDays > 0 && !day.plusDays(1).isAfter(cutoff)) {
+                    expired.add(partition);
+                }
+            }
+    
+            if (newest != null && newest.isBefore(lastDay)) {
+                stmt.execute("ALTER TABLE job_executions REORGANIZE PARTITION " + FUTURE_PARTITION + " INTO ("
+                    + dayPartitions(newest.plusDays(1), lastDay) + ", " + futurePartition() + ")");
+            }
+            // Always keep at least one day partition so the table stays partitioned
+            if (!expired.isEmpty() && expired.size() == partitions.size() - 1) {
+                expired.remove(expired.size() - 1);
+            }
+            if (!expired.isEmpty()) {
+                stmt.execute("ALTER TABLE job_executions DROP PARTITION " + String.join(", ", expired));
+                partitionsDropped.addAndGet(expired.size());
+                logger.info("Dropped expired job_executions partitions: {}", expired);
+            }
+        }
+    }
+    
+    private String dayPartitions(LocalDate from, LocalDate to) {
+        List<String> definitions = new ArrayList<>();
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            definitions.add("PARTITION " + day.format(PARTITION_FORMAT)
+                + " VALUES LESS THAN (UNIX_TIMESTAMP('" + day.plusDays(1) + " 00:00:00'))");
+        }
+        return String.join(", ", definitions);
+    }
+    
+    private String futurePartition() {
+        return "PARTITION " + FUTURE_PARTITION + " VALUES LESS THAN MAXVALUE";
+    }
+    
+    private LocalDate parsePartitionDay(String partition) {
+        try {
+            return LocalDate.parse(partition, PARTITION_FORMAT);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+    
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("runs", runs.get());
+        metrics.put("rows_purged", rowsPurged.get());
+        metrics.put("rows_purged_last_run", lastRunRows);
+        metrics.put("last_run_ms", lastRunMillis);
+        metrics.put("rows_per_second_last_run", lastRunMillis > 0 ? lastRunRows * 1000.0 / lastRunMillis : 0);
+        metrics.put("partitions_dropped", partitionsDropped.get());
+        metrics.put("lag_seconds", lagSeconds);
+        metrics.put("last_run_at", lastRunAt != null ? lastRunAt.toString() : null);
+        return metrics;
+    }
+    
+    public void shutdown() {
+        purgeScheduler.shutdown();
+        try {
+            if (!purgeScheduler.awaitTermination(5, TimeUnit.SECONDS)) {
+                purgeScheduler.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            purgeScheduler.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.batchiller.server.database;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * A single versioned schema change. A migration carries one list of statements
+ * per database dialect; its checksum is computed over the statements of the
+ * dialect in use, so editing a migration that has already been applied is
+ * detected on the next start.
+ *
+ * @author Siddharth Mishra &lt;mishra.siddharth90@gmail.com&gt;
+ * @version 1.0
+ */
+public final class SchemaMigration {
+    
+    private final int version;
+    private final String description;
+    private final List<String> h2Statements;
+    private final List<String> mysqlStatements;
+    
+    public SchemaMigration(int version, String description, List<String> h2Statements, List<String> mysqlStatements) {
+        this.version = version;
+        this.description = description;
+        this.h2Statements = List.copyOf(h2Statements);
+        this.mysqlStatements = List.copyOf(mysqlStatements);
+    }
+    
+    /**
+     * Creates a migration whose statements are the same for every dialect.
+     */
+    public static SchemaMigration of(int version, String description, String... statements) {
+        return new SchemaMigration(version, description, List.of(statements), List.of(statements));
+    }
+    
+    public int getVersion() {
+        return version;
+    }
+    
+    public String getDescription() {
+        return description;
+    }
+    
+    public List<String> getStatements(String databaseType) {
+        return "mysql".equals(databaseType) ? mysqlStatements : h2Statements;
+    }
+    
+    public String getChecksum(String databaseType) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String statement : getStatements(databaseType)) {
+                // Indentation changes in the text blocks should not count as an edit
+                digest.update(statement.strip().replaceAll("\\s+", " ").getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) ';');
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+    
+    @Override
+    public String toString() {
+        return "V" + version + " (" + description + ")";
+    }
+}
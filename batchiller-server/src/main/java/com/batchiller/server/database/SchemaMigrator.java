@@ -0,0 +1,296 @@
+package com.batchiller.server.database;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A class that brings the database schema up to date. Applied migrations are
+ * recorded in {@code schema_migrations} with their checksum; on start the
+ * recorded checksums are verified and pending migrations are applied in
+ * version order.
+ *
+ * <p>New schema changes are added as a new migration at the end of
+ * {@link #MIGRATIONS}; a migration that has been released is never edited.</p>
+ *
+ * @author Siddharth Mishra &lt;mishra.siddharth90@gmail.com&gt;
+ * @version 1.0
+ */
+public class SchemaMigrator {
+    
+    private static final Logger logger = LoggerFactory.getLogger(SchemaMigrator.class);
+    
+    static final List<SchemaMigration> MIGRATIONS = List.of(
+        SchemaMigration.of(1, "baseline tables",
+            """
+            CREATE TABLE IF NOT EXISTS job_executions (
+                execution_id VARCHAR(255) PRIMARY KEY,
+                job_name VARCHAR(255) NOT NULL,
+                pipeline_name VARCHAR(255),
+                status VARCHAR(50) NOT NULL,
+                start_time TIMESTAMP NOT NULL,
+                end_time TIMESTAMP,
+                thread_name VARCHAR(255),
+                triggered_by VARCHAR(255),
+                trigger_type VARCHAR(50),
+                is_retry BOOLEAN,
+                retry_attempt INT,
+                result_message TEXT,
+                error_message TEXT,
+                duration_millis BIGINT
+            )
+            """,
+            """
+            CREATE TABLE IF NOT EXISTS pipeline_configurations (
+                id VARCHAR(255) PRIMARY KEY,
+                name VARCHAR(255) NOT NULL,
+                description TEXT,
+                flow_type VARCHAR(50) NOT NULL,
+                config_json TEXT NOT NULL,
+                created_at TIMESTAMP NOT NULL,
+                updated_at TIMESTAMP NOT NULL
+            )
+            """,
+            """
+            CREATE TABLE IF NOT EXISTS scheduled_jobs (
+                id VARCHAR(255) PRIMARY KEY,
+                name VARCHAR(255) NOT NULL,
+                type VARCHAR(50) NOT NULL,
+                target_name VARCHAR(255) NOT NULL,
+                cron_expression VARCHAR(255) NOT NULL,
+                parameters TEXT,
+                enabled BOOLEAN NOT NULL,
+                last_execution_time TIMESTAMP,
+                next_execution_time TIMESTAMP,
+                created_at TIMESTAMP NOT NULL,
+                updated_at TIMESTAMP NOT NULL
+            )
+            """,
+            """
+            CREATE TABLE IF NOT EXISTS execution_backlog (
+                execution_id VARCHAR(255) PRIMARY KEY,
+                job_name VARCHAR(255) NOT NULL,
+                pipeline_name VARCHAR(255),
+                parameters TEXT,
+                triggered_by VARCHAR(255),
+                trigger_type VARCHAR(50),
+                enqueued_at TIMESTAMP NOT NULL
+            )
+            """
+        ),
+        // MySQL has no CREATE INDEX IF NOT EXISTS, so H2 gets its own (idempotent) variant
+        new SchemaMigration(2, "history query indexes",
+            List.of(
+                "CREATE INDEX IF NOT EXISTS idx_executions_job_start ON job_executions (job_name, start_time)",
+                "CREATE INDEX IF NOT EXISTS idx_executions_status_start ON job_executions (status, start_time)",
+                "CREATE INDEX IF NOT EXISTS idx_executions_pipeline_start ON job_executions (pipeline_name, start_time)",
+                "CREATE INDEX IF NOT EXISTS idx_executions_start ON job_executions (start_time)"
+            ),
+            List.of(
+                "CREATE INDEX idx_executions_job_start ON job_executions (job_name, start_time)",
+                "CREATE INDEX idx_executions_status_start ON job_executions (status, start_time)",
+                "CREATE INDEX idx_executions_pipeline_start ON job_executions (pipeline_name, start_time)",
+                "CREATE INDEX idx_executions_start ON job_executions (start_time)"
+            )
+        ),
+        new SchemaMigration(3, "scheduled job and pipeline indexes",
+            List.of(
+                "CREATE INDEX IF NOT EXISTS idx_scheduled_jobs_name ON scheduled_jobs (name)",
+                "CREATE INDEX IF NOT EXISTS idx_scheduled_jobs_target ON scheduled_jobs (type, target_name)",
+                "CREATE INDEX IF NOT EXISTS idx_pipeline_configs_updated ON pipeline_configurations (updated_at)"
+            ),
+            List.of(
+                "CREATE INDEX idx_scheduled_jobs_name ON scheduled_jobs (name)",
+                "CREATE INDEX idx_scheduled_jobs_target ON scheduled_jobs (type, target_name)",
+                "CREATE INDEX idx_pipeline_configs_updated ON pipeline_configurations (updated_at)"
+            )
+        ),
+        SchemaMigration.of(4, "execution stats rollups",
+            """
+            CREATE TABLE IF NOT EXISTS execution_stats (
+                job_name VARCHAR(255) NOT NULL,
+                tier VARCHAR(10) NOT NULL,
+                bucket_start TIMESTAMP NOT NULL,
+                execution_count BIGINT NOT NULL,
+                failure_count BIGINT NOT NULL,
+                duration_sum BIGINT NOT NULL,
+                duration_max BIGINT NOT NULL,
+                duration_sketch TEXT,
+                wait_sum BIGINT NOT NULL,
+                wait_max BIGINT NOT NULL,
+                PRIMARY KEY (job_name, tier, bucket_start)
+            )
+            """
+        ),
+        new SchemaMigration(5, "execution result data",
+            List.of(
+                """
+                CREATE TABLE IF NOT EXISTS execution_results (
+                    execution_id VARCHAR(255) PRIMARY KEY,
+                    encoding VARCHAR(20) NOT NULL,
+                    size_bytes BIGINT NOT NULL,
+                    data BLOB,
+                    spill_path VARCHAR(1000),
+                    created_at TIMESTAMP NOT NULL
+                )
+                """,
+                "CREATE INDEX IF NOT EXISTS idx_execution_results_created ON execution_results (created_at)"
+            ),
+            List.of(
+                """
+                CREATE TABLE IF NOT EXISTS execution_results (
+                    execution_id VARCHAR(255) PRIMARY KEY,
+                    encoding VARCHAR(20) NOT NULL,
+                    size_bytes BIGINT NOT NULL,
+                    data MEDIUMBLOB,
+                    spill_path VARCHAR(1000),
+                    created_at TIMESTAMP NOT NULL
+                )
+                """,
+                "CREATE INDEX idx_execution_results_created ON execution_results (created_at)"
+            )
+        ),
+        new SchemaMigration(6, "suppressed execution log lines",
+            List.of(
+                "ALTER TABLE job_executions ADD COLUMN IF NOT EXISTS log_lines_suppressed BIGINT DEFAULT 0 NOT NULL"
+            ),
+            List.of(
+                "ALTER TABLE job_executions ADD COLUMN log_lines_suppressed BIGINT DEFAULT 0 NOT NULL"
+            )
+        ),
+        // Declared in the order history pages are read, which H2 needs to skip the sort; these replace
+        // the filtered indexes of migration 2, while idx_executions_start stays for the oldest-first purge
+        new SchemaMigration(7, "newest-first history indexes",
+            List.of(
+                "CREATE INDEX IF NOT EXISTS idx_executions_newest ON job_executions (start_time DESC, execution_id DESC)",
+                "CREATE INDEX IF NOT EXISTS idx_executions_job_newest ON job_executions (job_name, start_time DESC, execution_id DESC)",
+                "CREATE INDEX IF NOT EXISTS idx_executions_status_newest ON job_executions (status, start_time DESC, execution_id DESC)",
+                "CREATE INDEX IF NOT EXISTS idx_executions_pipeline_newest ON job_executions (pipeline_name, start_time DESC, execution_id DESC)",
+                "DROP INDEX IF EXISTS idx_executions_job_start",
+                "DROP INDEX IF EXISTS idx_executions_status_start",
+                "DROP INDEX IF EXISTS idx_executions_pipeline_start"
+            ),
+            List.of(
+                "CREATE INDEX idx_executions_newest ON job_executions (start_time DESC, execution_id DESC)",
+                "CREATE INDEX idx_executions_job_newest ON job_executions (job_name, start_time DESC, execution_id DESC)",
+                "CREATE INDEX idx_executions_status_newest ON job_executions (status, start_time DESC, execution_id DESC)",
+                "CREATE INDEX idx_executions_pipeline_newest ON job_executions (pipeline_name, start_time DESC, execution_id DESC)",
+                "DROP INDEX idx_executions_job_start ON job_executions",
+                "DROP INDEX idx_executions_status_start ON job_executions",
+                "DROP INDEX idx_executions_pipeline_start ON job_executions"
+            )
+        )
+    );
+    
+    private final ConnectionPool pool;
+    private final String databaseType;
+    private final List<SchemaMigration> migrations;
+    
+    public SchemaMigrator(ConnectionPool pool, String databaseType) {
+        this.pool = pool;
+        this.databaseType = databaseType;
+        this.migrations = MIGRATIONS;
+    }
+    
+    /**
+     * Verifies applied migrations and applies pending ones.
+     *
+     * @return the number of migrations applied
+     * @throws SQLException if a migration fails, or an applied migration no longer matches its checksum
+     */
+    public int migrate() throws SQLException {
+        try (PooledConnection conn = pool.getConnection(); Statement stmt = conn.createStatement()) {
+            stmt.execute("""
+                CREATE TABLE IF NOT EXISTS schema_migrations (
+                    version INT PRIMARY KEY,
+                    description VARCHAR(255) NOT NULL,
+                    checksum VARCHAR(64) NOT NULL,
+                    applied_at TIMESTAMP NOT NULL,
+                    execution_millis BIGINT NOT NULL
+                )
+            """);
+        }
+    
+        Map<Integer, String> applied = getAppliedChecksums();
+        List<SchemaMigration> pending = new ArrayList<>();
+        int previous = 0;
+        for (SchemaMigration migration : migrations) {
+            if (migration.getVersion() <= previous) {
+                throw new IllegalStateException("Schema migrations are not in ascending version order at " + migration);
+            }
+            previous = migration.getVersion();
+            
+            String recorded = applied.remove(migration.getVersion());
+            if (recorded == null) {
+                pending.add(migration);
+            } else if (!recorded.equals(migration.getChecksum(databaseType))) {
+                throw new SQLException("Checksum mismatch for applied schema migration " + migration
+                    + ": the migration was changed after it was applied");
+            }
+        }
+        if (!applied.isEmpty()) {
+            logger.warn("Database has schema migrations unknown to this version: {}", applied.keySet());
+        }
+        
+        for (SchemaMigration migration : pending) {
+            apply(migration);
+        }
+        
+        logger.info("Database schema is at version {} ({} migrations applied)", previous, pending.size());
+        return pending.size();
+    }
+    
+    private void apply(SchemaMigration migration) throws SQLException {
+        logger.info("Applying schema migration {}", migration);
+        long start = System.currentTimeMillis();
+    
+        try (PooledConnection conn = pool.getConnection()) {
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement()) {
+                for (String sql : migration.getStatements(databaseType)) {
+                    stmt.execute(sql);
+                }
+    
+                // Both H2 and MySQL commit DDL implicitly; recording the version last
+                // means a failed migration is retried from the start on the next run
+                PreparedStatement record = conn.prepareStatement("""
+                    INSERT INTO schema_migrations (version, description, checksum, applied_at, execution_millis)
+                    VALUES (?, ?, ?, ?, ?)
+                """);
+                record.setInt(1, migration.getVersion());
+                record.setString(2, migration.getDescription());
+                record.setString(3, migration.getChecksum(databaseType));
+                record.setTimestamp(4, Timestamp.valueOf(LocalDateTime.now()));
+                record.setLong(5, System.currentTimeMillis() - start);
+                record.executeUpdate();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw new SQLException("Schema migration " + migration + " failed", e);
+            }
+        }
+    }
+    
+    private Map<Integer, String> getAppliedChecksums() throws SQLException {
+        Map<Integer, String> applied = new TreeMap<>();
+        try (PooledConnection conn = pool.getConnection()) {
+            PreparedStatement pstmt = conn.prepareStatement("SELECT version, checksum FROM schema_migrations");
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    applied.put(rs.getInt("version"), rs.getString("checksum"));
+                }
+            }
+        }
+        return applied;
+    }
+}
@@ -0,0 +1,33 @@
+package com.batchiller.server.engine;
+
+/**
+ * Generates identifiers for job, pipeline and lifecycle executions.
+ * Implementations must be safe to call concurrently from any thread.
+ * 
+ * @author Siddharth Mishra &lt;mishra.siddharth90@gmail.com&gt;
+ * @version 1.0
+ */
+public interface ExecutionIdGenerator {
+    
+    String nextId();
+    
+    /**
+     * Resolves a generator from its configured type. Accepts {@code time-ordered},
+     * {@code random} or the fully qualified name of an implementation with a
+     * public no-arg constructor.
+     */
+    static ExecutionIdGenerator forType(String type) {
+        if (type == null || type.isBlank() || "time-ordered".equalsIgnoreCase(type)) {
+            return new TimeOrderedExecutionIdGenerator();
+        }
+        if ("random".equalsIgnoreCase(type)) {
+            return new RandomExecutionIdGenerator();
+        }
+        try {
+            Class<?> clazz = Class.forName(type);
+            return (ExecutionIdGenerator) clazz.getDeclaredConstructor().newInstance();
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Invalid execution ID generator: " + type, e);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.batchiller.server.engine;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Concurrent registry of in-flight executions, keyed by execution ID and
+ * indexed by job and pipeline name. Entries are added when an execution is
+ * submitted and removed once it reaches a terminal state, so all lookups are
+ * answered from memory.
+ * 
+ * @author Siddharth Mishra &lt;mishra.siddharth90@gmail.com&gt;
+ * @version 1.0
+ */
+public class ExecutionRegistry {
+    
+    private final Map<String, LiveExecution> executions = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> byJob = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> byPipeline = new ConcurrentHashMap<>();
+    
+    public void register(LiveExecution execution) {
+        executions.put(execution.getExecutionId(), execution);
+        index(byJob, execution.getJobName(), execution.getExecutionId());
+        index(byPipeline, execution.getPipelineName(), execution.getExecutionId());
+    }
+    
+    public void remove(String executionId) {
+        LiveExecution execution = executions.remove(executionId);
+        if (execution != null) {
+            unindex(byJob, execution.getJobName(), executionId);
+            unindex(byPipeline, execution.getPipelineName(), executionId);
+        }
+    }
+    
+    public LiveExecution get(String executionId) {
+        return executions.get(executionId);
+    }
+    
+    public Collection<LiveExecution> getAll() {
+        return Collections.unmodifiableCollection(executions.values());
+    }
+    
+    public List<LiveExecution> getByJob(String jobName) {
+        return lookup(byJob, jobName);
+    }
+    
+    public List<LiveExecution> getByPipeline(String pipelineName) {
+        return lookup(byPipeline, pipelineName);
+    }
+    
+    public int size() {
+        return executions.size();
+    }
+    
+    private List<LiveExecution> lookup(Map<String, Set<String>> index, String key) {
+        Set<String> ids = key != null ? index.get(key) : null;
+        if (ids == null) {
+            return List.of();
+        }
+        return ids.stream()
+            .map(executions::get)
+            .filter(java.util.Objects::nonNull)
+            .toList();
+    }
+    
+    private static void index(Map<String, Set<String>> index, String key, String executionId) {
+        if (key != null) {
+            index.compute(key, (k, ids) -> {
+                Set<String> target = ids != null ? ids : ConcurrentHashMap.newKeySet();
+                target.add(executionId);
+                return target;
+            });
+        }
+    }
+    
+    private static void unindex(Map<String, Set<String>> index, String key, String executionId) {
+        if (key != null) {
+            index.computeIfPresent(key, (k, ids) -> {
+                ids.remove(executionId);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+}
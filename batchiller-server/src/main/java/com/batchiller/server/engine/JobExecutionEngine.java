@@ -5,14 +5,22 @@ import com.batchiller.api.JobLifecycle;
 import com.batchiller.api.JobEventListener;
 import com.batchiller.server.config.BatchillerConfiguration;
 import com.batchiller.server.context.DefaultJobContext;
+import com.batchiller.server.database.BacklogEntry;
 import com.batchiller.server.database.DatabaseManager;
+import com.batchiller.server.database.ExecutionPersistenceQueue;
 import com.batchiller.server.logging.LogManager;
+import com.batchiller.server.monitoring.ExecutionStatsRollup;
+import com.batchiller.server.store.ExecutionJournal;
+import com.batchiller.server.store.ExecutionResultStore;
+import com.batchiller.server.store.ExecutionStore;
+import com.batchiller.server.store.ExecutionStoreException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * A class that executes jobs and pipelines.
@@ -25,16 +33,54 @@ public class JobExecutionEngine {
     private static final Logger logger = LoggerFactory.getLogger(JobExecutionEngine.class);
     
     private final ThreadPoolExecutor executor;
+    private final ExecutorService initExecutor;
+    private final ScheduledThreadPoolExecutor initTimer;
+    private final int initTimeoutSeconds;
+    private final int drainSeconds;
     private final DatabaseManager databaseManager;
+    private final ExecutionStore store;
+    private final ExecutionPersistenceQueue persistence;
+    private final ExecutionJournal journal;
+    private final ScheduledExecutorService journalRetrier;
+    private final int journalRetryIntervalMillis;
+    // Executions with journaled states the store has not written yet, retried in order
+    private final Map<String, UnwrittenStates> unwritten = new ConcurrentHashMap<>();
+    private final AtomicLong persistSequence = new AtomicLong();
+    private final AtomicLong writeRetries = new AtomicLong();
+    private final ExecutionStatsRollup stats;
+    private final ExecutionResultStore results;
     private final LogManager logManager;
+    private final ExecutionIdGenerator idGenerator;
+    private final ExecutionRegistry registry = new ExecutionRegistry();
     private final Map<String, BatchJob> jobs = new ConcurrentHashMap<>();
     private final Map<String, Pipeline> pipelines = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Void>> jobReadiness = new ConcurrentHashMap<>();
     private final List<JobListener> listeners = new CopyOnWriteArrayList<>();
     private final List<JobEventListener> eventListeners = new CopyOnWriteArrayList<>();
+    private volatile boolean accepting = true;
     
-    public JobExecutionEngine(BatchillerConfiguration config, DatabaseManager databaseManager, LogManager logManager) {
+    public JobExecutionEngine(BatchillerConfiguration config, DatabaseManager databaseManager, ExecutionStore store,
+                              LogManager logManager) {
         this.databaseManager = databaseManager;
+        this.store = store;
+        this.persistence = new ExecutionPersistenceQueue(store, config);
+        this.journal = config.isJournalEnabled() ? new ExecutionJournal(config) : null;
+        this.journalRetryIntervalMillis = Math.max(1, config.getJournalRetryIntervalMillis());
+        if (journal != null) {
+            this.journalRetrier = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "batchiller-journal-retry");
+                t.setDaemon(true);
+                return t;
+            });
+            this.journalRetrier.scheduleWithFixedDelay(this::retryUnwritten,
+                journalRetryIntervalMillis, journalRetryIntervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            this.journalRetrier = null;
+        }
+        this.stats = new ExecutionStatsRollup(config, databaseManager);
+        this.results = new ExecutionResultStore(config, databaseManager);
         this.logManager = logManager;
+        this.idGenerator = ExecutionIdGenerator.forType(config.getExecutionIdGenerator());
         this.executor = new ThreadPoolExecutor(
             config.getCorePoolSize(),
             config.getMaxPoolSize(),
@@ -48,35 +94,113 @@ public class JobExecutionEngine {
                 }
             }
         );
+        this.initTimeoutSeconds = config.getJobInitTimeoutSeconds();
+        this.drainSeconds = config.getShutdownDrainSeconds();
+        this.initExecutor = Executors.newFixedThreadPool(config.getJobInitParallelism(), new ThreadFactory() {
+            private int counter = 0;
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "batchiller-init-" + (++counter));
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        this.initTimer = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "batchiller-init-timeout");
+            t.setDaemon(true);
+            return t;
+        });
+        this.initTimer.setRemoveOnCancelPolicy(true);
         logger.info("JobExecutionEngine initialized with core pool size: {}, max pool size: {}", 
             config.getCorePoolSize(), config.getMaxPoolSize());
     }
     
-    public void registerJob(BatchJob job) {
-        jobs.put(job.getName(), job);
+    /**
+     * Registers a job and runs its {@link JobLifecycle#init} hook on the init pool.
+     * The job is READY once the returned future completes; triggers received
+     * while it is still initializing wait for it instead of failing.
+     */
+    public CompletableFuture<Void> registerJob(BatchJob job) {
+        String jobName = job.getName();
+        CompletableFuture<Void> readiness = new CompletableFuture<>();
+        // Readiness goes first, so a trigger that sees the new job also waits for its init
+        jobReadiness.put(jobName, readiness);
+        jobs.put(jobName, job);
         
-        // Initialize job if it implements JobLifecycle
-        if (job instanceof JobLifecycle) {
-            try {
-                String executionId = "init-" + UUID.randomUUID().toString();
-                DefaultJobContext initContext = new DefaultJobContext(
-                    executionId, job.getName(), null, Map.of(), "INIT", "SYSTEM", false, 0
-                );
+        if (!(job instanceof JobLifecycle)) {
+            readiness.complete(null);
+            logger.info("Registered job: {}", jobName);
+            return readiness;
+        }
+        
+        initExecutor.execute(() -> {
+            String executionId = "init-" + idGenerator.nextId();
+            DefaultJobContext initContext = new DefaultJobContext(
+                executionId, jobName, null, Map.of(), "INIT", "SYSTEM", false, 0
+            );
+            FutureTask<Void> init = new FutureTask<>(() -> {
                 ((JobLifecycle) job).init(initContext);
-                logger.info("Initialized lifecycle for job: {}", job.getName());
-            } catch (Exception e) {
-                logger.error("Failed to initialize job lifecycle: " + job.getName(), e);
-                throw new RuntimeException("Job initialization failed: " + job.getName(), e);
+                return null;
+            });
+            // The timeout covers init() itself, not the time spent queued behind other jobs' inits.
+            // Cancelling the task only interrupts this thread while init() is still running,
+            // and run() returns only once that interrupt has been delivered
+            ScheduledFuture<?> timeout = initTimer.schedule(() -> {
+                if (init.cancel(true)) {
+                    readiness.completeExceptionally(new TimeoutException());
+                }
+            }, initTimeoutSeconds, TimeUnit.SECONDS);
+            try {
+                init.run();
+                init.get();
+                readiness.complete(null);
+            } catch (CancellationException e) {
+                // Timed out; readiness is completed by the timeout
+            } catch (ExecutionException e) {
+                readiness.completeExceptionally(e.getCause());
+            } catch (Throwable e) {
+                readiness.completeExceptionally(e);
+            } finally {
+                timeout.cancel(false);
+                Thread.interrupted();
             }
-        }
+        });
         
-        logger.info("Registered job: {}", job.getName());
+        return readiness.whenComplete((v, e) -> {
+            if (e == null) {
+                logger.info("Initialized lifecycle for job: {}", jobName);
+                logger.info("Registered job: {}", jobName);
+            } else if (e instanceof TimeoutException) {
+                logger.error("Job initialization timed out after {}s: {}", initTimeoutSeconds, jobName);
+            } else {
+                logger.error("Failed to initialize job lifecycle: " + jobName, e);
+            }
+        });
+    }
+    
+    /**
+     * Registers several jobs at once; their init hooks run concurrently,
+     * bounded by the init pool size.
+     */
+    public CompletableFuture<Void> registerJobs(Collection<? extends BatchJob> jobsToRegister) {
+        return CompletableFuture.allOf(jobsToRegister.stream()
+            .map(this::registerJob)
+            .toArray(CompletableFuture<?>[]::new));
     }
     
-    public void registerPipeline(Pipeline pipeline) {
+    public CompletableFuture<Void> registerPipeline(Pipeline pipeline) {
         pipelines.put(pipeline.getName(), pipeline);
-        pipeline.getJobs().forEach(this::registerJob);
-        logger.info("Registered pipeline: {} with {} jobs", pipeline.getName(), pipeline.getJobs().size());
+        List<BatchJob> pipelineJobs = pipeline.getJobs();
+        logger.info("Registered pipeline: {} with {} jobs", pipeline.getName(), pipelineJobs.size());
+        return registerJobs(pipelineJobs);
+    }
+    
+    public JobState getJobState(String jobName) {
+        CompletableFuture<Void> readiness = jobReadiness.get(jobName);
+        if (readiness == null || !readiness.isDone()) {
+            return JobState.INITIALIZING;
+        }
+        return readiness.isCompletedExceptionally() ? JobState.FAILED : JobState.READY;
     }
     
     public void addListener(JobListener listener) {
@@ -87,8 +211,29 @@ public class JobExecutionEngine {
         eventListeners.add(listener);
     }
     
+    public String nextExecutionId() {
+        return idGenerator.nextId();
+    }
+    
     public CompletableFuture<JobResult> executeJob(String jobName, Map<String, Object> parameters, 
                                                     String triggeredBy, String triggerType) {
+        return executeJob(idGenerator.nextId(), jobName, parameters, triggeredBy, triggerType);
+    }
+    
+    public CompletableFuture<JobResult> executeJob(String executionId, String jobName, Map<String, Object> parameters, 
+                                                    String triggeredBy, String triggerType) {
+        return executeJob(executionId, jobName, null, parameters, triggeredBy, triggerType, false);
+    }
+    
+    private CompletableFuture<JobResult> executeJob(String executionId, String jobName, String pipelineName,
+                                                    Map<String, Object> parameters, String triggeredBy, String triggerType,
+                                                    boolean recovered) {
+        if (!accepting) {
+            return CompletableFuture.completedFuture(
+                JobResult.failure("Engine is draining; not accepting new executions: " + jobName)
+            );
+        }
+        
         BatchJob job = jobs.get(jobName);
         if (job == null) {
             return CompletableFuture.completedFuture(
@@ -96,145 +241,407 @@ public class JobExecutionEngine {
             );
         }
         
-        String executionId = UUID.randomUUID().toString();
+        CompletableFuture<Void> readiness = jobReadiness.get(jobName);
+        if (readiness != null && !readiness.isDone()) {
+            logger.info("Job {} is still initializing; trigger queued behind init", jobName);
+            return readiness
+                .handle((v, e) -> null)
+                .thenCompose(v -> {
+                    if (!accepting) {
+                        if (recovered) {
+                            // Its backlog entry is only removed once it is submitted
+                            return CompletableFuture.completedFuture(
+                                JobResult.failure("Execution deferred to backlog during shutdown"));
+                        }
+                        // Admitted before the drain started, so keep it for the next start
+                        return deferToBacklog(List.of(new BacklogEntry(executionId, jobName, pipelineName,
+                            parameters, triggeredBy, triggerType, LocalDateTime.now())));
+                    }
+                    return executeJob(executionId, jobName, pipelineName, parameters, triggeredBy, triggerType, recovered);
+                });
+        }
+        if (readiness != null && readiness.isCompletedExceptionally()) {
+            return CompletableFuture.completedFuture(
+                JobResult.failure("Job initialization failed: " + jobName)
+            );
+        }
+        
         DefaultJobContext context = new DefaultJobContext(
-            executionId, jobName, null, parameters, triggerType, triggeredBy, false, 0
+            executionId, jobName, pipelineName, parameters, triggerType, triggeredBy, false, 0
         );
         
         JobExecutionInfo execInfo = JobExecutionInfo.builder(executionId, jobName)
+            .pipelineName(pipelineName)
             .status(JobStatus.QUEUED)
+            .startTime(context.getStartTime())
             .triggeredBy(triggeredBy)
             .triggerType(triggerType)
             .build();
         
-        databaseManager.saveJobExecution(execInfo);
+        persist(execInfo, !(recovered && store.get(executionId) != null), parameters);
+        
+        QueuedExecution queued = new QueuedExecution(job, context);
+        registry.register(queued.live);
         
         listeners.forEach(l -> l.onJobScheduled(context));
         eventListeners.forEach(l -> l.onPending(context));
         
-        return CompletableFuture.supplyAsync(() -> {
-            ch.qos.logback.classic.Logger jobLogger = null;
-            eventListeners.forEach(l -> l.onQueued(context));
-            listeners.forEach(l -> l.onJobStart(context));
-            eventListeners.forEach(l -> l.onStart(context));
+        try {
+            executor.execute(queued);
+        } catch (RejectedExecutionException e) {
+            registry.remove(executionId);
+            if (!recovered) {
+                // A recovered execution stays QUEUED; its backlog entry is retried on the next start
+                persist(JobExecutionInfo.builder(executionId, jobName)
+                    .pipelineName(pipelineName)
+                    .status(JobStatus.FAILED)
+                    .startTime(context.getStartTime())
+                    .endTime(LocalDateTime.now())
+                    .triggeredBy(triggeredBy)
+                    .triggerType(triggerType)
+                    .errorMessage("Rejected: the worker queue is full")
+                    .build(), false, null);
+            }
+            throw e;
+        }
+        if (recovered) {
+            databaseManager.deleteBacklogEntry(executionId);
+        }
+        return queued.future;
+    }
+    
+    /**
+     * Re-enqueues executions that were persisted to the backlog by a previous drain.
+     * Should be called once jobs have been registered; entries for jobs that are
+     * not (yet) registered stay in the backlog. An entry is deleted only once its
+     * execution has been submitted to the worker pool, so entries the pool rejects
+     * are kept for the next start.
+     */
+    public void resumeBacklog() {
+        List<BacklogEntry> entries = databaseManager.getBacklogEntries();
+        if (entries.isEmpty()) {
+            return;
+        }
+        
+        int resumed = 0;
+        for (BacklogEntry entry : entries) {
+            if (!jobs.containsKey(entry.getJobName())) {
+                logger.warn("Keeping backlog entry {}: job {} is not registered", entry.getExecutionId(), entry.getJobName());
+                continue;
+            }
+            try {
+                executeJob(entry.getExecutionId(), entry.getJobName(), entry.getPipelineName(), entry.getParameters(),
+                    entry.getTriggeredBy(), entry.getTriggerType(), true);
+                resumed++;
+            } catch (RejectedExecutionException e) {
+                logger.warn("Keeping backlog entry {}: the worker queue is full", entry.getExecutionId());
+            } catch (RuntimeException e) {
+                logger.error("Failed to resume backlog entry: " + entry.getExecutionId(), e);
+            }
+        }
+        logger.info("Re-enqueued {} of {} backlog executions", resumed, entries.size());
+    }
+    
+    /**
+     * Reconciles executions the journal last saw queued or running, which a
+     * crash interrupted, according to {@code journal.recovery.policy}: they are
+     * marked FAILED or moved to the backlog for {@link #resumeBacklog}. Other
+     * journaled states the store may have missed are written to it. A terminal
+     * state already in the store always wins. Call before {@link #resumeBacklog}.
+     */
+    public void recoverInterrupted() {
+        if (journal == null || journal.getReplayed().isEmpty()) {
+            return;
+        }
+        
+        Set<String> backlogged = new HashSet<>();
+        databaseManager.getBacklogEntries().forEach(entry -> backlogged.add(entry.getExecutionId()));
+        ExecutionJournal.RecoveryPolicy policy = journal.getRecoveryPolicy();
+        List<CompletableFuture<Void>> writes = new ArrayList<>();
+        List<BacklogEntry> requeued = new ArrayList<>();
+        int failed = 0;
+        int projected = 0;
+        
+        for (ExecutionJournal.Entry entry : journal.getReplayed()) {
+            JobExecutionInfo info = entry.getInfo();
+            JobExecutionInfo stored;
+            try {
+                stored = store.get(info.getExecutionId());
+            } catch (ExecutionStoreException e) {
+                // Without the stored state a row might be inserted twice, so recover on the next start
+                logger.error("Failed to read execution " + info.getExecutionId()
+                    + " during recovery; keeping the replayed journal", e);
+                return;
+            }
+            if (backlogged.contains(info.getExecutionId()) || (stored != null && stored.getStatus().isTerminal())) {
+                continue;
+            }
+            if (!info.getStatus().isActive()) {
+                writes.add(persist(info, stored == null, null));
+                projected++;
+                continue;
+            }
             
-            String logFilePath = logManager.createLogFile(executionId, jobName);
-            if (logFilePath != null) {
-                jobLogger = logManager.getJobLogger(executionId, logFilePath);
-                jobLogger.debug("Created log file for execution {}: {}", executionId, logFilePath);
+            boolean requeue = entry.getParameters() != null && (policy == ExecutionJournal.RecoveryPolicy.REQUEUE
+                || (policy == ExecutionJournal.RecoveryPolicy.REQUEUE_QUEUED && info.getStatus() == JobStatus.QUEUED));
+            if (requeue) {
+                if (stored == null) {
+                    writes.add(persist(info, true, null));
+                }
+                requeued.add(new BacklogEntry(info.getExecutionId(), info.getJobName(), info.getPipelineName(),
+                    entry.getParameters(), info.getTriggeredBy(), info.getTriggerType(), info.getStartTime()));
+            } else {
+                writes.add(persist(JobExecutionInfo.builder(info.getExecutionId(), info.getJobName())
+                    .pipelineName(info.getPipelineName())
+                    .status(JobStatus.FAILED)
+                    .startTime(info.getStartTime())
+                    .endTime(LocalDateTime.now())
+                    .threadName(info.getThreadName())
+                    .triggeredBy(info.getTriggeredBy())
+                    .triggerType(info.getTriggerType())
+                    .errorMessage("Interrupted: the server stopped while the execution was " + info.getStatus())
+                    .build(), stored == null, null));
+                failed++;
+            }
+        }
+        
+        if (!requeued.isEmpty()) {
+            databaseManager.saveBacklogEntries(requeued);
+        }
+        try {
+            CompletableFuture.allOf(writes.toArray(new CompletableFuture<?>[0])).join();
+            journal.discardReplayed();
+        } catch (CompletionException e) {
+            // Keep the replayed segments so the next start projects the missing states again
+            logger.error("Failed to write recovered execution states; keeping the replayed journal", e.getCause());
+        }
+        logger.info("Recovered from the execution journal: {} interrupted executions failed, {} requeued, {} states projected",
+            failed, requeued.size(), projected);
+    }
+    
+    /**
+     * Journals a state transition and queues it for the store; the journal
+     * entry is released once the store has written it. A state the store fails
+     * to write stays journaled and is retried by {@link #retryUnwritten}, along
+     * with every later state of the same execution so they are written in order.
+     */
+    private CompletableFuture<Void> persist(JobExecutionInfo info, boolean insert, Map<String, Object> parameters) {
+        ExecutionJournal.Mark mark = null;
+        if (journal != null) {
+            try {
+                mark = journal.append(info, parameters);
+            } catch (ExecutionStoreException e) {
+                logger.error("Failed to journal state of execution: " + info.getExecutionId(), e);
+            }
+        }
+        if (mark == null) {
+            return insert ? persistence.insert(info) : persistence.update(info);
+        }
+        
+        String executionId = info.getExecutionId();
+        long sequence = persistSequence.incrementAndGet();
+        ExecutionJournal.Mark appended = mark;
+        if (unwritten.computeIfPresent(executionId, (id, held) -> held.add(sequence, info, insert, appended)) != null) {
+            return CompletableFuture.failedFuture(new ExecutionStoreException(
+                "Execution " + executionId + " has earlier states waiting to be written; queued for retry", null));
+        }
+        CompletableFuture<Void> written = insert ? persistence.insert(info) : persistence.update(info);
+        written.whenComplete((v, e) -> {
+            // Written states are released unless an earlier one of the execution failed, in
+            // which case the store may not have its row yet and the latest state is retried
+            UnwrittenStates held = unwritten.compute(executionId, (id, current) -> {
+                if (current == null && e == null) {
+                    return null;
+                }
+                return (current != null ? current : new UnwrittenStates()).add(sequence, info, insert, appended);
+            });
+            if (held == null) {
+                journal.release(appended);
+            }
+        });
+        return written;
+    }
+    
+    /**
+     * Writes the latest state of every execution the store failed to write,
+     * releasing its journal entries once written. One write is tried first, and
+     * the rest are only queued if it succeeds, so an unavailable store costs
+     * one attempt per round.
+     */
+    private void retryUnwritten() {
+        boolean probed = false;
+        for (Map.Entry<String, UnwrittenStates> entry : unwritten.entrySet()) {
+            String executionId = entry.getKey();
+            UnwrittenStates held = entry.getValue();
+            UnwrittenStates.Snapshot snapshot = held.snapshot();
+            try {
+                boolean insert = snapshot.insert && store.get(executionId) == null;
+                writeRetries.incrementAndGet();
+                CompletableFuture<Void> written = insert ? persistence.insert(snapshot.info) : persistence.update(snapshot.info);
+                written = written.thenRun(() -> {
+                    List<ExecutionJournal.Mark> released = new ArrayList<>();
+                    unwritten.computeIfPresent(executionId, (id, current) -> current.written(snapshot, released) ? null : current);
+                    released.forEach(journal::release);
+                });
+                if (!probed) {
+                    written.join();
+                    probed = true;
+                }
+            } catch (RuntimeException e) {
+                logger.warn("Retry of unwritten execution states failed ({} executions waiting): {}",
+                    unwritten.size(), e.getMessage());
+                return;
             }
+        }
+    }
+    
+    private CompletableFuture<JobResult> deferToBacklog(List<BacklogEntry> entries) {
+        databaseManager.saveBacklogEntries(entries);
+        return CompletableFuture.completedFuture(
+            JobResult.failure("Execution deferred to backlog during shutdown")
+        );
+    }
+    
+    private JobResult runJob(BatchJob job, DefaultJobContext context, String triggeredBy, String triggerType) {
+        String executionId = context.getExecutionId();
+        String jobName = context.getJobName();
+        String pipelineName = context.getPipelineName();
+        Logger jobLogger = null;
+        eventListeners.forEach(l -> l.onQueued(context));
+        listeners.forEach(l -> l.onJobStart(context));
+        eventListeners.forEach(l -> l.onStart(context));
+        
+        String logFilePath = logManager.createLogFile(executionId, jobName);
+        if (logFilePath != null) {
+            jobLogger = logManager.openExecutionLog(executionId, logFilePath);
+            jobLogger.debug("Created log file for execution {}: {}", executionId, logFilePath);
+        }
+        
+        JobExecutionInfo startInfo = JobExecutionInfo.builder(executionId, jobName)
+            .pipelineName(pipelineName)
+            .status(JobStatus.RUNNING)
+            .startTime(context.getStartTime())
+            .threadName(Thread.currentThread().getName())
+            .triggeredBy(triggeredBy)
+            .triggerType(triggerType)
+            .build();
+        persist(startInfo, false, null);
+        
+        if (jobLogger != null) {
+            jobLogger.info("=== Job Execution Log ===\nExecution ID: {}\nJob Name: {}\nTriggered By: {}\nTrigger Type: {}\nStart Time: {}\nThread: {}\n\n",
+                executionId, jobName, triggeredBy, triggerType, LocalDateTime.now(), Thread.currentThread().getName());
+        }
+        
+        try {
+            // Call beforeStart lifecycle hook
+            if (job instanceof JobLifecycle) {
+                try {
+                    ((JobLifecycle) job).beforeStart(context);
+                    if (jobLogger != null) jobLogger.info("Lifecycle: beforeStart() completed successfully\n");
+                } catch (Exception e) {
+                    if (jobLogger != null) jobLogger.error("Lifecycle: beforeStart() failed: {}", e.getMessage());
+                    throw new RuntimeException("Job beforeStart failed", e);
+                }
+            }
+            
+            JobResult result = job.execute(context).get();
             
-            JobExecutionInfo startInfo = JobExecutionInfo.builder(executionId, jobName)
-                .status(JobStatus.RUNNING)
+            if (jobLogger != null) {
+                jobLogger.info("Execution Result:\nStatus: {}\nMessage: {}\nEnd Time: {}\nDuration: {}ms\n",
+                    result.isSuccess() ? "SUCCESS" : "FAILURE",
+                    result.getMessage(),
+                    LocalDateTime.now(),
+                    java.time.Duration.between(startInfo.getStartTime(), LocalDateTime.now()).toMillis());
+            }
+            
+            // Stored before the terminal state, so a finished execution's result is readable
+            results.save(executionId, result.getData());
+            
+            JobExecutionInfo completeInfo = JobExecutionInfo.builder(executionId, jobName)
+                .pipelineName(pipelineName)
+                .status(result.isSuccess() ? JobStatus.COMPLETED : JobStatus.FAILED)
+                .startTime(context.getStartTime())
+                .endTime(LocalDateTime.now())
                 .threadName(Thread.currentThread().getName())
                 .triggeredBy(triggeredBy)
                 .triggerType(triggerType)
+                .resultMessage(result.getMessage())
+                .errorMessage(result.getException().map(Throwable::getMessage).orElse(null))
+                .logLinesSuppressed(logManager.getSuppressedLogLines(executionId))
                 .build();
-            databaseManager.updateJobExecution(startInfo);
+            
+            persist(completeInfo, false, null);
+            
+            // Call afterEnd lifecycle hook
+            if (job instanceof JobLifecycle) {
+                try {
+                    ((JobLifecycle) job).afterEnd(context, result);
+                    if (jobLogger != null) jobLogger.info("Lifecycle: afterEnd() completed successfully\n");
+                } catch (Exception e) {
+                    if (jobLogger != null) jobLogger.warn("Lifecycle: afterEnd() failed: {}", e.getMessage());
+                    logger.warn("Job afterEnd failed for {}: {}", jobName, e.getMessage());
+                }
+            }
+            
+            listeners.forEach(l -> l.onJobComplete(context, result));
+            eventListeners.forEach(l -> l.onEnd(context, result));
+            
+            if (result.isFailure()) {
+                listeners.forEach(l -> l.onJobFailure(context, result));
+                eventListeners.forEach(l -> l.onFailed(context, result));
+            } else {
+                eventListeners.forEach(l -> l.onPass(context, result));
+            }
+            
+            return result;
+        } catch (Exception e) {
+            logger.error("Job execution failed: " + jobName, e);
             
             if (jobLogger != null) {
-                jobLogger.info("=== Job Execution Log ===\nExecution ID: {}\nJob Name: {}\nTriggered By: {}\nTrigger Type: {}\nStart Time: {}\nThread: {}\n\n",
-                    executionId, jobName, triggeredBy, triggerType, LocalDateTime.now(), Thread.currentThread().getName());
+                jobLogger.error("\nEXECUTION FAILED:\nError: {}\nStack Trace:\n{}\nEnd Time: {}\n",
+                    e.getMessage(),
+                    getStackTraceString(e),
+                    LocalDateTime.now());
             }
             
-            try {
-                // Call beforeStart lifecycle hook
-                if (job instanceof JobLifecycle) {
-                    try {
-                        ((JobLifecycle) job).beforeStart(context);
-                        if (jobLogger != null) jobLogger.info("Lifecycle: beforeStart() completed successfully\n");
-                    } catch (Exception e) {
-                        if (jobLogger != null) jobLogger.error("Lifecycle: beforeStart() failed: {}", e.getMessage());
-                        throw new RuntimeException("Job beforeStart failed", e);
-                    }
-                }
-                
-                JobResult result = job.execute(context).get();
-                
-                if (jobLogger != null) {
-                    jobLogger.info("Execution Result:\nStatus: {}\nMessage: {}\nEnd Time: {}\nDuration: {}ms\n",
-                        result.isSuccess() ? "SUCCESS" : "FAILURE",
-                        result.getMessage(),
-                        LocalDateTime.now(),
-                        java.time.Duration.between(startInfo.getStartTime(), LocalDateTime.now()).toMillis());
-                }
-                
-                JobExecutionInfo completeInfo = JobExecutionInfo.builder(executionId, jobName)
-                    .status(result.isSuccess() ? JobStatus.COMPLETED : JobStatus.FAILED)
-                    .endTime(LocalDateTime.now())
-                    .threadName(Thread.currentThread().getName())
-                    .triggeredBy(triggeredBy)
-                    .triggerType(triggerType)
-                    .resultMessage(result.getMessage())
-                    .errorMessage(result.getException().map(Throwable::getMessage).orElse(null))
-                    .build();
-                
-                databaseManager.updateJobExecution(completeInfo);
-                
-                // Call afterEnd lifecycle hook
-                if (job instanceof JobLifecycle) {
-                    try {
-                        ((JobLifecycle) job).afterEnd(context, result);
-                        if (jobLogger != null) jobLogger.info("Lifecycle: afterEnd() completed successfully\n");
-                    } catch (Exception e) {
-                        if (jobLogger != null) jobLogger.warn("Lifecycle: afterEnd() failed: {}", e.getMessage());
-                        logger.warn("Job afterEnd failed for {}: {}", jobName, e.getMessage());
-                    }
-                }
-                
-                listeners.forEach(l -> l.onJobComplete(context, result));
-                eventListeners.forEach(l -> l.onEnd(context, result));
-                
-                if (result.isFailure()) {
-                    listeners.forEach(l -> l.onJobFailure(context, result));
-                    eventListeners.forEach(l -> l.onFailed(context, result));
-                } else {
-                    eventListeners.forEach(l -> l.onPass(context, result));
-                }
-                
-                return result;
-            } catch (Exception e) {
-                logger.error("Job execution failed: " + jobName, e);
-                
-                if (jobLogger != null) {
-                    jobLogger.error("\nEXECUTION FAILED:\nError: {}\nStack Trace:\n{}\nEnd Time: {}\n",
-                        e.getMessage(),
-                        getStackTraceString(e),
-                        LocalDateTime.now());
-                }
-                
-                JobResult failureResult = JobResult.failure(e);
-                
-                JobExecutionInfo failInfo = JobExecutionInfo.builder(executionId, jobName)
-                    .status(JobStatus.FAILED)
-                    .endTime(LocalDateTime.now())
-                    .threadName(Thread.currentThread().getName())
-                    .triggeredBy(triggeredBy)
-                    .triggerType(triggerType)
-                    .errorMessage(e.getMessage())
-                    .build();
-                
-                databaseManager.updateJobExecution(failInfo);
-                
-                // Call afterEnd lifecycle hook even on failure
-                if (job instanceof JobLifecycle) {
-                    try {
-                        ((JobLifecycle) job).afterEnd(context, failureResult);
-                        if (jobLogger != null) jobLogger.info("Lifecycle: afterEnd() completed successfully after failure\n");
-                    } catch (Exception lifecycleE) {
-                        if (jobLogger != null) jobLogger.warn("Lifecycle: afterEnd() failed: {}", lifecycleE.getMessage());
-                        logger.warn("Job afterEnd failed for {}: {}", jobName, lifecycleE.getMessage());
-                    }
+            JobResult failureResult = JobResult.failure(e);
+            
+            JobExecutionInfo failInfo = JobExecutionInfo.builder(executionId, jobName)
+                .pipelineName(pipelineName)
+                .status(JobStatus.FAILED)
+                .startTime(context.getStartTime())
+                .endTime(LocalDateTime.now())
+                .threadName(Thread.currentThread().getName())
+                .triggeredBy(triggeredBy)
+                .triggerType(triggerType)
+                .errorMessage(e.getMessage())
+                .logLinesSuppressed(logManager.getSuppressedLogLines(executionId))
+                .build();
+            
+            persist(failInfo, false, null);
+            
+            // Call afterEnd lifecycle hook even on failure
+            if (job instanceof JobLifecycle) {
+                try {
+                    ((JobLifecycle) job).afterEnd(context, failureResult);
+                    if (jobLogger != null) jobLogger.info("Lifecycle: afterEnd() completed successfully after failure\n");
+                } catch (Exception lifecycleE) {
+                    if (jobLogger != null) jobLogger.warn("Lifecycle: afterEnd() failed: {}", lifecycleE.getMessage());
+                    logger.warn("Job afterEnd failed for {}: {}", jobName, lifecycleE.getMessage());
                 }
-                
-                listeners.forEach(l -> l.onJobComplete(context, failureResult));
-                listeners.forEach(l -> l.onJobFailure(context, failureResult));
-                eventListeners.forEach(l -> l.onEnd(context, failureResult));
-                eventListeners.forEach(l -> l.onFailed(context, failureResult));
-                
-                return failureResult;
             }
-        }, executor);
+            
+            listeners.forEach(l -> l.onJobComplete(context, failureResult));
+            listeners.forEach(l -> l.onJobFailure(context, failureResult));
+            eventListeners.forEach(l -> l.onEnd(context, failureResult));
+            eventListeners.forEach(l -> l.onFailed(context, failureResult));
+            
+            return failureResult;
+        } finally {
+            if (jobLogger != null) {
+                logManager.closeExecutionLog(executionId);
+            }
+        }
     }
     
     public CompletableFuture<Void> executePipeline(String pipelineName, String triggeredBy, String triggerType) {
@@ -245,7 +652,7 @@ public class JobExecutionEngine {
             );
         }
         
-        String executionId = UUID.randomUUID().toString();
+        String executionId = idGenerator.nextId();
         DefaultJobContext pipelineContext = new DefaultJobContext(
             executionId, pipelineName, pipelineName, Map.of(), triggerType, triggeredBy, false, 0
         );
@@ -270,7 +677,7 @@ public class JobExecutionEngine {
                 if (!success) {
                     return CompletableFuture.completedFuture(false);
                 }
-                return executeJob(job.getName(), Map.of(), triggeredBy, triggerType)
+                return executeJob(idGenerator.nextId(), job.getName(), pipeline.getName(), Map.of(), triggeredBy, triggerType, false)
                     .thenApply(JobResult::isSuccess);
             });
         }
@@ -281,10 +688,10 @@ public class JobExecutionEngine {
     private CompletableFuture<Boolean> executeParallel(Pipeline pipeline, String triggeredBy, 
                                                        String triggerType, JobContext pipelineContext) {
         List<CompletableFuture<JobResult>> futures = pipeline.getJobs().stream()
-            .map(job -> executeJob(job.getName(), Map.of(), triggeredBy, triggerType))
+            .map(job -> executeJob(idGenerator.nextId(), job.getName(), pipeline.getName(), Map.of(), triggeredBy, triggerType, false))
             .toList();
         
-        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
             .thenApply(v -> futures.stream().allMatch(f -> f.join().isSuccess()));
     }
     
@@ -293,6 +700,58 @@ public class JobExecutionEngine {
         return executeSequential(pipeline, triggeredBy, triggerType, pipelineContext);
     }
     
+    public LiveExecution getLiveExecution(String executionId) {
+        return registry.get(executionId);
+    }
+    
+    public Collection<LiveExecution> getRunningExecutions() {
+        return registry.getAll();
+    }
+    
+    public List<LiveExecution> getRunningExecutionsForJob(String jobName) {
+        return registry.getByJob(jobName);
+    }
+    
+    public List<LiveExecution> getRunningExecutionsForPipeline(String pipelineName) {
+        return registry.getByPipeline(pipelineName);
+    }
+    
+    /**
+     * Returns the latest state of an execution whose write has not been flushed
+     * to the database yet, or null.
+     */
+    public JobExecutionInfo getPendingExecution(String executionId) {
+        return persistence.getPending(executionId);
+    }
+    
+    public ExecutionStatsRollup getStats() {
+        return stats;
+    }
+    
+    public ExecutionStore getExecutionStore() {
+        return store;
+    }
+    
+    public ExecutionResultStore getResultStore() {
+        return results;
+    }
+    
+    public ExecutionJournal getJournal() {
+        return journal;
+    }
+    
+    public Map<String, Object> getJournalMetrics() {
+        Map<String, Object> metrics = new HashMap<>(journal.getMetrics());
+        metrics.put("unwritten_executions", unwritten.size());
+        metrics.put("write_retries", writeRetries.get());
+        metrics.put("retry_interval_ms", journalRetryIntervalMillis);
+        return metrics;
+    }
+    
+    public ExecutionPersistenceQueue getPersistenceQueue() {
+        return persistence;
+    }
+    
     public ThreadPoolExecutor getExecutor() {
         return executor;
     }
@@ -316,41 +775,207 @@ public class JobExecutionEngine {
                 eventListeners.remove(job);
             }
 
-            // Call shutdown lifecycle hook
-            if (job instanceof JobLifecycle) {
-                try {
-                    String executionId = "shutdown-" + UUID.randomUUID().toString();
-                    DefaultJobContext shutdownContext = new DefaultJobContext(
-                        executionId, job.getName(), null, Map.of(), "SHUTDOWN", "SYSTEM", false, 0
-                    );
-                    ((JobLifecycle) job).shutdown(shutdownContext);
-                    logger.info("Shutdown lifecycle completed for job: {}", job.getName());
-                } catch (Exception e) {
-                    logger.warn("Job shutdown failed for {}: {}", job.getName(), e.getMessage());
-                }
+            // Call shutdown lifecycle hook, after init if that is still running
+            CompletableFuture<Void> readiness = jobReadiness.remove(jobName);
+            if (readiness != null && !readiness.isDone()) {
+                readiness.whenComplete((v, e) -> shutdownLifecycle(job));
+            } else {
+                shutdownLifecycle(job);
             }
             logger.info("Unregistered job: {}", jobName);
         }
     }
     
-    public void shutdown() {
-        // Shutdown all jobs with lifecycle support
-        for (String jobName : new ArrayList<>(jobs.keySet())) {
-            unregisterJob(jobName);
+    private void shutdownLifecycle(BatchJob job) {
+        if (job instanceof JobLifecycle) {
+            try {
+                String executionId = "shutdown-" + idGenerator.nextId();
+                DefaultJobContext shutdownContext = new DefaultJobContext(
+                    executionId, job.getName(), null, Map.of(), "SHUTDOWN", "SYSTEM", false, 0
+                );
+                ((JobLifecycle) job).shutdown(shutdownContext);
+                logger.info("Shutdown lifecycle completed for job: {}", job.getName());
+            } catch (Exception e) {
+                logger.warn("Job shutdown failed for {}: {}", job.getName(), e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * Stops admitting executions, persists executions that are still queued to the
+     * durable backlog and waits up to {@code budgetSeconds} for in-flight executions.
+     * Executions still running when the budget expires are interrupted.
+     *
+     * @return {@code true} if every in-flight execution finished within the budget
+     */
+    public boolean drain(int budgetSeconds) {
+        accepting = false;
+        
+        List<Runnable> pending = new ArrayList<>();
+        executor.getQueue().drainTo(pending);
+        List<BacklogEntry> backlog = new ArrayList<>();
+        for (Runnable runnable : pending) {
+            if (runnable instanceof QueuedExecution queued) {
+                backlog.add(queued.toBacklogEntry());
+                registry.remove(queued.context.getExecutionId());
+            }
+        }
+        if (!backlog.isEmpty()) {
+            deferToBacklog(backlog);
+            pending.stream()
+                .filter(QueuedExecution.class::isInstance)
+                .map(QueuedExecution.class::cast)
+                .forEach(queued -> queued.future.complete(JobResult.failure("Execution deferred to backlog during shutdown")));
         }
         
+        logger.info("Draining {} in-flight executions (budget {}s)", registry.size(), budgetSeconds);
         executor.shutdown();
+        boolean drained;
         try {
-            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            drained = executor.awaitTermination(budgetSeconds, TimeUnit.SECONDS);
+            if (!drained) {
                 executor.shutdownNow();
+                executor.awaitTermination(5, TimeUnit.SECONDS);
             }
         } catch (InterruptedException e) {
+            drained = false;
             executor.shutdownNow();
             Thread.currentThread().interrupt();
         }
+        
+        // Anything still registered ignored the interrupt; do not leave it RUNNING
+        for (LiveExecution live : registry.getAll()) {
+            logger.warn("Execution {} did not finish within the drain budget", live.getExecutionId());
+            persist(JobExecutionInfo.builder(live.getExecutionId(), live.getJobName())
+                .pipelineName(live.getPipelineName())
+                .status(JobStatus.FAILED)
+                .startTime(live.getStartTime())
+                .endTime(LocalDateTime.now())
+                .threadName(live.getThreadName())
+                .triggeredBy(live.getTriggeredBy())
+                .triggerType(live.getTriggerType())
+                .errorMessage("Aborted: shutdown drain budget exceeded")
+                .build(), false, null);
+        }
+        return drained;
+    }
+    
+    public void shutdown() {
+        drain(drainSeconds);
+        
+        // Shutdown all jobs with lifecycle support once nothing is running any more
+        for (String jobName : new ArrayList<>(jobs.keySet())) {
+            unregisterJob(jobName);
+        }
+        
+        initExecutor.shutdownNow();
+        initTimer.shutdownNow();
+        stats.shutdown();
+        if (journal != null) {
+            // One last attempt; whatever is still unwritten stays journaled and is replayed on the next start
+            journalRetrier.shutdownNow();
+            retryUnwritten();
+        }
+        persistence.close();
+        if (journal != null) {
+            if (!unwritten.isEmpty()) {
+                logger.warn("{} executions have states the store did not write; they are kept in the journal",
+                    unwritten.size());
+            }
+            journal.close();
+        }
         logger.info("JobExecutionEngine shut down");
     }
     
+    /**
+     * The journaled states of one execution that the store has not written:
+     * the latest state, whether its row may still need an insert, and the
+     * journal entries to release once it is written.
+     */
+    private static final class UnwrittenStates {
+        private long sequence = -1;
+        private JobExecutionInfo info;
+        private boolean insert;
+        private final List<ExecutionJournal.Mark> marks = new ArrayList<>();
+        
+        synchronized UnwrittenStates add(long sequence, JobExecutionInfo info, boolean insert, ExecutionJournal.Mark mark) {
+            // Completions can arrive out of order; the newest transition wins
+            if (sequence > this.sequence) {
+                this.sequence = sequence;
+                this.info = info;
+            }
+            this.insert |= insert;
+            marks.add(mark);
+            return this;
+        }
+        
+        synchronized Snapshot snapshot() {
+            return new Snapshot(info, insert, marks.size());
+        }
+        
+        /**
+         * Moves the entries covered by a written snapshot to {@code released}.
+         *
+         * @return true if nothing newer arrived, so the execution is fully written
+         */
+        synchronized boolean written(Snapshot snapshot, List<ExecutionJournal.Mark> released) {
+            List<ExecutionJournal.Mark> covered = marks.subList(0, snapshot.marks);
+            released.addAll(covered);
+            covered.clear();
+            insert = false;
+            return marks.isEmpty();
+        }
+        
+        private static final class Snapshot {
+            private final JobExecutionInfo info;
+            private final boolean insert;
+            private final int marks;
+            
+            Snapshot(JobExecutionInfo info, boolean insert, int marks) {
+                this.info = info;
+                this.insert = insert;
+                this.marks = marks;
+            }
+        }
+    }
+    
+    /**
+     * An execution waiting in the worker queue. Kept as a distinct type so that a
+     * drain can tell queued executions apart and move them to the backlog.
+     */
+    private final class QueuedExecution implements Runnable {
+        private final BatchJob job;
+        private final DefaultJobContext context;
+        private final LiveExecution live;
+        private final CompletableFuture<JobResult> future = new CompletableFuture<>();
+        
+        QueuedExecution(BatchJob job, DefaultJobContext context) {
+            this.job = job;
+            this.context = context;
+            this.live = new LiveExecution(context, JobStatus.QUEUED);
+        }
+        
+        @Override
+        public void run() {
+            try {
+                live.markRunning(Thread.currentThread());
+                JobResult result = runJob(job, context, context.getTriggeredBy(), context.getTriggerType());
+                stats.record(context.getJobName(), LocalDateTime.now(), live.getRunMillis(),
+                    live.getQueueWaitMillis(), result.isSuccess());
+                future.complete(result);
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            } finally {
+                registry.remove(context.getExecutionId());
+            }
+        }
+        
+        BacklogEntry toBacklogEntry() {
+            return new BacklogEntry(context.getExecutionId(), context.getJobName(), context.getPipelineName(),
+                context.getParameters(), context.getTriggeredBy(), context.getTriggerType(), context.getStartTime());
+        }
+    }
+    
     private String getStackTraceString(Throwable e) {
         java.io.StringWriter sw = new java.io.StringWriter();
         java.io.PrintWriter pw = new java.io.PrintWriter(sw);
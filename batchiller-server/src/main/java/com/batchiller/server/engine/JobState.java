@@ -0,0 +1,17 @@
+package com.batchiller.server.engine;
+
+/**
+ * Registration state of a job within the engine.
+ * A job only accepts executions once its lifecycle initialization has completed.
+ * 
+ * @author Siddharth Mishra &lt;mishra.siddharth90@gmail.com&gt;
+ * @version 1.0
+ */
+public enum JobState {
+    
+    INITIALIZING,
+    
+    READY,
+    
+    FAILED
+}
@@ -0,0 +1,108 @@
+package com.batchiller.server.engine;
+
+import com.batchiller.api.JobStatus;
+import com.batchiller.server.context.DefaultJobContext;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mutable, in-memory view of an execution that has been submitted to the engine
+ * and has not yet reached a terminal state.
+ * 
+ * @author Siddharth Mishra &lt;mishra.siddharth90@gmail.com&gt;
+ * @version 1.0
+ */
+public class LiveExecution {
+    
+    private final String executionId;
+    private final String jobName;
+    private final String pipelineName;
+    private final String triggeredBy;
+    private final String triggerType;
+    private final LocalDateTime startTime;
+    private final long startNanos;
+    private final DefaultJobContext context;
+    private volatile JobStatus status;
+    private volatile Thread thread;
+    private volatile long runningNanos;
+    
+    public LiveExecution(DefaultJobContext context, JobStatus status) {
+        this.executionId = context.getExecutionId();
+        this.jobName = context.getJobName();
+        this.pipelineName = context.getPipelineName();
+        this.triggeredBy = context.getTriggeredBy();
+        this.triggerType = context.getTriggerType();
+        this.startTime = context.getStartTime();
+        this.startNanos = System.nanoTime();
+        this.context = context;
+        this.status = status;
+    }
+    
+    void markRunning(Thread thread) {
+        this.runningNanos = System.nanoTime();
+        this.thread = thread;
+        this.status = JobStatus.RUNNING;
+    }
+    
+    public String getExecutionId() {
+        return executionId;
+    }
+    
+    public String getJobName() {
+        return jobName;
+    }
+    
+    public String getPipelineName() {
+        return pipelineName;
+    }
+    
+    public String getTriggeredBy() {
+        return triggeredBy;
+    }
+    
+    public String getTriggerType() {
+        return triggerType;
+    }
+    
+    public LocalDateTime getStartTime() {
+        return startTime;
+    }
+    
+    public long getStartNanos() {
+        return startNanos;
+    }
+    
+    public long getElapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+    
+    /**
+     * Time spent in the queue before a worker picked the execution up, so far if it is still queued.
+     */
+    public long getQueueWaitMillis() {
+        long running = runningNanos;
+        return TimeUnit.NANOSECONDS.toMillis((running != 0 ? running : System.nanoTime()) - startNanos);
+    }
+    
+    /**
+     * Time spent running, or 0 while still queued.
+     */
+    public long getRunMillis() {
+        long running = runningNanos;
+        return running != 0 ? TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - running) : 0;
+    }
+    
+    public JobStatus getStatus() {
+        return status;
+    }
+    
+    public String getThreadName() {
+        Thread current = thread;
+        return current != null ? current.getName() : null;
+    }
+    
+    public double getProgress() {
+        return context.getProgress();
+    }
+}
@@ -0,0 +1,17 @@
+package com.batchiller.server.engine;
+
+import java.util.UUID;
+
+/**
+ * Generates random (version 4) UUIDs as execution identifiers.
+ * 
+ * @author Siddharth Mishra &lt;mishra.siddharth90@gmail.com&gt;
+ * @version 1.0
+ */
+public class RandomExecutionIdGenerator implements ExecutionIdGenerator {
+    
+    @Override
+    public String nextId() {
+        return UUID.randomUUID().toString();
+    }
+}
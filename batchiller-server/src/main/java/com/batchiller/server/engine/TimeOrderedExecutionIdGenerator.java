@@ -0,0 +1,48 @@
+package com.batchiller.server.engine;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Generates time-ordered (version 7) UUIDs as execution identifiers.
+ * The 48 most significant bits hold the Unix epoch milliseconds, so the
+ * canonical string form sorts by creation time. A 12-bit per-thread sequence
+ * keeps identifiers from the same thread strictly increasing within a
+ * millisecond, and the random bits come from {@link ThreadLocalRandom},
+ * so generation never contends on a shared lock or {@code SecureRandom}.
+ * 
+ * @author Siddharth Mishra &lt;mishra.siddharth90@gmail.com&gt;
+ * @version 1.0
+ */
+public class TimeOrderedExecutionIdGenerator implements ExecutionIdGenerator {
+    
+    private static final int MAX_SEQUENCE = 0xFFF;
+    
+    private static final ThreadLocal<State> STATE = ThreadLocal.withInitial(State::new);
+    
+    @Override
+    public String nextId() {
+        State state = STATE.get();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long now = System.currentTimeMillis();
+        
+        if (now > state.lastMillis) {
+            state.lastMillis = now;
+            // Start low in the sequence space to leave room for bursts
+            state.sequence = random.nextInt(MAX_SEQUENCE >> 1);
+        } else if (++state.sequence > MAX_SEQUENCE) {
+            // Sequence exhausted (or clock moved back): borrow the next millisecond
+            state.lastMillis++;
+            state.sequence = 0;
+        }
+        
+        long mostSigBits = (state.lastMillis << 16) | 0x7000L | state.sequence;
+        long leastSigBits = (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(mostSigBits, leastSigBits).toString();
+    }
+    
+    private static final class State {
+        long lastMillis;
+        int sequence;
+    }
+}
@@ -5,7 +5,12 @@ import com.batchiller.server.config.BatchillerConfiguration;
 import com.batchiller.server.database.DatabaseManager;
 import com.batchiller.server.engine.JobExecutionEngine;
 import com.batchiller.server.logging.LogManager;
+import com.batchiller.server.logging.LogSearchIndex;
 import com.batchiller.server.monitoring.SystemMonitor;
+import com.batchiller.server.store.ExecutionPage;
+import com.batchiller.server.store.ExecutionQuery;
+import com.batchiller.server.store.ExecutionStoreException;
+import com.batchiller.server.store.StoredResult;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import io.undertow.Undertow;
@@ -42,6 +47,8 @@ public class HttpServer {
     private final SystemMonitor monitor;
     private final LogManager logManager;
     private final com.batchiller.server.scheduler.JobScheduler scheduler;
+    private final LogDownloadHandler logDownloads;
+    private final LogStreamHandler logStreams;
     private Undertow server;
     
     public HttpServer(BatchillerConfiguration config, JobExecutionEngine engine, 
@@ -53,6 +60,8 @@ public class HttpServer {
         this.monitor = monitor;
         this.logManager = logManager;
         this.scheduler = scheduler;
+        this.logDownloads = new LogDownloadHandler(logManager.getLogsDirectory());
+        this.logStreams = new LogStreamHandler(logManager.getLogStreams());
         this.objectMapper = new ObjectMapper();
         this.objectMapper.registerModule(new JavaTimeModule());
         this.objectMapper.configure(com.fasterxml.jackson.databind.SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false);
@@ -92,7 +101,8 @@ public class HttpServer {
             sendJson(exchange, engine.getJobs().stream()
                 .map(job -> Map.of(
                     "name", job.getName(),
-                    "description", job.getDescription()
+                    "description", job.getDescription(),
+                    "state", engine.getJobState(job.getName()).name()
                 ))
                 .toList());
         } else if (path.equals("/api/pipelines") && exchange.getRequestMethod().equals(Methods.GET)) {
@@ -107,8 +117,8 @@ public class HttpServer {
         } else if (path.startsWith("/api/jobs/") && path.endsWith("/trigger") && exchange.getRequestMethod().equals(Methods.POST)) {
             String jobName = path.substring("/api/jobs/".length(), path.length() - "/trigger".length());
             
-            CompletableFuture<JobResult> future = engine.executeJob(jobName, Map.of(), "WEB_UI", "MANUAL");
-            String executionId = java.util.UUID.randomUUID().toString();
+            String executionId = engine.nextExecutionId();
+            CompletableFuture<JobResult> future = engine.executeJob(executionId, jobName, Map.of(), "WEB_UI", "MANUAL");
             
             future.thenAccept(result -> {
                 logger.info("Job {} completed: {}", jobName, result.getMessage());
@@ -142,11 +152,64 @@ public class HttpServer {
             }
         } else if (path.equals("/api/metrics") && exchange.getRequestMethod().equals(Methods.GET)) {
             sendJson(exchange, monitor.getMetrics());
+        } else if (path.equals("/api/stats") && exchange.getRequestMethod().equals(Methods.GET)) {
+            java.time.Duration window;
+            try {
+                window = parseWindow(getQueryParameter(exchange, "window"));
+            } catch (IllegalArgumentException e) {
+                exchange.setStatusCode(400);
+                sendJson(exchange, Map.of("error", e.getMessage()));
+                return;
+            }
+            String jobName = getQueryParameter(exchange, "job");
+            Map<String, Object> stats = engine.getStats().getSummary(jobName, window);
+            if (jobName == null) {
+                stats.put("jobs", engine.getStats().getJobSummaries(window));
+            }
+            sendJson(exchange, stats);
         } else if (path.startsWith("/api/jobs/") && path.endsWith("/history") && exchange.getRequestMethod().equals(Methods.GET)) {
             String jobName = path.substring("/api/jobs/".length(), path.length() - "/history".length());
-            sendJson(exchange, database.getJobHistory(jobName, config.getJobHistoryLimit()));
+            sendExecutionPage(exchange, jobName, config.getJobHistoryLimit());
         } else if (path.equals("/api/executions") && exchange.getRequestMethod().equals(Methods.GET)) {
-            sendJson(exchange, database.getAllExecutions(100));
+            sendExecutionPage(exchange, getQueryParameter(exchange, "job"), 100);
+        } else if (path.equals("/api/executions/running") && exchange.getRequestMethod().equals(Methods.GET)) {
+            String jobName = getQueryParameter(exchange, "job");
+            String pipelineName = getQueryParameter(exchange, "pipeline");
+            if (jobName != null) {
+                sendJson(exchange, engine.getRunningExecutionsForJob(jobName));
+            } else if (pipelineName != null) {
+                sendJson(exchange, engine.getRunningExecutionsForPipeline(pipelineName));
+            } else {
+                sendJson(exchange, engine.getRunningExecutions());
+            }
+        } else if (path.startsWith("/api/executions/") && path.endsWith("/result") && exchange.getRequestMethod().equals(Methods.GET)) {
+            String executionId = path.substring("/api/executions/".length(), path.length() - "/result".length());
+            sendResult(exchange, executionId);
+        } else if (path.startsWith("/api/executions/") && path.indexOf('/', "/api/executions/".length()) < 0
+                && exchange.getRequestMethod().equals(Methods.GET)) {
+            String executionId = path.substring("/api/executions/".length());
+            Object execution = engine.getLiveExecution(executionId);
+            if (execution == null) {
+                // Finished but possibly not flushed yet
+                execution = engine.getPendingExecution(executionId);
+            }
+            if (execution == null) {
+                // Not in flight any more; fall back to the persisted record
+                try {
+                    execution = engine.getExecutionStore().get(executionId);
+                } catch (ExecutionStoreException e) {
+                    logger.error("Failed to read execution: " + executionId, e);
+                    exchange.setStatusCode(503);
+                    sendJson(exchange, Map.of("error", "Execution history is unavailable"));
+                    return;
+                }
+            }
+            if (execution != null) {
+                sendJson(exchange, execution);
+            } else {
+                exchange.setStatusCode(404);
+                sendJson(exchange, Map.of("error", "Execution not found: " + executionId));
+            }
         } else if (path.equals("/api/pipelines/designer/save") && exchange.getRequestMethod().equals(Methods.POST)) {
             exchange.getRequestReceiver().receiveFullString((exch, body) -> {
                 try {
@@ -183,9 +246,13 @@ public class HttpServer {
                 }
             });
         } else if (path.equals("/api/pipelines/designer/list") && exchange.getRequestMethod().equals(Methods.GET)) {
-            sendJson(exchange, Map.of("pipelines", database.getAllPipelineConfigurations()));
+            if (!notModified(exchange)) {
+                sendJson(exchange, Map.of("pipelines", database.getAllPipelineConfigurations()));
+            }
         } else if (path.equals("/api/scheduled-jobs") && exchange.getRequestMethod().equals(Methods.GET)) {
-            sendJson(exchange, scheduler.getAllScheduledJobs());
+            if (!notModified(exchange)) {
+                sendJson(exchange, scheduler.getAllScheduledJobs());
+            }
         } else if (path.equals("/api/scheduled-jobs") && exchange.getRequestMethod().equals(Methods.POST)) {
             exchange.getRequestReceiver().receiveFullString((exch, body) -> {
                 try {
@@ -210,15 +277,52 @@ public class HttpServer {
                 logger.error("Failed to delete scheduled job: " + scheduledJobId, e);
                 sendJson(exchange, Map.of("success", false, "error", e.getMessage()));
             }
+        } else if (path.equals("/api/logs/search") && exchange.getRequestMethod().equals(Methods.GET)) {
+            searchLogs(exchange);
+        } else if (path.startsWith("/api/executions/") && path.endsWith("/log/stream") && exchange.getRequestMethod().equals(Methods.GET)) {
+            String executionId = path.substring("/api/executions/".length(), path.length() - "/log/stream".length());
+            File logFile = logManager.getLogFile(executionId);
+            Long offset;
+            Integer tailLines;
+            try {
+                String offsetParam = getQueryParameter(exchange, "offset");
+                String tailParam = getQueryParameter(exchange, "tail");
+                offset = offsetParam != null ? Long.parseLong(offsetParam) : null;
+                tailLines = tailParam != null ? Integer.parseInt(tailParam) : null;
+            } catch (NumberFormatException e) {
+                exchange.setStatusCode(400);
+                sendJson(exchange, Map.of("error", "Invalid query parameter: " + e.getMessage()));
+                return;
+            }
+            if (tailLines != null && tailLines <= 0) {
+                exchange.setStatusCode(400);
+                sendJson(exchange, Map.of("error", "Invalid tail (expected a positive number of lines): " + tailLines));
+            } else if (logFile != null && logFile.exists()) {
+                logStreams.stream(exchange, executionId, logFile.toPath(), offset, tailLines);
+            } else {
+                exchange.setStatusCode(404);
+                sendJson(exchange, Map.of("error", "Log file not available or has expired"));
+            }
         } else if (path.startsWith("/api/executions/") && path.endsWith("/log") && exchange.getRequestMethod().equals(Methods.GET)) {
             String executionId = path.substring("/api/executions/".length(), path.length() - "/log".length());
             File logFile = logManager.getLogFile(executionId);
+            String tail = getQueryParameter(exchange, "tail");
+            Integer tailLines = null;
+            if (tail != null) {
+                try {
+                    tailLines = Integer.parseInt(tail);
+                } catch (NumberFormatException e) {
+                    tailLines = 0;
+                }
+                if (tailLines <= 0) {
+                    exchange.setStatusCode(400);
+                    sendJson(exchange, Map.of("error", "Invalid tail (expected a positive number of lines): " + tail));
+                    return;
+                }
+            }
 
             if (logFile != null && logFile.exists()) {
-                exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, "text/plain");
-                exchange.getResponseHeaders().put(Headers.CONTENT_DISPOSITION,
-                        "attachment; filename=\"execution-" + executionId + ".log\"");
-                exchange.getResponseSender().send(Files.readString(logFile.toPath()));
+                logDownloads.send(exchange, executionId, logFile.toPath(), tailLines);
             } else {
                 exchange.setStatusCode(404);
                 sendJson(exchange, Map.of("error", "Log file not available or has expired"));
@@ -258,6 +362,179 @@ public class HttpServer {
         return "text/plain";
     }
     
+    /**
+     * Sends one page of execution history as a JSON array. The cursor of the next
+     * page, if any, is returned in the X-Next-Cursor header so the body stays a plain list.
+     */
+    private void sendExecutionPage(HttpServerExchange exchange, String jobName, int defaultLimit) {
+        ExecutionPage page;
+        try {
+            ExecutionQuery.Builder query = ExecutionQuery.builder()
+                .jobName(jobName)
+                .pipelineName(getQueryParameter(exchange, "pipeline"))
+                .triggerType(getQueryParameter(exchange, "trigger_type"))
+                .cursor(getQueryParameter(exchange, "cursor"));
+            
+            String statuses = getQueryParameter(exchange, "status");
+            if (statuses != null) {
+                for (String status : statuses.split(",")) {
+                    query.status(JobStatus.valueOf(status.trim().toUpperCase()));
+                }
+            }
+            String from = getQueryParameter(exchange, "from");
+            if (from != null) {
+                query.startedFrom(java.time.LocalDateTime.parse(from));
+            }
+            String to = getQueryParameter(exchange, "to");
+            if (to != null) {
+                query.startedTo(java.time.LocalDateTime.parse(to));
+            }
+            String minDuration = getQueryParameter(exchange, "min_duration_ms");
+            if (minDuration != null) {
+                query.minDurationMillis(Long.parseLong(minDuration));
+            }
+            String maxDuration = getQueryParameter(exchange, "max_duration_ms");
+            if (maxDuration != null) {
+                query.maxDurationMillis(Long.parseLong(maxDuration));
+            }
+            String limit = getQueryParameter(exchange, "limit");
+            query.limit(limit != null ? Integer.parseInt(limit) : defaultLimit);
+            
+            page = engine.getExecutionStore().query(query.build());
+        } catch (IllegalArgumentException | java.time.format.DateTimeParseException e) {
+            exchange.setStatusCode(400);
+            sendJson(exchange, Map.of("error", "Invalid query parameter: " + e.getMessage()));
+            return;
+        } catch (ExecutionStoreException e) {
+            // An outage must not look like an empty history
+            logger.error("Failed to query execution history", e);
+            exchange.setStatusCode(503);
+            sendJson(exchange, Map.of("error", "Execution history is unavailable"));
+            return;
+        }
+        
+        if (page.hasNext()) {
+            exchange.getResponseHeaders().put(new io.undertow.util.HttpString("X-Next-Cursor"), page.getNextCursor());
+        }
+        sendJson(exchange, page.getExecutions());
+    }
+    
+    /**
+     * Searches finished execution logs; the index is read on a worker thread.
+     */
+    private void searchLogs(HttpServerExchange exchange) {
+        LogSearchIndex search = logManager.getLogSearch();
+        if (search == null) {
+            exchange.setStatusCode(404);
+            sendJson(exchange, Map.of("error", "Log search is disabled"));
+            return;
+        }
+        String q = getQueryParameter(exchange, "q");
+        String jobName = getQueryParameter(exchange, "job");
+        java.time.LocalDateTime from;
+        java.time.LocalDateTime to;
+        int limit;
+        try {
+            String fromParam = getQueryParameter(exchange, "from");
+            String toParam = getQueryParameter(exchange, "to");
+            String limitParam = getQueryParameter(exchange, "limit");
+            from = fromParam != null ? java.time.LocalDateTime.parse(fromParam) : null;
+            to = toParam != null ? java.time.LocalDateTime.parse(toParam) : null;
+            limit = limitParam != null ? Integer.parseInt(limitParam) : 100;
+        } catch (IllegalArgumentException | java.time.format.DateTimeParseException e) {
+            exchange.setStatusCode(400);
+            sendJson(exchange, Map.of("error", "Invalid query parameter: " + e.getMessage()));
+            return;
+        }
+        if (q == null || q.isBlank() || limit <= 0 || limit > 1000) {
+            exchange.setStatusCode(400);
+            sendJson(exchange, Map.of("error", "Expected a q parameter and a limit between 1 and 1000"));
+            return;
+        }
+        exchange.dispatch(() -> {
+            try {
+                sendJson(exchange, search.search(q, jobName, from, to, limit));
+            } catch (IllegalArgumentException e) {
+                exchange.setStatusCode(400);
+                sendJson(exchange, Map.of("error", e.getMessage()));
+            } catch (Exception e) {
+                logger.error("Failed to search execution logs for: " + q, e);
+                exchange.setStatusCode(500);
+                sendJson(exchange, Map.of("error", e.getMessage()));
+            }
+        });
+    }
+    
+    /**
+     * Sends the stored result data of an execution. The row, its spill file and
+     * the gunzip all block, so they run on a worker thread.
+     */
+    private void sendResult(HttpServerExchange exchange, String executionId) {
+        exchange.dispatch(() -> {
+            try {
+                StoredResult result = engine.getResultStore().find(executionId);
+                if (result == null) {
+                    exchange.setStatusCode(404);
+                    sendJson(exchange, Map.of("error", "No result data for execution: " + executionId));
+                } else if (result.getData() == null && result.getSpillPath() == null) {
+                    exchange.setStatusCode(413);
+                    sendJson(exchange, Map.of("error", "Result data of " + result.getSizeBytes()
+                        + " bytes exceeded result.max.bytes and was not kept"));
+                } else {
+                    exchange.getResponseSender().send(java.nio.ByteBuffer.wrap(engine.getResultStore().readJson(result)));
+                }
+            } catch (java.nio.file.NoSuchFileException e) {
+                // The spill file was purged after the row was read
+                exchange.setStatusCode(410);
+                sendJson(exchange, Map.of("error", "Result data of execution " + executionId + " has been purged"));
+            } catch (Exception e) {
+                logger.error("Failed to read result data of execution: " + executionId, e);
+                exchange.setStatusCode(500);
+                sendJson(exchange, Map.of("error", "Failed to read result data of execution: " + executionId));
+            }
+        });
+    }
+    
+    /**
+     * Parses a stats window such as {@code 15m}, {@code 24h} or {@code 7d}; defaults to 24 hours.
+     */
+    private java.time.Duration parseWindow(String window) {
+        if (window == null || window.isBlank()) {
+            return java.time.Duration.ofHours(24);
+        }
+        java.util.regex.Matcher matcher = java.util.regex.Pattern.compile("(\\d+)([mhd])").matcher(window.trim());
+        if (!matcher.matches() || Long.parseLong(matcher.group(1)) == 0) {
+            throw new IllegalArgumentException("Invalid window (expected e.g. 15m, 24h, 7d): " + window);
+        }
+        long amount = Long.parseLong(matcher.group(1));
+        return switch (matcher.group(2)) {
+            case "m" -> java.time.Duration.ofMinutes(amount);
+            case "h" -> java.time.Duration.ofHours(amount);
+            default -> java.time.Duration.ofDays(amount);
+        };
+    }
+    
+    private String getQueryParameter(HttpServerExchange exchange, String name) {
+        java.util.Deque<String> values = exchange.getQueryParameters().get(name);
+        return values != null && !values.isEmpty() ? values.peekFirst() : null;
+    }
+    
+    /**
+     * Tags the response with the configuration cache version and answers 304
+     * when the client already has it. The version is read before the data, so
+     * a write in between only makes the client fetch again.
+     */
+    private boolean notModified(HttpServerExchange exchange) {
+        String etag = "\"" + database.getConfigurationCache().getVersion() + "\"";
+        exchange.getResponseHeaders().put(Headers.ETAG, etag);
+        if (etag.equals(exchange.getRequestHeaders().getFirst(Headers.IF_NONE_MATCH))) {
+            exchange.setStatusCode(304);
+            exchange.endExchange();
+            return true;
+        }
+        return false;
+    }
+    
     private void sendJson(HttpServerExchange exchange, Object data) {
         try {
             String json = objectMapper.writeValueAsString(data);
@@ -0,0 +1,208 @@
+package com.batchiller.server.http;
+
+import com.batchiller.server.logging.LogFileReader;
+import io.undertow.attribute.ExchangeAttributes;
+import io.undertow.io.IoCallback;
+import io.undertow.io.Sender;
+import io.undertow.predicate.Predicates;
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.server.handlers.encoding.AllowedContentEncodings;
+import io.undertow.server.handlers.encoding.ContentEncodingRepository;
+import io.undertow.server.handlers.encoding.EncodingHandler;
+import io.undertow.server.handlers.encoding.GzipEncodingProvider;
+import io.undertow.server.handlers.resource.PathResourceManager;
+import io.undertow.server.handlers.resource.ResourceHandler;
+import io.undertow.util.AttachmentKey;
+import io.undertow.util.ByteRange;
+import io.undertow.util.Headers;
+import io.undertow.util.MimeMappings;
+import io.undertow.util.StatusCodes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A class that serves execution log files without reading them into memory.
+ * Whole files and byte ranges go through Undertow's {@link ResourceHandler},
+ * which transfers the file straight from its channel (sendfile where the
+ * platform has it) and answers {@code Range} and conditional requests.
+ * {@code ?tail=N} finds the start of the last N lines by reading backwards
+ * from the end of the file, then transfers from there.
+ *
+ * <p>Responses are gzipped for clients that accept it, except range
+ * requests, whose offsets refer to the uncompressed file.</p>
+ *
+ * <p>A log the compressor has already gzipped is sent as stored, with
+ * {@code Content-Encoding: gzip}, to clients that accept gzip. Other
+ * clients, ranges and tails get its text, inflated on a worker thread as it
+ * is sent; offsets are into the text, as for a plain log.</p>
+ *
+ * @author Siddharth Mishra &lt;mishra.siddharth90@gmail.com&gt;
+ * @version 1.0
+ */
+class LogDownloadHandler {
+    
+    private static final Logger logger = LoggerFactory.getLogger(LogDownloadHandler.class);
+    private static final AttachmentKey<Path> LOG_FILE = AttachmentKey.create(Path.class);
+    private static final AttachmentKey<Integer> TAIL_LINES = AttachmentKey.create(Integer.class);
+    private static final int TEXT_CHUNK_SIZE = 64 * 1024;
+    
+    private final Path logsDirectory;
+    private final HttpHandler fileHandler;
+    private final HttpHandler tailHandler;
+    private final HttpHandler compressedHandler;
+    
+    LogDownloadHandler(Path logsDirectory) {
+        this.logsDirectory = logsDirectory.toAbsolutePath().normalize();
+        ContentEncodingRepository encodings = new ContentEncodingRepository()
+            .addEncodingHandler("gzip", new GzipEncodingProvider(), 50,
+                Predicates.not(Predicates.exists(ExchangeAttributes.requestHeader(Headers.RANGE))));
+        ResourceHandler resources = new ResourceHandler(new PathResourceManager(this.logsDirectory))
+            .setMimeMappings(MimeMappings.builder(false).addMapping("log", "text/plain; charset=UTF-8").build());
+        this.fileHandler = new EncodingHandler(resources, encodings);
+        this.tailHandler = new EncodingHandler(this::sendTail, encodings);
+        this.compressedHandler = new EncodingHandler(this::sendCompressed, encodings);
+    }
+    
+    /**
+     * Sends the whole log, the requested byte range or, with {@code tailLines}, its last lines.
+     */
+    void send(HttpServerExchange exchange, String executionId, Path logFile, Integer tailLines) throws Exception {
+        exchange.getResponseHeaders().remove(Headers.CONTENT_TYPE);
+        exchange.getResponseHeaders().put(Headers.CONTENT_DISPOSITION,
+            "attachment; filename=\"execution-" + executionId + ".log\"");
+        exchange.putAttachment(LOG_FILE, logFile);
+        if (tailLines != null) {
+            exchange.putAttachment(TAIL_LINES, tailLines);
+            tailHandler.handleRequest(exchange);
+        } else if (LogFileReader.isCompressed(logFile)) {
+            compressedHandler.handleRequest(exchange);
+        } else {
+            exchange.setRelativePath("/" + logsDirectory.relativize(logFile.toAbsolutePath().normalize())
+                .toString().replace('\\', '/'));
+            fileHandler.handleRequest(exchange);
+        }
+    }
+    
+    private void sendTail(HttpServerExchange exchange) throws IOException {
+        if (exchange.isInIoThread()) {
+            // Reading backwards blocks on the disk; do it on a worker thread
+            exchange.dispatch(tailHandler);
+            return;
+        }
+        Path logFile = exchange.getAttachment(LOG_FILE);
+        exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, "text/plain; charset=UTF-8");
+        long start;
+        try (LogFileReader reader = LogFileReader.open(logFile)) {
+            start = reader.tailStart(exchange.getAttachment(TAIL_LINES));
+            if (LogFileReader.isCompressed(logFile)) {
+                sendText(exchange, reader, start, reader.size());
+                return;
+            }
+        }
+        transfer(exchange, logFile, start);
+    }
+    
+    private void sendCompressed(HttpServerExchange exchange) throws IOException {
+        if (exchange.isInIoThread()) {
+            // Inflating blocks on the disk and the CPU; do it on a worker thread
+            exchange.dispatch(this::sendCompressed);
+            return;
+        }
+        Path logFile = exchange.getAttachment(LOG_FILE);
+        exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, "text/plain; charset=UTF-8");
+        exchange.getResponseHeaders().put(Headers.ACCEPT_RANGES, "bytes");
+        exchange.getResponseHeaders().put(Headers.VARY, Headers.ACCEPT_ENCODING_STRING);
+        String range = exchange.getRequestHeaders().getFirst(Headers.RANGE);
+        AllowedContentEncodings encodings = exchange.getAttachment(AllowedContentEncodings.ATTACHMENT_KEY);
+        if (range == null && encodings != null && "gzip".equals(encodings.getCurrentContentEncoding())) {
+            // Already gzip: send the stored bytes and keep the encoding handler from compressing them again
+            exchange.getResponseHeaders().put(Headers.CONTENT_ENCODING, "gzip");
+            exchange.setResponseContentLength(Files.size(logFile));
+            transfer(exchange, logFile, 0);
+            return;
+        }
+        try (LogFileReader reader = LogFileReader.open(logFile)) {
+            long size = reader.size();
+            ByteRange byteRange = range != null ? ByteRange.parse(range) : null;
+            ByteRange.RangeResponseResult result = byteRange != null
+                ? byteRange.getResponseResult(size, null, null, null) : null;
+            if (result == null) {
+                exchange.setResponseContentLength(size);
+                sendText(exchange, reader, 0, size);
+                return;
+            }
+            exchange.setStatusCode(result.getStatusCode());
+            exchange.getResponseHeaders().put(Headers.CONTENT_RANGE, result.getContentRange());
+            if (result.getStatusCode() == StatusCodes.REQUEST_RANGE_NOT_SATISFIABLE) {
+                exchange.endExchange();
+                return;
+            }
+            exchange.setResponseContentLength(result.getContentLength());
+            sendText(exchange, reader, result.getStart(), result.getEnd() + 1);
+        }
+    }
+    
+    /**
+     * Writes the log text from {@code from} up to {@code to}, blocking the calling worker thread.
+     */
+    private static void sendText(HttpServerExchange exchange, LogFileReader reader, long from, long to)
+            throws IOException {
+        exchange.startBlocking();
+        ByteBuffer buffer = ByteBuffer.allocate(TEXT_CHUNK_SIZE);
+        try (OutputStream out = exchange.getOutputStream()) {
+            long position = from;
+            while (position < to) {
+                buffer.clear().limit((int) Math.min(TEXT_CHUNK_SIZE, to - position));
+                reader.readFully(buffer, position);
+                if (buffer.position() == 0) {
+                    break;
+                }
+                out.write(buffer.array(), 0, buffer.position());
+                position += buffer.position();
+            }
+        }
+    }
+    
+    /**
+     * Sends the file from {@code start} straight from its channel.
+     */
+    private static void transfer(HttpServerExchange exchange, Path file, long start) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            channel.position(start);
+            exchange.getResponseSender().transferFrom(channel, new IoCallback() {
+                @Override
+                public void onComplete(HttpServerExchange exchange, Sender sender) {
+                    closeQuietly(channel);
+                    IoCallback.END_EXCHANGE.onComplete(exchange, sender);
+                }
+    
+                @Override
+                public void onException(HttpServerExchange exchange, Sender sender, IOException exception) {
+                    closeQuietly(channel);
+                    IoCallback.END_EXCHANGE.onException(exchange, sender, exception);
+                }
+            });
+        } catch (IOException | RuntimeException e) {
+            closeQuietly(channel);
+            throw e;
+        }
+    }
+    
+    private static void closeQuietly(FileChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            logger.error("Failed to close log file", e);
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package com.batchiller.server.http;
+
+import com.batchiller.server.logging.LogFileReader;
+import com.batchiller.server.logging.LogStreamHub;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.server.handlers.sse.ServerSentEventConnection;
+import io.undertow.server.handlers.sse.ServerSentEventHandler;
+import io.undertow.util.Headers;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A class that streams an execution's log over Server-Sent Events. Each
+ * event carries whole log records and has the file offset just past them as
+ * its ID, so a client that reconnects with {@code Last-Event-ID} resumes
+ * exactly where it left off.
+ *
+ * <p>A viewer first reads the file from its start offset to the end, then
+ * follows the log through the {@link LogStreamHub}, which hands it every
+ * write as the log writer makes it; nothing polls the file. Writes that
+ * arrive while the viewer is still reading are held and trimmed to what the
+ * file read did not cover. When the execution ends the viewer gets an
+ * {@code end} event and the stream is closed.</p>
+ *
+ * <p>Offsets are into the log text, so they stay valid after a finished
+ * log has been compressed.</p>
+ *
+ * @author Siddharth Mishra &lt;mishra.siddharth90@gmail.com&gt;
+ * @version 1.0
+ */
+class LogStreamHandler {
+    
+    private static final Logger logger = LoggerFactory.getLogger(LogStreamHandler.class);
+    private static final int CATCH_UP_CHUNK_SIZE = 64 * 1024;
+    // A viewer this far behind is disconnected; it can reconnect with Last-Event-ID
+    private static final long MAX_BUFFERED_CHARS = 4L * 1024 * 1024;
+    private static final long KEEP_ALIVE_MILLIS = 15_000;
+    
+    private final LogStreamHub streams;
+    
+    LogStreamHandler(LogStreamHub streams) {
+        this.streams = streams;
+    }
+    
+    /**
+     * Opens the event stream. Resumes from {@code Last-Event-ID} when the
+     * client sends one, otherwise starts at {@code offset}, or at the last
+     * {@code tailLines} lines when given.
+     */
+    void stream(HttpServerExchange exchange, String executionId, Path logFile, Long offset, Integer tailLines)
+            throws Exception {
+        if (exchange.isInIoThread()) {
+            exchange.dispatch(ex -> stream(ex, executionId, logFile, offset, tailLines));
+            return;
+        }
+        exchange.getResponseHeaders().remove(Headers.CONTENT_TYPE);
+        new ServerSentEventHandler((connection, lastEventId) -> {
+            try {
+                long start = startOffset(logFile, lastEventId, offset, tailLines);
+                new Viewer(connection, executionId, logFile, start).start();
+            } catch (IOException e) {
+                logger.error("Failed to open log stream for execution: " + executionId, e);
+                connection.shutdown();
+            }
+        }).handleRequest(exchange);
+    }
+    
+    private static long startOffset(Path logFile, String lastEventId, Long offset, Integer tailLines)
+            throws IOException {
+        try (LogFileReader reader = LogFileReader.open(logFile)) {
+            long size = reader.size();
+            if (lastEventId != null) {
+                try {
+                    return Math.min(Math.max(0, Long.parseLong(lastEventId.trim())), size);
+                } catch (NumberFormatException e) {
+                    // not one of ours; fall through to the request's own start
+                }
+            }
+            if (tailLines != null) {
+                return reader.tailStart(tailLines);
+            }
+            return offset != null ? Math.min(Math.max(0, offset), size) : 0;
+        }
+    }
+    
+    private final class Viewer implements LogStreamHub.Subscriber {
+    
+        private final ServerSentEventConnection connection;
+        private final String executionId;
+        private final Path logFile;
+        // Open while the viewer reads the file, closed once it has caught up
+        private LogFileReader reader;
+        private final AtomicLong bufferedChars = new AtomicLong();
+        // Writes published while the file is still being read
+        private final Deque<Write> pending = new ArrayDeque<>();
+        private long pendingBytes;
+        private long position;
+        private boolean caughtUp;
+        private boolean ended;
+    
+        Viewer(ServerSentEventConnection connection, String executionId, Path logFile, long position) {
+            this.connection = connection;
+            this.executionId = executionId;
+            this.logFile = logFile;
+            this.position = position;
+        }
+    
+        void start() {
+            connection.setKeepAliveTime(KEEP_ALIVE_MILLIS);
+            // Subscribe before reading, so every write is either in the file read or published to us
+            if (streams.subscribe(executionId, this)) {
+                connection.addCloseTask(c -> streams.unsubscribe(executionId, this));
+            } else {
+                ended = true;
+            }
+            sendBacklog();
+        }
+    
+        /**
+         * Sends the next chunk of the file; called again once it is written,
+         * until the end of the file is reached.
+         */
+        private void sendBacklog() {
+            byte[] chunk;
+            try {
+                chunk = readChunk();
+            } catch (IOException e) {
+                if (connection.isOpen()) {
+                    logger.error("Failed to read log for stream of execution: " + executionId, e);
+                }
+                closeReader();
+                connection.shutdown();
+                return;
+            }
+            if (chunk.length > 0) {
+                position += chunk.length;
+                connection.send(new String(chunk, StandardCharsets.UTF_8), null, String.valueOf(position),
+                    new ServerSentEventConnection.EventCallback() {
+                        @Override
+                        public void done(ServerSentEventConnection c, String data, String event, String id) {
+                            sendBacklog();
+                        }
+    
+                        @Override
+                        public void failed(ServerSentEventConnection c, String data, String event, String id,
+                                           IOException e) {
+                            closeReader();
+                            connection.shutdown();
+                        }
+                    });
+                return;
+            }
+            closeReader();
+            synchronized (this) {
+                caughtUp = true;
+                for (Write write : pending) {
+                    deliver(write.offset, write.data);
+                }
+                pending.clear();
+                pendingBytes = 0;
+                if (ended) {
+                    finish();
+                }
+            }
+        }
+    
+        /**
+         * Reads up to one chunk from the current position, cut after its last
+         * newline so no event ends in the middle of a line or character.
+         */
+        private byte[] readChunk() throws IOException {
+            if (reader == null) {
+                reader = LogFileReader.open(logFile);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(CATCH_UP_CHUNK_SIZE);
+            reader.readFully(buffer, position);
+            int length = buffer.position();
+            if (length == CATCH_UP_CHUNK_SIZE) {
+                for (int i = length - 1; i >= 0; i--) {
+                    if (buffer.get(i) == '\n') {
+                        length = i + 1;
+                        break;
+                    }
+                }
+            }
+            return Arrays.copyOf(buffer.array(), length);
+        }
+    
+        private void closeReader() {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (IOException e) {
+                    logger.error("Failed to close log of execution: " + executionId, e);
+                }
+                reader = null;
+            }
+        }
+    
+        @Override
+        public synchronized void append(long offset, byte[] data) {
+            if (!caughtUp) {
+                pending.add(new Write(offset, data));
+                pendingBytes += data.length;
+                if (pendingBytes > MAX_BUFFERED_CHARS) {
+                    connection.shutdown();
+                }
+                return;
+            }
+            deliver(offset, data);
+        }
+    
+        @Override
+        public synchronized void end() {
+            ended = true;
+            if (caughtUp) {
+                finish();
+            }
+        }
+    
+        /**
+         * Sends the part of a write past what this viewer already has.
+         */
+        private void deliver(long offset, byte[] data) {
+            long end = offset + data.length;
+            if (end <= position) {
+                return;
+            }
+            int skip = (int) Math.max(0, position - offset);
+            String text = new String(data, skip, data.length - skip, StandardCharsets.UTF_8);
+            position = end;
+            if (bufferedChars.addAndGet(text.length()) > MAX_BUFFERED_CHARS) {
+                connection.shutdown();
+                return;
+            }
+            connection.send(text, null, String.valueOf(end), new ServerSentEventConnection.EventCallback() {
+                @Override
+                public void done(ServerSentEventConnection c, String data, String event, String id) {
+                    bufferedChars.addAndGet(-data.length());
+                }
+    
+                @Override
+                public void failed(ServerSentEventConnection c, String data, String event, String id,
+                                   IOException e) {
+                    connection.shutdown();
+                }
+            });
+        }
+    
+        private void finish() {
+            connection.send("", "end", String.valueOf(position), new ServerSentEventConnection.EventCallback() {
+                @Override
+                public void done(ServerSentEventConnection c, String data, String event, String id) {
+                    connection.shutdown();
+                }
+    
+                @Override
+                public void failed(ServerSentEventConnection c, String data, String event, String id,
+                                   IOException e) {
+                    connection.shutdown();
+                }
+            });
+        }
+    }
+    
+    private static final class Write {
+        final long offset;
+        final byte[] data;
+    
+        Write(long offset, byte[] data) {
+            this.offset = offset;
+            this.data = data;
+        }
+    }
+}
@@ -157,6 +157,7 @@ public class DynamicJobLoader {
             );
             
             List<String> jobClasses = findJobClasses(jarFile);
+            List<CompletableFuture<Void>> registrations = new ArrayList<>();
             
             for (String className : jobClasses) {
                 try {
@@ -176,13 +177,13 @@ public class DynamicJobLoader {
                         
                         // Load new version
                         loadedJobs.put(jobName, new LoadedJob(job, classLoader, jarFile.getAbsolutePath()));
-                        engine.registerJob(job);
+                        registrations.add(engine.registerJob(job));
                         logger.info("Loaded job: {} from {}", jobName, jarFile.getName());
                     }
                     
                     if (Pipeline.class.isAssignableFrom(clazz) && !clazz.isInterface()) {
                         Pipeline pipeline = (Pipeline) clazz.getDeclaredConstructor().newInstance();
-                        engine.registerPipeline(pipeline);
+                        registrations.add(engine.registerPipeline(pipeline));
                         logger.info("Loaded pipeline: {} from {}", pipeline.getName(), jarFile.getName());
                     }
                     
@@ -191,6 +192,18 @@ public class DynamicJobLoader {
                 }
             }
             
+            // Lifecycle init runs concurrently in the engine; report once the whole JAR is ready
+            if (!registrations.isEmpty()) {
+                CompletableFuture.allOf(registrations.toArray(new CompletableFuture<?>[0]))
+                    .whenComplete((v, e) -> {
+                        if (e != null) {
+                            logger.warn("Some jobs from {} failed to initialize: {}", jarFile.getName(), e.getMessage());
+                        } else {
+                            logger.info("All jobs from {} initialized", jarFile.getName());
+                        }
+                    });
+            }
+            
         } catch (Exception e) {
             logger.error("Failed to load jobs from JAR: {} - {}", jarFile.getName(), e.getMessage());
             if (classLoader != null) {
@@ -0,0 +1,96 @@
+package com.batchiller.server.logging;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+import ch.qos.logback.core.encoder.Encoder;
+import org.slf4j.Marker;
+import org.slf4j.MarkerFactory;
+
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * A single appender for every execution's log, routing each event to the
+ * file named by the {@value #LOG_FILE_KEY} MDC value of the thread that
+ * logged it. Events are encoded on the logging thread and handed to an
+ * {@link ExecutionLogWriter}, so a worker never waits on the disk.
+ *
+ * <p>Events are first passed through an {@link ExecutionLogLimiter}, which
+ * drops those over the execution's size cap or its job's rate limit before
+ * they are encoded or queued.</p>
+ *
+ * <p>An event carrying {@link #END_OF_EXECUTION} is not written; it closes
+ * the execution's file once every event queued before it has been.</p>
+ *
+ * @author Siddharth Mishra &lt;mishra.siddharth90@gmail.com&gt;
+ * @version 1.0
+ */
+public class ExecutionLogAppender extends UnsynchronizedAppenderBase<ILoggingEvent> {
+    
+    public static final String EXECUTION_ID_KEY = "executionId";
+    public static final String LOG_FILE_KEY = "executionLogFile";
+    public static final Marker END_OF_EXECUTION = MarkerFactory.getMarker("END_OF_EXECUTION");
+    
+    private final ExecutionLogWriter writer;
+    private final ExecutionLogLimiter limiter;
+    private Encoder<ILoggingEvent> encoder;
+    
+    /**
+     * @param completed called on the writer thread with each log file once its execution's close is written
+     */
+    ExecutionLogAppender(int queueSize, boolean dropWhenFull, int maxOpenFiles, LogStreamHub streams,
+                         ExecutionLogLimiter limiter, Consumer<String> completed) {
+        this.writer = new ExecutionLogWriter(queueSize, dropWhenFull, maxOpenFiles, streams, completed);
+        this.limiter = limiter;
+    }
+    
+    public void setEncoder(Encoder<ILoggingEvent> encoder) {
+        this.encoder = encoder;
+    }
+    
+    @Override
+    public void start() {
+        if (encoder == null) {
+            addError("No encoder set for the appender named \"" + name + "\".");
+            return;
+        }
+        super.start();
+    }
+    
+    @Override
+    protected void append(ILoggingEvent event) {
+        Map<String, String> mdc = event.getMDCPropertyMap();
+        String logFile = mdc.get(LOG_FILE_KEY);
+        if (logFile == null) {
+            return;
+        }
+        String executionId = mdc.get(EXECUTION_ID_KEY);
+        if (event.getMarkerList() != null && event.getMarkerList().contains(END_OF_EXECUTION)) {
+            byte[] summary = limiter.close(executionId);
+            if (summary != null) {
+                writer.write(executionId, logFile, summary);
+            }
+            writer.close(executionId, logFile);
+        } else {
+            byte[] bytes = limiter.admit(executionId, () -> encoder.encode(event));
+            if (bytes != null) {
+                writer.write(executionId, logFile, bytes);
+            }
+        }
+    }
+    
+    /**
+     * Writes out whatever is still queued and closes every open file.
+     */
+    @Override
+    public void stop() {
+        super.stop();
+        writer.shutdown(5000);
+    }
+    
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = writer.getMetrics();
+        limiter.getMetrics().forEach((key, value) -> metrics.put("limit_" + key, value));
+        return metrics;
+    }
+}
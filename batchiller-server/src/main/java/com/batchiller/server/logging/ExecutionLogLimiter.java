@@ -0,0 +1,264 @@
+package com.batchiller.server.logging;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * A class that bounds how much an execution can log. Each execution's log is
+ * capped at {@code log.execution.max.size.mb} and {@code log.execution.max.lines}
+ * (log records); once either is reached the log ends with a marker and the
+ * rest of the execution's output is suppressed. Each job also gets a token
+ * bucket refilled at {@code log.execution.rate.limit} records per second, shared
+ * by its concurrent executions; records over the limit are dropped or, with
+ * {@code log.execution.rate.overflow=sample}, one in
+ * {@code log.execution.rate.sample} is kept. A marker is written when a job
+ * starts being limited and another with the count once it has been under the
+ * limit for a second.
+ *
+ * <p>Limits are applied on the logging thread before a record is queued, and
+ * the rate limit before it is even encoded, so a job logging in a tight loop
+ * costs little more than the loop itself.</p>
+ *
+ * @author Siddharth Mishra &lt;mishra.siddharth90@gmail.com&gt;
+ * @version 1.0
+ */
+final class ExecutionLogLimiter {
+    
+    // A rate-limited job must stay under the limit this long before the suppressed count is reported
+    private static final long QUIET_NANOS = TimeUnit.SECONDS.toNanos(1);
+    
+    private final long maxBytes;
+    private final long maxLines;
+    private final int linesPerSecond;
+    private final int burst;
+    private final int sampleEvery;
+    private final Map<String, Budget> budgets = new ConcurrentHashMap<>();
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    
+    private final AtomicLong suppressedByCap = new AtomicLong();
+    private final AtomicLong suppressedByRate = new AtomicLong();
+    private final AtomicLong sampled = new AtomicLong();
+    private final AtomicLong executionsTruncated = new AtomicLong();
+    private final AtomicLong executionsRateLimited = new AtomicLong();
+    
+    /**
+     * @param maxBytes bytes per execution, or 0 for no cap
+     * @param maxLines records per execution, or 0 for no cap
+     * @param linesPerSecond records per second per job, or 0 for no rate limit
+     * @param burst records a job may log at once before the rate applies
+     * @param sampleEvery keep one in this many records over the rate limit, or 0 to drop them all
+     */
+    ExecutionLogLimiter(long maxBytes, long maxLines, int linesPerSecond, int burst, int sampleEvery) {
+        this.maxBytes = Math.max(0, maxBytes);
+        this.maxLines = Math.max(0, maxLines);
+        this.linesPerSecond = Math.max(0, linesPerSecond);
+        this.burst = Math.max(1, burst);
+        this.sampleEvery = Math.max(0, sampleEvery);
+    }
+    
+    private boolean enabled() {
+        return maxBytes > 0 || maxLines > 0 || linesPerSecond > 0;
+    }
+    
+    /**
+     * Starts tracking an execution's log; called before it logs anything.
+     */
+    void open(String executionId, String jobName) {
+        if (!enabled()) {
+            return;
+        }
+        TokenBucket bucket = linesPerSecond > 0 && jobName != null
+            ? buckets.computeIfAbsent(jobName, name -> new TokenBucket(linesPerSecond, burst))
+            : null;
+        budgets.put(executionId, new Budget(bucket));
+    }
+    
+    /**
+     * Decides whether a record of the execution is written.
+     *
+     * @param record encodes the record; only called if it is within the limits
+     * @return the bytes to queue, which may be a marker alone or one followed
+     *         by the record, or null if nothing is written
+     */
+    byte[] admit(String executionId, Supplier<byte[]> record) {
+        Budget budget = executionId != null ? budgets.get(executionId) : null;
+        return budget != null ? budget.admit(record) : record.get();
+    }
+    
+    /**
+     * Stops tracking an execution's log.
+     *
+     * @return a closing marker reporting what was suppressed, or null if nothing was
+     */
+    byte[] close(String executionId) {
+        Budget budget = executionId != null ? budgets.remove(executionId) : null;
+        return budget != null ? budget.close() : null;
+    }
+    
+    /**
+     * Returns how many of the execution's records have been suppressed so far.
+     */
+    long getSuppressed(String executionId) {
+        Budget budget = budgets.get(executionId);
+        return budget != null ? budget.suppressed() : 0;
+    }
+    
+    Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("max_bytes", maxBytes);
+        metrics.put("max_lines", maxLines);
+        metrics.put("rate_lines_per_second", linesPerSecond);
+        metrics.put("rate_overflow", sampleEvery > 0 ? "sample" : "drop");
+        metrics.put("tracked_executions", budgets.size());
+        metrics.put("lines_suppressed_by_cap", suppressedByCap.get());
+        metrics.put("lines_suppressed_by_rate", suppressedByRate.get());
+        metrics.put("lines_sampled", sampled.get());
+        metrics.put("executions_truncated", executionsTruncated.get());
+        metrics.put("executions_rate_limited", executionsRateLimited.get());
+        return metrics;
+    }
+    
+    private static byte[] marker(String text) {
+        return ("*** " + text + " ***\n").getBytes(StandardCharsets.UTF_8);
+    }
+    
+    private static byte[] concat(byte[] first, byte[] second) {
+        if (first == null) {
+            return second;
+        }
+        if (second == null) {
+            return first;
+        }
+        byte[] bytes = new byte[first.length + second.length];
+        System.arraycopy(first, 0, bytes, 0, first.length);
+        System.arraycopy(second, 0, bytes, first.length, second.length);
+        return bytes;
+    }
+    
+    /**
+     * What one execution has logged. An execution usually logs from one
+     * thread, so the lock is uncontended.
+     */
+    private final class Budget {
+        private final TokenBucket bucket;
+        private long bytes;
+        private long lines;
+        private boolean truncated;
+        private long cappedLines;
+        private long rateLines;
+        private boolean everLimited;
+        // The current rate-limited stretch: when a record was last over the limit, and how many were dropped
+        private boolean limited;
+        private long lastLimitedNanos;
+        private long limitedSeen;
+        private long limitedDropped;
+    
+        Budget(TokenBucket bucket) {
+            this.bucket = bucket;
+        }
+    
+        synchronized byte[] admit(Supplier<byte[]> record) {
+            if (truncated) {
+                cappedLines++;
+                suppressedByCap.incrementAndGet();
+                return null;
+            }
+            byte[] marker = null;
+            if (bucket != null) {
+                long now = System.nanoTime();
+                if (bucket.tryAcquire(now)) {
+                    if (limited && now - lastLimitedNanos > QUIET_NANOS) {
+                        marker = endLimited();
+                    }
+                } else {
+                    if (!limited) {
+                        limited = true;
+                        limitedSeen = 0;
+                        if (!everLimited) {
+                            everLimited = true;
+                            executionsRateLimited.incrementAndGet();
+                        }
+                        marker = marker("Job exceeded its log rate limit of " + linesPerSecond + " lines/s; "
+                            + (sampleEvery > 0 ? "keeping 1 in " + sampleEvery + " lines" : "suppressing lines"));
+                    }
+                    lastLimitedNanos = now;
+                    if (sampleEvery == 0 || limitedSeen++ % sampleEvery != 0) {
+                        limitedDropped++;
+                        rateLines++;
+                        suppressedByRate.incrementAndGet();
+                        return marker;
+                    }
+                    sampled.incrementAndGet();
+                }
+            }
+            byte[] bytes = record.get();
+            if (maxBytes > 0 && this.bytes + bytes.length > maxBytes || maxLines > 0 && lines >= maxLines) {
+                truncated = true;
+                cappedLines++;
+                suppressedByCap.incrementAndGet();
+                executionsTruncated.incrementAndGet();
+                return concat(marker, marker("Log truncated: the execution reached its cap of "
+                    + (maxBytes > 0 && this.bytes + bytes.length > maxBytes ? maxBytes + " bytes" : maxLines + " lines")
+                    + "; further output is suppressed"));
+            }
+            this.bytes += bytes.length;
+            lines++;
+            return concat(marker, bytes);
+        }
+    
+        private byte[] endLimited() {
+            limited = false;
+            long dropped = limitedDropped;
+            limitedDropped = 0;
+            return marker(dropped + " log lines suppressed by the rate limit");
+        }
+    
+        synchronized byte[] close() {
+            byte[] marker = limited && limitedDropped > 0 ? endLimited() : null;
+            if (cappedLines > 0) {
+                marker = concat(marker, marker(cappedLines + " log lines suppressed by the log cap"));
+            }
+            return marker;
+        }
+    
+        synchronized long suppressed() {
+            return cappedLines + rateLines;
+        }
+    }
+    
+    /**
+     * A job's log rate: holds up to {@code burst} tokens, refilled at
+     * {@code rate} per second, and every record takes one.
+     */
+    private static final class TokenBucket {
+        private final double tokensPerNano;
+        private final double capacity;
+        private double tokens;
+        private long refilledAt;
+    
+        TokenBucket(int rate, int burst) {
+            this.tokensPerNano = rate / 1e9;
+            this.capacity = burst;
+            this.tokens = burst;
+            this.refilledAt = System.nanoTime();
+        }
+    
+        synchronized boolean tryAcquire(long now) {
+            // another execution of the job may have read the clock later and refilled first
+            if (now > refilledAt) {
+                tokens = Math.min(capacity, tokens + (now - refilledAt) * tokensPerNano);
+                refilledAt = now;
+            }
+            if (tokens >= 1) {
+                tokens -= 1;
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package com.batchiller.server.logging;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * A class that writes execution log records on a dedicated thread. Worker
+ * threads hand encoded records to a {@link LogRingBuffer} and return; the
+ * writer thread drains the ring in batches, groups each batch by file and
+ * writes every file's records with one gathering {@link FileChannel} write.
+ * Writes to executions that have live viewers are then published to the
+ * {@link LogStreamHub}. Once an execution's close has been written, its file
+ * is handed to the {@code completed} callback.
+ *
+ * <p>When the ring is full a record is either dropped or the producer waits
+ * for space, depending on {@code log.execution.overflow}. Close requests
+ * always wait, so a file is never left open because its close was dropped.
+ * Open channels are bounded by {@code log.execution.max.open.files}; the
+ * least recently written one is closed first and reopened in append mode if
+ * written again.</p>
+ *
+ * @author Siddharth Mishra &lt;mishra.siddharth90@gmail.com&gt;
+ * @version 1.0
+ */
+final class ExecutionLogWriter {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ExecutionLogWriter.class);
+    private static final int MAX_BATCH = 1024;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    
+    private final LogRingBuffer<Record> ring;
+    private final LogStreamHub streams;
+    private final Consumer<String> completed;
+    private final boolean dropWhenFull;
+    private final int maxOpenFiles;
+    private final Map<String, FileChannel> openFiles = new LinkedHashMap<>(16, 0.75f, true);
+    private final Thread writerThread;
+    private volatile boolean running = true;
+    private volatile boolean idle;
+    
+    private final AtomicLong eventsDropped = new AtomicLong();
+    private final AtomicLong producerWaits = new AtomicLong();
+    private volatile long eventsWritten;
+    private volatile long bytesWritten;
+    private volatile long batches;
+    private volatile long writeErrors;
+    private volatile long filesOpened;
+    private volatile long filesClosed;
+    private volatile long filesEvicted;
+    private volatile int openFileCount;
+    
+    ExecutionLogWriter(int capacity, boolean dropWhenFull, int maxOpenFiles, LogStreamHub streams,
+                       Consumer<String> completed) {
+        this.ring = new LogRingBuffer<>(capacity);
+        this.streams = streams;
+        this.completed = completed;
+        this.dropWhenFull = dropWhenFull;
+        this.maxOpenFiles = Math.max(1, maxOpenFiles);
+        this.writerThread = new Thread(this::run, "ExecutionLogWriter");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+    
+    /**
+     * Queues an encoded record for the file.
+     *
+     * @return false if the record was dropped because the ring was full
+     */
+    boolean write(String executionId, String file, byte[] bytes) {
+        return publish(new Record(executionId, file, ByteBuffer.wrap(bytes)), dropWhenFull);
+    }
+    
+    /**
+     * Queues a request to close the file after everything queued before it.
+     */
+    void close(String executionId, String file) {
+        publish(new Record(executionId, file, null), false);
+    }
+    
+    private boolean publish(Record record, boolean drop) {
+        boolean queued = running && ring.offer(record);
+        if (!queued && !drop && running) {
+            producerWaits.incrementAndGet();
+            while (!queued && running) {
+                LockSupport.unpark(writerThread);
+                LockSupport.parkNanos(50_000);
+                queued = ring.offer(record);
+            }
+        }
+        if (!queued) {
+            eventsDropped.incrementAndGet();
+            return false;
+        }
+        if (idle) {
+            LockSupport.unpark(writerThread);
+        }
+        return true;
+    }
+    
+    private void run() {
+        List<Record> batch = new ArrayList<>(MAX_BATCH);
+        while (running || ring.size() > 0) {
+            Record record;
+            while (batch.size() < MAX_BATCH && (record = ring.poll()) != null) {
+                batch.add(record);
+            }
+            if (batch.isEmpty()) {
+                idle = true;
+                // Re-check after announcing idleness, so a record published in between is not left waiting
+                if (ring.size() == 0 && running) {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+                idle = false;
+                continue;
+            }
+            writeBatch(batch);
+            batch.clear();
+        }
+        openFiles.values().forEach(this::closeQuietly);
+        openFiles.clear();
+        openFileCount = 0;
+    }
+    
+    private void writeBatch(List<Record> batch) {
+        // Per-file order is kept; records for different files may be reordered, which nobody can observe
+        Map<String, List<Record>> byFile = new LinkedHashMap<>();
+        List<Record> toClose = new ArrayList<>();
+        Set<String> closing = new HashSet<>();
+        for (Record record : batch) {
+            if (record.data == null) {
+                toClose.add(record);
+                closing.add(record.file);
+            } else {
+                byFile.computeIfAbsent(record.file, f -> new ArrayList<>()).add(record);
+            }
+        }
+        long events = 0;
+        long bytes = 0;
+        for (Map.Entry<String, List<Record>> entry : byFile.entrySet()) {
+            List<Record> records = entry.getValue();
+            ByteBuffer[] buffers = new ByteBuffer[records.size()];
+            for (int i = 0; i < buffers.length; i++) {
+                buffers[i] = records.get(i).data;
+            }
+            try {
+                FileChannel channel = open(entry.getKey());
+                long written = 0;
+                int first = 0;
+                while (first < buffers.length) {
+                    written += channel.write(buffers, first, buffers.length - first);
+                    while (first < buffers.length && !buffers[first].hasRemaining()) {
+                        first++;
+                    }
+                }
+                bytes += written;
+                events += buffers.length;
+                // Checked after the write: a viewer that subscribes later finds these bytes in the file
+                String executionId = records.get(0).executionId;
+                if (executionId != null && streams.hasSubscribers(executionId)) {
+                    streams.publish(executionId, channel.position() - written, concat(buffers, written));
+                }
+            } catch (IOException e) {
+                writeErrors++;
+                logger.error("Failed to write execution log: " + entry.getKey(), e);
+            }
+            // Closed as soon as its last records are written, so a batch spanning more executions than
+            // max open files does not evict files that it is about to close anyway
+            if (closing.contains(entry.getKey())) {
+                closeFile(entry.getKey());
+            }
+        }
+        for (Record record : toClose) {
+            closeFile(record.file);
+            if (record.executionId != null) {
+                streams.close(record.executionId);
+            }
+            try {
+                completed.accept(record.file);
+            } catch (RuntimeException e) {
+                logger.error("Failed to hand off completed execution log: " + record.file, e);
+            }
+        }
+        openFileCount = openFiles.size();
+        eventsWritten += events;
+        bytesWritten += bytes;
+        batches++;
+    }
+    
+    private void closeFile(String file) {
+        FileChannel channel = openFiles.remove(file);
+        if (channel != null) {
+            closeQuietly(channel);
+            filesClosed++;
+        }
+    }
+    
+    private static byte[] concat(ByteBuffer[] buffers, long length) {
+        byte[] data = new byte[(int) length];
+        int position = 0;
+        for (ByteBuffer buffer : buffers) {
+            System.arraycopy(buffer.array(), 0, data, position, buffer.limit());
+            position += buffer.limit();
+        }
+        return data;
+    }
+    
+    private FileChannel open(String file) throws IOException {
+        FileChannel channel = openFiles.get(file);
+        if (channel != null) {
+            return channel;
+        }
+        if (openFiles.size() >= maxOpenFiles) {
+            Iterator<FileChannel> eldest = openFiles.values().iterator();
+            closeQuietly(eldest.next());
+            eldest.remove();
+            filesEvicted++;
+        }
+        channel = FileChannel.open(Paths.get(file), StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        openFiles.put(file, channel);
+        openFileCount = openFiles.size();
+        filesOpened++;
+        return channel;
+    }
+    
+    private void closeQuietly(FileChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            logger.error("Failed to close execution log", e);
+        }
+    }
+    
+    /**
+     * Stops accepting records, writes everything already queued and closes
+     * every open file, waiting up to the timeout for the writer thread.
+     */
+    void shutdown(long timeoutMillis) {
+        running = false;
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join(timeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("queue_depth", ring.size());
+        metrics.put("queue_capacity", ring.capacity());
+        metrics.put("overflow_policy", dropWhenFull ? "drop" : "block");
+        metrics.put("events_dropped", eventsDropped.get());
+        metrics.put("producer_waits", producerWaits.get());
+        metrics.put("events_written", eventsWritten);
+        metrics.put("bytes_written", bytesWritten);
+        metrics.put("batches", batches);
+        metrics.put("write_errors", writeErrors);
+        metrics.put("open_files", openFileCount);
+        metrics.put("max_open_files", maxOpenFiles);
+        metrics.put("files_opened", filesOpened);
+        metrics.put("files_closed", filesClosed);
+        metrics.put("files_evicted", filesEvicted);
+        return metrics;
+    }
+    
+    private static final class Record {
+        final String executionId;
+        final String file;
+        final ByteBuffer data; // null for a close request
+        
+        Record(String executionId, String file, ByteBuffer data) {
+            this.executionId = executionId;
+            this.file = file;
+            this.data = data;
+        }
+    }
+}
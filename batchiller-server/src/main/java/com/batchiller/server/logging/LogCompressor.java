@@ -0,0 +1,289 @@
+package com.batchiller.server.logging;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * A class that gzips completed execution logs on a background thread. A log
+ * is compressed a short while after its execution ends, and the logs the
+ * {@link LogIndex} still lists as uncompressed at startup, i.e. those left
+ * plain by an earlier run, are compressed then. The compressed file replaces
+ * the plain one under the same name plus {@code .gz}, and the index entry is
+ * moved over before the plain file is deleted.
+ *
+ * <p>The text is cut into {@value #BLOCK_SIZE}-byte blocks, each compressed
+ * into its own gzip member. Concatenated members are an ordinary gzip file,
+ * so it can be sent as-is to any client that accepts gzip, but every member
+ * also records its compressed and uncompressed length in a header extra
+ * field, which lets {@link LogFileReader} seek into the log without
+ * inflating what comes before.</p>
+ *
+ * @author Siddharth Mishra &lt;mishra.siddharth90@gmail.com&gt;
+ * @version 1.0
+ */
+public class LogCompressor {
+    
+    private static final Logger logger = LoggerFactory.getLogger(LogCompressor.class);
+    static final int BLOCK_SIZE = 64 * 1024;
+    // Fixed gzip header (10) + XLEN (2) + one "BL" subfield: id (2), length (2), member and text length (4 + 4)
+    static final int HEADER_LENGTH = 24;
+    // CRC32 and ISIZE
+    static final int TRAILER_LENGTH = 8;
+    private static final String TEMP_EXTENSION = ".tmp";
+    // Gives viewers and downloads that found the plain file time to finish with it
+    private static final long COMPRESS_DELAY_SECONDS = 30;
+    
+    private final LogIndex logIndex;
+    private final int level;
+    private final ScheduledThreadPoolExecutor executor;
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    
+    private final AtomicInteger pending = new AtomicInteger();
+    private volatile long filesCompressed;
+    private volatile long failures;
+    private volatile long bytesIn;
+    private volatile long bytesOut;
+    private volatile long cpuNanos;
+    
+    public LogCompressor(LogIndex logIndex, int level) {
+        this.logIndex = logIndex;
+        this.level = Math.max(Deflater.BEST_SPEED, Math.min(Deflater.BEST_COMPRESSION, level));
+        this.executor = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "LogCompressor");
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        });
+        // Whatever is still waiting at shutdown stays listed as uncompressed and is done on the next start
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+    
+    /**
+     * Compresses the logs left uncompressed by an earlier run. Must be called
+     * before any execution starts, so none of them is still being written.
+     */
+    public void start() {
+        Map<String, Path> left = logIndex.getUncompressed();
+        if (left.isEmpty()) {
+            return;
+        }
+        executor.execute(() -> {
+            int compressed = 0;
+            for (Path logFile : left.values()) {
+                if (executor.isShutdown()) {
+                    return;
+                }
+                if (compress(logFile)) {
+                    compressed++;
+                }
+            }
+            logger.info("Compressed {} execution logs left by a previous run", compressed);
+        });
+    }
+    
+    /**
+     * Schedules a log whose execution has ended for compression.
+     */
+    void submit(Path logFile) {
+        if (executor.isShutdown()) {
+            return;
+        }
+        pending.incrementAndGet();
+        executor.schedule(() -> {
+            pending.decrementAndGet();
+            compress(logFile);
+        }, COMPRESS_DELAY_SECONDS, TimeUnit.SECONDS);
+    }
+    
+    /**
+     * Replaces a plain log with its compressed form.
+     *
+     * @return false if the file is gone or could not be compressed
+     */
+    boolean compress(Path logFile) {
+        String executionId = LogIndex.executionIdOf(logFile.getFileName().toString());
+        if (!Files.exists(logFile)) {
+            // deleted by retention, or never written because every record was dropped
+            if (executionId != null) {
+                logIndex.removeUncompressed(executionId, logFile);
+            }
+            return false;
+        }
+        Path compressed = logFile.resolveSibling(logFile.getFileName() + LogFileReader.COMPRESSED_EXTENSION);
+        Path temp = logFile.resolveSibling(compressed.getFileName() + TEMP_EXTENSION);
+        long cpuStart = cpuTime();
+        try {
+            long[] sizes = writeBlocks(logFile, temp);
+            Files.move(temp, compressed, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            if (executionId != null) {
+                logIndex.replace(executionId, logFile, compressed);
+            }
+            Files.delete(logFile);
+            if (executionId != null) {
+                logIndex.removeUncompressed(executionId, logFile);
+            }
+            filesCompressed++;
+            bytesIn += sizes[0];
+            bytesOut += sizes[1];
+            return true;
+        } catch (IOException e) {
+            failures++;
+            logger.error("Failed to compress execution log: " + logFile, e);
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // overwritten when the log is retried after a restart
+            }
+            return false;
+        } finally {
+            cpuNanos += cpuTime() - cpuStart;
+        }
+    }
+    
+    /**
+     * Writes the log as one gzip member per block.
+     *
+     * @return the plain and compressed sizes
+     */
+    private long[] writeBlocks(Path source, Path target) throws IOException {
+        Deflater deflater = new Deflater(level, true);
+        CRC32 crc = new CRC32();
+        ByteBuffer text = ByteBuffer.allocate(BLOCK_SIZE);
+        ByteBuffer member = ByteBuffer.allocate(BLOCK_SIZE + BLOCK_SIZE / 8 + HEADER_LENGTH + TRAILER_LENGTH)
+            .order(ByteOrder.LITTLE_ENDIAN);
+        long plain = 0;
+        long written = 0;
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                 StandardOpenOption.TRUNCATE_EXISTING)) {
+            boolean first = true;
+            while (true) {
+                text.clear();
+                while (text.hasRemaining() && in.read(text) > 0) {
+                    // fill the block
+                }
+                int length = text.position();
+                // An empty log still gets one (empty) member, so the file is valid gzip
+                if (length == 0 && !first) {
+                    break;
+                }
+                first = false;
+                member = deflateBlock(deflater, crc, text.array(), length, member);
+                member.flip();
+                while (member.hasRemaining()) {
+                    written += out.write(member);
+                }
+                plain += length;
+                if (length < BLOCK_SIZE) {
+                    break;
+                }
+            }
+            out.force(true);
+        } finally {
+            deflater.end();
+        }
+        return new long[] {plain, written};
+    }
+    
+    private ByteBuffer deflateBlock(Deflater deflater, CRC32 crc, byte[] text, int length, ByteBuffer member) {
+        deflater.reset();
+        deflater.setInput(text, 0, length);
+        deflater.finish();
+        member.clear().position(HEADER_LENGTH);
+        while (!deflater.finished()) {
+            if (member.remaining() < TRAILER_LENGTH + 64) {
+                ByteBuffer larger = ByteBuffer.allocate(member.capacity() * 2).order(ByteOrder.LITTLE_ENDIAN);
+                member.flip();
+                member = larger.put(member);
+            }
+            int n = deflater.deflate(member.array(), member.position(), member.remaining() - TRAILER_LENGTH);
+            member.position(member.position() + n);
+        }
+        crc.reset();
+        crc.update(text, 0, length);
+        member.putInt((int) crc.getValue());
+        member.putInt(length);
+        int memberLength = member.position();
+        member.put(0, (byte) 0x1f).put(1, (byte) 0x8b).put(2, (byte) Deflater.DEFLATED).put(3, (byte) 0x04)
+            .putInt(4, 0)
+            .put(8, (byte) (level == Deflater.BEST_COMPRESSION ? 2 : level == Deflater.BEST_SPEED ? 4 : 0))
+            .put(9, (byte) 0xff)
+            .putShort(10, (short) 12)
+            .put(12, (byte) 'B').put(13, (byte) 'L')
+            .putShort(14, (short) 8)
+            .putInt(16, memberLength)
+            .putInt(20, length);
+        return member;
+    }
+    
+    /**
+     * Returns the total length of the member whose header is in the buffer,
+     * or -1 if it is not one written by this class.
+     */
+    static int memberLength(ByteBuffer header) {
+        if ((header.get(0) & 0xff) != 0x1f || (header.get(1) & 0xff) != 0x8b || header.get(2) != Deflater.DEFLATED
+                || (header.get(3) & 0x04) == 0 || header.getShort(10) != 12
+                || header.get(12) != 'B' || header.get(13) != 'L' || header.getShort(14) != 8) {
+            return -1;
+        }
+        return header.getInt(16);
+    }
+    
+    /**
+     * Returns the length of the text in the member whose header is in the buffer.
+     */
+    static int textLength(ByteBuffer header) {
+        return header.getInt(20);
+    }
+    
+    private long cpuTime() {
+        return threads.isCurrentThreadCpuTimeSupported() ? threads.getCurrentThreadCpuTime() : System.nanoTime();
+    }
+    
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    public Map<String, Object> getMetrics() {
+        long in = bytesIn;
+        long out = bytesOut;
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("codec", "gzip");
+        metrics.put("level", level);
+        metrics.put("pending", pending.get());
+        metrics.put("files_compressed", filesCompressed);
+        metrics.put("failures", failures);
+        metrics.put("bytes_in", in);
+        metrics.put("bytes_out", out);
+        metrics.put("bytes_saved", in - out);
+        metrics.put("ratio", in == 0 ? 0.0 : (double) out / in);
+        metrics.put("cpu_millis", TimeUnit.NANOSECONDS.toMillis(cpuNanos));
+        return metrics;
+    }
+}
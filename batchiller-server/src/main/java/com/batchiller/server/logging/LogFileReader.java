@@ -0,0 +1,227 @@
+package com.batchiller.server.logging;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads an execution log by offset into its text, whether the file is plain
+ * or was compressed by the {@link LogCompressor}. A compressed log is a
+ * series of gzip members, each holding one block of the text and recording
+ * its own sizes in the header, so a reader finds any offset by walking the
+ * member headers and inflates only the block it needs.
+ *
+ * @author Siddharth Mishra &lt;mishra.siddharth90@gmail.com&gt;
+ * @version 1.0
+ */
+public abstract class LogFileReader implements Closeable {
+    
+    public static final String COMPRESSED_EXTENSION = ".gz";
+    private static final int TAIL_CHUNK_SIZE = 8192;
+    
+    public static LogFileReader open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            return isCompressed(file) ? new BlockReader(channel) : new PlainReader(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+    
+    public static boolean isCompressed(Path file) {
+        return file.getFileName().toString().endsWith(COMPRESSED_EXTENSION);
+    }
+    
+    /**
+     * Returns the length of the log text; a plain log still being written grows.
+     */
+    public abstract long size() throws IOException;
+    
+    /**
+     * Reads log text starting at {@code position} into the buffer.
+     *
+     * @return the number of bytes read, or -1 at the end of the log
+     */
+    public abstract int read(ByteBuffer dst, long position) throws IOException;
+    
+    /**
+     * Fills the buffer from {@code position}, stopping early only at the end of the log.
+     */
+    public void readFully(ByteBuffer dst, long position) throws IOException {
+        while (dst.hasRemaining() && read(dst, position + dst.position()) > 0) {
+            // a positional read may return less than asked for
+        }
+    }
+    
+    /**
+     * Returns the offset of the first of the last {@code lines} lines, reading
+     * the log backwards a chunk at a time. A newline ending the log does not
+     * start another line.
+     */
+    public long tailStart(int lines) throws IOException {
+        long size = size();
+        ByteBuffer chunk = ByteBuffer.allocate(TAIL_CHUNK_SIZE);
+        int found = 0;
+        long end = size;
+        while (end > 0) {
+            long from = Math.max(0, end - TAIL_CHUNK_SIZE);
+            chunk.clear().limit((int) (end - from));
+            readFully(chunk, from);
+            for (int i = chunk.position() - 1; i >= 0; i--) {
+                if (chunk.get(i) == '\n' && from + i != size - 1 && ++found == lines) {
+                    return from + i + 1;
+                }
+            }
+            end = from;
+        }
+        return 0;
+    }
+    
+    private static final class PlainReader extends LogFileReader {
+    
+        private final FileChannel channel;
+    
+        PlainReader(FileChannel channel) {
+            this.channel = channel;
+        }
+    
+        @Override
+        public long size() throws IOException {
+            return channel.size();
+        }
+    
+        @Override
+        public int read(ByteBuffer dst, long position) throws IOException {
+            return channel.read(dst, position);
+        }
+    
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+    
+    private static final class BlockReader extends LogFileReader {
+    
+        private final FileChannel channel;
+        // Per block: where its member starts in the file and where its text starts in the log
+        private final long[] memberOffsets;
+        private final long[] textOffsets;
+        private final long size;
+        private final Inflater inflater = new Inflater(true);
+        private int cachedBlock = -1;
+        private byte[] cachedText;
+    
+        BlockReader(FileChannel channel) throws IOException {
+            this.channel = channel;
+            long fileSize = channel.size();
+            long[] members = new long[16];
+            long[] texts = new long[16];
+            int count = 0;
+            long member = 0;
+            long text = 0;
+            ByteBuffer header = ByteBuffer.allocate(LogCompressor.HEADER_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+            while (member < fileSize) {
+                header.clear();
+                readFully(channel, header, member);
+                int memberLength = LogCompressor.memberLength(header);
+                if (memberLength <= 0 || member + memberLength > fileSize) {
+                    throw new IOException("Not a block-compressed execution log, or truncated at offset " + member);
+                }
+                if (count == members.length) {
+                    members = Arrays.copyOf(members, count * 2);
+                    texts = Arrays.copyOf(texts, count * 2);
+                }
+                members[count] = member;
+                texts[count] = text;
+                count++;
+                member += memberLength;
+                text += LogCompressor.textLength(header);
+            }
+            this.memberOffsets = Arrays.copyOf(members, count + 1);
+            this.textOffsets = Arrays.copyOf(texts, count + 1);
+            memberOffsets[count] = member;
+            textOffsets[count] = text;
+            this.size = text;
+        }
+    
+        @Override
+        public long size() {
+            return size;
+        }
+    
+        @Override
+        public int read(ByteBuffer dst, long position) throws IOException {
+            if (position >= size) {
+                return -1;
+            }
+            int read = 0;
+            while (dst.hasRemaining() && position < size) {
+                int block = Arrays.binarySearch(textOffsets, 0, textOffsets.length - 1, position);
+                if (block < 0) {
+                    block = -block - 2;
+                }
+                byte[] text = inflate(block);
+                int from = (int) (position - textOffsets[block]);
+                int length = Math.min(dst.remaining(), text.length - from);
+                dst.put(text, from, length);
+                position += length;
+                read += length;
+            }
+            return read;
+        }
+    
+        private byte[] inflate(int block) throws IOException {
+            if (block == cachedBlock) {
+                return cachedText;
+            }
+            int memberLength = (int) (memberOffsets[block + 1] - memberOffsets[block]);
+            ByteBuffer member = ByteBuffer.allocate(memberLength);
+            readFully(channel, member, memberOffsets[block]);
+            byte[] text = new byte[(int) (textOffsets[block + 1] - textOffsets[block])];
+            inflater.reset();
+            inflater.setInput(member.array(), LogCompressor.HEADER_LENGTH,
+                memberLength - LogCompressor.HEADER_LENGTH - LogCompressor.TRAILER_LENGTH);
+            try {
+                int inflated = 0;
+                while (inflated < text.length && !inflater.finished()) {
+                    int n = inflater.inflate(text, inflated, text.length - inflated);
+                    if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                        break;
+                    }
+                    inflated += n;
+                }
+                if (inflated != text.length) {
+                    throw new IOException("Corrupt block at offset " + memberOffsets[block]);
+                }
+            } catch (DataFormatException e) {
+                throw new IOException("Corrupt block at offset " + memberOffsets[block], e);
+            }
+            cachedBlock = block;
+            cachedText = text;
+            return text;
+        }
+    
+        private static void readFully(FileChannel channel, ByteBuffer dst, long position) throws IOException {
+            while (dst.hasRemaining()) {
+                if (channel.read(dst, position + dst.position()) < 0) {
+                    throw new IOException("Unexpected end of compressed log at offset " + position);
+                }
+            }
+        }
+    
+        @Override
+        public void close() throws IOException {
+            inflater.end();
+            channel.close();
+        }
+    }
+}
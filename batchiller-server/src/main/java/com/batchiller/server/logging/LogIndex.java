@@ -0,0 +1,217 @@
+package com.batchiller.server.logging;
+
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * An on-disk map from execution ID to the path of its log file relative to
+ * the logs directory, kept in an embedded H2 MVStore next to the execution
+ * logs. Entries are added when a log file is created and removed when
+ * cleanup deletes it, so finding an execution's log is a single key lookup
+ * rather than a directory scan. Two more maps hold the logs that have not
+ * been compressed, and not been added to the {@link LogSearchIndex}, yet, so
+ * both can pick up after a restart without scanning either.
+ *
+ * <p>Writes are committed in the background about once a second; entries
+ * lost in a crash, or an index that was deleted, are recovered with
+ * {@link #rebuild()}, which is also run when the index is first created.</p>
+ *
+ * @author Siddharth Mishra &lt;mishra.siddharth90@gmail.com&gt;
+ * @version 1.0
+ */
+public class LogIndex implements AutoCloseable {
+    
+    private static final Logger logger = LoggerFactory.getLogger(LogIndex.class);
+    private static final String LOG_EXTENSION = ".log";
+    
+    private final Path logsDirectory;
+    private final MVStore store;
+    private final MVMap<String, String> files;
+    private final MVMap<String, String> uncompressed;
+    private final MVMap<String, String> unsearched;
+    
+    private final AtomicLong lookups = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    
+    public LogIndex(Path indexFile, Path logsDirectory) {
+        this.logsDirectory = logsDirectory.toAbsolutePath().normalize();
+        boolean created = !Files.exists(indexFile);
+        this.store = new MVStore.Builder()
+            .fileName(indexFile.toString())
+            .open();
+        this.files = store.openMap("files");
+        this.uncompressed = store.openMap("uncompressed");
+        this.unsearched = store.openMap("unsearched");
+        if (created) {
+            try {
+                int indexed = rebuild();
+                logger.info("Created execution log index {} ({} logs indexed)", indexFile, indexed);
+            } catch (IOException e) {
+                logger.error("Failed to index existing execution logs in: " + logsDirectory, e);
+            }
+        }
+    }
+    
+    public void put(String executionId, Path logFile) {
+        files.put(executionId, relativeName(logFile));
+    }
+    
+    /**
+     * Points the execution at {@code to} if it still points at {@code from}.
+     */
+    boolean replace(String executionId, Path from, Path to) {
+        return files.replace(executionId, relativeName(from), relativeName(to));
+    }
+    
+    /**
+     * Returns the execution's log file, or null if none is indexed.
+     */
+    public Path get(String executionId) {
+        lookups.incrementAndGet();
+        String fileName = files.get(executionId);
+        if (fileName == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        return logsDirectory.resolve(fileName);
+    }
+    
+    /**
+     * Removes the execution's entry if it still points at the given file.
+     */
+    public void remove(String executionId, Path logFile) {
+        String fileName = relativeName(logFile);
+        files.remove(executionId, fileName);
+        uncompressed.remove(executionId, fileName);
+        unsearched.remove(executionId, fileName);
+    }
+    
+    void putUncompressed(String executionId, Path logFile) {
+        uncompressed.put(executionId, relativeName(logFile));
+    }
+    
+    void removeUncompressed(String executionId, Path logFile) {
+        uncompressed.remove(executionId, relativeName(logFile));
+    }
+    
+    /**
+     * Returns the plain logs not yet compressed, by execution ID.
+     */
+    Map<String, Path> getUncompressed() {
+        return resolve(uncompressed);
+    }
+    
+    void putUnsearched(String executionId, Path logFile) {
+        unsearched.put(executionId, relativeName(logFile));
+    }
+    
+    void removeUnsearched(String executionId) {
+        unsearched.remove(executionId);
+    }
+    
+    /**
+     * Returns the logs not yet added to the search index, by execution ID.
+     */
+    Map<String, Path> getUnsearched() {
+        return resolve(unsearched);
+    }
+    
+    private Map<String, Path> resolve(MVMap<String, String> map) {
+        Map<String, Path> logs = new HashMap<>();
+        map.forEach((executionId, fileName) -> logs.put(executionId, logsDirectory.resolve(fileName)));
+        return logs;
+    }
+    
+    private String relativeName(Path logFile) {
+        return logsDirectory.relativize(logFile.toAbsolutePath().normalize()).toString().replace('\\', '/');
+    }
+    
+    /**
+     * Replaces the index with one built from the log files in the directory
+     * and its shards. Every plain log found is marked uncompressed.
+     *
+     * @return the number of log files indexed
+     */
+    public int rebuild() throws IOException {
+        Map<String, String> found = new HashMap<>();
+        Map<String, String> plain = new HashMap<>();
+        try (Stream<Path> paths = Files.walk(logsDirectory, LogLayout.SHARD_DEPTH + 1)) {
+            paths.filter(Files::isRegularFile).forEach(path -> {
+                String executionId = executionIdOf(path.getFileName().toString());
+                if (executionId == null) {
+                    return;
+                }
+                boolean compressed = LogFileReader.isCompressed(path);
+                // A log that is both plain and compressed was interrupted before the plain one was deleted
+                if (!found.containsKey(executionId) || compressed) {
+                    found.put(executionId, relativeName(path));
+                }
+                if (!compressed) {
+                    plain.put(executionId, relativeName(path));
+                }
+            });
+        }
+        files.clear();
+        files.putAll(found);
+        uncompressed.clear();
+        uncompressed.putAll(plain);
+        store.commit();
+        return found.size();
+    }
+    
+    /**
+     * Parses the execution ID out of a {@code <job>_<executionId>_<timestamp>.log}
+     * file name, or its compressed {@code .log.gz} form. Job names may contain
+     * underscores; execution IDs and timestamps do not.
+     *
+     * @return the execution ID, or null if the name does not have that form
+     */
+    static String executionIdOf(String fileName) {
+        if (fileName.endsWith(LogFileReader.COMPRESSED_EXTENSION)) {
+            fileName = fileName.substring(0, fileName.length() - LogFileReader.COMPRESSED_EXTENSION.length());
+        }
+        if (!fileName.endsWith(LOG_EXTENSION)) {
+            return null;
+        }
+        String base = fileName.substring(0, fileName.length() - LOG_EXTENSION.length());
+        int timestamp = base.lastIndexOf('_');
+        int id = timestamp > 0 ? base.lastIndexOf('_', timestamp - 1) : -1;
+        if (id < 0 || id + 1 == timestamp) {
+            return null;
+        }
+        return base.substring(id + 1, timestamp);
+    }
+    
+    /**
+     * Returns the job name part of a log file name, or null if it does not have the form.
+     */
+    static String jobNameOf(String fileName) {
+        String executionId = executionIdOf(fileName);
+        return executionId != null ? fileName.substring(0, fileName.lastIndexOf('_' + executionId + '_')) : null;
+    }
+    
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("entries", files.sizeAsLong());
+        metrics.put("uncompressed", uncompressed.sizeAsLong());
+        metrics.put("unsearched", unsearched.sizeAsLong());
+        metrics.put("lookups", lookups.get());
+        metrics.put("misses", misses.get());
+        return metrics;
+    }
+    
+    @Override
+    public void close() {
+        store.close();
+    }
+}
@@ -0,0 +1,245 @@
+package com.batchiller.server.logging;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A class that lays execution logs out in hourly shard directories,
+ * {@code executions/yyyy/MM/dd/HH/<job>_<executionId>_<timestamp>.log}, by
+ * the time the log was created. Retention then deletes whole shards that
+ * ended before the cutoff, touching only the directories of expired hours
+ * instead of statting every log, and no directory grows past an hour's logs.
+ *
+ * <p>Logs written before sharding sit directly in {@code executions}; they
+ * keep working, are expired by modification time, and are moved into their
+ * shards by {@link #migrate(LogIndex)}.</p>
+ *
+ * @author Siddharth Mishra &lt;mishra.siddharth90@gmail.com&gt;
+ * @version 1.0
+ */
+public class LogLayout {
+    
+    private static final Logger logger = LoggerFactory.getLogger(LogLayout.class);
+    // year, month, day, hour
+    static final int SHARD_DEPTH = 4;
+    private static final DateTimeFormatter SHARD_FORMAT = DateTimeFormatter.ofPattern("yyyy/MM/dd/HH");
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    
+    private final Path logsDirectory;
+    // The shard of the last log created, so its directories are not re-checked for every execution
+    private volatile Path currentShard;
+    
+    public LogLayout(Path logsDirectory) {
+        this.logsDirectory = logsDirectory;
+    }
+    
+    /**
+     * Returns the path of a new execution log, creating its shard directory if needed.
+     */
+    Path newLogFile(String jobName, String executionId, LocalDateTime time) throws IOException {
+        Path shard = shardOf(time);
+        if (!shard.equals(currentShard)) {
+            Files.createDirectories(shard);
+            currentShard = shard;
+        }
+        return shard.resolve(fileName(jobName, executionId, time));
+    }
+    
+    static String fileName(String jobName, String executionId, LocalDateTime time) {
+        return String.format("%s_%s_%s.log", jobName, executionId, time.format(TIMESTAMP_FORMAT));
+    }
+    
+    private Path shardOf(LocalDateTime time) {
+        return logsDirectory.resolve(time.format(SHARD_FORMAT));
+    }
+    
+    /**
+     * Deletes every shard whose hour ended at or before the cutoff, and every
+     * unsharded log last modified before it. Shards still in retention are
+     * not read.
+     *
+     * @param deleted called with each log file deleted
+     * @return the number of directories deleted
+     */
+    int deleteExpired(LocalDateTime cutoff, Consumer<Path> deleted) throws IOException {
+        int directories = 0;
+        try (Stream<Path> entries = Files.list(logsDirectory)) {
+            for (Path entry : entries.collect(Collectors.toList())) {
+                if (Files.isDirectory(entry)) {
+                    directories += deleteExpired(entry, new ArrayList<>(List.of(entry.getFileName().toString())),
+                        cutoff, deleted);
+                } else if (LogIndex.executionIdOf(entry.getFileName().toString()) != null
+                        && LocalDateTime.ofInstant(Files.getLastModifiedTime(entry).toInstant(),
+                            ZoneId.systemDefault()).isBefore(cutoff)) {
+                    Files.delete(entry);
+                    deleted.accept(entry);
+                }
+            }
+        }
+        return directories;
+    }
+    
+    private int deleteExpired(Path directory, List<String> prefix, LocalDateTime cutoff, Consumer<Path> deleted)
+            throws IOException {
+        LocalDateTime start = startOf(prefix);
+        if (start == null || !start.isBefore(cutoff)) {
+            return 0;
+        }
+        if (!endOf(start, prefix.size()).isAfter(cutoff)) {
+            return deleteTree(directory, deleted);
+        }
+        if (prefix.size() == SHARD_DEPTH) {
+            return 0;
+        }
+        int directories = 0;
+        try (Stream<Path> children = Files.list(directory)) {
+            for (Path child : children.collect(Collectors.toList())) {
+                if (Files.isDirectory(child)) {
+                    prefix.add(child.getFileName().toString());
+                    directories += deleteExpired(child, prefix, cutoff, deleted);
+                    prefix.remove(prefix.size() - 1);
+                }
+            }
+        }
+        try (Stream<Path> children = Files.list(directory)) {
+            if (children.findAny().isEmpty()) {
+                Files.delete(directory);
+                directories++;
+            }
+        }
+        return directories;
+    }
+    
+    /**
+     * Returns the start of the period a shard path prefix covers, or null if
+     * it is not part of the layout.
+     */
+    private static LocalDateTime startOf(List<String> prefix) {
+        int[] fields = {0, 1, 1, 0};
+        for (int i = 0; i < prefix.size(); i++) {
+            String name = prefix.get(i);
+            if (name.length() != (i == 0 ? 4 : 2) || !name.chars().allMatch(Character::isDigit)) {
+                return null;
+            }
+            fields[i] = Integer.parseInt(name);
+        }
+        try {
+            return LocalDateTime.of(fields[0], fields[1], fields[2], fields[3], 0);
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+    
+    private static LocalDateTime endOf(LocalDateTime start, int depth) {
+        switch (depth) {
+            case 1:
+                return start.plusYears(1);
+            case 2:
+                return start.plusMonths(1);
+            case 3:
+                return start.plusDays(1);
+            default:
+                return start.plusHours(1);
+        }
+    }
+    
+    /**
+     * Deletes a directory and everything under it.
+     *
+     * @return the number of directories deleted
+     */
+    private static int deleteTree(Path directory, Consumer<Path> deleted) throws IOException {
+        List<Path> paths;
+        try (Stream<Path> walk = Files.walk(directory)) {
+            paths = walk.sorted(Comparator.reverseOrder()).collect(Collectors.toList());
+        }
+        int directories = 0;
+        for (Path path : paths) {
+            boolean file = Files.isRegularFile(path);
+            Files.delete(path);
+            if (file) {
+                deleted.accept(path);
+            } else {
+                directories++;
+            }
+        }
+        return directories;
+    }
+    
+    /**
+     * Moves logs written before sharding into the shard of the time in their
+     * name, or of their modification time if the name has none, and points
+     * the index at their new location. Plain logs are marked for compression.
+     *
+     * @return the number of logs moved
+     */
+    public int migrate(LogIndex index) throws IOException {
+        List<Path> legacy;
+        try (Stream<Path> entries = Files.list(logsDirectory)) {
+            legacy = entries.filter(Files::isRegularFile)
+                .filter(path -> LogIndex.executionIdOf(path.getFileName().toString()) != null)
+                .collect(Collectors.toList());
+        }
+        int moved = 0;
+        for (Path file : legacy) {
+            String fileName = file.getFileName().toString();
+            Path shard = shardOf(createdAt(file));
+            Files.createDirectories(shard);
+            Path target = shard.resolve(fileName);
+            Files.move(file, target, StandardCopyOption.ATOMIC_MOVE);
+            String executionId = LogIndex.executionIdOf(fileName);
+            index.put(executionId, target);
+            if (!LogFileReader.isCompressed(target)) {
+                index.putUncompressed(executionId, target);
+            }
+            moved++;
+        }
+        return moved;
+    }
+    
+    /**
+     * Returns whether any log is still in the unsharded layout; stops at the first one found.
+     */
+    public boolean hasUnshardedLogs() {
+        try (Stream<Path> entries = Files.list(logsDirectory)) {
+            return entries.anyMatch(path -> Files.isRegularFile(path)
+                && LogIndex.executionIdOf(path.getFileName().toString()) != null);
+        } catch (IOException e) {
+            logger.error("Failed to list execution logs in: " + logsDirectory, e);
+            return false;
+        }
+    }
+    
+    /**
+     * Returns when a log was created: the timestamp in its name, or its
+     * modification time if the name has none.
+     */
+    static LocalDateTime createdAt(Path file) throws IOException {
+        String base = file.getFileName().toString();
+        if (LogFileReader.isCompressed(file)) {
+            base = base.substring(0, base.length() - LogFileReader.COMPRESSED_EXTENSION.length());
+        }
+        base = base.substring(0, base.length() - ".log".length());
+        try {
+            return LocalDateTime.parse(base.substring(base.lastIndexOf('_') + 1), TIMESTAMP_FORMAT);
+        } catch (DateTimeParseException e) {
+            return LocalDateTime.ofInstant(Files.getLastModifiedTime(file).toInstant(), ZoneId.systemDefault());
+        }
+    }
+}
@@ -8,25 +8,36 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.Map;
+import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.LoggerContext;
 import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
-import ch.qos.logback.core.rolling.RollingFileAppender;
-import ch.qos.logback.core.rolling.TimeBasedRollingPolicy;
-import ch.qos.logback.classic.spi.ILoggingEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
 
 /**
  * Manages logging for the Batchiller application, including creating job-specific log files
  * and cleaning up old log files based on retention policies.
  * 
+ * <p>Every execution logs through one shared logger and a single
+ * {@link ExecutionLogAppender}, which picks the file from the MDC of the
+ * logging thread and writes it from a background thread, so no logger or
+ * appender is created per execution and no worker waits on the disk.</p>
+ * 
+ * <p>Once an execution's log is closed it is handed to a {@link LogCompressor},
+ * unless {@code log.compression.codec} is {@code none}.</p>
+ * 
+ * <p>Finished logs are also added to a {@link LogSearchIndex}, unless
+ * {@code log.search.enabled} is false.</p>
+ * 
+ * <p>Logs are kept in hourly shard directories ({@link LogLayout}), which
+ * retention deletes whole once they are older than {@code log.retention.days}.</p>
+ * 
  * @author Siddharth Mishra &lt;mishra.siddharth90@gmail.com&gt;
  * @version 1.0
  */
@@ -36,21 +47,112 @@ public class LogManager {
     private final BatchillerConfiguration config;
     private final Path logsDirectory;
     private final ScheduledExecutorService cleanupScheduler;
-    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    private static final String JOB_LOGGER_NAME = "job";
+    
+    private final ch.qos.logback.classic.Logger jobLogger;
+    private final ExecutionLogAppender executionAppender;
+    private final LogLayout logLayout;
+    private final LogIndex logIndex;
+    private final LogCompressor logCompressor;
+    private final LogSearchIndex logSearch;
+    private final ExecutionLogLimiter logLimiter;
+    private final LogStreamHub logStreams = new LogStreamHub();
+    
+    private volatile long cleanupFilesDeleted;
+    private volatile long cleanupDirectoriesDeleted;
+    private volatile long cleanupMillis;
     
     public LogManager(BatchillerConfiguration config) {
         this.config = config;
         this.logsDirectory = Paths.get(config.getLogDirectory(), "executions");
+        this.logLayout = new LogLayout(logsDirectory);
         this.cleanupScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
             Thread t = new Thread(r, "LogCleanup");
             t.setDaemon(true);
             return t;
         });
         
+        LoggerContext lc = (LoggerContext) LoggerFactory.getILoggerFactory();
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(lc);
+        encoder.setPattern("%d{yyyy-MM-dd HH:mm:ss.SSS} [%thread] %-5level %logger{36} - %msg%n");
+        encoder.start();
+        
         initializeLogsDirectory();
+        this.logIndex = new LogIndex(getLogIndexFile(config), logsDirectory);
+        this.logCompressor = createCompressor();
+        this.logSearch = createSearchIndex();
+        
+        this.logLimiter = new ExecutionLogLimiter(config.getExecutionLogMaxSizeMb() * 1024L * 1024L,
+            config.getExecutionLogMaxLines(), config.getExecutionLogRateLimit(), config.getExecutionLogRateBurst(),
+            config.getExecutionLogRateSample());
+        this.executionAppender = new ExecutionLogAppender(config.getExecutionLogQueueSize(),
+            config.isExecutionLogDropWhenFull(), config.getExecutionLogMaxOpenFiles(), logStreams,
+            logLimiter, this::onExecutionLogCompleted);
+        executionAppender.setContext(lc);
+        executionAppender.setName("EXECUTION_LOG");
+        executionAppender.setEncoder(encoder);
+        executionAppender.start();
+        
+        this.jobLogger = lc.getLogger(JOB_LOGGER_NAME);
+        jobLogger.setAdditive(false); // Prevent logs from going to root logger
+        jobLogger.setLevel(Level.INFO);
+        jobLogger.detachAndStopAllAppenders();
+        jobLogger.addAppender(executionAppender);
+        
+        if (logCompressor != null) {
+            logCompressor.start();
+        }
+        if (logSearch != null) {
+            logSearch.start();
+        }
+        if (logLayout.hasUnshardedLogs()) {
+            logger.warn("Execution logs in {} predate the sharded layout; run the CLI's migrate-log-layout "
+                + "command with the server stopped to move them", logsDirectory);
+        }
         scheduleCleanup();
     }
     
+    private LogCompressor createCompressor() {
+        String codec = config.getLogCompressionCodec();
+        if ("gzip".equalsIgnoreCase(codec)) {
+            return new LogCompressor(logIndex, config.getLogCompressionLevel());
+        }
+        if (!"none".equalsIgnoreCase(codec)) {
+            logger.warn("Unknown log.compression.codec '{}'; execution logs will not be compressed", codec);
+        }
+        return null;
+    }
+    
+    private LogSearchIndex createSearchIndex() {
+        if (!config.isLogSearchEnabled()) {
+            return null;
+        }
+        try {
+            return new LogSearchIndex(Paths.get(config.getLogDirectory(), "search"), logIndex,
+                config.getLogSearchMaxSizeMb() * 1024L * 1024L);
+        } catch (IOException e) {
+            logger.error("Failed to open the log search index; log search is disabled", e);
+            return null;
+        }
+    }
+    
+    private void onExecutionLogCompleted(String logFile) {
+        if (logSearch != null) {
+            String executionId = LogIndex.executionIdOf(Paths.get(logFile).getFileName().toString());
+            if (executionId != null) {
+                logSearch.submit(executionId);
+            }
+        }
+        if (logCompressor != null) {
+            logCompressor.submit(Paths.get(logFile));
+        }
+    }
+    
+    public static Path getLogIndexFile(BatchillerConfiguration config) {
+        return Paths.get(config.getLogDirectory(), "executions.idx");
+    }
+    
     private void initializeLogsDirectory() {
         try {
             Files.createDirectories(logsDirectory);
@@ -69,23 +171,57 @@ public class LogManager {
     }
     
     public String createLogFile(String executionId, String jobName) {
-        String timestamp = LocalDateTime.now().format(TIMESTAMP_FORMAT);
-        String fileName = String.format("%s_%s_%s.log", jobName, executionId, timestamp);
-        Path logFile = logsDirectory.resolve(fileName);
+        LocalDateTime now = LocalDateTime.now();
+        Path logFile;
+        try {
+            logFile = logLayout.newLogFile(jobName, executionId, now);
+        } catch (IOException e) {
+            logger.error("Failed to create log shard for execution: " + executionId, e);
+            logFile = logsDirectory.resolve(LogLayout.fileName(jobName, executionId, now));
+        }
+        logIndex.put(executionId, logFile);
+        if (logCompressor != null) {
+            logIndex.putUncompressed(executionId, logFile);
+        }
+        if (logSearch != null) {
+            logIndex.putUnsearched(executionId, logFile);
+        }
         return logFile.toAbsolutePath().toString();
     }
     
+    public Path getLogsDirectory() {
+        return logsDirectory;
+    }
+    
+    public LogStreamHub getLogStreams() {
+        return logStreams;
+    }
+    
+    /**
+     * Returns the log search index, or null if log search is disabled.
+     */
+    public LogSearchIndex getLogSearch() {
+        return logSearch;
+    }
+    
+    /**
+     * Returns the execution's log file, which is a compressed one
+     * ({@link LogFileReader#isCompressed}) once its execution has ended and the
+     * compressor has got to it.
+     */
     public File getLogFile(String executionId) {
-        try {
-            return Files.list(logsDirectory)
-                .filter(path -> path.getFileName().toString().contains(executionId))
-                .map(Path::toFile)
-                .findFirst()
-                .orElse(null);
-        } catch (IOException e) {
-            logger.error("Failed to find log file: {}", e.getMessage());
+        Path logFile = logIndex.get(executionId);
+        if (logFile == null) {
             return null;
         }
+        if (!Files.exists(logFile)) {
+            // compressed after the index was read
+            logFile = logFile.resolveSibling(logFile.getFileName() + LogFileReader.COMPRESSED_EXTENSION);
+            if (!Files.exists(logFile)) {
+                return null;
+            }
+        }
+        return logFile.toFile();
     }
     
     public boolean isLogAvailable(String executionId) {
@@ -93,43 +229,43 @@ public class LogManager {
     }
     
     private void cleanupOldLogs() {
+        int retentionDays = config.getLogRetentionDays();
+        LocalDateTime cutoff = LocalDateTime.now().minus(retentionDays, ChronoUnit.DAYS);
+        long start = System.currentTimeMillis();
+        int[] deletedFiles = {0};
         try {
-            int retentionDays = config.getLogRetentionDays();
-            LocalDateTime cutoffDate = LocalDateTime.now().minus(retentionDays, ChronoUnit.DAYS);
-            
-            List<Path> deletedFiles = new ArrayList<>();
-            
-            Files.list(logsDirectory)
-                .filter(path -> {
-                    try {
-                        LocalDateTime fileTime = LocalDateTime.ofInstant(
-                            Files.getLastModifiedTime(path).toInstant(),
-                            java.time.ZoneId.systemDefault()
-                        );
-                        return fileTime.isBefore(cutoffDate);
-                    } catch (IOException e) {
-                        return false;
-                    }
-                })
-                .forEach(path -> {
-                    try {
-                        Files.delete(path);
-                        deletedFiles.add(path);
-                    } catch (IOException e) {
-                        logger.error("Failed to delete log file: {} - {}", path, e.getMessage());
-                    }
-                });
-            
-            if (!deletedFiles.isEmpty()) {
-                logger.info("Cleaned up {} log files older than {} days", deletedFiles.size(), retentionDays);
+            int directories = logLayout.deleteExpired(cutoff, path -> {
+                String executionId = LogIndex.executionIdOf(path.getFileName().toString());
+                if (executionId != null) {
+                    logIndex.remove(executionId, path);
+                    deletedFiles[0]++;
+                }
+            });
+            cleanupDirectoriesDeleted += directories;
+            if (logSearch != null) {
+                logSearch.deleteBefore(cutoff.toLocalDate());
+            }
+            if (deletedFiles[0] > 0) {
+                logger.info("Cleaned up {} log files older than {} days", deletedFiles[0], retentionDays);
             }
-            
         } catch (IOException e) {
             logger.error("Error during log cleanup: {}", e.getMessage());
+        } finally {
+            cleanupFilesDeleted += deletedFiles[0];
+            cleanupMillis = System.currentTimeMillis() - start;
         }
     }
     
     public void shutdown() {
+        // Stopping the appender writes out its queue and then closes every open execution log
+        jobLogger.detachAppender(executionAppender);
+        executionAppender.stop();
+        if (logCompressor != null) {
+            logCompressor.shutdown();
+        }
+        if (logSearch != null) {
+            logSearch.shutdown();
+        }
         cleanupScheduler.shutdown();
         try {
             if (!cleanupScheduler.awaitTermination(5, TimeUnit.SECONDS)) {
@@ -139,40 +275,54 @@ public class LogManager {
             cleanupScheduler.shutdownNow();
             Thread.currentThread().interrupt();
         }
+        logIndex.close();
     }
 
-    public ch.qos.logback.classic.Logger getJobLogger(String executionId, String logFilePath) {
-        LoggerContext lc = (LoggerContext) LoggerFactory.getILoggerFactory();
-        ch.qos.logback.classic.Logger jobLogger = lc.getLogger("job." + executionId);
-        jobLogger.setAdditive(false); // Prevent logs from going to root logger
-
-        // Check if appender already exists
-        if (jobLogger.getAppender(executionId) != null) {
-            return jobLogger;
-        }
-
-        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
-        encoder.setContext(lc);
-        encoder.setPattern("%d{yyyy-MM-dd HH:mm:ss.SSS} [%thread] %-5level %logger{36} - %msg%n");
-        encoder.start();
-
-        RollingFileAppender<ch.qos.logback.classic.spi.ILoggingEvent> fileAppender = new RollingFileAppender<>();
-        fileAppender.setContext(lc);
-        fileAppender.setName(executionId);
-        fileAppender.setFile(logFilePath);
-
-        TimeBasedRollingPolicy<ch.qos.logback.classic.spi.ILoggingEvent> rollingPolicy = new TimeBasedRollingPolicy<>();
-        rollingPolicy.setContext(lc);
-        rollingPolicy.setParent(fileAppender);
-        rollingPolicy.setFileNamePattern(logFilePath + ".%d{yyyy-MM-dd}");
-        rollingPolicy.setMaxHistory(config.getLogRetentionDays());
-        rollingPolicy.start();
-
-        fileAppender.setRollingPolicy(rollingPolicy);
-        fileAppender.setEncoder(encoder);
-        fileAppender.start();
-
-        jobLogger.addAppender(fileAppender);
+    /**
+     * Routes the calling thread's execution log to the given file until
+     * {@link #closeExecutionLog} is called on the same thread.
+     *
+     * @return the shared execution logger
+     */
+    public Logger openExecutionLog(String executionId, String logFilePath) {
+        logStreams.open(executionId);
+        logLimiter.open(executionId, LogIndex.jobNameOf(Paths.get(logFilePath).getFileName().toString()));
+        MDC.put(ExecutionLogAppender.EXECUTION_ID_KEY, executionId);
+        MDC.put(ExecutionLogAppender.LOG_FILE_KEY, logFilePath);
         return jobLogger;
     }
+    
+    /**
+     * Closes the execution's log file once everything logged before this call
+     * has been written, and clears the calling thread's routing.
+     */
+    public void closeExecutionLog(String executionId) {
+        jobLogger.info(ExecutionLogAppender.END_OF_EXECUTION, "End of execution {}", executionId);
+        MDC.remove(ExecutionLogAppender.EXECUTION_ID_KEY);
+        MDC.remove(ExecutionLogAppender.LOG_FILE_KEY);
+    }
+    
+    /**
+     * Returns how many of a running execution's log lines have been left out
+     * so far for exceeding its size cap or its job's rate limit.
+     */
+    public long getSuppressedLogLines(String executionId) {
+        return logLimiter.getSuppressed(executionId);
+    }
+    
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = executionAppender.getMetrics();
+        logIndex.getMetrics().forEach((key, value) -> metrics.put("index_" + key, value));
+        logStreams.getMetrics().forEach((key, value) -> metrics.put("stream_" + key, value));
+        if (logCompressor != null) {
+            logCompressor.getMetrics().forEach((key, value) -> metrics.put("compression_" + key, value));
+        }
+        if (logSearch != null) {
+            logSearch.getMetrics().forEach((key, value) -> metrics.put("search_" + key, value));
+        }
+        metrics.put("cleanup_files_deleted", cleanupFilesDeleted);
+        metrics.put("cleanup_directories_deleted", cleanupDirectoriesDeleted);
+        metrics.put("cleanup_last_run_millis", cleanupMillis);
+        return metrics;
+    }
 }
@@ -0,0 +1,691 @@
+package com.batchiller.server.logging;
+
+import org.h2.mvstore.Cursor;
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * An inverted index over finished execution logs, for finding the executions
+ * and lines that mention an error message or record ID without reading every
+ * log. Each log is indexed on a background thread once its execution ends;
+ * logs still waiting when the server stops are listed in the
+ * {@link LogIndex} and indexed on the next start.
+ *
+ * <p>The index is sharded by the day a log was created, one H2 MVStore per
+ * day in {@code <log.directory>/search}. A shard maps every term of a log
+ * (a run of at least {@value #MIN_TERM_LENGTH} letters or digits, lower
+ * cased) to the offsets of the lines it is on, so a search reads one key
+ * range per day and never the logs themselves, except to check that a
+ * multi-word query appears as typed. Shards are deleted with the logs they
+ * cover, and the oldest ones sooner if the index outgrows
+ * {@code log.search.max.size.mb}.</p>
+ *
+ * @author Siddharth Mishra &lt;mishra.siddharth90@gmail.com&gt;
+ * @version 1.0
+ */
+public class LogSearchIndex {
+    
+    private static final Logger logger = LoggerFactory.getLogger(LogSearchIndex.class);
+    private static final String SHARD_EXTENSION = ".idx";
+    static final int MIN_TERM_LENGTH = 3;
+    private static final int MAX_TERM_LENGTH = 64;
+    // Lines recorded per term and execution; a term on more lines than this is too common to narrow a search
+    private static final int MAX_LINES_PER_TERM = 256;
+    // Bounds the memory taken indexing one huge log full of unique IDs
+    private static final int MAX_TERMS_PER_EXECUTION = 200_000;
+    private static final int READ_CHUNK_SIZE = 64 * 1024;
+    private static final int MAX_LINE_LENGTH = 64 * 1024;
+    private static final char KEY_SEPARATOR = '\0';
+    // A commit rewrites every page a log's terms touched, which is most of a shard, so a backlog is committed in batches
+    private static final int COMMIT_BATCH = 64;
+    
+    private final Path directory;
+    private final LogIndex logIndex;
+    private final long maxBytes;
+    private final ThreadPoolExecutor executor;
+    private final ConcurrentSkipListMap<LocalDate, Shard> shards = new ConcurrentSkipListMap<>();
+    // Searches and indexing share a shard; deleting one waits until neither is using it
+    private final ReadWriteLock shardLock = new ReentrantReadWriteLock();
+    // Indexer thread only: executions written but not yet committed, and the shards they went to
+    private final List<String> uncommitted = new ArrayList<>();
+    private final Set<Shard> dirty = new HashSet<>();
+    
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicLong searches = new AtomicLong();
+    private final AtomicLong searchNanos = new AtomicLong();
+    private volatile long executionsIndexed;
+    private volatile long failures;
+    private volatile long bytesIndexed;
+    private volatile long linesIndexed;
+    private volatile long postingsWritten;
+    private volatile long postingsTruncated;
+    private volatile long indexNanos;
+    private volatile long shardsDropped;
+    
+    public LogSearchIndex(Path directory, LogIndex logIndex, long maxBytes) throws IOException {
+        this.directory = directory;
+        this.logIndex = logIndex;
+        this.maxBytes = maxBytes;
+        Files.createDirectories(directory);
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(file -> {
+                String name = file.getFileName().toString();
+                if (name.endsWith(SHARD_EXTENSION)) {
+                    try {
+                        LocalDate day = LocalDate.parse(name.substring(0, name.length() - SHARD_EXTENSION.length()));
+                        shards.put(day, new Shard(file));
+                    } catch (DateTimeParseException e) {
+                        // not a shard
+                    }
+                }
+            });
+        }
+        this.executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread t = new Thread(r, "LogSearchIndexer");
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        });
+    }
+    
+    /**
+     * Indexes the logs left unindexed by an earlier run. Must be called
+     * before any execution starts.
+     */
+    public void start() {
+        logIndex.getUnsearched().keySet().forEach(this::submit);
+    }
+    
+    /**
+     * Queues a finished execution's log for indexing.
+     */
+    void submit(String executionId) {
+        if (executor.isShutdown()) {
+            return;
+        }
+        pending.incrementAndGet();
+        executor.execute(() -> {
+            pending.decrementAndGet();
+            index(executionId);
+        });
+    }
+    
+    private void index(String executionId) {
+        Path logFile = currentFile(executionId);
+        if (logFile == null) {
+            logIndex.removeUnsearched(executionId);
+            return;
+        }
+        long start = System.nanoTime();
+        try (LogFileReader reader = LogFileReader.open(logFile)) {
+            LocalDateTime createdAt = LogLayout.createdAt(logFile);
+            TermCollector collector = new TermCollector();
+            collector.collect(reader);
+            shardLock.readLock().lock();
+            try {
+                Shard shard = shards.computeIfAbsent(createdAt.toLocalDate(),
+                    day -> new Shard(directory.resolve(day + SHARD_EXTENSION)));
+                // In key order, so consecutive puts land on the same leaf pages
+                for (Map.Entry<String, Lines> term : new TreeMap<>(collector.terms).entrySet()) {
+                    shard.postings.put(term.getKey() + KEY_SEPARATOR + executionId, term.getValue().encode());
+                }
+                shard.executions.put(executionId,
+                    LogIndex.jobNameOf(logFile.getFileName().toString()) + '\t' + createdAt);
+                dirty.add(shard);
+            } finally {
+                shardLock.readLock().unlock();
+            }
+            uncommitted.add(executionId);
+            executionsIndexed++;
+            bytesIndexed += collector.bytes;
+            linesIndexed += collector.lines;
+            postingsWritten += collector.terms.size();
+            postingsTruncated += collector.truncated;
+        } catch (IOException | RuntimeException e) {
+            failures++;
+            logger.error("Failed to index log for search of execution: " + executionId, e);
+        } finally {
+            if (uncommitted.size() >= COMMIT_BATCH || executor.getQueue().isEmpty()) {
+                commit();
+            }
+            indexNanos += System.nanoTime() - start;
+        }
+    }
+    
+    /**
+     * Commits the shards written to since the last commit, then marks their
+     * executions as searchable in the {@link LogIndex}.
+     */
+    private void commit() {
+        shardLock.readLock().lock();
+        try {
+            for (Shard shard : dirty) {
+                if (!shard.store.isClosed()) {
+                    shard.store.commit();
+                }
+            }
+        } finally {
+            shardLock.readLock().unlock();
+        }
+        dirty.clear();
+        uncommitted.forEach(logIndex::removeUnsearched);
+        uncommitted.clear();
+        enforceSizeLimit();
+    }
+    
+    /**
+     * Returns the execution's log, compressed or not, or null if it is gone.
+     */
+    private Path currentFile(String executionId) {
+        Path logFile = logIndex.get(executionId);
+        if (logFile == null || Files.exists(logFile)) {
+            return logFile;
+        }
+        Path compressed = logFile.resolveSibling(logFile.getFileName() + LogFileReader.COMPRESSED_EXTENSION);
+        return Files.exists(compressed) ? compressed : null;
+    }
+    
+    /**
+     * Finds the lines containing every word of the query, newest executions
+     * first. A query that is more than one word is also checked against the
+     * lines themselves, so it matches only where it appears as typed
+     * (ignoring case).
+     *
+     * @param jobName only executions of this job, if not null
+     * @param from only logs created at or after this time, if not null
+     * @param to only logs created at or before this time, if not null
+     * @param limit the most lines to return
+     * @throws IllegalArgumentException if the query has no word long enough to be indexed
+     */
+    public Map<String, Object> search(String query, String jobName, LocalDateTime from, LocalDateTime to, int limit)
+            throws IOException {
+        long start = System.nanoTime();
+        List<String> terms = new ArrayList<>(termsOf(query));
+        if (terms.isEmpty()) {
+            throw new IllegalArgumentException("Query needs a word of at least " + MIN_TERM_LENGTH
+                + " letters or digits: " + query);
+        }
+        // The longest term is usually the rarest; it picks the candidates and the others narrow them down
+        terms.sort(Comparator.comparingInt(String::length).reversed());
+        String typed = query.trim();
+        if (typed.length() > 1 && typed.startsWith("\"") && typed.endsWith("\"")) {
+            typed = typed.substring(1, typed.length() - 1).trim();
+        }
+        byte[] phrase = lowerCase(typed.getBytes(StandardCharsets.UTF_8));
+        boolean verify = terms.size() > 1 || !terms.get(0).equals(new String(phrase, StandardCharsets.UTF_8));
+    
+        List<Map<String, Object>> results = new ArrayList<>();
+        int lines = 0;
+        boolean truncated = false;
+        shardLock.readLock().lock();
+        try {
+            NavigableMap<LocalDate, Shard> days = shards.descendingMap();
+            if (to != null) {
+                days = days.tailMap(to.toLocalDate(), true);
+            }
+            if (from != null) {
+                days = days.headMap(from.toLocalDate(), true);
+            }
+            search:
+            for (Shard shard : days.values()) {
+                for (Hit hit : shard.find(terms, jobName, from, to)) {
+                    long[] offsets = verify ? verify(hit.executionId, hit.offsets, phrase) : hit.offsets;
+                    if (offsets.length == 0) {
+                        continue;
+                    }
+                    if (lines == limit) {
+                        truncated = true;
+                        break search;
+                    }
+                    if (lines + offsets.length > limit) {
+                        offsets = Arrays.copyOf(offsets, limit - lines);
+                        truncated = true;
+                    }
+                    Map<String, Object> result = new LinkedHashMap<>();
+                    result.put("executionId", hit.executionId);
+                    result.put("jobName", hit.jobName);
+                    result.put("logCreated", hit.createdAt.toString());
+                    result.put("lineOffsets", offsets);
+                    // Lines past the per-term cap were not indexed for this execution
+                    result.put("moreLines", hit.capped);
+                    results.add(result);
+                    lines += offsets.length;
+                    if (truncated) {
+                        break search;
+                    }
+                }
+            }
+        } finally {
+            shardLock.readLock().unlock();
+        }
+        long took = System.nanoTime() - start;
+        searches.incrementAndGet();
+        searchNanos.addAndGet(took);
+    
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("query", query);
+        response.put("tookMillis", TimeUnit.NANOSECONDS.toMillis(took));
+        response.put("lines", lines);
+        response.put("truncated", truncated);
+        response.put("executions", results);
+        return response;
+    }
+    
+    /**
+     * Keeps the offsets of the lines that contain the phrase.
+     */
+    private long[] verify(String executionId, long[] offsets, byte[] phrase) throws IOException {
+        Path logFile = currentFile(executionId);
+        if (logFile == null) {
+            return new long[0];
+        }
+        long[] matching = new long[offsets.length];
+        int count = 0;
+        ByteBuffer line = ByteBuffer.allocate(MAX_LINE_LENGTH);
+        try (LogFileReader reader = LogFileReader.open(logFile)) {
+            for (long offset : offsets) {
+                line.clear();
+                reader.readFully(line, offset);
+                int end = 0;
+                while (end < line.position() && line.get(end) != '\n') {
+                    end++;
+                }
+                if (contains(line.array(), end, phrase)) {
+                    matching[count++] = offset;
+                }
+            }
+        }
+        return Arrays.copyOf(matching, count);
+    }
+    
+    private static boolean contains(byte[] text, int length, byte[] phrase) {
+        outer:
+        for (int i = 0; i + phrase.length <= length; i++) {
+            for (int j = 0; j < phrase.length; j++) {
+                if (lowerCase(text[i + j]) != phrase[j]) {
+                    continue outer;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+    
+    /**
+     * Returns the distinct indexable terms of a query, in order.
+     */
+    static Set<String> termsOf(String query) {
+        TermCollector collector = new TermCollector();
+        byte[] bytes = query.getBytes(StandardCharsets.UTF_8);
+        collector.accept(bytes, bytes.length, 0);
+        collector.endTerm();
+        return new LinkedHashSet<>(collector.terms.keySet());
+    }
+    
+    private static boolean isTermByte(byte b) {
+        // Bytes of multi-byte UTF-8 characters count as letters
+        return b < 0 || b >= '0' && b <= '9' || b >= 'a' && b <= 'z' || b >= 'A' && b <= 'Z';
+    }
+    
+    private static byte lowerCase(byte b) {
+        return b >= 'A' && b <= 'Z' ? (byte) (b + ('a' - 'A')) : b;
+    }
+    
+    private static byte[] lowerCase(byte[] bytes) {
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = lowerCase(bytes[i]);
+        }
+        return bytes;
+    }
+    
+    /**
+     * Deletes the shards of days before the cutoff, whose logs retention has deleted.
+     */
+    void deleteBefore(LocalDate cutoff) {
+        while (!shards.isEmpty() && shards.firstKey().isBefore(cutoff)) {
+            dropShard(shards.firstKey());
+        }
+    }
+    
+    /**
+     * Deletes the oldest shards while the index is over its size limit; the newest is always kept.
+     */
+    private void enforceSizeLimit() {
+        while (shards.size() > 1 && sizeBytes() > maxBytes) {
+            LocalDate oldest = shards.firstKey();
+            logger.info("Log search index is over {} bytes; dropping the shard of {}", maxBytes, oldest);
+            dropShard(oldest);
+            shardsDropped++;
+        }
+    }
+    
+    private void dropShard(LocalDate day) {
+        shardLock.writeLock().lock();
+        try {
+            Shard shard = shards.remove(day);
+            if (shard != null) {
+                shard.store.close();
+                Files.deleteIfExists(shard.file);
+            }
+        } catch (IOException e) {
+            logger.error("Failed to delete log search shard: " + day, e);
+        } finally {
+            shardLock.writeLock().unlock();
+        }
+    }
+    
+    private long sizeBytes() {
+        long size = 0;
+        for (Shard shard : shards.values()) {
+            try {
+                size += Files.size(shard.file);
+            } catch (IOException e) {
+                // deleted concurrently
+            }
+        }
+        return size;
+    }
+    
+    public void shutdown() {
+        // Logs still queued stay listed as unsearched and are indexed on the next start
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        shardLock.writeLock().lock();
+        try {
+            shards.values().forEach(shard -> shard.store.close());
+            shards.clear();
+        } finally {
+            shardLock.writeLock().unlock();
+        }
+    }
+    
+    public Map<String, Object> getMetrics() {
+        long bytes = bytesIndexed;
+        long nanos = indexNanos;
+        long searchCount = searches.get();
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("pending", pending.get());
+        metrics.put("executions_indexed", executionsIndexed);
+        metrics.put("failures", failures);
+        metrics.put("bytes_indexed", bytes);
+        metrics.put("lines_indexed", linesIndexed);
+        metrics.put("postings", postingsWritten);
+        metrics.put("postings_truncated", postingsTruncated);
+        metrics.put("index_millis", TimeUnit.NANOSECONDS.toMillis(nanos));
+        metrics.put("index_bytes_per_second", nanos == 0 ? 0 : bytes * 1_000_000_000L / nanos);
+        metrics.put("size_bytes", sizeBytes());
+        metrics.put("max_size_bytes", maxBytes);
+        metrics.put("days", shards.size());
+        metrics.put("days_dropped_for_size", shardsDropped);
+        metrics.put("queries", searchCount);
+        metrics.put("query_avg_millis", searchCount == 0 ? 0.0
+            : TimeUnit.NANOSECONDS.toMicros(searchNanos.get()) / 1000.0 / searchCount);
+        return metrics;
+    }
+    
+    /**
+     * One day's index: the line offsets of every term, keyed by term and
+     * execution ID, and the job and creation time of every execution.
+     */
+    private static final class Shard {
+        final Path file;
+        final MVStore store;
+        final MVMap<String, byte[]> postings;
+        final MVMap<String, String> executions;
+    
+        Shard(Path file) {
+            this.file = file;
+            this.store = new MVStore.Builder()
+                .fileName(file.toString())
+                .compress()
+                .cacheSize(1)
+                .open();
+            // Each indexed log is a commit; without this the chunks it replaces are kept, not reused
+            store.setRetentionTime(0);
+            this.postings = store.openMap("postings");
+            this.executions = store.openMap("executions");
+        }
+    
+        /**
+         * Returns the executions with lines holding every term, newest first.
+         */
+        List<Hit> find(List<String> terms, String jobName, LocalDateTime from, LocalDateTime to) {
+            String prefix = terms.get(0) + KEY_SEPARATOR;
+            List<Hit> hits = new ArrayList<>();
+            Cursor<String, byte[]> cursor = postings.cursor(prefix);
+            while (cursor.hasNext()) {
+                String key = cursor.next();
+                if (!key.startsWith(prefix)) {
+                    break;
+                }
+                String executionId = key.substring(prefix.length());
+                String execution = executions.get(executionId);
+                if (execution == null) {
+                    continue;
+                }
+                int tab = execution.indexOf('\t');
+                String job = execution.substring(0, tab);
+                LocalDateTime createdAt = LocalDateTime.parse(execution.substring(tab + 1));
+                if (jobName != null && !jobName.equals(job)
+                        || from != null && createdAt.isBefore(from) || to != null && createdAt.isAfter(to)) {
+                    continue;
+                }
+                Lines lines = Lines.decode(cursor.getValue());
+                for (int i = 1; i < terms.size() && lines.count > 0; i++) {
+                    byte[] other = postings.get(terms.get(i) + KEY_SEPARATOR + executionId);
+                    lines = other != null ? lines.retain(Lines.decode(other)) : new Lines();
+                }
+                if (lines.count > 0) {
+                    hits.add(new Hit(executionId, job, createdAt, lines.toArray(), lines.capped));
+                }
+            }
+            hits.sort(Comparator.comparing((Hit hit) -> hit.createdAt).reversed());
+            return hits;
+        }
+    }
+    
+    private static final class Hit {
+        final String executionId;
+        final String jobName;
+        final LocalDateTime createdAt;
+        final long[] offsets;
+        final boolean capped;
+    
+        Hit(String executionId, String jobName, LocalDateTime createdAt, long[] offsets, boolean capped) {
+            this.executionId = executionId;
+            this.jobName = jobName;
+            this.createdAt = createdAt;
+            this.offsets = offsets;
+            this.capped = capped;
+        }
+    }
+    
+    /**
+     * Reads a log and collects its terms with the offsets of the lines they are on.
+     */
+    private static final class TermCollector {
+        final Map<String, Lines> terms = new HashMap<>();
+        private final byte[] term = new byte[MAX_TERM_LENGTH];
+        private int termLength;
+        private boolean overlong;
+        private long lineStart;
+        long bytes;
+        long lines;
+        long truncated;
+    
+        void collect(LogFileReader reader) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(READ_CHUNK_SIZE);
+            long position = 0;
+            int read;
+            while ((read = reader.read(buffer.clear(), position)) > 0) {
+                accept(buffer.array(), read, position);
+                position += read;
+            }
+            endTerm();
+            bytes = position;
+        }
+    
+        void accept(byte[] data, int length, long position) {
+            for (int i = 0; i < length; i++) {
+                byte b = data[i];
+                if (isTermByte(b)) {
+                    if (termLength < MAX_TERM_LENGTH) {
+                        term[termLength++] = lowerCase(b);
+                    } else {
+                        overlong = true;
+                    }
+                } else {
+                    endTerm();
+                    if (b == '\n') {
+                        lineStart = position + i + 1;
+                        lines++;
+                    }
+                }
+            }
+        }
+    
+        void endTerm() {
+            if (termLength >= MIN_TERM_LENGTH && !overlong) {
+                String text = new String(term, 0, termLength, StandardCharsets.UTF_8);
+                Lines offsets = terms.get(text);
+                if (offsets == null) {
+                    if (terms.size() >= MAX_TERMS_PER_EXECUTION) {
+                        truncated++;
+                    } else {
+                        offsets = new Lines();
+                        terms.put(text, offsets);
+                    }
+                }
+                if (offsets != null && !offsets.add(lineStart)) {
+                    truncated++;
+                }
+            }
+            termLength = 0;
+            overlong = false;
+        }
+    }
+    
+    /**
+     * Ascending line offsets, stored as a capped flag followed by varint deltas.
+     */
+    private static final class Lines {
+        long[] offsets = new long[4];
+        int count;
+        boolean capped;
+    
+        /**
+         * @return false for the first line dropped because the cap was reached
+         */
+        boolean add(long offset) {
+            if (count > 0 && offsets[count - 1] == offset) {
+                return true;
+            }
+            if (count == MAX_LINES_PER_TERM) {
+                // report only the first line dropped, so each capped term is counted once
+                boolean firstDropped = !capped;
+                capped = true;
+                return !firstDropped;
+            }
+            if (count == offsets.length) {
+                offsets = Arrays.copyOf(offsets, count * 2);
+            }
+            offsets[count++] = offset;
+            return true;
+        }
+    
+        Lines retain(Lines other) {
+            Lines kept = new Lines();
+            kept.capped = capped || other.capped;
+            int j = 0;
+            for (int i = 0; i < count; i++) {
+                while (j < other.count && other.offsets[j] < offsets[i]) {
+                    j++;
+                }
+                if (j < other.count && other.offsets[j] == offsets[i]) {
+                    kept.add(offsets[i]);
+                }
+            }
+            return kept;
+        }
+    
+        long[] toArray() {
+            return Arrays.copyOf(offsets, count);
+        }
+    
+        byte[] encode() {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(count * 2 + 1);
+            out.write(capped ? 1 : 0);
+            long previous = 0;
+            for (int i = 0; i < count; i++) {
+                long delta = offsets[i] - previous;
+                previous = offsets[i];
+                while ((delta & ~0x7FL) != 0) {
+                    out.write((int) (delta & 0x7F) | 0x80);
+                    delta >>>= 7;
+                }
+                out.write((int) delta);
+            }
+            return out.toByteArray();
+        }
+    
+        static Lines decode(byte[] data) {
+            Lines lines = new Lines();
+            lines.capped = data[0] == 1;
+            long previous = 0;
+            int i = 1;
+            while (i < data.length) {
+                long delta = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = data[i++];
+                    delta |= (long) (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                previous += delta;
+                if (lines.count == lines.offsets.length) {
+                    lines.offsets = Arrays.copyOf(lines.offsets, lines.count * 2);
+                }
+                lines.offsets[lines.count++] = previous;
+            }
+            return lines;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.batchiller.server.logging;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fans execution log output out to live viewers. The {@link ExecutionLogWriter}
+ * publishes every write to an execution that has viewers, with the file
+ * offset it was written at, so viewers follow a log without reading the file
+ * again. An execution can be subscribed to from the moment its log is opened
+ * until the writer has processed its close.
+ *
+ * @author Siddharth Mishra &lt;mishra.siddharth90@gmail.com&gt;
+ * @version 1.0
+ */
+public class LogStreamHub {
+    
+    /**
+     * Receives an execution's log output. Called on the log writer thread, so
+     * implementations must hand the data off rather than block.
+     */
+    public interface Subscriber {
+    
+        /**
+         * Bytes written to the log file starting at {@code offset}; always whole records.
+         */
+        void append(long offset, byte[] data);
+    
+        /**
+         * The execution finished and its log is complete.
+         */
+        void end();
+    }
+    
+    // One entry per execution whose log is open; absent once it is closed
+    private final Map<String, List<Subscriber>> streams = new ConcurrentHashMap<>();
+    
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong bytesPublished = new AtomicLong();
+    
+    void open(String executionId) {
+        streams.putIfAbsent(executionId, new CopyOnWriteArrayList<>());
+    }
+    
+    /**
+     * Adds a subscriber to a running execution's log.
+     *
+     * @return false if the execution's log is not open, i.e. it has finished or never started
+     */
+    public boolean subscribe(String executionId, Subscriber subscriber) {
+        return streams.computeIfPresent(executionId, (id, subscribers) -> {
+            subscribers.add(subscriber);
+            return subscribers;
+        }) != null;
+    }
+    
+    public void unsubscribe(String executionId, Subscriber subscriber) {
+        List<Subscriber> subscribers = streams.get(executionId);
+        if (subscribers != null) {
+            subscribers.remove(subscriber);
+        }
+    }
+    
+    boolean hasSubscribers(String executionId) {
+        List<Subscriber> subscribers = streams.get(executionId);
+        return subscribers != null && !subscribers.isEmpty();
+    }
+    
+    void publish(String executionId, long offset, byte[] data) {
+        List<Subscriber> subscribers = streams.get(executionId);
+        if (subscribers == null) {
+            return;
+        }
+        for (Subscriber subscriber : subscribers) {
+            subscriber.append(offset, data);
+            published.incrementAndGet();
+        }
+        bytesPublished.addAndGet((long) data.length * subscribers.size());
+    }
+    
+    void close(String executionId) {
+        List<Subscriber> subscribers = streams.remove(executionId);
+        if (subscribers != null) {
+            subscribers.forEach(Subscriber::end);
+        }
+    }
+    
+    public Map<String, Object> getMetrics() {
+        int viewers = 0;
+        int watched = 0;
+        for (List<Subscriber> subscribers : streams.values()) {
+            viewers += subscribers.size();
+            watched += subscribers.isEmpty() ? 0 : 1;
+        }
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("open_logs", streams.size());
+        metrics.put("watched_logs", watched);
+        metrics.put("viewers", viewers);
+        metrics.put("events_published", published.get());
+        metrics.put("bytes_published", bytesPublished.get());
+        return metrics;
+    }
+}
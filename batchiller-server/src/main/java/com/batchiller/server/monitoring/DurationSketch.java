@@ -0,0 +1,103 @@
+package com.batchiller.server.monitoring;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A mergeable histogram of durations with logarithmic buckets. Every quantile
+ * it reports is within {@value #RELATIVE_ACCURACY} relative error of the
+ * true value, and it needs one counter per occupied bucket, which is a few
+ * hundred at most for durations between a millisecond and a day.
+ *
+ * <p>Not thread-safe; callers synchronize.</p>
+ *
+ * @author Siddharth Mishra &lt;mishra.siddharth90@gmail.com&gt;
+ * @version 1.0
+ */
+public class DurationSketch {
+
+    static final double RELATIVE_ACCURACY = 0.02;
+    private static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+
+    private final TreeMap<Integer, Long> buckets = new TreeMap<>();
+    private long zeroCount;
+    private long count;
+
+    public void add(long millis) {
+        count++;
+        if (millis <= 0) {
+            zeroCount++;
+            return;
+        }
+        buckets.merge((int) Math.ceil(Math.log(millis) / LOG_GAMMA), 1L, Long::sum);
+    }
+
+    public void merge(DurationSketch other) {
+        count += other.count;
+        zeroCount += other.zeroCount;
+        other.buckets.forEach((index, n) -> buckets.merge(index, n, Long::sum));
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the estimated duration at quantile {@code q} (0..1), or 0 when empty.
+     */
+    public long quantile(double q) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(q * count);
+        long seen = zeroCount;
+        if (seen >= rank) {
+            return 0;
+        }
+        for (Map.Entry<Integer, Long> bucket : buckets.entrySet()) {
+            seen += bucket.getValue();
+            if (seen >= rank) {
+                // Midpoint of the bucket (gamma^(i-1), gamma^i] in relative terms
+                return Math.round(2 * Math.pow(GAMMA, bucket.getKey()) / (GAMMA + 1));
+            }
+        }
+        return Math.round(Math.pow(GAMMA, buckets.lastKey()));
+    }
+
+    /**
+     * Encodes the sketch as {@code zeroCount;index:count,index:count,...} for storage.
+     */
+    public String encode() {
+        StringBuilder sb = new StringBuilder().append(zeroCount).append(';');
+        boolean first = true;
+        for (Map.Entry<Integer, Long> bucket : buckets.entrySet()) {
+            if (!first) {
+                sb.append(',');
+            }
+            sb.append(bucket.getKey()).append(':').append(bucket.getValue());
+            first = false;
+        }
+        return sb.toString();
+    }
+
+    public static DurationSketch decode(String encoded) {
+        DurationSketch sketch = new DurationSketch();
+        if (encoded == null || encoded.isEmpty()) {
+            return sketch;
+        }
+        int separator = encoded.indexOf(';');
+        sketch.zeroCount = Long.parseLong(encoded.substring(0, separator));
+        sketch.count = sketch.zeroCount;
+        String rest = encoded.substring(separator + 1);
+        if (!rest.isEmpty()) {
+            for (String entry : rest.split(",")) {
+                int colon = entry.indexOf(':');
+                long n = Long.parseLong(entry.substring(colon + 1));
+                sketch.buckets.put(Integer.parseInt(entry.substring(0, colon)), n);
+                sketch.count += n;
+            }
+        }
+        return sketch;
+    }
+}
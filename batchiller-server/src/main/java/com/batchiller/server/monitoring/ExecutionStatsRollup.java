@@ -0,0 +1,221 @@
+package com.batchiller.server.monitoring;
+
+import com.batchiller.server.config.BatchillerConfiguration;
+import com.batchiller.server.database.DatabaseManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A class that keeps per-job execution statistics in minute, hour and day
+ * buckets. Each completed execution updates its bucket in all three tiers, so a
+ * stats query merges a bounded number of buckets no matter how much history
+ * there is. Buckets past their tier's retention are evicted, and changed
+ * buckets are persisted periodically and reloaded on start.
+ *
+ * @author Siddharth Mishra &lt;mishra.siddharth90@gmail.com&gt;
+ * @version 1.0
+ */
+public class ExecutionStatsRollup {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExecutionStatsRollup.class);
+
+    private final DatabaseManager databaseManager;
+    private final Map<StatsBucket.Tier, Duration> retention = new EnumMap<>(StatsBucket.Tier.class);
+    private final Map<String, JobBuckets> jobs = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService persistScheduler;
+
+    public ExecutionStatsRollup(BatchillerConfiguration config, DatabaseManager databaseManager) {
+        this.databaseManager = databaseManager;
+        retention.put(StatsBucket.Tier.MINUTE, Duration.ofMinutes(Math.max(1, config.getStatsRetentionMinutes())));
+        retention.put(StatsBucket.Tier.HOUR, Duration.ofHours(Math.max(1, config.getStatsRetentionHours())));
+        retention.put(StatsBucket.Tier.DAY, Duration.ofDays(Math.max(1, config.getStatsRetentionDays())));
+
+        load();
+
+        this.persistScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "StatsRollup");
+            t.setDaemon(true);
+            return t;
+        });
+        int interval = Math.max(1, config.getStatsPersistIntervalSeconds());
+        persistScheduler.scheduleWithFixedDelay(this::persist, interval, interval, TimeUnit.SECONDS);
+    }
+
+    private void load() {
+        LocalDateTime now = LocalDateTime.now();
+        int loaded = 0;
+        for (StatsBucket.Tier tier : StatsBucket.Tier.values()) {
+            for (StatsBucket bucket : databaseManager.getStatsBuckets(tier, oldestBucket(tier, now))) {
+                JobBuckets job = jobs.computeIfAbsent(bucket.getJobName(), name -> new JobBuckets());
+                synchronized (job) {
+                    job.tiers.get(tier).put(bucket.getBucketStart(), bucket);
+                }
+                loaded++;
+            }
+        }
+        logger.info("Loaded {} execution stats buckets for {} jobs", loaded, jobs.size());
+    }
+
+    /**
+     * Records a completed execution.
+     *
+     * @param endTime        when the execution completed; selects the buckets
+     * @param durationMillis time spent running
+     * @param waitMillis     time spent queued before running
+     */
+    public void record(String jobName, LocalDateTime endTime, long durationMillis, long waitMillis, boolean success) {
+        JobBuckets job = jobs.computeIfAbsent(jobName, name -> new JobBuckets());
+        synchronized (job) {
+            for (StatsBucket.Tier tier : StatsBucket.Tier.values()) {
+                LocalDateTime start = tier.bucketStart(endTime);
+                job.tiers.get(tier)
+                    .computeIfAbsent(start, s -> new StatsBucket(jobName, tier, s))
+                    .record(durationMillis, waitMillis, success);
+            }
+        }
+    }
+
+    /**
+     * Summarizes the executions of one job, or of all jobs when {@code jobName} is
+     * null, that completed within the window. Uses the finest tier that still
+     * covers the whole window.
+     */
+    public Map<String, Object> getSummary(String jobName, Duration window) {
+        StatsBucket.Tier tier = tierFor(window);
+        LocalDateTime from = tier.bucketStart(LocalDateTime.now().minus(window));
+
+        StatsBucket total = new StatsBucket(jobName, tier, from);
+        NavigableMap<LocalDateTime, StatsBucket> series = new TreeMap<>();
+        for (Map.Entry<String, JobBuckets> entry : jobs.entrySet()) {
+            if (jobName != null && !jobName.equals(entry.getKey())) {
+                continue;
+            }
+            JobBuckets job = entry.getValue();
+            synchronized (job) {
+                for (StatsBucket bucket : job.tiers.get(tier).tailMap(from, true).values()) {
+                    total.merge(bucket);
+                    series.computeIfAbsent(bucket.getBucketStart(), s -> new StatsBucket(jobName, tier, s)).merge(bucket);
+                }
+            }
+        }
+
+        Map<String, Object> summary = describe(total);
+        summary.put("job", jobName);
+        summary.put("window_seconds", window.getSeconds());
+        summary.put("tier", tier.name());
+        List<Map<String, Object>> points = new ArrayList<>();
+        for (StatsBucket bucket : series.values()) {
+            Map<String, Object> point = new LinkedHashMap<>();
+            point.put("time", bucket.getBucketStart().toString());
+            point.put("count", bucket.getCount());
+            point.put("failures", bucket.getFailures());
+            point.put("p95_ms", bucket.getDurationSketch().quantile(0.95));
+            points.add(point);
+        }
+        summary.put("series", points);
+        return summary;
+    }
+
+    /**
+     * Summarizes each job separately over the window.
+     */
+    public List<Map<String, Object>> getJobSummaries(Duration window) {
+        List<Map<String, Object>> summaries = new ArrayList<>();
+        for (String jobName : new TreeMap<>(jobs).keySet()) {
+            Map<String, Object> summary = getSummary(jobName, window);
+            summary.remove("series");
+            summaries.add(summary);
+        }
+        return summaries;
+    }
+
+    private Map<String, Object> describe(StatsBucket bucket) {
+        long count = bucket.getCount();
+        DurationSketch sketch = bucket.getDurationSketch();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("count", count);
+        stats.put("failures", bucket.getFailures());
+        stats.put("success_rate", count > 0 ? (count - bucket.getFailures()) / (double) count : null);
+        stats.put("duration_avg_ms", count > 0 ? bucket.getDurationSum() / (double) count : 0);
+        stats.put("duration_p50_ms", sketch.quantile(0.50));
+        stats.put("duration_p95_ms", sketch.quantile(0.95));
+        stats.put("duration_p99_ms", sketch.quantile(0.99));
+        stats.put("duration_max_ms", bucket.getDurationMax());
+        stats.put("queue_wait_avg_ms", count > 0 ? bucket.getWaitSum() / (double) count : 0);
+        stats.put("queue_wait_max_ms", bucket.getWaitMax());
+        return stats;
+    }
+
+    private StatsBucket.Tier tierFor(Duration window) {
+        for (StatsBucket.Tier tier : StatsBucket.Tier.values()) {
+            if (window.compareTo(retention.get(tier)) <= 0) {
+                return tier;
+            }
+        }
+        return StatsBucket.Tier.DAY;
+    }
+
+    private LocalDateTime oldestBucket(StatsBucket.Tier tier, LocalDateTime now) {
+        return tier.bucketStart(now.minus(retention.get(tier)));
+    }
+
+    /**
+     * Evicts expired buckets and writes the buckets changed since the last run.
+     */
+    public void persist() {
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            List<StatsBucket> changed = new ArrayList<>();
+            for (JobBuckets job : jobs.values()) {
+                synchronized (job) {
+                    for (StatsBucket.Tier tier : StatsBucket.Tier.values()) {
+                        TreeMap<LocalDateTime, StatsBucket> buckets = job.tiers.get(tier);
+                        buckets.headMap(oldestBucket(tier, now)).clear();
+                        for (StatsBucket bucket : buckets.values()) {
+                            if (bucket.isDirty()) {
+                                changed.add(bucket.snapshot());
+                            }
+                        }
+                    }
+                }
+            }
+            if (!changed.isEmpty()) {
+                databaseManager.saveStatsBuckets(changed);
+            }
+            for (StatsBucket.Tier tier : StatsBucket.Tier.values()) {
+                databaseManager.deleteStatsBuckets(tier, oldestBucket(tier, now));
+            }
+        } catch (Exception e) {
+            logger.error("Failed to persist execution stats", e);
+        }
+    }
+
+    public void shutdown() {
+        persistScheduler.shutdownNow();
+        persist();
+    }
+
+    private static final class JobBuckets {
+        private final Map<StatsBucket.Tier, TreeMap<LocalDateTime, StatsBucket>> tiers = new EnumMap<>(StatsBucket.Tier.class);
+
+        JobBuckets() {
+            for (StatsBucket.Tier tier : StatsBucket.Tier.values()) {
+                tiers.put(tier, new TreeMap<>());
+            }
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.batchiller.server.monitoring;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Aggregated executions of one job that completed within one minute, hour or
+ * day. Not thread-safe; {@link ExecutionStatsRollup} guards each job's buckets.
+ *
+ * @author Siddharth Mishra &lt;mishra.siddharth90@gmail.com&gt;
+ * @version 1.0
+ */
+public class StatsBucket {
+
+    public enum Tier {
+        MINUTE(ChronoUnit.MINUTES),
+        HOUR(ChronoUnit.HOURS),
+        DAY(ChronoUnit.DAYS);
+
+        private final ChronoUnit unit;
+
+        Tier(ChronoUnit unit) {
+            this.unit = unit;
+        }
+
+        public ChronoUnit getUnit() {
+            return unit;
+        }
+
+        public LocalDateTime bucketStart(LocalDateTime time) {
+            return time.truncatedTo(unit);
+        }
+    }
+
+    private final String jobName;
+    private final Tier tier;
+    private final LocalDateTime bucketStart;
+    private long count;
+    private long failures;
+    private long durationSum;
+    private long durationMax;
+    private DurationSketch durationSketch = new DurationSketch();
+    private long waitSum;
+    private long waitMax;
+    private boolean dirty;
+
+    public StatsBucket(String jobName, Tier tier, LocalDateTime bucketStart) {
+        this.jobName = jobName;
+        this.tier = tier;
+        this.bucketStart = bucketStart;
+    }
+
+    /**
+     * Restores a persisted bucket.
+     */
+    public StatsBucket(String jobName, Tier tier, LocalDateTime bucketStart, long count, long failures,
+                       long durationSum, long durationMax, DurationSketch durationSketch, long waitSum, long waitMax) {
+        this(jobName, tier, bucketStart);
+        this.count = count;
+        this.failures = failures;
+        this.durationSum = durationSum;
+        this.durationMax = durationMax;
+        this.durationSketch = durationSketch;
+        this.waitSum = waitSum;
+        this.waitMax = waitMax;
+    }
+
+    void record(long durationMillis, long waitMillis, boolean success) {
+        count++;
+        if (!success) {
+            failures++;
+        }
+        durationSum += durationMillis;
+        durationMax = Math.max(durationMax, durationMillis);
+        durationSketch.add(durationMillis);
+        waitSum += waitMillis;
+        waitMax = Math.max(waitMax, waitMillis);
+        dirty = true;
+    }
+
+    void merge(StatsBucket other) {
+        count += other.count;
+        failures += other.failures;
+        durationSum += other.durationSum;
+        durationMax = Math.max(durationMax, other.durationMax);
+        durationSketch.merge(other.durationSketch);
+        waitSum += other.waitSum;
+        waitMax = Math.max(waitMax, other.waitMax);
+    }
+
+    /**
+     * Returns a copy to persist and clears the dirty flag.
+     */
+    StatsBucket snapshot() {
+        StatsBucket copy = new StatsBucket(jobName, tier, bucketStart);
+        copy.merge(this);
+        dirty = false;
+        return copy;
+    }
+
+    boolean isDirty() {
+        return dirty;
+    }
+
+    public String getJobName() {
+        return jobName;
+    }
+
+    public Tier getTier() {
+        return tier;
+    }
+
+    public LocalDateTime getBucketStart() {
+        return bucketStart;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getFailures() {
+        return failures;
+    }
+
+    public long getDurationSum() {
+        return durationSum;
+    }
+
+    public long getDurationMax() {
+        return durationMax;
+    }
+
+    public DurationSketch getDurationSketch() {
+        return durationSketch;
+    }
+
+    public long getWaitSum() {
+        return waitSum;
+    }
+
+    public long getWaitMax() {
+        return waitMax;
+    }
+}
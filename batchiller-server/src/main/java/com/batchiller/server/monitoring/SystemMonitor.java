@@ -7,7 +7,9 @@ import java.lang.management.MemoryMXBean;
 import java.lang.management.ThreadMXBean;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.function.Supplier;
 
 /**
  * A class that monitors the system metrics.
@@ -22,6 +24,7 @@ public class SystemMonitor {
     private final OperatingSystemMXBean osBean;
     private final MemoryMXBean memoryBean;
     private final ThreadMXBean threadBean;
+    private final Map<String, Supplier<Map<String, Object>>> metricSources = new ConcurrentHashMap<>();
     
     public SystemMonitor(ThreadPoolExecutor executor) {
         this.executor = executor;
@@ -30,6 +33,13 @@ public class SystemMonitor {
         this.threadBean = ManagementFactory.getThreadMXBean();
     }
     
+    /**
+     * Registers a component whose metrics are reported under the given key.
+     */
+    public void registerMetrics(String name, Supplier<Map<String, Object>> source) {
+        metricSources.put(name, source);
+    }
+    
     public Map<String, Object> getMetrics() {
         Map<String, Object> metrics = new HashMap<>();
         
@@ -68,6 +78,14 @@ public class SystemMonitor {
         metrics.put("total_threads", threadBean.getThreadCount());
         metrics.put("daemon_threads", threadBean.getDaemonThreadCount());
         
+        metricSources.forEach((name, source) -> {
+            try {
+                metrics.put(name, source.get());
+            } catch (Exception e) {
+                logger.warn("Failed to collect {} metrics: {}", name, e.getMessage());
+            }
+        });
+        
         return metrics;
     }
 }
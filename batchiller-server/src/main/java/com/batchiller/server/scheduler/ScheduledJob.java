@@ -109,6 +109,15 @@ public class ScheduledJob {
         this.nextExecutionTime = nextExecutionTime;
     }
 
+    /**
+     * Returns a copy with its own parameters map, so that changing one does not change the other.
+     */
+    public ScheduledJob copy() {
+        return new ScheduledJob(id, name, type, targetName, cronExpression,
+            parameters != null ? new java.util.HashMap<>(parameters) : null,
+            enabled, lastExecutionTime, nextExecutionTime);
+    }
+
     @Override
     public String toString() {
         return "ScheduledJob{"
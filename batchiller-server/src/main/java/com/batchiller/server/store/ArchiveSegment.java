@@ -0,0 +1,624 @@
+package com.batchiller.server.store;
+
+import com.batchiller.api.JobExecutionInfo;
+import com.batchiller.api.JobStatus;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * An immutable, column-oriented file of archived executions, sorted by
+ * {@code (startTime, executionId)}. Every column is stored as its own
+ * deflate-compressed block, so a query only inflates the columns it filters
+ * on and, when something matches, the rest.
+ *
+ * <p>The file starts with a header holding the row count, the minimum and
+ * maximum start time, Bloom filters of the job names and execution IDs, and
+ * the offset, length and CRC32 of every column. The header is kept in memory,
+ * which lets {@link ExecutionArchive} skip segments by time range, job name
+ * or execution ID without opening them.</p>
+ *
+ * <p>String columns other than the execution ID are dictionary-encoded; start
+ * times are delta-encoded and end times stored relative to the start.</p>
+ *
+ * <p>Segments written before the suppressed log line count was archived
+ * ({@code BCA1}) lack that column and read back as zero.</p>
+ *
+ * @author Siddharth Mishra &lt;mishra.siddharth90@gmail.com&gt;
+ * @version 1.0
+ */
+final class ArchiveSegment {
+    
+    static final String EXTENSION = ".seg";
+    private static final int MAGIC = 0x42434132; // "BCA2"
+    private static final int MAGIC_V1 = 0x42434131; // "BCA1", without LOG_LINES_SUPPRESSED
+    
+    private static final int EXECUTION_ID = 0;
+    private static final int JOB_NAME = 1;
+    private static final int PIPELINE_NAME = 2;
+    private static final int STATUS = 3;
+    private static final int START_TIME = 4;
+    private static final int END_TIME = 5;
+    private static final int THREAD_NAME = 6;
+    private static final int TRIGGERED_BY = 7;
+    private static final int TRIGGER_TYPE = 8;
+    private static final int RETRY = 9;
+    private static final int RESULT_MESSAGE = 10;
+    private static final int ERROR_MESSAGE = 11;
+    private static final int LOG_LINES_SUPPRESSED = 12;
+    private static final int COLUMNS = 13;
+    
+    private final Path path;
+    private final int columnCount;
+    private final int rowCount;
+    private final LocalDateTime minStartTime;
+    private final LocalDateTime maxStartTime;
+    private final BloomFilter jobNames;
+    private final BloomFilter executionIds;
+    private final long[] offsets = new long[COLUMNS];
+    private final int[] compressedLengths = new int[COLUMNS];
+    private final int[] rawLengths = new int[COLUMNS];
+    private final long[] checksums = new long[COLUMNS];
+    private final long sizeBytes;
+    private final long rawBytes;
+    
+    private ArchiveSegment(Path path, int columnCount, ByteBuffer header, long dataStart, long sizeBytes) {
+        this.path = path;
+        this.columnCount = columnCount;
+        this.rowCount = header.getInt();
+        this.minStartTime = getTime(header);
+        this.maxStartTime = getTime(header);
+        this.jobNames = BloomFilter.readFrom(header);
+        this.executionIds = BloomFilter.readFrom(header);
+        long raw = 0;
+        for (int i = 0; i < columnCount; i++) {
+            offsets[i] = dataStart + header.getInt();
+            compressedLengths[i] = header.getInt();
+            rawLengths[i] = header.getInt();
+            checksums[i] = header.getInt() & 0xffffffffL;
+            raw += rawLengths[i];
+        }
+        this.sizeBytes = sizeBytes;
+        this.rawBytes = raw;
+    }
+    
+    /**
+     * Writes the executions to a new segment file. The file is written under a
+     * temporary name, forced and then renamed, so a segment either exists
+     * completely or not at all.
+     */
+    static ArchiveSegment write(Path path, List<JobExecutionInfo> executions) throws IOException {
+        List<JobExecutionInfo> rows = new ArrayList<>(executions);
+        rows.sort((a, b) -> ExecutionKey.of(a).compareTo(ExecutionKey.of(b)));
+    
+        byte[][] columns = new byte[COLUMNS][];
+        columns[EXECUTION_ID] = strings(rows, JobExecutionInfo::getExecutionId);
+        columns[JOB_NAME] = dictionary(rows, JobExecutionInfo::getJobName);
+        columns[PIPELINE_NAME] = dictionary(rows, JobExecutionInfo::getPipelineName);
+        columns[STATUS] = dictionary(rows, info -> info.getStatus().name());
+        columns[START_TIME] = startTimes(rows);
+        columns[END_TIME] = endTimes(rows);
+        columns[THREAD_NAME] = dictionary(rows, JobExecutionInfo::getThreadName);
+        columns[TRIGGERED_BY] = dictionary(rows, JobExecutionInfo::getTriggeredBy);
+        columns[TRIGGER_TYPE] = dictionary(rows, JobExecutionInfo::getTriggerType);
+        columns[RETRY] = retries(rows);
+        columns[RESULT_MESSAGE] = dictionary(rows, JobExecutionInfo::getResultMessage);
+        columns[ERROR_MESSAGE] = dictionary(rows, JobExecutionInfo::getErrorMessage);
+        columns[LOG_LINES_SUPPRESSED] = counts(rows, JobExecutionInfo::getLogLinesSuppressed);
+    
+        Set<String> jobNames = new HashSet<>();
+        List<String> executionIds = new ArrayList<>(rows.size());
+        for (JobExecutionInfo info : rows) {
+            jobNames.add(info.getJobName());
+            executionIds.add(info.getExecutionId());
+        }
+        BloomFilter jobFilter = BloomFilter.of(jobNames);
+        BloomFilter idFilter = BloomFilter.of(executionIds);
+    
+        byte[][] compressed = new byte[COLUMNS][];
+        for (int i = 0; i < COLUMNS; i++) {
+            compressed[i] = deflate(columns[i]);
+        }
+    
+        ByteBuffer header = ByteBuffer.allocate(4 + 12 + 12
+            + jobFilter.serializedSize() + idFilter.serializedSize() + COLUMNS * 16);
+        header.putInt(rows.size());
+        putTime(header, rows.get(0).getStartTime());
+        putTime(header, rows.get(rows.size() - 1).getStartTime());
+        jobFilter.writeTo(header);
+        idFilter.writeTo(header);
+        int offset = 0;
+        for (int i = 0; i < COLUMNS; i++) {
+            CRC32 crc = new CRC32();
+            crc.update(compressed[i]);
+            header.putInt(offset);
+            header.putInt(compressed[i].length);
+            header.putInt(columns[i].length);
+            header.putInt((int) crc.getValue());
+            offset += compressed[i].length;
+        }
+        header.flip();
+    
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer preamble = ByteBuffer.allocate(8);
+            preamble.putInt(MAGIC).putInt(header.remaining()).flip();
+            writeFully(channel, preamble);
+            writeFully(channel, header);
+            for (byte[] column : compressed) {
+                writeFully(channel, ByteBuffer.wrap(column));
+            }
+            channel.force(true);
+        }
+        Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE);
+        return open(path);
+    }
+    
+    /**
+     * Reads the header of an existing segment.
+     */
+    static ArchiveSegment open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer preamble = readFully(channel, 0, 8);
+            int magic = preamble.getInt();
+            if (magic != MAGIC && magic != MAGIC_V1) {
+                throw new IOException("Not an archive segment: " + path);
+            }
+            int headerLength = preamble.getInt();
+            ByteBuffer header = readFully(channel, 8, headerLength);
+            return new ArchiveSegment(path, magic == MAGIC ? COLUMNS : LOG_LINES_SUPPRESSED, header,
+                8L + headerLength, channel.size());
+        }
+    }
+    
+    /**
+     * Returns whether the segment may hold executions started in {@code [from, to)};
+     * either bound may be null.
+     */
+    boolean overlaps(LocalDateTime from, LocalDateTime to) {
+        return (from == null || !maxStartTime.isBefore(from)) && (to == null || minStartTime.isBefore(to));
+    }
+    
+    boolean mightContainJob(String jobName) {
+        return jobNames.mightContain(jobName);
+    }
+    
+    boolean mightContainExecution(String executionId) {
+        return executionIds.mightContain(executionId);
+    }
+    
+    /**
+     * Returns up to {@code max} executions matching the query that sort below
+     * {@code below} (all of them when it is null), newest first. Only the
+     * columns the query filters on are inflated until a row matches.
+     */
+    List<JobExecutionInfo> query(ExecutionQuery query, ExecutionKey below, int max) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            Map<Integer, Object> decoded = new HashMap<>();
+            LocalDateTime[] starts = (LocalDateTime[]) column(channel, decoded, START_TIME);
+            String[] ids = (String[]) column(channel, decoded, EXECUTION_ID);
+            String[] jobs = query.getJobName() != null ? (String[]) column(channel, decoded, JOB_NAME) : null;
+            String[] pipelines = query.getPipelineName() != null ? (String[]) column(channel, decoded, PIPELINE_NAME) : null;
+            String[] statuses = !query.getStatuses().isEmpty() ? (String[]) column(channel, decoded, STATUS) : null;
+            String[] triggers = query.getTriggerType() != null ? (String[]) column(channel, decoded, TRIGGER_TYPE) : null;
+            boolean byDuration = query.getMinDurationMillis() != null || query.getMaxDurationMillis() != null;
+            LocalDateTime[] ends = byDuration ? (LocalDateTime[]) column(channel, decoded, END_TIME) : null;
+    
+            List<Integer> matches = new ArrayList<>();
+            for (int row = rowCount - 1; row >= 0 && matches.size() < max; row--) {
+                if (below != null && new ExecutionKey(starts[row], ids[row]).compareTo(below) >= 0) {
+                    continue;
+                }
+                if (query.getStartedFrom() != null && starts[row].isBefore(query.getStartedFrom())) {
+                    break;
+                }
+                if (query.getStartedTo() != null && !starts[row].isBefore(query.getStartedTo())) {
+                    continue;
+                }
+                if (jobs != null && !query.getJobName().equals(jobs[row])
+                        || pipelines != null && !query.getPipelineName().equals(pipelines[row])
+                        || statuses != null && !query.getStatuses().contains(JobStatus.valueOf(statuses[row]))
+                        || triggers != null && !query.getTriggerType().equals(triggers[row])) {
+                    continue;
+                }
+                if (byDuration) {
+                    long duration = ends[row] != null ? java.time.Duration.between(starts[row], ends[row]).toMillis() : 0;
+                    if (query.getMinDurationMillis() != null && duration < query.getMinDurationMillis()
+                            || query.getMaxDurationMillis() != null && duration > query.getMaxDurationMillis()) {
+                        continue;
+                    }
+                }
+                matches.add(row);
+            }
+    
+            List<JobExecutionInfo> executions = new ArrayList<>(matches.size());
+            for (int row : matches) {
+                executions.add(row(channel, decoded, row));
+            }
+            return executions;
+        }
+    }
+    
+    /**
+     * Returns the archived execution with this ID, or null.
+     */
+    JobExecutionInfo get(String executionId) throws IOException {
+        if (!executionIds.mightContain(executionId)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            Map<Integer, Object> decoded = new HashMap<>();
+            String[] ids = (String[]) column(channel, decoded, EXECUTION_ID);
+            for (int row = 0; row < rowCount; row++) {
+                if (executionId.equals(ids[row])) {
+                    return row(channel, decoded, row);
+                }
+            }
+            return null;
+        }
+    }
+    
+    private JobExecutionInfo row(FileChannel channel, Map<Integer, Object> decoded, int row) throws IOException {
+        String[] ids = (String[]) column(channel, decoded, EXECUTION_ID);
+        String[] jobs = (String[]) column(channel, decoded, JOB_NAME);
+        int[] retries = (int[]) column(channel, decoded, RETRY);
+        long[] suppressed = columnCount > LOG_LINES_SUPPRESSED
+            ? (long[]) column(channel, decoded, LOG_LINES_SUPPRESSED) : null;
+        return JobExecutionInfo.builder(ids[row], jobs[row])
+            .pipelineName(((String[]) column(channel, decoded, PIPELINE_NAME))[row])
+            .status(JobStatus.valueOf(((String[]) column(channel, decoded, STATUS))[row]))
+            .startTime(((LocalDateTime[]) column(channel, decoded, START_TIME))[row])
+            .endTime(((LocalDateTime[]) column(channel, decoded, END_TIME))[row])
+            .threadName(((String[]) column(channel, decoded, THREAD_NAME))[row])
+            .triggeredBy(((String[]) column(channel, decoded, TRIGGERED_BY))[row])
+            .triggerType(((String[]) column(channel, decoded, TRIGGER_TYPE))[row])
+            .isRetry(retries[row] < 0)
+            .retryAttempt(retries[row] < 0 ? -retries[row] - 1 : retries[row])
+            .resultMessage(((String[]) column(channel, decoded, RESULT_MESSAGE))[row])
+            .errorMessage(((String[]) column(channel, decoded, ERROR_MESSAGE))[row])
+            .logLinesSuppressed(suppressed != null ? suppressed[row] : 0)
+            .build();
+    }
+    
+    /**
+     * Inflates and decodes a column once per read.
+     */
+    private Object column(FileChannel channel, Map<Integer, Object> decoded, int column) throws IOException {
+        Object values = decoded.get(column);
+        if (values != null) {
+            return values;
+        }
+        ByteBuffer compressed = readFully(channel, offsets[column], compressedLengths[column]);
+        CRC32 crc = new CRC32();
+        crc.update(compressed.duplicate());
+        if (crc.getValue() != checksums[column]) {
+            throw new IOException("Checksum mismatch in column " + column + " of archive segment " + path);
+        }
+        ByteBuffer raw = ByteBuffer.wrap(inflate(compressed, rawLengths[column]));
+        values = switch (column) {
+            case EXECUTION_ID -> readStrings(raw);
+            case START_TIME -> readStartTimes(raw);
+            case END_TIME -> readEndTimes(raw, (LocalDateTime[]) column(channel, decoded, START_TIME));
+            case RETRY -> readRetries(raw);
+            case LOG_LINES_SUPPRESSED -> readCounts(raw);
+            default -> readDictionary(raw);
+        };
+        decoded.put(column, values);
+        return values;
+    }
+    
+    Path getPath() {
+        return path;
+    }
+    
+    int getRowCount() {
+        return rowCount;
+    }
+    
+    LocalDateTime getMinStartTime() {
+        return minStartTime;
+    }
+    
+    LocalDateTime getMaxStartTime() {
+        return maxStartTime;
+    }
+    
+    long getSizeBytes() {
+        return sizeBytes;
+    }
+    
+    long getRawBytes() {
+        return rawBytes;
+    }
+    
+    void delete() throws IOException {
+        Files.deleteIfExists(path);
+    }
+    
+    // Column encoders
+    
+    private static byte[] strings(List<JobExecutionInfo> rows, java.util.function.Function<JobExecutionInfo, String> field) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        putVarInt(out, rows.size());
+        for (JobExecutionInfo info : rows) {
+            putString(out, field.apply(info));
+        }
+        return out.toByteArray();
+    }
+    
+    private static byte[] dictionary(List<JobExecutionInfo> rows, java.util.function.Function<JobExecutionInfo, String> field) {
+        Map<String, Integer> codes = new HashMap<>();
+        List<String> values = new ArrayList<>();
+        int[] rowCodes = new int[rows.size()];
+        for (int i = 0; i < rows.size(); i++) {
+            String value = field.apply(rows.get(i));
+            // Null gets code 0; real values start at 1
+            rowCodes[i] = value == null ? 0 : codes.computeIfAbsent(value, v -> {
+                values.add(v);
+                return values.size();
+            });
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        putVarInt(out, values.size());
+        values.forEach(value -> putString(out, value));
+        putVarInt(out, rowCodes.length);
+        for (int code : rowCodes) {
+            putVarInt(out, code);
+        }
+        return out.toByteArray();
+    }
+    
+    private static byte[] startTimes(List<JobExecutionInfo> rows) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        putVarInt(out, rows.size());
+        long previous = 0;
+        for (JobExecutionInfo info : rows) {
+            long seconds = info.getStartTime().toEpochSecond(ZoneOffset.UTC);
+            putVarLong(out, zigZag(seconds - previous));
+            putVarInt(out, info.getStartTime().getNano());
+            previous = seconds;
+        }
+        return out.toByteArray();
+    }
+    
+    private static byte[] endTimes(List<JobExecutionInfo> rows) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        putVarInt(out, rows.size());
+        for (JobExecutionInfo info : rows) {
+            if (info.getEndTime() == null) {
+                out.write(0);
+                continue;
+            }
+            out.write(1);
+            putVarLong(out, zigZag(info.getEndTime().toEpochSecond(ZoneOffset.UTC)
+                - info.getStartTime().toEpochSecond(ZoneOffset.UTC)));
+            putVarInt(out, info.getEndTime().getNano());
+        }
+        return out.toByteArray();
+    }
+    
+    /**
+     * The retry attempt, negated and offset by one for retries so one varint holds both fields.
+     */
+    private static byte[] retries(List<JobExecutionInfo> rows) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        putVarInt(out, rows.size());
+        for (JobExecutionInfo info : rows) {
+            int value = info.isRetry() ? -info.getRetryAttempt() - 1 : info.getRetryAttempt();
+            putVarLong(out, zigZag(value));
+        }
+        return out.toByteArray();
+    }
+    
+    private static byte[] counts(List<JobExecutionInfo> rows, java.util.function.ToLongFunction<JobExecutionInfo> field) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        putVarInt(out, rows.size());
+        for (JobExecutionInfo info : rows) {
+            putVarLong(out, field.applyAsLong(info));
+        }
+        return out.toByteArray();
+    }
+    
+    // Column decoders
+    
+    private static String[] readStrings(ByteBuffer in) {
+        String[] values = new String[getVarInt(in)];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = getString(in);
+        }
+        return values;
+    }
+    
+    private static String[] readDictionary(ByteBuffer in) {
+        String[] dictionary = new String[getVarInt(in) + 1];
+        for (int i = 1; i < dictionary.length; i++) {
+            dictionary[i] = getString(in);
+        }
+        String[] values = new String[getVarInt(in)];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = dictionary[getVarInt(in)];
+        }
+        return values;
+    }
+    
+    private static LocalDateTime[] readStartTimes(ByteBuffer in) {
+        LocalDateTime[] values = new LocalDateTime[getVarInt(in)];
+        long seconds = 0;
+        for (int i = 0; i < values.length; i++) {
+            seconds += unZigZag(getVarLong(in));
+            values[i] = LocalDateTime.ofEpochSecond(seconds, getVarInt(in), ZoneOffset.UTC);
+        }
+        return values;
+    }
+    
+    private static LocalDateTime[] readEndTimes(ByteBuffer in, LocalDateTime[] starts) {
+        LocalDateTime[] values = new LocalDateTime[getVarInt(in)];
+        for (int i = 0; i < values.length; i++) {
+            if (in.get() == 0) {
+                continue;
+            }
+            long seconds = starts[i].toEpochSecond(ZoneOffset.UTC) + unZigZag(getVarLong(in));
+            values[i] = LocalDateTime.ofEpochSecond(seconds, getVarInt(in), ZoneOffset.UTC);
+        }
+        return values;
+    }
+    
+    private static int[] readRetries(ByteBuffer in) {
+        int[] values = new int[getVarInt(in)];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (int) unZigZag(getVarLong(in));
+        }
+        return values;
+    }
+    
+    private static long[] readCounts(ByteBuffer in) {
+        long[] values = new long[getVarInt(in)];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = getVarLong(in);
+        }
+        return values;
+    }
+    
+    // Primitives
+    
+    private static void putString(ByteArrayOutputStream out, String value) {
+        if (value == null) {
+            putVarInt(out, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        putVarInt(out, bytes.length + 1);
+        out.write(bytes, 0, bytes.length);
+    }
+    
+    private static String getString(ByteBuffer in) {
+        int length = getVarInt(in) - 1;
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+    
+    private static void putVarInt(ByteArrayOutputStream out, int value) {
+        putVarLong(out, Integer.toUnsignedLong(value));
+    }
+    
+    private static void putVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+    
+    private static int getVarInt(ByteBuffer in) {
+        return (int) getVarLong(in);
+    }
+    
+    private static long getVarLong(ByteBuffer in) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+    
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+    
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+    
+    private static void putTime(ByteBuffer buffer, LocalDateTime time) {
+        buffer.putLong(time.toEpochSecond(ZoneOffset.UTC));
+        buffer.putInt(time.getNano());
+    }
+    
+    private static LocalDateTime getTime(ByteBuffer buffer) {
+        return LocalDateTime.ofEpochSecond(buffer.getLong(), buffer.getInt(), ZoneOffset.UTC);
+    }
+    
+    private static byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, raw.length / 4));
+            byte[] chunk = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(chunk, 0, deflater.deflate(chunk));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+    
+    private byte[] inflate(ByteBuffer compressed, int rawLength) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            byte[] raw = new byte[rawLength];
+            int read = 0;
+            while (read < rawLength && !inflater.finished()) {
+                int n = inflater.inflate(raw, read, rawLength - read);
+                if (n == 0 && inflater.needsInput()) {
+                    break;
+                }
+                read += n;
+            }
+            if (read != rawLength) {
+                throw new IOException("Truncated column in archive segment " + path);
+            }
+            return raw;
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt column in archive segment " + path, e);
+        } finally {
+            inflater.end();
+        }
+    }
+    
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+    
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of archive segment");
+            }
+        }
+        return buffer.flip();
+    }
+}
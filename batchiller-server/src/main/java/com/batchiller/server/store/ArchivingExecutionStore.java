@@ -0,0 +1,124 @@
+package com.batchiller.server.store;
+
+import com.batchiller.api.JobExecutionInfo;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An execution store that reads through to the {@link ExecutionArchive} when
+ * the hot store cannot answer alone. Writes, purges and the oldest start time
+ * are the hot store's; reads merge both tiers in keyset order, so cursors
+ * keep working across the boundary.
+ *
+ * @author Siddharth Mishra &lt;mishra.siddharth90@gmail.com&gt;
+ * @version 1.0
+ */
+public class ArchivingExecutionStore implements ExecutionStore {
+    
+    private final ExecutionStore hot;
+    private final ExecutionArchive archive;
+    
+    public ArchivingExecutionStore(ExecutionStore hot, ExecutionArchive archive) {
+        this.hot = hot;
+        this.archive = archive;
+    }
+    
+    public ExecutionStore getHotStore() {
+        return hot;
+    }
+    
+    public ExecutionArchive getArchive() {
+        return archive;
+    }
+    
+    @Override
+    public void save(JobExecutionInfo info) {
+        hot.save(info);
+    }
+    
+    @Override
+    public void update(JobExecutionInfo info) {
+        hot.update(info);
+    }
+    
+    @Override
+    public void writeBatch(List<JobExecutionInfo> inserts, List<JobExecutionInfo> updates) {
+        hot.writeBatch(inserts, updates);
+    }
+    
+    @Override
+    public JobExecutionInfo get(String executionId) {
+        JobExecutionInfo info = hot.get(executionId);
+        return info != null ? info : archive.get(executionId);
+    }
+    
+    /**
+     * Answers from the hot store alone when its page is full and ends after
+     * the newest archived execution; otherwise merges in the archive. The hot
+     * page holds the newest {@code limit} hot matches, so the first
+     * {@code limit} rows of the merge are exact even when the hot store has more.
+     */
+    @Override
+    public ExecutionPage query(ExecutionQuery query) {
+        ExecutionPage hotPage = hot.query(query);
+        List<JobExecutionInfo> hotRows = hotPage.getExecutions();
+        LocalDateTime newestArchived = archive.getNewestStartTime();
+        if (newestArchived == null || hotPage.hasNext()
+                && hotRows.get(hotRows.size() - 1).getStartTime().isAfter(newestArchived)) {
+            return hotPage;
+        }
+    
+        List<JobExecutionInfo> merged = new ArrayList<>(hotRows);
+        Set<String> hotIds = new HashSet<>();
+        hotRows.forEach(info -> hotIds.add(info.getExecutionId()));
+        for (JobExecutionInfo info : archive.query(query)) {
+            // Left in both tiers if the archiver stopped between writing a segment and deleting the rows
+            if (!hotIds.contains(info.getExecutionId())) {
+                merged.add(info);
+            }
+        }
+        merged.sort((a, b) -> ExecutionKey.of(b).compareTo(ExecutionKey.of(a)));
+    
+        int limit = query.getLimit();
+        if (merged.size() <= limit && !hotPage.hasNext()) {
+            return new ExecutionPage(merged, null);
+        }
+        List<JobExecutionInfo> executions = new ArrayList<>(merged.subList(0, Math.min(limit, merged.size())));
+        return new ExecutionPage(executions, ExecutionQuery.encodeCursor(executions.get(executions.size() - 1)));
+    }
+    
+    @Override
+    public long purgeBefore(LocalDateTime cutoff, int chunkSize) {
+        return hot.purgeBefore(cutoff, chunkSize);
+    }
+    
+    @Override
+    public long purgeBeyond(int maxPerJob, int chunkSize) {
+        return hot.purgeBeyond(maxPerJob, chunkSize);
+    }
+    
+    @Override
+    public long delete(List<String> executionIds, int chunkSize) {
+        return hot.delete(executionIds, chunkSize);
+    }
+    
+    @Override
+    public LocalDateTime getOldestStartTime() {
+        return hot.getOldestStartTime();
+    }
+    
+    @Override
+    public Map<String, Object> getMetrics() {
+        return hot.getMetrics();
+    }
+    
+    @Override
+    public void close() {
+        hot.close();
+    }
+}
@@ -0,0 +1,90 @@
+package com.batchiller.server.store;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+
+/**
+ * A fixed-size Bloom filter over strings, sized for about 1% false positives
+ * at the number of keys it is built from. Lookups derive their bit positions
+ * from two 32-bit halves of one 64-bit hash.
+ *
+ * @author Siddharth Mishra &lt;mishra.siddharth90@gmail.com&gt;
+ * @version 1.0
+ */
+final class BloomFilter {
+    
+    private static final int BITS_PER_KEY = 10;
+    private static final int HASHES = 7;
+    
+    private final long[] bits;
+    
+    private BloomFilter(long[] bits) {
+        this.bits = bits;
+    }
+    
+    static BloomFilter of(Collection<String> keys) {
+        int words = Math.max(1, (keys.size() * BITS_PER_KEY + 63) / 64);
+        BloomFilter filter = new BloomFilter(new long[words]);
+        keys.forEach(filter::add);
+        return filter;
+    }
+    
+    private void add(String key) {
+        long hash = hash(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        long size = bits.length * 64L;
+        for (int i = 0; i < HASHES; i++) {
+            long bit = Integer.toUnsignedLong(h1 + i * h2) % size;
+            bits[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+    
+    boolean mightContain(String key) {
+        long hash = hash(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        long size = bits.length * 64L;
+        for (int i = 0; i < HASHES; i++) {
+            long bit = Integer.toUnsignedLong(h1 + i * h2) % size;
+            if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * FNV-1a over the UTF-8 bytes, finished with the SplitMix64 mixer so both halves are usable.
+     */
+    private static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash = (hash ^ (hash >>> 30)) * 0xbf58476d1ce4e5b9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94d049bb133111ebL;
+        return hash ^ (hash >>> 31);
+    }
+    
+    int serializedSize() {
+        return 4 + bits.length * 8;
+    }
+    
+    void writeTo(ByteBuffer buffer) {
+        buffer.putInt(bits.length);
+        for (long word : bits) {
+            buffer.putLong(word);
+        }
+    }
+    
+    static BloomFilter readFrom(ByteBuffer buffer) {
+        long[] bits = new long[buffer.getInt()];
+        for (int i = 0; i < bits.length; i++) {
+            bits[i] = buffer.getLong();
+        }
+        return new BloomFilter(bits);
+    }
+}
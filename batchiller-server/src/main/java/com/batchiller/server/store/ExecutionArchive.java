@@ -0,0 +1,234 @@
+package com.batchiller.server.store;
+
+import com.batchiller.api.JobExecutionInfo;
+import com.batchiller.server.config.BatchillerConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Cold execution history, kept as compressed {@link ArchiveSegment} files in
+ * {@code archive.directory}. Segment headers stay in memory; a query opens
+ * only the segments whose start time range, and job name Bloom filter when
+ * the query names a job, say they can hold a match.
+ *
+ * @author Siddharth Mishra &lt;mishra.siddharth90@gmail.com&gt;
+ * @version 1.0
+ */
+public class ExecutionArchive {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ExecutionArchive.class);
+    private static final String SEGMENT_PREFIX = "archive-";
+    private static final Comparator<ArchiveSegment> NEWEST_FIRST =
+        Comparator.comparing(ArchiveSegment::getMaxStartTime).reversed();
+    
+    private final Path directory;
+    // Replaced whole under the write lock, so queries iterate a consistent list without locking
+    private volatile List<ArchiveSegment> segments = List.of();
+    private final Object writeLock = new Object();
+    private int nextId;
+    
+    private final AtomicLong queries = new AtomicLong();
+    private final AtomicLong segmentsScanned = new AtomicLong();
+    private final AtomicLong segmentsSkipped = new AtomicLong();
+    private final AtomicLong rowsArchived = new AtomicLong();
+    private final AtomicLong segmentsDeleted = new AtomicLong();
+    
+    public ExecutionArchive(BatchillerConfiguration config) {
+        this.directory = Paths.get(config.getArchiveDirectory());
+        List<ArchiveSegment> opened = new ArrayList<>();
+        try {
+            Files.createDirectories(directory);
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path path : (Iterable<Path>) files::iterator) {
+                    String name = path.getFileName().toString();
+                    if (!name.startsWith(SEGMENT_PREFIX) || !name.endsWith(ArchiveSegment.EXTENSION)) {
+                        continue;
+                    }
+                    nextId = Math.max(nextId, Integer.parseInt(
+                        name.substring(SEGMENT_PREFIX.length(), name.length() - ArchiveSegment.EXTENSION.length())) + 1);
+                    try {
+                        opened.add(ArchiveSegment.open(path));
+                    } catch (IOException e) {
+                        logger.error("Skipping unreadable archive segment: " + path, e);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new ExecutionStoreException("Failed to open execution archive in " + directory, e);
+        }
+        opened.sort(NEWEST_FIRST);
+        segments = List.copyOf(opened);
+        logger.info("Execution archive opened in {} ({} segments, {} executions)",
+            directory, segments.size(), segments.stream().mapToLong(ArchiveSegment::getRowCount).sum());
+    }
+    
+    /**
+     * Writes the executions to a new segment; once this returns they survive a
+     * crash and may be removed from the hot store.
+     */
+    public void append(List<JobExecutionInfo> executions) {
+        if (executions.isEmpty()) {
+            return;
+        }
+        synchronized (writeLock) {
+            Path path = directory.resolve(String.format("%s%06d%s", SEGMENT_PREFIX, nextId, ArchiveSegment.EXTENSION));
+            try {
+                ArchiveSegment segment = ArchiveSegment.write(path, executions);
+                nextId++;
+                List<ArchiveSegment> sorted = new ArrayList<>(segments);
+                sorted.add(segment);
+                sorted.sort(NEWEST_FIRST);
+                segments = List.copyOf(sorted);
+                rowsArchived.addAndGet(executions.size());
+                logger.info("Archived {} executions started {} to {} into {} ({} bytes)", executions.size(),
+                    segment.getMinStartTime(), segment.getMaxStartTime(), path.getFileName(), segment.getSizeBytes());
+            } catch (IOException e) {
+                throw new ExecutionStoreException("Failed to write archive segment " + path, e);
+            }
+        }
+    }
+    
+    /**
+     * Returns up to {@code limit + 1} archived executions matching the query,
+     * newest first, in the order {@link ExecutionPage#of} expects.
+     */
+    public List<JobExecutionInfo> query(ExecutionQuery query) {
+        queries.incrementAndGet();
+        int wanted = query.getLimit() + 1;
+        ExecutionKey cursor = ExecutionKey.cursorOf(query);
+        LocalDateTime to = query.getStartedTo();
+        if (cursor != null && (to == null || cursor.getStartTime().isBefore(to))) {
+            // The cursor row itself is excluded by key; later ones are past the bound
+            to = cursor.getStartTime().plusNanos(1);
+        }
+    
+        List<JobExecutionInfo> found = new ArrayList<>();
+        for (ArchiveSegment segment : segments) {
+            if (found.size() >= wanted
+                    && segment.getMaxStartTime().isBefore(found.get(wanted - 1).getStartTime())) {
+                // Segments are ordered by their newest row, so none of the rest can beat what was found
+                break;
+            }
+            if (!segment.overlaps(query.getStartedFrom(), to)
+                    || query.getJobName() != null && !segment.mightContainJob(query.getJobName())) {
+                segmentsSkipped.incrementAndGet();
+                continue;
+            }
+            segmentsScanned.incrementAndGet();
+            try {
+                found.addAll(segment.query(query, cursor, wanted));
+            } catch (IOException e) {
+                throw new ExecutionStoreException("Failed to read archive segment " + segment.getPath(), e);
+            }
+            found = newestDistinct(found, wanted);
+        }
+        return found;
+    }
+    
+    /**
+     * Sorts newest first, drops repeated execution IDs (an execution archived
+     * twice after a crash between archiving and deleting it) and truncates.
+     */
+    private static List<JobExecutionInfo> newestDistinct(List<JobExecutionInfo> executions, int max) {
+        executions.sort((a, b) -> ExecutionKey.of(b).compareTo(ExecutionKey.of(a)));
+        Set<String> seen = new HashSet<>();
+        List<JobExecutionInfo> distinct = new ArrayList<>(Math.min(max, executions.size()));
+        for (JobExecutionInfo info : executions) {
+            if (distinct.size() == max) {
+                break;
+            }
+            if (seen.add(info.getExecutionId())) {
+                distinct.add(info);
+            }
+        }
+        return distinct;
+    }
+    
+    public JobExecutionInfo get(String executionId) {
+        for (ArchiveSegment segment : segments) {
+            if (!segment.mightContainExecution(executionId)) {
+                continue;
+            }
+            try {
+                JobExecutionInfo info = segment.get(executionId);
+                if (info != null) {
+                    return info;
+                }
+            } catch (IOException e) {
+                throw new ExecutionStoreException("Failed to read archive segment " + segment.getPath(), e);
+            }
+        }
+        return null;
+    }
+    
+    public LocalDateTime getNewestStartTime() {
+        List<ArchiveSegment> segments = this.segments;
+        return segments.isEmpty() ? null : segments.get(0).getMaxStartTime();
+    }
+    
+    /**
+     * Deletes whole segments whose newest execution started before the cutoff.
+     *
+     * @return the number of executions deleted
+     */
+    public long purgeBefore(LocalDateTime cutoff) {
+        long purged = 0;
+        synchronized (writeLock) {
+            List<ArchiveSegment> kept = new ArrayList<>();
+            for (ArchiveSegment segment : segments) {
+                if (!segment.getMaxStartTime().isBefore(cutoff)) {
+                    kept.add(segment);
+                    continue;
+                }
+                try {
+                    segment.delete();
+                    segmentsDeleted.incrementAndGet();
+                    purged += segment.getRowCount();
+                } catch (IOException e) {
+                    logger.error("Failed to delete archive segment: " + segment.getPath(), e);
+                    kept.add(segment);
+                }
+            }
+            segments = List.copyOf(kept);
+        }
+        return purged;
+    }
+    
+    public Map<String, Object> getMetrics() {
+        List<ArchiveSegment> segments = this.segments;
+        long rows = 0;
+        long size = 0;
+        long raw = 0;
+        for (ArchiveSegment segment : segments) {
+            rows += segment.getRowCount();
+            size += segment.getSizeBytes();
+            raw += segment.getRawBytes();
+        }
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("segments", segments.size());
+        metrics.put("executions", rows);
+        metrics.put("size_bytes", size);
+        metrics.put("compression_ratio", size > 0 ? (double) raw / size : 0.0);
+        metrics.put("rows_archived", rowsArchived.get());
+        metrics.put("segments_deleted", segmentsDeleted.get());
+        metrics.put("queries", queries.get());
+        metrics.put("segments_scanned", segmentsScanned.get());
+        metrics.put("segments_skipped", segmentsSkipped.get());
+        return metrics;
+    }
+}
@@ -0,0 +1,161 @@
+package com.batchiller.server.store;
+
+import com.batchiller.api.JobExecutionInfo;
+import com.batchiller.api.JobStatus;
+import com.batchiller.server.config.BatchillerConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A class that periodically moves finished executions older than
+ * {@code archive.after.days} from the hot store into the
+ * {@link ExecutionArchive}, one segment at a time, and deletes archive
+ * segments past {@code archive.retention.days}.
+ *
+ * <p>A segment is written and forced before its rows are deleted from the
+ * hot store, so a crash in between leaves rows in both tiers rather than in
+ * neither; {@link ArchivingExecutionStore} reads past the duplicates.</p>
+ *
+ * @author Siddharth Mishra &lt;mishra.siddharth90@gmail.com&gt;
+ * @version 1.0
+ */
+public class ExecutionArchiver {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ExecutionArchiver.class);
+    
+    private final ExecutionStore hot;
+    private final ExecutionArchive archive;
+    private final int afterDays;
+    private final int segmentMaxRows;
+    private final int intervalMinutes;
+    private final int retentionDays;
+    private final int chunkSize;
+    private final ScheduledExecutorService archiveScheduler;
+    
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong rowsMoved = new AtomicLong();
+    private volatile long lastRunRows;
+    private volatile long lastRunMillis;
+    private volatile LocalDateTime lastRunAt;
+    
+    public ExecutionArchiver(BatchillerConfiguration config, ExecutionStore hot, ExecutionArchive archive) {
+        this.hot = hot;
+        this.archive = archive;
+        this.afterDays = Math.max(1, config.getArchiveAfterDays());
+        this.segmentMaxRows = Math.max(1, config.getArchiveSegmentMaxRows());
+        this.intervalMinutes = Math.max(1, config.getArchiveIntervalMinutes());
+        this.retentionDays = config.getArchiveRetentionDays();
+        this.chunkSize = Math.max(1, config.getRetentionChunkSize());
+        this.archiveScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ExecutionArchiver");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+    
+    public void start() {
+        archiveScheduler.scheduleWithFixedDelay(this::archive, 2, intervalMinutes, TimeUnit.MINUTES);
+        logger.info("Execution archiving started (after {} days, up to {} executions per segment, retention {} days)",
+            afterDays, segmentMaxRows, retentionDays);
+    }
+    
+    /**
+     * Runs one archiving pass. Called from the archive scheduler; safe to call directly.
+     */
+    public synchronized void archive() {
+        long start = System.currentTimeMillis();
+        long moved = 0;
+        try {
+            LocalDateTime cutoff = LocalDateTime.now().minusDays(afterDays);
+            // Keep paging past the archived rows instead of re-querying from the top,
+            // so a lagging read replica cannot hand back rows that were just deleted
+            String cursor = null;
+            do {
+                List<JobExecutionInfo> batch = new ArrayList<>();
+                cursor = collect(cutoff, cursor, batch);
+                if (batch.isEmpty()) {
+                    break;
+                }
+                archive.append(batch);
+                List<String> ids = new ArrayList<>(batch.size());
+                batch.forEach(info -> ids.add(info.getExecutionId()));
+                hot.delete(ids, chunkSize);
+                moved += batch.size();
+            } while (cursor != null);
+    
+            if (retentionDays > 0) {
+                long purged = archive.purgeBefore(LocalDateTime.now().minusDays(retentionDays));
+                if (purged > 0) {
+                    logger.info("Deleted {} archived executions older than {} days", purged, retentionDays);
+                }
+            }
+        } catch (ExecutionStoreException e) {
+            logger.error("Execution archiving failed", e);
+        } finally {
+            runs.incrementAndGet();
+            rowsMoved.addAndGet(moved);
+            lastRunRows = moved;
+            lastRunMillis = System.currentTimeMillis() - start;
+            lastRunAt = LocalDateTime.now();
+        }
+        if (moved > 0) {
+            logger.info("Archived {} executions in {}ms", moved, lastRunMillis);
+        }
+    }
+    
+    /**
+     * Reads up to one segment of finished executions started before the
+     * cutoff, a page at a time, continuing from {@code cursor}.
+     *
+     * @return the cursor to continue from, or null when there are no more
+     */
+    private String collect(LocalDateTime cutoff, String cursor, List<JobExecutionInfo> batch) {
+        do {
+            ExecutionQuery.Builder query = ExecutionQuery.builder()
+                .startedTo(cutoff)
+                .limit(Math.min(ExecutionQuery.MAX_LIMIT, segmentMaxRows - batch.size()))
+                .cursor(cursor);
+            for (JobStatus status : JobStatus.values()) {
+                if (status.isTerminal()) {
+                    query.status(status);
+                }
+            }
+            ExecutionPage page = hot.query(query.build());
+            batch.addAll(page.getExecutions());
+            cursor = page.getNextCursor();
+        } while (cursor != null && batch.size() < segmentMaxRows);
+        return cursor;
+    }
+    
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>(archive.getMetrics());
+        metrics.put("runs", runs.get());
+        metrics.put("rows_moved", rowsMoved.get());
+        metrics.put("rows_moved_last_run", lastRunRows);
+        metrics.put("last_run_ms", lastRunMillis);
+        metrics.put("last_run_at", lastRunAt != null ? lastRunAt.toString() : null);
+        return metrics;
+    }
+    
+    public void shutdown() {
+        archiveScheduler.shutdown();
+        try {
+            if (!archiveScheduler.awaitTermination(5, TimeUnit.SECONDS)) {
+                archiveScheduler.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            archiveScheduler.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.batchiller.server.store;
+
+import com.batchiller.api.JobExecutionInfo;
+import com.batchiller.api.JobStatus;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Binary encoding of {@link JobExecutionInfo} for log segments. Strings are
+ * length-prefixed UTF-8 with -1 for null; times are UTC epoch seconds and nanos.
+ * Fields added later follow the fixed ones and are announced by a bit in the
+ * flags byte, so payloads written before them still decode.
+ *
+ * @author Siddharth Mishra &lt;mishra.siddharth90@gmail.com&gt;
+ * @version 1.0
+ */
+final class ExecutionCodec {
+    
+    private static final int ENDED = 1;
+    private static final int HAS_LOG_LINES_SUPPRESSED = 2;
+    
+    private ExecutionCodec() {
+    }
+    
+    static byte[] encode(JobExecutionInfo info) {
+        return encode(info, null);
+    }
+    
+    /**
+     * Encodes an execution followed by one extra string.
+     */
+    static byte[] encode(JobExecutionInfo info, String trailer) {
+        byte[][] strings = {
+            bytes(info.getExecutionId()), bytes(info.getJobName()), bytes(info.getPipelineName()),
+            bytes(info.getStatus().name()), bytes(info.getThreadName()), bytes(info.getTriggeredBy()),
+            bytes(info.getTriggerType()), bytes(info.getResultMessage()), bytes(info.getErrorMessage()),
+            bytes(trailer)
+        };
+        boolean suppressed = info.getLogLinesSuppressed() != 0;
+        int size = 8 + 4 + 1 + 8 + 4 + 1 + 4 + (suppressed ? 8 : 0);
+        for (byte[] value : strings) {
+            size += 4 + (value != null ? value.length : 0);
+        }
+    
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        for (int i = 0; i < 9; i++) {
+            putString(buffer, strings[i]);
+        }
+        putTime(buffer, info.getStartTime());
+        buffer.put((byte) ((info.getEndTime() != null ? ENDED : 0) | (suppressed ? HAS_LOG_LINES_SUPPRESSED : 0)));
+        putTime(buffer, info.getEndTime() != null ? info.getEndTime() : info.getStartTime());
+        buffer.put((byte) (info.isRetry() ? 1 : 0));
+        buffer.putInt(info.getRetryAttempt());
+        if (suppressed) {
+            buffer.putLong(info.getLogLinesSuppressed());
+        }
+        putString(buffer, strings[9]);
+        return buffer.array();
+    }
+    
+    static JobExecutionInfo decode(byte[] payload) {
+        return decode(ByteBuffer.wrap(payload));
+    }
+    
+    /**
+     * Decodes an execution, leaving the buffer positioned at the trailer.
+     */
+    static JobExecutionInfo decode(ByteBuffer buffer) {
+        String executionId = getString(buffer);
+        String jobName = getString(buffer);
+        JobExecutionInfo.Builder builder = JobExecutionInfo.builder(executionId, jobName)
+            .pipelineName(getString(buffer))
+            .status(JobStatus.valueOf(getString(buffer)))
+            .threadName(getString(buffer))
+            .triggeredBy(getString(buffer))
+            .triggerType(getString(buffer))
+            .resultMessage(getString(buffer))
+            .errorMessage(getString(buffer))
+            .startTime(getTime(buffer));
+        int flags = buffer.get();
+        LocalDateTime endTime = getTime(buffer);
+        builder.endTime((flags & ENDED) != 0 ? endTime : null)
+            .isRetry(buffer.get() == 1)
+            .retryAttempt(buffer.getInt());
+        if ((flags & HAS_LOG_LINES_SUPPRESSED) != 0) {
+            builder.logLinesSuppressed(buffer.getLong());
+        }
+        return builder.build();
+    }
+    
+    static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+    
+    private static byte[] bytes(String value) {
+        return value != null ? value.getBytes(StandardCharsets.UTF_8) : null;
+    }
+    
+    private static void putString(ByteBuffer buffer, byte[] value) {
+        buffer.putInt(value != null ? value.length : -1);
+        if (value != null) {
+            buffer.put(value);
+        }
+    }
+    
+    private static void putTime(ByteBuffer buffer, LocalDateTime time) {
+        buffer.putLong(time.toEpochSecond(ZoneOffset.UTC));
+        buffer.putInt(time.getNano());
+    }
+    
+    private static LocalDateTime getTime(ByteBuffer buffer) {
+        return LocalDateTime.ofEpochSecond(buffer.getLong(), buffer.getInt(), ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,337 @@
+package com.batchiller.server.store;
+
+import com.batchiller.api.JobExecutionInfo;
+import com.batchiller.server.config.BatchillerConfiguration;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An append-only journal of execution state transitions, written to
+ * memory-mapped {@link LogSegment}s ahead of the write-behind execution store,
+ * which becomes a projection of it. Appends only touch the mapped pages, so
+ * they survive a JVM crash as soon as they return; the pages are forced to
+ * disk in the background every {@code journal.fsync.interval.ms} to also
+ * survive an OS crash.
+ *
+ * <p>Every append is {@linkplain #release released} once the store has written
+ * that state, and a segment is deleted once all of its appends are released,
+ * so after a crash only the unprojected tail is left to replay. A clean close
+ * with nothing outstanding deletes the journal entirely.</p>
+ *
+ * @author Siddharth Mishra &lt;mishra.siddharth90@gmail.com&gt;
+ * @version 1.0
+ */
+public class ExecutionJournal {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ExecutionJournal.class);
+    private static final String SEGMENT_PREFIX = "journal";
+    private static final byte TYPE_TRANSITION = 1;
+    
+    /**
+     * What to do on startup with executions the journal last saw queued or running.
+     */
+    public enum RecoveryPolicy {
+        FAIL,
+        REQUEUE_QUEUED,
+        REQUEUE;
+    
+        public static RecoveryPolicy forName(String name) {
+            return switch (name.trim().toLowerCase()) {
+                case "fail" -> FAIL;
+                case "requeue-queued" -> REQUEUE_QUEUED;
+                case "requeue" -> REQUEUE;
+                default -> throw new IllegalArgumentException("Unknown journal recovery policy: " + name);
+            };
+        }
+    }
+    
+    private final Path directory;
+    private final int segmentSize;
+    private final RecoveryPolicy recoveryPolicy;
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private final NavigableMap<Integer, LogSegment> segments = new TreeMap<>();
+    private final List<LogSegment> replayedSegments = new ArrayList<>();
+    private final Map<String, Entry> replayed = new LinkedHashMap<>();
+    private final Object lock = new Object();
+    private final ScheduledExecutorService syncer;
+    private LogSegment active;
+    private volatile boolean dirty;
+    
+    private final AtomicLong appends = new AtomicLong();
+    private final AtomicLong syncs = new AtomicLong();
+    private final AtomicLong segmentsDeleted = new AtomicLong();
+    private long replayedRecords;
+    private long replayMillis;
+    private long corruptSegments;
+    
+    public ExecutionJournal(BatchillerConfiguration config) {
+        this.directory = Paths.get(config.getJournalDirectory());
+        this.segmentSize = Math.max(1, config.getJournalSegmentSizeMb()) * 1024 * 1024;
+        this.recoveryPolicy = RecoveryPolicy.forName(config.getJournalRecoveryPolicy());
+        try {
+            Files.createDirectories(directory);
+            int nextId = replay();
+            active = openSegment(nextId);
+        } catch (IOException e) {
+            throw new ExecutionStoreException("Failed to open execution journal in " + directory, e);
+        }
+    
+        long intervalMillis = Math.max(1, config.getJournalFsyncIntervalMillis());
+        this.syncer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "batchiller-journal");
+            t.setDaemon(true);
+            return t;
+        });
+        this.syncer.scheduleWithFixedDelay(this::sync, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        logger.info("Execution journal opened in {} (replayed {} records of {} executions in {}ms, fsync every {}ms)",
+            directory, replayedRecords, replayed.size(), replayMillis, intervalMillis);
+    }
+    
+    private int replay() throws IOException {
+        long start = System.currentTimeMillis();
+        int nextId = 0;
+        for (int id : LogSegment.list(directory, SEGMENT_PREFIX)) {
+            LogSegment segment = LogSegment.open(directory, SEGMENT_PREFIX, id, segmentSize);
+            boolean intact = segment.replay((type, payload, position) -> {
+                if (type == TYPE_TRANSITION) {
+                    ByteBuffer buffer = ByteBuffer.wrap(payload);
+                    JobExecutionInfo info = ExecutionCodec.decode(buffer);
+                    Map<String, Object> parameters = readParameters(ExecutionCodec.getString(buffer));
+                    Entry previous = replayed.remove(info.getExecutionId());
+                    if (parameters == null && previous != null) {
+                        parameters = previous.parameters;
+                    }
+                    replayed.put(info.getExecutionId(), new Entry(info, parameters));
+                    replayedRecords++;
+                }
+            });
+            if (!intact) {
+                corruptSegments++;
+                logger.warn("Execution journal segment {} has a damaged record at offset {}; ignoring the rest of it",
+                    id, segment.getWritePosition());
+            }
+            replayedSegments.add(segment);
+            nextId = id + 1;
+        }
+        replayMillis = System.currentTimeMillis() - start;
+        return nextId;
+    }
+    
+    private LogSegment openSegment(int id) throws IOException {
+        LogSegment segment = LogSegment.open(directory, SEGMENT_PREFIX, id, segmentSize);
+        segments.put(id, segment);
+        return segment;
+    }
+    
+    /**
+     * Appends a state transition. The parameters are only needed to requeue an
+     * execution, so callers pass them with the first transition and null after.
+     *
+     * @return a mark to {@linkplain #release release} once the store has written the state
+     */
+    public Mark append(JobExecutionInfo info, Map<String, Object> parameters) {
+        byte[] payload = ExecutionCodec.encode(info, writeParameters(info.getExecutionId(), parameters));
+        synchronized (lock) {
+            try {
+                if (!active.fits(payload.length)) {
+                    if (LogSegment.HEADER_SIZE + payload.length > segmentSize) {
+                        throw new IOException("Record of " + payload.length + " bytes does not fit a "
+                            + segmentSize + " byte segment");
+                    }
+                    active.force();
+                    active = openSegment(active.getId() + 1);
+                }
+                active.append(TYPE_TRANSITION, payload);
+            } catch (IOException e) {
+                throw new ExecutionStoreException("Failed to append to execution journal in " + directory, e);
+            }
+            active.retain();
+            appends.incrementAndGet();
+            dirty = true;
+            return new Mark(active);
+        }
+    }
+    
+    /**
+     * Releases an append once the store has written its state. An append whose
+     * state the store failed to write must stay unreleased, so that its segment
+     * is kept and the state is replayed after a crash.
+     */
+    public void release(Mark mark) {
+        synchronized (lock) {
+            mark.segment.release();
+            Iterator<LogSegment> it = segments.values().iterator();
+            while (it.hasNext()) {
+                LogSegment segment = it.next();
+                if (segment == active || segment.getLive() > 0) {
+                    break;
+                }
+                delete(segment);
+                it.remove();
+            }
+        }
+    }
+    
+    private void sync() {
+        if (!dirty) {
+            return;
+        }
+        dirty = false;
+        LogSegment segment;
+        synchronized (lock) {
+            segment = active;
+        }
+        segment.force();
+        syncs.incrementAndGet();
+    }
+    
+    /**
+     * Returns the latest state of every execution found in the journal at
+     * startup, in the order they were last written.
+     */
+    public Collection<Entry> getReplayed() {
+        return replayed.values();
+    }
+    
+    public RecoveryPolicy getRecoveryPolicy() {
+        return recoveryPolicy;
+    }
+    
+    /**
+     * Deletes the segments replayed at startup, once the store reflects them.
+     */
+    public void discardReplayed() {
+        synchronized (lock) {
+            replayedSegments.forEach(this::delete);
+            replayedSegments.clear();
+            replayed.clear();
+        }
+    }
+    
+    private void delete(LogSegment segment) {
+        try {
+            segment.delete();
+            segmentsDeleted.incrementAndGet();
+        } catch (IOException e) {
+            logger.error("Failed to delete execution journal segment: " + segment.getPath(), e);
+        }
+    }
+    
+    private String writeParameters(String executionId, Map<String, Object> parameters) {
+        if (parameters == null) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(parameters);
+        } catch (JsonProcessingException e) {
+            logger.warn("Parameters of execution {} are not serializable; it cannot be requeued after a crash: {}",
+                executionId, e.getMessage());
+            return null;
+        }
+    }
+    
+    private Map<String, Object> readParameters(String json) {
+        if (json == null) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(json, new TypeReference<Map<String, Object>>() {});
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+    
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("appends", appends.get());
+        metrics.put("syncs", syncs.get());
+        metrics.put("segments_deleted", segmentsDeleted.get());
+        metrics.put("replayed_records", replayedRecords);
+        metrics.put("replay_ms", replayMillis);
+        metrics.put("corrupt_segments", corruptSegments);
+        synchronized (lock) {
+            metrics.put("segments", segments.size() + replayedSegments.size());
+            metrics.put("outstanding", segments.values().stream().mapToInt(LogSegment::getLive).sum());
+        }
+        return metrics;
+    }
+    
+    /**
+     * Forces the journal to disk; with nothing outstanding the store is
+     * complete, so the journal is deleted.
+     */
+    public void close() {
+        syncer.shutdown();
+        synchronized (lock) {
+            boolean projected = replayedSegments.isEmpty()
+                && segments.values().stream().allMatch(segment -> segment.getLive() == 0);
+            for (LogSegment segment : segments.values()) {
+                if (projected) {
+                    delete(segment);
+                } else {
+                    try {
+                        segment.close();
+                    } catch (IOException e) {
+                        logger.error("Failed to close execution journal segment: " + segment.getPath(), e);
+                    }
+                }
+            }
+            segments.clear();
+        }
+    }
+    
+    /**
+     * The position of an append, held until the store has written it.
+     */
+    public static final class Mark {
+        private final LogSegment segment;
+    
+        private Mark(LogSegment segment) {
+            this.segment = segment;
+        }
+    }
+    
+    /**
+     * The latest journaled state of an execution and the parameters it was queued with.
+     */
+    public static final class Entry {
+        private final JobExecutionInfo info;
+        private final Map<String, Object> parameters;
+    
+        private Entry(JobExecutionInfo info, Map<String, Object> parameters) {
+            this.info = info;
+            this.parameters = parameters;
+        }
+    
+        public JobExecutionInfo getInfo() {
+            return info;
+        }
+    
+        public Map<String, Object> getParameters() {
+            return parameters;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.batchiller.server.store;
+
+import com.batchiller.api.JobExecutionInfo;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * The ordering key of an execution, {@code (startTime, executionId)}, matching
+ * the keyset order used by {@link ExecutionQuery} cursors.
+ *
+ * @author Siddharth Mishra &lt;mishra.siddharth90@gmail.com&gt;
+ * @version 1.0
+ */
+final class ExecutionKey implements Comparable<ExecutionKey> {
+    
+    private final LocalDateTime startTime;
+    private final String executionId;
+    
+    ExecutionKey(LocalDateTime startTime, String executionId) {
+        this.startTime = startTime;
+        this.executionId = executionId;
+    }
+    
+    static ExecutionKey of(JobExecutionInfo info) {
+        return new ExecutionKey(info.getStartTime(), info.getExecutionId());
+    }
+    
+    /**
+     * Returns the key a query resumes below, or null for the first page.
+     */
+    static ExecutionKey cursorOf(ExecutionQuery query) {
+        return query.hasCursor() ? new ExecutionKey(query.getCursorStartTime(), query.getCursorExecutionId()) : null;
+    }
+    
+    LocalDateTime getStartTime() {
+        return startTime;
+    }
+    
+    String getExecutionId() {
+        return executionId;
+    }
+    
+    @Override
+    public int compareTo(ExecutionKey other) {
+        int byTime = startTime.compareTo(other.startTime);
+        return byTime != 0 ? byTime : executionId.compareTo(other.executionId);
+    }
+    
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ExecutionKey)) {
+            return false;
+        }
+        ExecutionKey other = (ExecutionKey) o;
+        return startTime.equals(other.startTime) && executionId.equals(other.executionId);
+    }
+    
+    @Override
+    public int hashCode() {
+        return Objects.hash(startTime, executionId);
+    }
+}
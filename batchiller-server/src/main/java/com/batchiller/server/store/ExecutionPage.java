@@ -0,0 +1,47 @@
+package com.batchiller.server.store;
+
+import com.batchiller.api.JobExecutionInfo;
+
+import java.util.List;
+
+/**
+ * A page of execution history and the cursor of the next page, which is null
+ * on the last page.
+ *
+ * @author Siddharth Mishra &lt;mishra.siddharth90@gmail.com&gt;
+ * @version 1.0
+ */
+public class ExecutionPage {
+    
+    private final List<JobExecutionInfo> executions;
+    private final String nextCursor;
+    
+    public ExecutionPage(List<JobExecutionInfo> executions, String nextCursor) {
+        this.executions = executions;
+        this.nextCursor = nextCursor;
+    }
+    
+    /**
+     * Builds a page from up to {@code limit + 1} rows fetched in query order;
+     * the extra row, if present, only signals that a next page exists.
+     */
+    public static ExecutionPage of(List<JobExecutionInfo> rows, int limit) {
+        if (rows.size() <= limit) {
+            return new ExecutionPage(rows, null);
+        }
+        List<JobExecutionInfo> executions = new java.util.ArrayList<>(rows.subList(0, limit));
+        return new ExecutionPage(executions, ExecutionQuery.encodeCursor(executions.get(limit - 1)));
+    }
+    
+    public List<JobExecutionInfo> getExecutions() {
+        return executions;
+    }
+    
+    public String getNextCursor() {
+        return nextCursor;
+    }
+    
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
@@ -0,0 +1,236 @@
+package com.batchiller.server.store;
+
+import com.batchiller.api.JobExecutionInfo;
+import com.batchiller.api.JobStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * A filtered, keyset-paginated query over execution history. Results are
+ * ordered newest first by {@code (start_time, execution_id)}; the cursor of a
+ * page is the key of its last row, so fetching a deep page costs the same as
+ * fetching the first one.
+ *
+ * @author Siddharth Mishra &lt;mishra.siddharth90@gmail.com&gt;
+ * @version 1.0
+ */
+public class ExecutionQuery {
+    
+    public static final int MAX_LIMIT = 1000;
+    
+    private final String jobName;
+    private final String pipelineName;
+    private final Set<JobStatus> statuses;
+    private final String triggerType;
+    private final LocalDateTime startedFrom;
+    private final LocalDateTime startedTo;
+    private final Long minDurationMillis;
+    private final Long maxDurationMillis;
+    private final int limit;
+    private final LocalDateTime cursorStartTime;
+    private final String cursorExecutionId;
+    
+    private ExecutionQuery(Builder builder) {
+        this.jobName = builder.jobName;
+        this.pipelineName = builder.pipelineName;
+        this.statuses = builder.statuses.isEmpty() ? Set.of() : EnumSet.copyOf(builder.statuses);
+        this.triggerType = builder.triggerType;
+        this.startedFrom = builder.startedFrom;
+        this.startedTo = builder.startedTo;
+        this.minDurationMillis = builder.minDurationMillis;
+        this.maxDurationMillis = builder.maxDurationMillis;
+        this.limit = Math.max(1, Math.min(builder.limit, MAX_LIMIT));
+        this.cursorStartTime = builder.cursorStartTime;
+        this.cursorExecutionId = builder.cursorExecutionId;
+    }
+    
+    public static Builder builder() {
+        return new Builder();
+    }
+    
+    public String getJobName() {
+        return jobName;
+    }
+    
+    public String getPipelineName() {
+        return pipelineName;
+    }
+    
+    public Set<JobStatus> getStatuses() {
+        return statuses;
+    }
+    
+    public String getTriggerType() {
+        return triggerType;
+    }
+    
+    public LocalDateTime getStartedFrom() {
+        return startedFrom;
+    }
+    
+    public LocalDateTime getStartedTo() {
+        return startedTo;
+    }
+    
+    public Long getMinDurationMillis() {
+        return minDurationMillis;
+    }
+    
+    public Long getMaxDurationMillis() {
+        return maxDurationMillis;
+    }
+    
+    public int getLimit() {
+        return limit;
+    }
+    
+    public LocalDateTime getCursorStartTime() {
+        return cursorStartTime;
+    }
+    
+    public String getCursorExecutionId() {
+        return cursorExecutionId;
+    }
+    
+    public boolean hasCursor() {
+        return cursorStartTime != null;
+    }
+    
+    /**
+     * Tests an execution against the filters of this query; the cursor is not considered.
+     * Stores that cannot push the filters down to an index use this.
+     */
+    public boolean matches(JobExecutionInfo info) {
+        if (jobName != null && !jobName.equals(info.getJobName())) {
+            return false;
+        }
+        if (pipelineName != null && !pipelineName.equals(info.getPipelineName())) {
+            return false;
+        }
+        if (!statuses.isEmpty() && !statuses.contains(info.getStatus())) {
+            return false;
+        }
+        if (triggerType != null && !triggerType.equals(info.getTriggerType())) {
+            return false;
+        }
+        if (startedFrom != null && info.getStartTime().isBefore(startedFrom)) {
+            return false;
+        }
+        if (startedTo != null && !info.getStartTime().isBefore(startedTo)) {
+            return false;
+        }
+        long duration = info.getDurationMillis();
+        if (minDurationMillis != null && duration < minDurationMillis) {
+            return false;
+        }
+        return maxDurationMillis == null || duration <= maxDurationMillis;
+    }
+    
+    /**
+     * Encodes the key of an execution as an opaque cursor pointing just past it.
+     */
+    public static String encodeCursor(JobExecutionInfo last) {
+        String key = last.getStartTime() + "|" + last.getExecutionId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    public static final class Builder {
+        private String jobName;
+        private String pipelineName;
+        private final Set<JobStatus> statuses = EnumSet.noneOf(JobStatus.class);
+        private String triggerType;
+        private LocalDateTime startedFrom;
+        private LocalDateTime startedTo;
+        private Long minDurationMillis;
+        private Long maxDurationMillis;
+        private int limit = 100;
+        private LocalDateTime cursorStartTime;
+        private String cursorExecutionId;
+    
+        private Builder() {
+        }
+    
+        public Builder jobName(String jobName) {
+            this.jobName = jobName;
+            return this;
+        }
+    
+        public Builder pipelineName(String pipelineName) {
+            this.pipelineName = pipelineName;
+            return this;
+        }
+    
+        public Builder status(JobStatus status) {
+            this.statuses.add(status);
+            return this;
+        }
+    
+        public Builder triggerType(String triggerType) {
+            this.triggerType = triggerType;
+            return this;
+        }
+    
+        /**
+         * Only executions started at or after this time.
+         */
+        public Builder startedFrom(LocalDateTime startedFrom) {
+            this.startedFrom = startedFrom;
+            return this;
+        }
+    
+        /**
+         * Only executions started before this time.
+         */
+        public Builder startedTo(LocalDateTime startedTo) {
+            this.startedTo = startedTo;
+            return this;
+        }
+    
+        public Builder minDurationMillis(Long minDurationMillis) {
+            this.minDurationMillis = minDurationMillis;
+            return this;
+        }
+    
+        public Builder maxDurationMillis(Long maxDurationMillis) {
+            this.maxDurationMillis = maxDurationMillis;
+            return this;
+        }
+    
+        public Builder limit(int limit) {
+            this.limit = limit;
+            return this;
+        }
+    
+        /**
+         * Continues after the page that returned this cursor.
+         *
+         * @throws IllegalArgumentException if the cursor is malformed
+         */
+        public Builder cursor(String cursor) {
+            if (cursor == null || cursor.isBlank()) {
+                return this;
+            }
+            try {
+                String key = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = key.indexOf('|');
+                if (separator < 0) {
+                    throw new IllegalArgumentException("Invalid cursor: " + cursor);
+                }
+                this.cursorStartTime = LocalDateTime.parse(key.substring(0, separator));
+                this.cursorExecutionId = key.substring(separator + 1);
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+            }
+            return this;
+        }
+    
+        public ExecutionQuery build() {
+            return new ExecutionQuery(this);
+        }
+    }
+}
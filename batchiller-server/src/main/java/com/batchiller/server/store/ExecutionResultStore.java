@@ -0,0 +1,174 @@
+package com.batchiller.server.store;
+
+import com.batchiller.server.config.BatchillerConfiguration;
+import com.batchiller.server.database.DatabaseManager;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Persists {@code JobResult.getData()} in the {@code execution_results} table,
+ * apart from {@code job_executions} so that history queries never read it.
+ * Data is stored as JSON, gzipped above {@code result.compress.threshold.bytes};
+ * encoded data larger than {@code result.inline.max.bytes} is spilled to a file,
+ * and data larger than {@code result.max.bytes} is not kept at all.
+ *
+ * @author Siddharth Mishra &lt;mishra.siddharth90@gmail.com&gt;
+ * @version 1.0
+ */
+public class ExecutionResultStore {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ExecutionResultStore.class);
+    static final String JSON = "json";
+    static final String JSON_GZIP = "json+gzip";
+    static final String DROPPED = "dropped";
+    
+    private final DatabaseManager databaseManager;
+    private final ObjectMapper objectMapper;
+    private final int compressThreshold;
+    private final int inlineMaxBytes;
+    private final int maxBytes;
+    private final Path spillDirectory;
+    
+    private final AtomicLong saved = new AtomicLong();
+    private final AtomicLong spilled = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong rawBytes = new AtomicLong();
+    private final AtomicLong storedBytes = new AtomicLong();
+    
+    public ExecutionResultStore(BatchillerConfiguration config, DatabaseManager databaseManager) {
+        this.databaseManager = databaseManager;
+        this.objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        this.objectMapper.configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false);
+        this.compressThreshold = config.getResultCompressThresholdBytes();
+        this.inlineMaxBytes = config.getResultInlineMaxBytes();
+        this.maxBytes = config.getResultMaxBytes();
+        this.spillDirectory = Paths.get(config.getResultSpillDirectory());
+    }
+    
+    /**
+     * Saves the result data of an execution; empty data is not stored. Failures
+     * are logged, never thrown, so they cannot fail the execution.
+     */
+    public void save(String executionId, Map<String, Object> data) {
+        if (data == null || data.isEmpty()) {
+            return;
+        }
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(data);
+            if (json.length > maxBytes) {
+                dropped.incrementAndGet();
+                logger.warn("Result data of execution {} is {} bytes, over result.max.bytes; not storing it",
+                    executionId, json.length);
+                databaseManager.saveExecutionResult(new StoredResult(executionId, DROPPED, json.length, null, null,
+                    LocalDateTime.now()));
+                return;
+            }
+    
+            String encoding = JSON;
+            byte[] encoded = json;
+            if (json.length > compressThreshold) {
+                encoded = gzip(json);
+                encoding = JSON_GZIP;
+            }
+            String spillPath = null;
+            if (encoded.length > inlineMaxBytes) {
+                Files.createDirectories(spillDirectory);
+                Path file = spillDirectory.resolve(executionId + (encoding.equals(JSON_GZIP) ? ".json.gz" : ".json"));
+                Files.write(file, encoded);
+                spillPath = file.toString();
+                spilled.incrementAndGet();
+            }
+            databaseManager.saveExecutionResult(new StoredResult(executionId, encoding, json.length,
+                spillPath == null ? encoded : null, spillPath, LocalDateTime.now()));
+            saved.incrementAndGet();
+            rawBytes.addAndGet(json.length);
+            storedBytes.addAndGet(encoded.length);
+        } catch (JsonProcessingException e) {
+            logger.warn("Result data of execution {} is not serializable; not storing it: {}", executionId, e.getMessage());
+        } catch (IOException e) {
+            logger.error("Failed to store result data of execution: " + executionId, e);
+        }
+    }
+    
+    /**
+     * Returns the stored row of an execution's result, with the data not yet read, or null.
+     */
+    public StoredResult find(String executionId) {
+        return databaseManager.getExecutionResult(executionId);
+    }
+    
+    /**
+     * Reads the data of a stored result as JSON, from the row or its spill file.
+     */
+    public byte[] readJson(StoredResult result) throws IOException {
+        byte[] encoded = result.getSpillPath() != null
+            ? Files.readAllBytes(Paths.get(result.getSpillPath()))
+            : result.getData();
+        if (!JSON_GZIP.equals(result.getEncoding())) {
+            return encoded;
+        }
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(encoded))) {
+            return in.readAllBytes();
+        }
+    }
+    
+    /**
+     * Deletes results created before the cutoff and spill files last written before it.
+     */
+    public long purgeBefore(LocalDateTime cutoff, int chunkSize) {
+        long purged = databaseManager.purgeExecutionResultsBefore(cutoff, chunkSize);
+        if (Files.isDirectory(spillDirectory)) {
+            long cutoffMillis = cutoff.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            try (Stream<Path> files = Files.list(spillDirectory)) {
+                files.filter(file -> file.toFile().lastModified() < cutoffMillis).forEach(file -> {
+                    try {
+                        Files.deleteIfExists(file);
+                    } catch (IOException e) {
+                        logger.error("Failed to delete result spill file: " + file, e);
+                    }
+                });
+            } catch (IOException e) {
+                logger.error("Failed to list result spill directory: " + spillDirectory, e);
+            }
+        }
+        return purged;
+    }
+    
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(data);
+        }
+        return out.toByteArray();
+    }
+    
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("saved", saved.get());
+        metrics.put("spilled", spilled.get());
+        metrics.put("dropped", dropped.get());
+        metrics.put("raw_bytes", rawBytes.get());
+        metrics.put("stored_bytes", storedBytes.get());
+        return metrics;
+    }
+}
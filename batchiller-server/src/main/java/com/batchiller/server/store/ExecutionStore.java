@@ -0,0 +1,92 @@
+package com.batchiller.server.store;
+
+import com.batchiller.api.JobExecutionInfo;
+import com.batchiller.server.config.BatchillerConfiguration;
+import com.batchiller.server.database.DatabaseManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stores execution history. Implementations must be safe to call concurrently;
+ * writes for one execution arrive in order from a single thread at a time.
+ * Failures are reported as {@link ExecutionStoreException}.
+ *
+ * @author Siddharth Mishra &lt;mishra.siddharth90@gmail.com&gt;
+ * @version 1.0
+ */
+public interface ExecutionStore {
+    
+    void save(JobExecutionInfo info);
+    
+    /**
+     * Replaces the stored state of an execution, storing it if it is missing.
+     */
+    void update(JobExecutionInfo info);
+    
+    /**
+     * Writes a group of inserts and updates, atomically where the store supports it.
+     */
+    default void writeBatch(List<JobExecutionInfo> inserts, List<JobExecutionInfo> updates) {
+        inserts.forEach(this::save);
+        updates.forEach(this::update);
+    }
+    
+    /**
+     * Returns an execution, or null if it is not stored. A failed read throws,
+     * so null always means the store has no row for it.
+     */
+    JobExecutionInfo get(String executionId);
+    
+    ExecutionPage query(ExecutionQuery query);
+    
+    /**
+     * Removes executions started before the cutoff.
+     *
+     * @return the number of executions removed
+     */
+    long purgeBefore(LocalDateTime cutoff, int chunkSize);
+    
+    /**
+     * Removes all but the newest {@code maxPerJob} executions of every job.
+     *
+     * @return the number of executions removed
+     */
+    long purgeBeyond(int maxPerJob, int chunkSize);
+    
+    /**
+     * Removes the given executions; IDs that are not stored are ignored.
+     *
+     * @return the number of executions removed
+     */
+    long delete(List<String> executionIds, int chunkSize);
+    
+    /**
+     * Returns the start time of the oldest stored execution, or null if there is none.
+     */
+    LocalDateTime getOldestStartTime();
+    
+    default Map<String, Object> getMetrics() {
+        return Map.of();
+    }
+    
+    void close();
+    
+    /**
+     * Creates the store configured by {@code execution.store.type}: {@code jdbc}
+     * (the default), {@code memory} or {@code log}.
+     */
+    static ExecutionStore forType(String type, BatchillerConfiguration config, DatabaseManager databaseManager) {
+        if (type == null || type.isBlank() || "jdbc".equalsIgnoreCase(type)) {
+            return new JdbcExecutionStore(databaseManager);
+        }
+        if ("memory".equalsIgnoreCase(type)) {
+            return new MemoryExecutionStore(config.getExecutionStoreMemoryCapacity());
+        }
+        if ("log".equalsIgnoreCase(type)) {
+            return new SegmentLogExecutionStore(config);
+        }
+        throw new IllegalArgumentException("Unknown execution store type: " + type);
+    }
+}
@@ -0,0 +1,14 @@
+package com.batchiller.server.store;
+
+/**
+ * Thrown when an {@link ExecutionStore} cannot complete an operation.
+ *
+ * @author Siddharth Mishra &lt;mishra.siddharth90@gmail.com&gt;
+ * @version 1.0
+ */
+public class ExecutionStoreException extends RuntimeException {
+    
+    public ExecutionStoreException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,115 @@
+package com.batchiller.server.store;
+
+import com.batchiller.api.JobExecutionInfo;
+import com.batchiller.server.database.DatabaseManager;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An execution store backed by the {@code job_executions} table.
+ *
+ * @author Siddharth Mishra &lt;mishra.siddharth90@gmail.com&gt;
+ * @version 1.0
+ */
+public class JdbcExecutionStore implements ExecutionStore {
+    
+    private final DatabaseManager databaseManager;
+    
+    public JdbcExecutionStore(DatabaseManager databaseManager) {
+        this.databaseManager = databaseManager;
+    }
+    
+    @Override
+    public void save(JobExecutionInfo info) {
+        try {
+            databaseManager.saveJobExecution(info);
+        } catch (SQLException e) {
+            throw new ExecutionStoreException("Failed to save execution " + info.getExecutionId(), e);
+        }
+    }
+    
+    @Override
+    public void update(JobExecutionInfo info) {
+        try {
+            databaseManager.updateJobExecution(info);
+        } catch (SQLException e) {
+            throw new ExecutionStoreException("Failed to update execution " + info.getExecutionId(), e);
+        }
+    }
+    
+    @Override
+    public void writeBatch(List<JobExecutionInfo> inserts, List<JobExecutionInfo> updates) {
+        try {
+            databaseManager.writeJobExecutions(inserts, updates);
+        } catch (SQLException e) {
+            throw new ExecutionStoreException("Batched write of " + (inserts.size() + updates.size()) + " executions failed", e);
+        }
+    }
+    
+    @Override
+    public JobExecutionInfo get(String executionId) {
+        try {
+            return databaseManager.getExecution(executionId);
+        } catch (SQLException e) {
+            throw new ExecutionStoreException("Failed to read execution " + executionId, e);
+        }
+    }
+    
+    @Override
+    public ExecutionPage query(ExecutionQuery query) {
+        try {
+            return databaseManager.queryExecutions(query);
+        } catch (SQLException e) {
+            throw new ExecutionStoreException("Failed to query executions", e);
+        }
+    }
+    
+    @Override
+    public long purgeBefore(LocalDateTime cutoff, int chunkSize) {
+        try {
+            return databaseManager.purgeExecutionsBefore(cutoff, chunkSize);
+        } catch (SQLException e) {
+            throw new ExecutionStoreException("Failed to purge executions before " + cutoff, e);
+        }
+    }
+    
+    @Override
+    public long purgeBeyond(int maxPerJob, int chunkSize) {
+        try {
+            return databaseManager.purgeExecutionsBeyond(maxPerJob, chunkSize);
+        } catch (SQLException e) {
+            throw new ExecutionStoreException("Failed to purge executions beyond " + maxPerJob + " per job", e);
+        }
+    }
+    
+    @Override
+    public long delete(List<String> executionIds, int chunkSize) {
+        try {
+            return databaseManager.deleteExecutions(executionIds, chunkSize);
+        } catch (SQLException e) {
+            throw new ExecutionStoreException("Failed to delete " + executionIds.size() + " executions", e);
+        }
+    }
+    
+    @Override
+    public LocalDateTime getOldestStartTime() {
+        try {
+            return databaseManager.getOldestExecutionStartTime();
+        } catch (SQLException e) {
+            throw new ExecutionStoreException("Failed to read the oldest execution", e);
+        }
+    }
+    
+    @Override
+    public Map<String, Object> getMetrics() {
+        return Map.of("type", "jdbc");
+    }
+    
+    @Override
+    public void close() {
+        // The database outlives the store; BatchillerApplication closes it
+    }
+}
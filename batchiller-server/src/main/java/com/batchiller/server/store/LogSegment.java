@@ -0,0 +1,173 @@
+package com.batchiller.server.store;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * A preallocated, memory-mapped file of checksummed records, shared by the
+ * segment-log execution store and the execution journal.
+ *
+ * <p>Each record is {@code [int length][int crc32][byte type][payload]}, with
+ * the checksum covering the type and payload. The file is zero-filled, so a
+ * zero length marks the end of the written data. Appends are not thread-safe;
+ * owners serialize them. Reads of records that were fully appended before the
+ * reader learned their position are safe from any thread.</p>
+ *
+ * @author Siddharth Mishra &lt;mishra.siddharth90@gmail.com&gt;
+ * @version 1.0
+ */
+final class LogSegment {
+    
+    static final int HEADER_SIZE = 9;
+    
+    private final int id;
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private int writePosition;
+    private int live;
+    
+    private LogSegment(int id, Path path, FileChannel channel, MappedByteBuffer buffer) {
+        this.id = id;
+        this.path = path;
+        this.channel = channel;
+        this.buffer = buffer;
+    }
+    
+    static LogSegment open(Path directory, String prefix, int id, int size) throws IOException {
+        Path path = directory.resolve(String.format("%s-%06d.log", prefix, id));
+        FileChannel channel = FileChannel.open(path,
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        return new LogSegment(id, path, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+    }
+    
+    /**
+     * Returns the IDs of the segments in a directory, oldest first.
+     */
+    static List<Integer> list(Path directory, String prefix) throws IOException {
+        List<Integer> ids = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(path -> path.getFileName().toString())
+                .filter(name -> name.startsWith(prefix + "-") && name.endsWith(".log"))
+                .forEach(name -> ids.add(Integer.parseInt(name.substring(prefix.length() + 1, name.length() - 4))));
+        }
+        ids.sort(null);
+        return ids;
+    }
+    
+    /**
+     * Scans the segment from the start and positions the writer after the last
+     * intact record.
+     *
+     * @return false if the scan stopped at a damaged record
+     */
+    boolean replay(RecordHandler handler) {
+        int position = 0;
+        boolean intact = true;
+        while (position + HEADER_SIZE <= buffer.capacity()) {
+            int length = buffer.getInt(position);
+            if (length == 0) {
+                break;
+            }
+            if (length < 0 || position + HEADER_SIZE + length > buffer.capacity()
+                    || buffer.getInt(position + 4) != checksum(position + 8, length + 1)) {
+                intact = false;
+                break;
+            }
+            handler.accept(buffer.get(position + 8), read(position), position);
+            position += HEADER_SIZE + length;
+        }
+        writePosition = position;
+        return intact;
+    }
+    
+    boolean fits(int payloadLength) {
+        return writePosition + HEADER_SIZE + payloadLength <= buffer.capacity();
+    }
+    
+    /**
+     * Appends a record; the caller checks {@link #fits} first.
+     *
+     * @return the position of the record
+     */
+    int append(byte type, byte[] payload) {
+        int position = writePosition;
+        buffer.put(position + HEADER_SIZE, payload);
+        buffer.put(position + 8, type);
+        buffer.putInt(position + 4, checksum(position + 8, payload.length + 1));
+        // The length goes last so a reader never sees a record whose body is not yet written
+        buffer.putInt(position, payload.length);
+        writePosition = position + HEADER_SIZE + payload.length;
+        return position;
+    }
+    
+    byte[] read(int position) {
+        byte[] payload = new byte[buffer.getInt(position)];
+        buffer.get(position + HEADER_SIZE, payload);
+        return payload;
+    }
+    
+    private int checksum(int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(offset, length));
+        return (int) crc.getValue();
+    }
+    
+    void force() {
+        buffer.force();
+    }
+    
+    void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+    
+    void delete() throws IOException {
+        channel.close();
+        Files.deleteIfExists(path);
+    }
+    
+    int getId() {
+        return id;
+    }
+    
+    Path getPath() {
+        return path;
+    }
+    
+    int getWritePosition() {
+        return writePosition;
+    }
+    
+    int getCapacity() {
+        return buffer.capacity();
+    }
+    
+    /**
+     * Number of records the owner still needs from this segment.
+     */
+    int getLive() {
+        return live;
+    }
+    
+    void retain() {
+        live++;
+    }
+    
+    void release() {
+        live--;
+    }
+    
+    interface RecordHandler {
+        void accept(byte type, byte[] payload, int position);
+    }
+}
@@ -0,0 +1,237 @@
+package com.batchiller.server.store;
+
+import com.batchiller.api.JobExecutionInfo;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * An execution store that keeps the newest {@code capacity} executions in a
+ * fixed-size ring in memory. Each new execution takes the next slot,
+ * overwriting the oldest one once the ring is full. Nothing survives a
+ * restart; meant for development and for ephemeral nodes that only need
+ * recent history.
+ *
+ * <p>Writes take no lock: a save claims a slot with an atomic increment and
+ * an update swaps the execution's slot in place, so workers never wait on
+ * each other. Queries scan and sort a snapshot of the ring, which keeps the
+ * write path free of any ordered index at the cost of reads proportional to
+ * the capacity.</p>
+ *
+ * @author Siddharth Mishra &lt;mishra.siddharth90@gmail.com&gt;
+ * @version 1.0
+ */
+public class MemoryExecutionStore implements ExecutionStore {
+    
+    private static final Comparator<Slot> NEWEST_FIRST =
+        Comparator.comparing((Slot slot) -> ExecutionKey.of(slot.info)).reversed();
+    
+    private final int capacity;
+    private final AtomicReferenceArray<Slot> ring;
+    private final AtomicLong sequence = new AtomicLong();
+    // Execution ID -> the sequence of the slot holding it
+    private final Map<String, Long> index = new ConcurrentHashMap<>();
+    private final AtomicLong evicted = new AtomicLong();
+    
+    public MemoryExecutionStore(int capacity) {
+        this.capacity = Math.max(1, capacity);
+        this.ring = new AtomicReferenceArray<>(this.capacity);
+    }
+    
+    @Override
+    public void save(JobExecutionInfo info) {
+        long seq = sequence.getAndIncrement();
+        int position = (int) (seq % capacity);
+        Slot slot = new Slot(seq, info);
+        Long previous = index.put(info.getExecutionId(), seq);
+        if (previous != null) {
+            // Saved again, e.g. after recovery; drop the older copy
+            clear(previous, info.getExecutionId());
+        }
+        while (true) {
+            Slot current = ring.get(position);
+            if (current != null && current.seq > seq) {
+                // The ring wrapped past this slot before it was written
+                index.remove(info.getExecutionId(), seq);
+                evicted.incrementAndGet();
+                return;
+            }
+            if (ring.compareAndSet(position, current, slot)) {
+                if (current != null && index.remove(current.info.getExecutionId(), current.seq)) {
+                    evicted.incrementAndGet();
+                }
+                return;
+            }
+        }
+    }
+    
+    @Override
+    public void update(JobExecutionInfo info) {
+        Long seq = index.get(info.getExecutionId());
+        if (seq != null) {
+            int position = (int) (seq % capacity);
+            while (true) {
+                Slot current = ring.get(position);
+                if (current == null || current.seq != seq) {
+                    break;
+                }
+                if (ring.compareAndSet(position, current, new Slot(seq, info))) {
+                    return;
+                }
+            }
+        }
+        // Evicted or never saved; keep it as the newest execution
+        save(info);
+    }
+    
+    private void clear(long seq, String executionId) {
+        int position = (int) (seq % capacity);
+        Slot current = ring.get(position);
+        if (current != null && current.seq == seq && current.info.getExecutionId().equals(executionId)) {
+            ring.compareAndSet(position, current, null);
+        }
+    }
+    
+    /**
+     * Removes a slot if it still holds the execution it held when it was read.
+     */
+    private boolean remove(Slot slot) {
+        if (ring.compareAndSet((int) (slot.seq % capacity), slot, null)) {
+            index.remove(slot.info.getExecutionId(), slot.seq);
+            return true;
+        }
+        return false;
+    }
+    
+    private List<Slot> snapshot() {
+        List<Slot> slots = new ArrayList<>(Math.min(capacity, index.size() + 16));
+        for (int i = 0; i < capacity; i++) {
+            Slot slot = ring.get(i);
+            if (slot != null) {
+                slots.add(slot);
+            }
+        }
+        return slots;
+    }
+    
+    @Override
+    public JobExecutionInfo get(String executionId) {
+        Long seq = index.get(executionId);
+        if (seq == null) {
+            return null;
+        }
+        Slot slot = ring.get((int) (seq % capacity));
+        return slot != null && slot.seq == seq ? slot.info : null;
+    }
+    
+    @Override
+    public ExecutionPage query(ExecutionQuery query) {
+        ExecutionKey cursor = ExecutionKey.cursorOf(query);
+        List<Slot> candidates = new ArrayList<>();
+        for (Slot slot : snapshot()) {
+            if (query.matches(slot.info) && (cursor == null || ExecutionKey.of(slot.info).compareTo(cursor) < 0)) {
+                candidates.add(slot);
+            }
+        }
+        candidates.sort(NEWEST_FIRST);
+        List<JobExecutionInfo> page = new ArrayList<>();
+        for (Slot slot : candidates) {
+            page.add(slot.info);
+            if (page.size() > query.getLimit()) {
+                break;
+            }
+        }
+        return ExecutionPage.of(page, query.getLimit());
+    }
+    
+    @Override
+    public long purgeBefore(LocalDateTime cutoff, int chunkSize) {
+        long purged = 0;
+        for (Slot slot : snapshot()) {
+            if (slot.info.getStartTime().isBefore(cutoff) && remove(slot)) {
+                purged++;
+            }
+        }
+        return purged;
+    }
+    
+    @Override
+    public long purgeBeyond(int maxPerJob, int chunkSize) {
+        List<Slot> slots = snapshot();
+        slots.sort(NEWEST_FIRST);
+        Map<String, Integer> seen = new HashMap<>();
+        long purged = 0;
+        for (Slot slot : slots) {
+            if (seen.merge(slot.info.getJobName(), 1, Integer::sum) > maxPerJob && remove(slot)) {
+                purged++;
+            }
+        }
+        return purged;
+    }
+    
+    @Override
+    public long delete(List<String> executionIds, int chunkSize) {
+        long deleted = 0;
+        for (String executionId : executionIds) {
+            Long seq = index.get(executionId);
+            if (seq == null) {
+                continue;
+            }
+            Slot slot = ring.get((int) (seq % capacity));
+            if (slot != null && slot.seq == seq && remove(slot)) {
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+    
+    @Override
+    public LocalDateTime getOldestStartTime() {
+        LocalDateTime oldest = null;
+        for (Slot slot : snapshot()) {
+            if (oldest == null || slot.info.getStartTime().isBefore(oldest)) {
+                oldest = slot.info.getStartTime();
+            }
+        }
+        return oldest;
+    }
+    
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("type", "memory");
+        metrics.put("capacity", capacity);
+        metrics.put("evicted", evicted.get());
+        metrics.put("executions", index.size());
+        return metrics;
+    }
+    
+    @Override
+    public void close() {
+        for (int i = 0; i < capacity; i++) {
+            ring.set(i, null);
+        }
+        index.clear();
+    }
+    
+    /**
+     * An execution in the ring, tagged with the sequence that claimed its slot
+     * so a reader can tell it apart from a later execution in the same slot.
+     */
+    private static final class Slot {
+        private final long seq;
+        private final JobExecutionInfo info;
+    
+        Slot(long seq, JobExecutionInfo info) {
+            this.seq = seq;
+            this.info = info;
+        }
+    }
+}
@@ -0,0 +1,352 @@
+package com.batchiller.server.store;
+
+import com.batchiller.api.JobExecutionInfo;
+import com.batchiller.server.config.BatchillerConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An execution store that appends every write to memory-mapped segment files
+ * and keeps an in-memory index of where the latest version of each execution
+ * lives. On startup the segments are replayed to rebuild the index; a record
+ * whose checksum does not match ends the replay of its segment, which is how a
+ * write torn by a crash is detected.
+ *
+ * <p>Records in the {@link LogSegment}s are puts (the whole execution) or
+ * tombstones (an execution ID).</p>
+ *
+ * <p>Purges write tombstones. A segment is deleted once it holds no live
+ * executions and every older segment is gone, which keeps tombstones in
+ * newer segments from resurrecting anything on replay. Partially live
+ * segments are not compacted.</p>
+ *
+ * @author Siddharth Mishra &lt;mishra.siddharth90@gmail.com&gt;
+ * @version 1.0
+ */
+public class SegmentLogExecutionStore implements ExecutionStore {
+    
+    private static final Logger logger = LoggerFactory.getLogger(SegmentLogExecutionStore.class);
+    private static final String SEGMENT_PREFIX = "segment";
+    private static final byte TYPE_PUT = 1;
+    private static final byte TYPE_TOMBSTONE = 3;
+    
+    private final Path directory;
+    private final int segmentSize;
+    private final NavigableMap<Integer, LogSegment> segments = new TreeMap<>();
+    private final ConcurrentSkipListMap<ExecutionKey, Location> index = new ConcurrentSkipListMap<>();
+    private final Map<String, ExecutionKey> keysById = new ConcurrentHashMap<>();
+    private final Object writeLock = new Object();
+    private LogSegment active;
+    
+    private final AtomicLong recordsWritten = new AtomicLong();
+    private final AtomicLong bytesWritten = new AtomicLong();
+    private final AtomicLong syncs = new AtomicLong();
+    private final AtomicLong segmentsDeleted = new AtomicLong();
+    private long replayedRecords;
+    private long replayMillis;
+    private long corruptRecords;
+    
+    public SegmentLogExecutionStore(BatchillerConfiguration config) {
+        this.directory = Paths.get(config.getExecutionStoreLogDirectory());
+        this.segmentSize = Math.max(1, config.getExecutionStoreLogSegmentSizeMb()) * 1024 * 1024;
+        try {
+            Files.createDirectories(directory);
+            replay();
+            if (active == null) {
+                active = openSegment(0);
+            }
+        } catch (IOException e) {
+            throw new ExecutionStoreException("Failed to open execution log in " + directory, e);
+        }
+        logger.info("Execution log opened in {} ({} segments, {} executions, replayed {} records in {}ms)",
+            directory, segments.size(), index.size(), replayedRecords, replayMillis);
+    }
+    
+    private void replay() throws IOException {
+        long start = System.currentTimeMillis();
+        for (int id : LogSegment.list(directory, SEGMENT_PREFIX)) {
+            LogSegment segment = openSegment(id);
+            boolean intact = segment.replay((type, payload, position) -> {
+                if (type == TYPE_PUT) {
+                    index(ExecutionCodec.decode(payload), segment, position);
+                } else if (type == TYPE_TOMBSTONE) {
+                    remove(new String(payload, StandardCharsets.UTF_8));
+                }
+                replayedRecords++;
+            });
+            if (!intact) {
+                corruptRecords++;
+                logger.warn("Execution log segment {} has a damaged record at offset {}; ignoring the rest of it",
+                    id, segment.getWritePosition());
+            }
+            active = segment;
+        }
+        replayMillis = System.currentTimeMillis() - start;
+    }
+    
+    private LogSegment openSegment(int id) throws IOException {
+        LogSegment segment = LogSegment.open(directory, SEGMENT_PREFIX, id, segmentSize);
+        segments.put(id, segment);
+        return segment;
+    }
+    
+    @Override
+    public void save(JobExecutionInfo info) {
+        writeBatch(List.of(info), List.of());
+    }
+    
+    @Override
+    public void update(JobExecutionInfo info) {
+        writeBatch(List.of(), List.of(info));
+    }
+    
+    /**
+     * Appends the whole batch and then forces it to disk once.
+     */
+    @Override
+    public void writeBatch(List<JobExecutionInfo> inserts, List<JobExecutionInfo> updates) {
+        synchronized (writeLock) {
+            try {
+                for (JobExecutionInfo info : inserts) {
+                    put(info);
+                }
+                for (JobExecutionInfo info : updates) {
+                    put(info);
+                }
+                sync();
+            } catch (IOException e) {
+                throw new ExecutionStoreException("Failed to append to execution log in " + directory, e);
+            }
+        }
+    }
+    
+    private void put(JobExecutionInfo info) throws IOException {
+        int position = append(TYPE_PUT, ExecutionCodec.encode(info));
+        index(info, active, position);
+    }
+    
+    private void index(JobExecutionInfo info, LogSegment segment, int position) {
+        ExecutionKey key = ExecutionKey.of(info);
+        ExecutionKey previousKey = keysById.put(info.getExecutionId(), key);
+        if (previousKey != null && !previousKey.equals(key)) {
+            release(index.remove(previousKey));
+        }
+        release(index.put(key, new Location(segment, position, info.getJobName())));
+        segment.retain();
+    }
+    
+    private void remove(String executionId) {
+        ExecutionKey key = keysById.remove(executionId);
+        if (key != null) {
+            release(index.remove(key));
+        }
+    }
+    
+    private void release(Location location) {
+        if (location != null) {
+            location.segment.release();
+        }
+    }
+    
+    private int append(byte type, byte[] payload) throws IOException {
+        int recordSize = LogSegment.HEADER_SIZE + payload.length;
+        if (recordSize > segmentSize) {
+            throw new IOException("Record of " + recordSize + " bytes does not fit a " + segmentSize + " byte segment");
+        }
+        if (!active.fits(payload.length)) {
+            active.force();
+            active = openSegment(active.getId() + 1);
+        }
+        recordsWritten.incrementAndGet();
+        bytesWritten.addAndGet(recordSize);
+        return active.append(type, payload);
+    }
+    
+    private void sync() {
+        active.force();
+        syncs.incrementAndGet();
+    }
+    
+    @Override
+    public JobExecutionInfo get(String executionId) {
+        ExecutionKey key = keysById.get(executionId);
+        if (key == null) {
+            return null;
+        }
+        Location location = index.get(key);
+        return location != null ? read(location) : null;
+    }
+    
+    @Override
+    public ExecutionPage query(ExecutionQuery query) {
+        ExecutionKey cursor = ExecutionKey.cursorOf(query);
+        NavigableMap<ExecutionKey, Location> candidates = cursor != null
+            ? index.headMap(cursor, false).descendingMap()
+            : index.descendingMap();
+        List<JobExecutionInfo> page = new ArrayList<>();
+        for (Map.Entry<ExecutionKey, Location> entry : candidates.entrySet()) {
+            if (query.getStartedFrom() != null && entry.getKey().getStartTime().isBefore(query.getStartedFrom())) {
+                break;
+            }
+            if (query.getJobName() != null && !query.getJobName().equals(entry.getValue().jobName)) {
+                continue;
+            }
+            JobExecutionInfo info = read(entry.getValue());
+            if (query.matches(info)) {
+                page.add(info);
+                if (page.size() > query.getLimit()) {
+                    break;
+                }
+            }
+        }
+        return ExecutionPage.of(page, query.getLimit());
+    }
+    
+    private JobExecutionInfo read(Location location) {
+        return ExecutionCodec.decode(location.segment.read(location.position));
+    }
+    
+    @Override
+    public long purgeBefore(LocalDateTime cutoff, int chunkSize) {
+        // The empty ID sorts before every real one, so this selects start times strictly before the cutoff
+        return purge(index.headMap(new ExecutionKey(cutoff, ""), false).keySet().iterator(), chunkSize);
+    }
+    
+    @Override
+    public long purgeBeyond(int maxPerJob, int chunkSize) {
+        Map<String, Integer> seen = new HashMap<>();
+        List<ExecutionKey> excess = new ArrayList<>();
+        for (Map.Entry<ExecutionKey, Location> entry : index.descendingMap().entrySet()) {
+            if (seen.merge(entry.getValue().jobName, 1, Integer::sum) > maxPerJob) {
+                excess.add(entry.getKey());
+            }
+        }
+        return purge(excess.iterator(), chunkSize);
+    }
+    
+    @Override
+    public long delete(List<String> executionIds, int chunkSize) {
+        List<ExecutionKey> keys = new ArrayList<>();
+        for (String executionId : executionIds) {
+            ExecutionKey key = keysById.get(executionId);
+            if (key != null) {
+                keys.add(key);
+            }
+        }
+        return purge(keys.iterator(), chunkSize);
+    }
+    
+    /**
+     * Writes tombstones a chunk at a time, releasing the write lock between
+     * chunks so executions keep being persisted during a long purge.
+     */
+    private long purge(Iterator<ExecutionKey> keys, int chunkSize) {
+        List<ExecutionKey> chunk = new ArrayList<>();
+        keys.forEachRemaining(chunk::add);
+        long purged = 0;
+        for (int from = 0; from < chunk.size(); from += chunkSize) {
+            synchronized (writeLock) {
+                try {
+                    for (ExecutionKey key : chunk.subList(from, Math.min(from + chunkSize, chunk.size()))) {
+                        if (index.containsKey(key)) {
+                            append(TYPE_TOMBSTONE, key.getExecutionId().getBytes(StandardCharsets.UTF_8));
+                            remove(key.getExecutionId());
+                            purged++;
+                        }
+                    }
+                    sync();
+                } catch (IOException e) {
+                    throw new ExecutionStoreException("Failed to append tombstones to execution log in " + directory, e);
+                }
+            }
+        }
+        synchronized (writeLock) {
+            deleteEmptySegments();
+        }
+        return purged;
+    }
+    
+    private void deleteEmptySegments() {
+        Iterator<LogSegment> it = segments.values().iterator();
+        while (it.hasNext()) {
+            LogSegment segment = it.next();
+            if (segment == active || segment.getLive() > 0) {
+                break;
+            }
+            try {
+                segment.delete();
+                it.remove();
+                segmentsDeleted.incrementAndGet();
+            } catch (IOException e) {
+                logger.error("Failed to delete execution log segment: " + segment.getPath(), e);
+                break;
+            }
+        }
+    }
+    
+    @Override
+    public LocalDateTime getOldestStartTime() {
+        Map.Entry<ExecutionKey, Location> oldest = index.firstEntry();
+        return oldest != null ? oldest.getKey().getStartTime() : null;
+    }
+    
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("type", "log");
+        metrics.put("executions", index.size());
+        metrics.put("records_written", recordsWritten.get());
+        metrics.put("bytes_written", bytesWritten.get());
+        metrics.put("syncs", syncs.get());
+        metrics.put("segments_deleted", segmentsDeleted.get());
+        metrics.put("replayed_records", replayedRecords);
+        metrics.put("replay_ms", replayMillis);
+        metrics.put("corrupt_records", corruptRecords);
+        synchronized (writeLock) {
+            metrics.put("segments", segments.size());
+        }
+        return metrics;
+    }
+    
+    @Override
+    public void close() {
+        synchronized (writeLock) {
+            for (LogSegment segment : segments.values()) {
+                try {
+                    segment.close();
+                } catch (IOException e) {
+                    logger.error("Failed to close execution log segment: " + segment.getPath(), e);
+                }
+            }
+        }
+    }
+    
+    private static final class Location {
+        private final LogSegment segment;
+        private final int position;
+        private final String jobName;
+    
+        Location(LogSegment segment, int position, String jobName) {
+            this.segment = segment;
+            this.position = position;
+            this.jobName = jobName;
+        }
+    }
+}
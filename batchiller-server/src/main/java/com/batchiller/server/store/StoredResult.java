@@ -0,0 +1,60 @@
+package com.batchiller.server.store;
+
+import java.time.LocalDateTime;
+
+/**
+ * A persisted {@code JobResult} data row. The encoded data is either inline or
+ * in a spill file; neither is set when the data exceeded the size limit.
+ *
+ * @author Siddharth Mishra &lt;mishra.siddharth90@gmail.com&gt;
+ * @version 1.0
+ */
+public class StoredResult {
+    
+    private final String executionId;
+    private final String encoding;
+    private final long sizeBytes;
+    private final byte[] data;
+    private final String spillPath;
+    private final LocalDateTime createdAt;
+    
+    public StoredResult(String executionId, String encoding, long sizeBytes, byte[] data, String spillPath,
+                        LocalDateTime createdAt) {
+        this.executionId = executionId;
+        this.encoding = encoding;
+        this.sizeBytes = sizeBytes;
+        this.data = data;
+        this.spillPath = spillPath;
+        this.createdAt = createdAt;
+    }
+    
+    public String getExecutionId() {
+        return executionId;
+    }
+    
+    /**
+     * {@code json}, {@code json+gzip}, or {@code dropped} when the data was too large to keep.
+     */
+    public String getEncoding() {
+        return encoding;
+    }
+    
+    /**
+     * Size of the data as uncompressed JSON.
+     */
+    public long getSizeBytes() {
+        return sizeBytes;
+    }
+    
+    public byte[] getData() {
+        return data;
+    }
+    
+    public String getSpillPath() {
+        return spillPath;
+    }
+    
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+}
@@ -341,20 +341,22 @@ function filterExecutions() {
     renderExecutions();
 }
 
-function updateTrendsChart() {
-    if (!trendsChart || !allExecutions) {
+async function updateTrendsChart() {
+    if (!trendsChart) {
         return;
     }
     
+    // Daily buckets are rolled up on the server, so this does not depend on how much history is kept
     const selectedJob = document.getElementById('jobFilter').value;
-    const filteredExecutions = selectedJob === 'all' 
-        ? allExecutions 
-        : allExecutions.filter(exec => exec.jobName === selectedJob);
-    
-    const sevenDaysAgo = new Date(Date.now() - 7 * 24 * 60 * 60 * 1000);
-    const dailyExecutions = filteredExecutions.filter(exec => 
-        new Date(exec.startTime) > sevenDaysAgo
-    );
+    const query = selectedJob === 'all' ? '' : `&job=${encodeURIComponent(selectedJob)}`;
+    let stats;
+    try {
+        const response = await fetch(`/api/stats?window=7d${query}`);
+        stats = await response.json();
+    } catch (error) {
+        console.error('Failed to fetch stats:', error);
+        return;
+    }
     
     const labels = [];
     const dailyData = {};
@@ -366,16 +368,12 @@ function updateTrendsChart() {
         dailyData[label] = { success: 0, failure: 0 };
     }
     
-    dailyExecutions.forEach(exec => {
-        const execDate = new Date(exec.startTime);
-        const label = execDate.toLocaleDateString('en-US', { month: 'short', day: 'numeric' });
+    (stats.series || []).forEach(point => {
+        const label = new Date(point.time).toLocaleDateString('en-US', { month: 'short', day: 'numeric' });
         
         if (dailyData[label] !== undefined) {
-            if (exec.status === 'COMPLETED') {
-                dailyData[label].success++;
-            } else if (exec.status === 'FAILED') {
-                dailyData[label].failure++;
-            }
+            dailyData[label].success += point.count - point.failures;
+            dailyData[label].failure += point.failures;
         }
     });
     
@@ -383,8 +381,6 @@ function updateTrendsChart() {
     trendsChart.data.datasets[0].data = labels.map(l => dailyData[l].success);
     trendsChart.data.datasets[1].data = labels.map(l => dailyData[l].failure);
     trendsChart.update();
-    
-    console.log('Trends chart updated with', dailyExecutions.length, 'executions in last 7 days');
 }
 
 async function downloadLog(executionId) {
@@ -0,0 +1,134 @@
+package com.batchiller.server.database;
+
+import com.batchiller.api.JobExecutionInfo;
+import com.batchiller.api.JobStatus;
+import com.batchiller.server.config.BatchillerConfiguration;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * A plain timing harness for connection pool contention. Each of
+ * {@code writers} threads writes its executions through
+ * {@link DatabaseManager} (a QUEUED insert and a COMPLETED update per
+ * execution), against pools of increasing size. A pool of one connection
+ * stands in for the single shared connection the pool replaced, since that
+ * serializes every write the same way. The pool's wait-time metrics are
+ * printed alongside the write rate.
+ *
+ * <p>Run it from the IDE or with
+ * {@code java -cp <test classes>:<runtime classpath> com.batchiller.server.database.ConnectionPoolBenchmark [writers] [executions per writer]}.
+ * It is not part of the test suite.</p>
+ *
+ * @author Siddharth Mishra &lt;mishra.siddharth90@gmail.com&gt;
+ * @version 1.0
+ */
+public final class ConnectionPoolBenchmark {
+    
+    private static final int WRITES_PER_EXECUTION = 2;
+    
+    private ConnectionPoolBenchmark() {
+    }
+    
+    public static void main(String[] args) throws Exception {
+        int writers = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+        int executions = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+    
+        Path dir = Files.createTempDirectory("batchiller-pool-benchmark");
+        System.out.printf("%d writers, %d executions per writer, %d writes per execution%n",
+            writers, executions, WRITES_PER_EXECUTION);
+        try {
+            run("1 connection", dir, writers, executions, 1, 32);
+            run("10 connections", dir, writers, executions, 10, 32);
+            run("10, no stmt cache", dir, writers, executions, 10, 0);
+            run(writers + " connections", dir, writers, executions, writers, 32);
+        } finally {
+            deleteRecursively(dir);
+        }
+    }
+    
+    private static void run(String name, Path dir, int writers, int executions, int poolSize, int statementCacheSize)
+            throws Exception {
+        // The first round warms up the JIT and the database files; only the second is reported
+        for (int round = 0; round < 2; round++) {
+            Properties properties = new Properties();
+            properties.setProperty("db.h2.path", dir.resolve("pool-" + poolSize + "-" + statementCacheSize
+                + "-" + round).toString());
+            properties.setProperty("db.pool.min.size", String.valueOf(poolSize));
+            properties.setProperty("db.pool.max.size", String.valueOf(poolSize));
+            properties.setProperty("db.pool.statement.cache.size", String.valueOf(statementCacheSize));
+            properties.setProperty("db.read.pool.enabled", "false");
+            DatabaseManager database = new DatabaseManager(new BatchillerConfiguration(properties));
+            try {
+                long nanos = time(database, writers, executions);
+                if (round == 1) {
+                    long writes = (long) writers * executions * WRITES_PER_EXECUTION;
+                    Map<String, Object> pool = database.getPoolMetrics();
+                    System.out.printf("%-20s %,10d writes in %,7d ms  %,10.0f writes/s  wait avg %6.2f ms  max %7.2f ms%n",
+                        name, writes, nanos / 1_000_000, writes / (nanos / 1e9),
+                        ((Number) pool.get("wait_avg_ms")).doubleValue(),
+                        ((Number) pool.get("wait_max_ms")).doubleValue());
+                }
+            } finally {
+                database.close();
+            }
+        }
+    }
+    
+    private static long time(DatabaseManager database, int writers, int executions) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(writers);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            String writer = "writer-" + w + "-";
+            workers.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < executions; i++) {
+                    LocalDateTime startTime = LocalDateTime.now();
+                    database.saveJobExecution(execution(writer + i, JobStatus.QUEUED, startTime));
+                    database.updateJobExecution(execution(writer + i, JobStatus.COMPLETED, startTime));
+                }
+                return null;
+            }));
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Future<?> worker : workers) {
+            worker.get();
+        }
+        long elapsed = System.nanoTime() - begin;
+        pool.shutdown();
+        return elapsed;
+    }
+    
+    private static JobExecutionInfo execution(String executionId, JobStatus status, LocalDateTime startTime) {
+        return JobExecutionInfo.builder(executionId, "benchmark-job")
+            .status(status)
+            .startTime(startTime)
+            .endTime(status == JobStatus.COMPLETED ? LocalDateTime.now() : null)
+            .threadName(Thread.currentThread().getName())
+            .triggeredBy("benchmark")
+            .triggerType("MANUAL")
+            .build();
+    }
+    
+    private static void deleteRecursively(Path dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
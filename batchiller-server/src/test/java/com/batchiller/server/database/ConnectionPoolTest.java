@@ -0,0 +1,74 @@
+package com.batchiller.server.database;
+
+import com.batchiller.server.config.BatchillerConfiguration;
+import org.junit.jupiter.api.Test;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for the per-connection statement cache of {@link ConnectionPool}.
+ *
+ * @author Siddharth Mishra &lt;mishra.siddharth90@gmail.com&gt;
+ * @version 1.0
+ */
+class ConnectionPoolTest {
+    
+    @Test
+    void cachedStatementsAreReusedAcrossBorrows() throws Exception {
+        ConnectionPool pool = pool("cached", 32);
+        try {
+            PreparedStatement first;
+            try (PooledConnection connection = pool.getConnection()) {
+                first = connection.prepareStatement("SELECT 1");
+                assertEquals(1, selectOne(first));
+            }
+            try (PooledConnection connection = pool.getConnection()) {
+                PreparedStatement second = connection.prepareStatement("SELECT 1");
+                assertSame(first, second);
+                assertEquals(1, selectOne(second));
+            }
+            assertEquals(1L, pool.getMetrics().get("statement_cache_hits"));
+        } finally {
+            pool.close();
+        }
+    }
+    
+    @Test
+    void cacheSizeOfZeroClosesStatementsWhenTheConnectionIsReturned() throws Exception {
+        ConnectionPool pool = pool("uncached", 0);
+        try {
+            PreparedStatement statement;
+            try (PooledConnection connection = pool.getConnection()) {
+                statement = connection.prepareStatement("SELECT 1");
+                assertFalse(statement.isClosed());
+                assertEquals(1, selectOne(statement));
+            }
+            assertTrue(statement.isClosed());
+            assertEquals(0L, pool.getMetrics().get("statement_cache_hits"));
+        } finally {
+            pool.close();
+        }
+    }
+    
+    private static ConnectionPool pool(String name, int statementCacheSize) throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty("db.pool.min.size", "1");
+        properties.setProperty("db.pool.max.size", "1");
+        properties.setProperty("db.pool.statement.cache.size", String.valueOf(statementCacheSize));
+        return new ConnectionPool(name, "jdbc:h2:mem:" + name, "sa", "", new BatchillerConfiguration(properties));
+    }
+    
+    private static int selectOne(PreparedStatement statement) throws Exception {
+        try (ResultSet rs = statement.executeQuery()) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.batchiller.server.database;
+
+import com.batchiller.api.JobExecutionInfo;
+import com.batchiller.api.JobStatus;
+import com.batchiller.server.config.BatchillerConfiguration;
+import com.batchiller.server.store.ExecutionStoreException;
+import com.batchiller.server.store.MemoryExecutionStore;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for how {@link ExecutionPersistenceQueue} reports store failures.
+ *
+ * @author Siddharth Mishra &lt;mishra.siddharth90@gmail.com&gt;
+ * @version 1.0
+ */
+class ExecutionPersistenceQueueTest {
+    
+    @Test
+    void failedRowsCompleteExceptionallyAndTheRestSucceed() throws Exception {
+        // The batch fails with a non-store exception, then one row fails on its own
+        MemoryExecutionStore store = new MemoryExecutionStore(100) {
+            @Override
+            public void writeBatch(List<JobExecutionInfo> inserts, List<JobExecutionInfo> updates) {
+                throw new IllegalStateException("batch rejected");
+            }
+    
+            @Override
+            public void save(JobExecutionInfo info) {
+                if (info.getExecutionId().startsWith("bad")) {
+                    throw new ExecutionStoreException("row rejected", null);
+                }
+                super.save(info);
+            }
+        };
+        ExecutionPersistenceQueue queue = new ExecutionPersistenceQueue(store, config(30_000));
+        try {
+            CompletableFuture<Void> good = queue.insert(execution("good", JobStatus.COMPLETED));
+            CompletableFuture<Void> bad = queue.insert(execution("bad", JobStatus.COMPLETED));
+    
+            good.get(5, TimeUnit.SECONDS);
+            ExecutionException failure = assertThrows(ExecutionException.class, () -> bad.get(5, TimeUnit.SECONDS));
+            assertTrue(failure.getCause() instanceof ExecutionStoreException);
+            assertNotNull(store.get("good"));
+            assertEquals(1L, queue.getMetrics().get("rows_failed"));
+        } finally {
+            queue.close();
+        }
+    }
+    
+    @Test
+    void terminalWriteStopsWaitingAfterTheSyncTimeout() throws Exception {
+        CountDownLatch stuck = new CountDownLatch(1);
+        MemoryExecutionStore store = new MemoryExecutionStore(100) {
+            @Override
+            public void writeBatch(List<JobExecutionInfo> inserts, List<JobExecutionInfo> updates) {
+                try {
+                    stuck.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.writeBatch(inserts, updates);
+            }
+        };
+        ExecutionPersistenceQueue queue = new ExecutionPersistenceQueue(store, config(200));
+        try {
+            long start = System.nanoTime();
+            CompletableFuture<Void> written = queue.update(execution("stuck", JobStatus.FAILED));
+    
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 5_000);
+            assertEquals(1L, queue.getMetrics().get("sync_timeouts"));
+    
+            stuck.countDown();
+            written.get(5, TimeUnit.SECONDS);
+        } finally {
+            stuck.countDown();
+            queue.close();
+        }
+    }
+    
+    private static BatchillerConfiguration config(long syncTimeoutMillis) {
+        Properties properties = new Properties();
+        properties.setProperty("persistence.durability", "sync-on-terminal");
+        properties.setProperty("persistence.sync.timeout.ms", String.valueOf(syncTimeoutMillis));
+        return new BatchillerConfiguration(properties);
+    }
+    
+    private static JobExecutionInfo execution(String executionId, JobStatus status) {
+        return JobExecutionInfo.builder(executionId, "job")
+            .status(status)
+            .startTime(LocalDateTime.now())
+            .build();
+    }
+}
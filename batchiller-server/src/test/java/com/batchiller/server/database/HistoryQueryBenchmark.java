@@ -0,0 +1,180 @@
+package com.batchiller.server.database;
+
+import com.batchiller.api.JobStatus;
+import com.batchiller.server.config.BatchillerConfiguration;
+import com.batchiller.server.store.ExecutionPage;
+import com.batchiller.server.store.ExecutionQuery;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.function.IntFunction;
+import java.util.stream.Stream;
+
+/**
+ * A plain timing harness for execution history queries against a large H2
+ * {@code job_executions} table. It fills the table with {@code rows}
+ * executions spread over {@code jobs} jobs, every tenth of them in a
+ * pipeline and every twentieth FAILED, then times the queries behind
+ * {@code /api/executions}, {@code /api/jobs/{name}/history} and the CLI,
+ * first without indexes, then with those of schema migration 2 and then
+ * with the newest-first ones of migration 7 that replaced them. Each run
+ * asks for a different job, status or page, since H2 reuses the result of
+ * a query repeated with the same parameters.
+ *
+ * <p>Run it from the IDE or with
+ * {@code java -cp <test classes>:<runtime classpath> com.batchiller.server.database.HistoryQueryBenchmark [rows] [jobs] [runs]}.
+ * It is not part of the test suite; the default 10M rows take several
+ * minutes to load and a few GB of disk.</p>
+ *
+ * @author Siddharth Mishra &lt;mishra.siddharth90@gmail.com&gt;
+ * @version 1.0
+ */
+public final class HistoryQueryBenchmark {
+    
+    private static final int LOAD_CHUNK = 100_000;
+    private static final List<Integer> INDEX_MIGRATIONS = List.of(2, 7);
+    private static final List<String> INDEXES = List.of("idx_executions_start", "idx_executions_newest",
+        "idx_executions_job_newest", "idx_executions_status_newest", "idx_executions_pipeline_newest");
+    private static final List<JobStatus> STATUSES = List.of(JobStatus.FAILED, JobStatus.COMPLETED);
+    
+    private HistoryQueryBenchmark() {
+    }
+    
+    public static void main(String[] args) throws Exception {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        int jobs = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        int runs = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+    
+        Path dir = Files.createTempDirectory("batchiller-history-benchmark");
+        Properties properties = new Properties();
+        properties.setProperty("db.h2.path", dir.resolve("batchiller").toString());
+        properties.setProperty("db.read.pool.enabled", "false");
+        DatabaseManager database = new DatabaseManager(new BatchillerConfiguration(properties));
+        try {
+            // Loading is much faster without the secondary indexes, which are built afterwards
+            execute(database, INDEXES.stream().map(index -> "DROP INDEX " + index).toList());
+            long start = System.currentTimeMillis();
+            load(database, rows, jobs);
+            System.out.printf("Loaded %,d executions of %d jobs in %,d ms%n", rows, jobs, System.currentTimeMillis() - start);
+    
+            Map<String, IntFunction<Object>> queries = queries(database, jobs);
+            // Full scans are slow, so a few runs are enough
+            System.out.printf("%nWithout indexes (%d runs each):%n", Math.min(runs, 3));
+            time(queries, Math.min(runs, 3));
+    
+            for (int version : INDEX_MIGRATIONS) {
+                start = System.currentTimeMillis();
+                execute(database, SchemaMigrator.MIGRATIONS.stream()
+                    .filter(migration -> migration.getVersion() == version)
+                    .findFirst().orElseThrow()
+                    .getStatements("h2"));
+                execute(database, List.of("ANALYZE"));
+                System.out.printf("%nBuilt the indexes of migration %d in %,d ms%n", version,
+                    System.currentTimeMillis() - start);
+    
+                System.out.printf("With the indexes of migration %d (%d runs each):%n", version, runs);
+                time(queries, runs);
+            }
+        } finally {
+            database.close();
+            deleteRecursively(dir);
+        }
+    }
+    
+    /**
+     * Generates the rows inside H2, one second apart and newest last.
+     */
+    private static void load(DatabaseManager database, int rows, int jobs) throws SQLException {
+        try (PooledConnection conn = database.getPool().getConnection()) {
+            PreparedStatement insert = conn.prepareStatement("""
+                INSERT INTO job_executions
+                (execution_id, job_name, pipeline_name, status, start_time, end_time, triggered_by, trigger_type,
+                 is_retry, retry_attempt, duration_millis)
+                SELECT 'exec-' || LPAD(CAST(X AS VARCHAR), 10, '0'),
+                       'job-' || MOD(X, ?),
+                       CASE WHEN MOD(X, 10) = 0 THEN 'pipeline-' || MOD(X, 7) END,
+                       CASE WHEN MOD(X, 20) = 0 THEN 'FAILED' ELSE 'COMPLETED' END,
+                       DATEADD(SECOND, X, TIMESTAMP '2024-01-01 00:00:00'),
+                       DATEADD(SECOND, X + 1, TIMESTAMP '2024-01-01 00:00:00'),
+                       'benchmark', 'SCHEDULED', FALSE, 0, MOD(X, 60000)
+                FROM SYSTEM_RANGE(?, ?)
+            """);
+            for (long first = 1; first <= rows; first += LOAD_CHUNK) {
+                insert.setInt(1, jobs);
+                insert.setLong(2, first);
+                insert.setLong(3, Math.min(rows, first + LOAD_CHUNK - 1));
+                insert.executeUpdate();
+            }
+        }
+    }
+    
+    private static void execute(DatabaseManager database, List<String> statements) throws SQLException {
+        try (PooledConnection conn = database.getPool().getConnection(); Statement stmt = conn.createStatement()) {
+            for (String sql : statements) {
+                stmt.execute(sql);
+            }
+        }
+    }
+    
+    private static Map<String, IntFunction<Object>> queries(DatabaseManager database, int jobs) {
+        Map<String, IntFunction<Object>> queries = new LinkedHashMap<>();
+        queries.put("newest 100", run -> query(database, ExecutionQuery.builder()
+            .limit(100 + run)));
+        queries.put("job history 50", run -> database.getJobHistory("job-" + (run % jobs), 50));
+        queries.put("job, 20th page", run -> {
+            ExecutionPage page = query(database, ExecutionQuery.builder().jobName("job-" + (run % jobs)).limit(50));
+            for (int i = 1; i < 20 && page.hasNext(); i++) {
+                page = query(database, ExecutionQuery.builder().jobName("job-" + (run % jobs)).limit(50)
+                    .cursor(page.getNextCursor()));
+            }
+            return page;
+        });
+        queries.put("status 100", run -> query(database, ExecutionQuery.builder()
+            .status(STATUSES.get(run % STATUSES.size())).limit(100 + run)));
+        queries.put("pipeline 100", run -> query(database, ExecutionQuery.builder()
+            .pipelineName("pipeline-" + (run % 7)).limit(100)));
+        return queries;
+    }
+    
+    private static ExecutionPage query(DatabaseManager database, ExecutionQuery.Builder query) {
+        try {
+            return database.queryExecutions(query.build());
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    private static void time(Map<String, IntFunction<Object>> queries, int runs) {
+        for (Map.Entry<String, IntFunction<Object>> query : queries.entrySet()) {
+            // One untimed run warms the JIT and the page cache
+            query.getValue().apply(runs);
+            long[] nanos = new long[runs];
+            for (int i = 0; i < runs; i++) {
+                long start = System.nanoTime();
+                query.getValue().apply(i);
+                nanos[i] = System.nanoTime() - start;
+            }
+            Arrays.sort(nanos);
+            System.out.printf("%-16s median %,10.2f ms  max %,10.2f ms%n", query.getKey(),
+                nanos[runs / 2] / 1e6, nanos[runs - 1] / 1e6);
+        }
+    }
+    
+    private static void deleteRecursively(Path dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.batchiller.server.engine;
+
+import com.batchiller.api.JobExecutionInfo;
+import com.batchiller.api.JobStatus;
+import com.batchiller.server.config.BatchillerConfiguration;
+import com.batchiller.server.database.DatabaseManager;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * A plain timing harness comparing random and time-ordered execution IDs.
+ * It first measures how fast each generator hands out IDs from
+ * {@code threads} threads, then inserts {@code rows} executions into an
+ * empty H2 {@code job_executions} table, in batches of {@code batch} as the
+ * persistence queue flushes them, and prints the insert rate of every tenth
+ * of the run. Random keys land all over the primary-key index, so their rate
+ * falls as the table grows; time-ordered keys always append to its right edge.
+ *
+ * <p>Run it from the IDE or with
+ * {@code java -cp <test classes>:<runtime classpath> com.batchiller.server.engine.ExecutionIdBenchmark [rows] [batch] [threads]}.
+ * It is not part of the test suite.</p>
+ *
+ * @author Siddharth Mishra &lt;mishra.siddharth90@gmail.com&gt;
+ * @version 1.0
+ */
+public final class ExecutionIdBenchmark {
+    
+    private static final int SLICES = 10;
+    
+    private ExecutionIdBenchmark() {
+    }
+    
+    public static void main(String[] args) throws Exception {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+        int batch = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+    
+        System.out.printf("ID generation, %d threads:%n", threads);
+        for (String type : List.of("random", "time-ordered")) {
+            // The first round warms up the JIT; only the second is reported
+            generate(type, threads, 1_000_000, false);
+            generate(type, threads, 1_000_000, true);
+        }
+    
+        Path dir = Files.createTempDirectory("batchiller-id-benchmark");
+        System.out.printf("%nH2 inserts of %,d executions in batches of %d (writes/s per tenth of the run):%n", rows, batch);
+        try {
+            for (String type : List.of("random", "time-ordered")) {
+                insert(type, dir, rows, batch);
+            }
+        } finally {
+            deleteRecursively(dir);
+        }
+    }
+    
+    private static void generate(String type, int threads, int idsPerThread, boolean report) throws Exception {
+        ExecutionIdGenerator generator = ExecutionIdGenerator.forType(type);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            workers.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < idsPerThread; i++) {
+                    generator.nextId();
+                }
+                return null;
+            }));
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Future<?> worker : workers) {
+            worker.get();
+        }
+        long nanos = System.nanoTime() - begin;
+        pool.shutdown();
+        long ids = (long) threads * idsPerThread;
+        if (!report) {
+            return;
+        }
+        System.out.printf("%-14s %,12d IDs in %,6d ms  %,14.0f IDs/s%n", type, ids, nanos / 1_000_000, ids / (nanos / 1e9));
+    }
+    
+    private static void insert(String type, Path dir, int rows, int batch) throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty("db.h2.path", dir.resolve(type).toString());
+        properties.setProperty("db.read.pool.enabled", "false");
+        DatabaseManager database = new DatabaseManager(new BatchillerConfiguration(properties));
+        ExecutionIdGenerator generator = ExecutionIdGenerator.forType(type);
+        try {
+            int sliceRows = Math.max(batch, rows / SLICES);
+            StringBuilder rates = new StringBuilder();
+            long begin = System.nanoTime();
+            long sliceBegin = begin;
+            int inSlice = 0;
+            for (int written = 0; written < rows; ) {
+                int size = Math.min(batch, rows - written);
+                List<JobExecutionInfo> inserts = new ArrayList<>(size);
+                LocalDateTime startTime = LocalDateTime.now();
+                for (int i = 0; i < size; i++) {
+                    inserts.add(JobExecutionInfo.builder(generator.nextId(), "benchmark-job")
+                        .status(JobStatus.COMPLETED)
+                        .startTime(startTime)
+                        .endTime(startTime)
+                        .triggeredBy("benchmark")
+                        .triggerType("MANUAL")
+                        .build());
+                }
+                database.writeJobExecutions(inserts, List.of());
+                written += size;
+                inSlice += size;
+                if (inSlice >= sliceRows || written == rows) {
+                    long now = System.nanoTime();
+                    rates.append(String.format(" %,8.0f", inSlice / ((now - sliceBegin) / 1e9)));
+                    sliceBegin = now;
+                    inSlice = 0;
+                }
+            }
+            long nanos = System.nanoTime() - begin;
+            System.out.printf("%-14s %,8d ms  %,8.0f writes/s  |%s%n", type, nanos / 1_000_000, rows / (nanos / 1e9), rates);
+        } finally {
+            database.close();
+        }
+    }
+    
+    private static void deleteRecursively(Path dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,378 @@
+package com.batchiller.server.engine;
+
+import com.batchiller.api.BatchJob;
+import com.batchiller.api.JobContext;
+import com.batchiller.api.JobExecutionInfo;
+import com.batchiller.api.JobLifecycle;
+import com.batchiller.api.JobResult;
+import com.batchiller.api.JobStatus;
+import com.batchiller.server.config.BatchillerConfiguration;
+import com.batchiller.server.database.BacklogEntry;
+import com.batchiller.server.database.DatabaseManager;
+import com.batchiller.server.logging.LogManager;
+import com.batchiller.server.store.ExecutionStore;
+import com.batchiller.server.store.ExecutionStoreException;
+import com.batchiller.server.store.MemoryExecutionStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for job registration and lifecycle init in {@link JobExecutionEngine}.
+ *
+ * @author Siddharth Mishra &lt;mishra.siddharth90@gmail.com&gt;
+ * @version 1.0
+ */
+class JobExecutionEngineTest {
+    
+    private static final int INIT_THREADS = 2;
+    
+    @TempDir
+    Path dir;
+    
+    private DatabaseManager database;
+    private LogManager logManager;
+    private ExecutionStore store;
+    private JobExecutionEngine engine;
+    private final CompletableFuture<JobResult> release = new CompletableFuture<>();
+    
+    @BeforeEach
+    void setUp() {
+        BatchillerConfiguration config = new BatchillerConfiguration(properties());
+        database = new DatabaseManager(config);
+        logManager = new LogManager(config);
+        store = ExecutionStore.forType(config.getExecutionStoreType(), config, database);
+        engine = new JobExecutionEngine(config, database, store, logManager);
+    }
+    
+    private Properties properties() {
+        Properties properties = new Properties();
+        properties.setProperty("db.h2.path", dir.resolve("batchiller").toString());
+        properties.setProperty("execution.store.type", "memory");
+        properties.setProperty("journal.enabled", "false");
+        properties.setProperty("log.directory", dir.resolve("logs").toString());
+        properties.setProperty("engine.init.parallelism", String.valueOf(INIT_THREADS));
+        properties.setProperty("engine.init.timeout.seconds", "1");
+        // One worker and one queue slot, so a third execution is rejected
+        properties.setProperty("executor.core.pool.size", "1");
+        properties.setProperty("executor.max.pool.size", "1");
+        properties.setProperty("executor.queue.capacity", "1");
+        return properties;
+    }
+    
+    private BatchillerConfiguration journaled() {
+        Properties properties = properties();
+        properties.setProperty("journal.enabled", "true");
+        properties.setProperty("journal.directory", dir.resolve("journal").toString());
+        properties.setProperty("journal.retry.interval.ms", "100");
+        properties.setProperty("persistence.sync.timeout.ms", "1000");
+        return new BatchillerConfiguration(properties);
+    }
+    
+    @AfterEach
+    void tearDown() {
+        release.complete(JobResult.success("released"));
+        engine.shutdown();
+        logManager.shutdown();
+        database.close();
+    }
+    
+    @Test
+    void jobsQueuedBehindSlowInitsDoNotTimeOut() throws Exception {
+        // Each init is well inside the timeout, but the last jobs wait
+        // several times the timeout for a free init thread
+        List<BatchJob> jobs = new ArrayList<>();
+        for (int i = 0; i < INIT_THREADS * 6; i++) {
+            jobs.add(new SlowInitJob("slow-init-" + i, 400));
+        }
+    
+        engine.registerJobs(jobs).get(30, TimeUnit.SECONDS);
+    
+        for (BatchJob job : jobs) {
+            assertEquals(JobState.READY, engine.getJobState(job.getName()));
+        }
+    }
+    
+    @Test
+    void initThatOverrunsTheTimeoutFails() throws Exception {
+        CompletableFuture<Void> hung = engine.registerJob(new SlowInitJob("hung-init", 60_000));
+    
+        assertThrows(Exception.class, () -> hung.get(10, TimeUnit.SECONDS));
+        assertEquals(JobState.FAILED, engine.getJobState("hung-init"));
+    
+        // The interrupted init thread is reused cleanly by the next job
+        List<BatchJob> next = new ArrayList<>();
+        for (int i = 0; i < INIT_THREADS; i++) {
+            next.add(new SlowInitJob("next-init-" + i, 100));
+        }
+        engine.registerJobs(next).get(10, TimeUnit.SECONDS);
+        for (BatchJob job : next) {
+            assertEquals(JobState.READY, engine.getJobState(job.getName()));
+        }
+    }
+    
+    @Test
+    void triggerOfAReloadedJobWaitsForItsInit() throws Exception {
+        engine.registerJob(new SlowInitJob("reloaded", 0)).get(10, TimeUnit.SECONDS);
+    
+        // Hot reload: the trigger must not run the new instance before its init() finishes
+        engine.registerJob(new SlowInitJob("reloaded", 300));
+        JobResult result = engine.executeJob("reloaded", Map.of(), "test", "MANUAL").get(10, TimeUnit.SECONDS);
+    
+        assertTrue(result.isSuccess(), result.getMessage());
+    }
+    
+    @Test
+    void rejectedExecutionIsStoredAsFailed() throws Exception {
+        engine.registerJob(new BlockingJob("blocking")).get(10, TimeUnit.SECONDS);
+        engine.executeJob("blocking", Map.of(), "test", "MANUAL");
+        engine.executeJob("blocking", Map.of(), "test", "MANUAL");
+    
+        String rejected = engine.nextExecutionId();
+        assertThrows(RejectedExecutionException.class,
+            () -> engine.executeJob(rejected, "blocking", Map.of(), "test", "MANUAL"));
+    
+        JobExecutionInfo info = awaitStored(rejected, JobStatus.FAILED);
+        assertTrue(info.getErrorMessage().startsWith("Rejected"));
+    }
+    
+    @Test
+    void backlogEntryIsKeptUntilItsExecutionIsSubmitted() throws Exception {
+        engine.registerJob(new BlockingJob("blocking")).get(10, TimeUnit.SECONDS);
+        engine.executeJob("blocking", Map.of(), "test", "MANUAL");
+        engine.executeJob("blocking", Map.of(), "test", "MANUAL");
+        String executionId = engine.nextExecutionId();
+        database.saveBacklogEntries(List.of(new BacklogEntry(executionId, "blocking", null, Map.of(),
+            "test", "MANUAL", LocalDateTime.now())));
+    
+        engine.resumeBacklog();
+        assertEquals(1, database.getBacklogEntries().size());
+    
+        release.complete(JobResult.success("released"));
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (engine.getExecutor().getActiveCount() + engine.getExecutor().getQueue().size() > 0
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        engine.resumeBacklog();
+        assertTrue(database.getBacklogEntries().isEmpty());
+        awaitStored(executionId, JobStatus.COMPLETED);
+    }
+    
+    @Test
+    void statesTheStoreFailedToWriteAreRetriedFromTheJournal() throws Exception {
+        OutageStore outage = new OutageStore();
+        JobExecutionEngine journaled = new JobExecutionEngine(journaled(), database, outage, logManager);
+        try {
+            journaled.registerJob(new BlockingJob("blocking")).get(10, TimeUnit.SECONDS);
+            release.complete(JobResult.success("released"));
+            String executionId = journaled.nextExecutionId();
+            journaled.executeJob(executionId, "blocking", Map.of(), "test", "MANUAL").get(10, TimeUnit.SECONDS);
+    
+            assertNull(outage.get(executionId));
+            assertEquals(1, journaled.getJournalMetrics().get("unwritten_executions"));
+            assertTrue((Integer) journaled.getJournalMetrics().get("outstanding") > 0);
+    
+            outage.down = false;
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (!journaled.getJournalMetrics().get("unwritten_executions").equals(0)
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertEquals(JobStatus.COMPLETED, outage.get(executionId).getStatus());
+            assertEquals(0, journaled.getJournalMetrics().get("outstanding"));
+        } finally {
+            journaled.shutdown();
+        }
+    }
+    
+    @Test
+    void statesStillUnwrittenAtShutdownAreReplayedOnTheNextStart() throws Exception {
+        OutageStore outage = new OutageStore();
+        JobExecutionEngine first = new JobExecutionEngine(journaled(), database, outage, logManager);
+        String executionId = first.nextExecutionId();
+        try {
+            first.registerJob(new BlockingJob("blocking")).get(10, TimeUnit.SECONDS);
+            release.complete(JobResult.success("released"));
+            first.executeJob(executionId, "blocking", Map.of(), "test", "MANUAL").get(10, TimeUnit.SECONDS);
+        } finally {
+            first.shutdown();
+        }
+        assertNull(outage.get(executionId));
+    
+        outage.down = false;
+        JobExecutionEngine second = new JobExecutionEngine(journaled(), database, outage, logManager);
+        try {
+            second.recoverInterrupted();
+            assertEquals(JobStatus.COMPLETED, outage.get(executionId).getStatus());
+        } finally {
+            second.shutdown();
+        }
+    }
+    
+    @Test
+    void recoveryWaitsForAStoreThatCannotBeRead() throws Exception {
+        OutageStore outage = new OutageStore();
+        JobExecutionEngine first = new JobExecutionEngine(journaled(), database, outage, logManager);
+        String executionId = first.nextExecutionId();
+        try {
+            first.registerJob(new BlockingJob("blocking")).get(10, TimeUnit.SECONDS);
+            release.complete(JobResult.success("released"));
+            first.executeJob(executionId, "blocking", Map.of(), "test", "MANUAL").get(10, TimeUnit.SECONDS);
+        } finally {
+            first.shutdown();
+        }
+    
+        // Writes work again but reads still fail: nothing is recovered, and the journal is kept
+        outage.down = false;
+        outage.readsDown = true;
+        JobExecutionEngine second = new JobExecutionEngine(journaled(), database, outage, logManager);
+        try {
+            second.recoverInterrupted();
+        } finally {
+            second.shutdown();
+        }
+        outage.readsDown = false;
+        assertNull(outage.get(executionId));
+    
+        JobExecutionEngine third = new JobExecutionEngine(journaled(), database, outage, logManager);
+        try {
+            third.recoverInterrupted();
+            assertEquals(JobStatus.COMPLETED, outage.get(executionId).getStatus());
+        } finally {
+            third.shutdown();
+        }
+    }
+    
+    private JobExecutionInfo awaitStored(String executionId, JobStatus status) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        JobExecutionInfo info = store.get(executionId);
+        while ((info == null || info.getStatus() != status) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+            info = store.get(executionId);
+        }
+        assertEquals(status, info != null ? info.getStatus() : null);
+        return info;
+    }
+    
+    /**
+     * A memory store that rejects every write while it is down, and every read
+     * while its reads are down.
+     */
+    private static final class OutageStore extends MemoryExecutionStore {
+        private volatile boolean down = true;
+        private volatile boolean readsDown;
+    
+        OutageStore() {
+            super(100);
+        }
+    
+        @Override
+        public void save(JobExecutionInfo info) {
+            failIfDown();
+            super.save(info);
+        }
+    
+        @Override
+        public void update(JobExecutionInfo info) {
+            failIfDown();
+            super.update(info);
+        }
+    
+        @Override
+        public void writeBatch(List<JobExecutionInfo> inserts, List<JobExecutionInfo> updates) {
+            failIfDown();
+            super.writeBatch(inserts, updates);
+        }
+    
+        @Override
+        public JobExecutionInfo get(String executionId) {
+            if (readsDown) {
+                throw new ExecutionStoreException("Store reads are down", null);
+            }
+            return super.get(executionId);
+        }
+    
+        private void failIfDown() {
+            if (down) {
+                throw new ExecutionStoreException("Store is down", null);
+            }
+        }
+    }
+    
+    /**
+     * A job whose executions all run until the test releases them.
+     */
+    private final class BlockingJob implements BatchJob {
+        private final String name;
+    
+        BlockingJob(String name) {
+            this.name = name;
+        }
+    
+        @Override
+        public String getName() {
+            return name;
+        }
+    
+        @Override
+        public String getDescription() {
+            return "Runs until released";
+        }
+    
+        @Override
+        public CompletableFuture<JobResult> execute(JobContext context) {
+            return release;
+        }
+    }
+    
+    private static final class SlowInitJob implements BatchJob, JobLifecycle {
+        private final String name;
+        private final long initMillis;
+        private volatile boolean initialized;
+    
+        SlowInitJob(String name, long initMillis) {
+            this.name = name;
+            this.initMillis = initMillis;
+        }
+    
+        @Override
+        public String getName() {
+            return name;
+        }
+    
+        @Override
+        public String getDescription() {
+            return "Sleeps in init()";
+        }
+    
+        @Override
+        public CompletableFuture<JobResult> execute(JobContext context) {
+            return CompletableFuture.completedFuture(initialized
+                ? JobResult.success("done")
+                : JobResult.failure("Executed before init() finished"));
+        }
+    
+        @Override
+        public void init(JobContext context) throws Exception {
+            Thread.sleep(initMillis);
+            initialized = true;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.batchiller.server.logging;
+
+import ch.qos.logback.classic.LoggerContext;
+import com.batchiller.server.config.BatchillerConfiguration;
+import com.sun.management.UnixOperatingSystemMXBean;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Soak test for the shared execution log appender: runs many executions
+ * through {@link LogManager} and checks that heap, open file descriptors and
+ * logback loggers stay flat once the first tenth has warmed everything up.
+ * <p>
+ * It is opt-in because it writes one file per execution. Run it with
+ * {@code mvn -pl batchiller-server test -Dtest=ExecutionLogSoakTest -Dbatchiller.soak.executions=1000000};
+ * smaller counts give a quicker check.
+ *
+ * @author Siddharth Mishra &lt;mishra.siddharth90@gmail.com&gt;
+ * @version 1.0
+ */
+@EnabledIfSystemProperty(named = "batchiller.soak.executions", matches = "\\d+")
+class ExecutionLogSoakTest {
+    
+    // The log index's page cache keeps filling after the warm-up, up to MVStore's 16 MB default,
+    // and the search index's pages come and go with its commits
+    private static final long MAX_HEAP_GROWTH_BYTES = 32L * 1024 * 1024;
+    private static final long MAX_FD_GROWTH = 16;
+    private static final int LINES_PER_EXECUTION = 3;
+    
+    @TempDir
+    Path directory;
+    
+    @Test
+    void heapAndOpenFilesStayFlatAcrossExecutions() throws Exception {
+        int executions = Integer.getInteger("batchiller.soak.executions", 1_000_000);
+        int warmup = Math.max(1, executions / 10);
+        Properties properties = new Properties();
+        properties.setProperty("log.directory", directory.toString());
+        LogManager logManager = new LogManager(new BatchillerConfiguration(properties));
+        LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+        try {
+            long start = System.currentTimeMillis();
+            runExecutions(logManager, 0, warmup);
+            awaitIdle(logManager);
+            long heapBefore = usedHeap();
+            long fdsBefore = openFileDescriptors();
+            int loggersBefore = context.getLoggerList().size();
+    
+            runExecutions(logManager, warmup, executions);
+            awaitIdle(logManager);
+            long heapAfter = usedHeap();
+            long fdsAfter = openFileDescriptors();
+            int loggersAfter = context.getLoggerList().size();
+    
+            Map<String, Object> metrics = logManager.getMetrics();
+            System.out.printf("%,d executions in %,d ms: heap %,d -> %,d bytes, open fds %d -> %d, loggers %d -> %d%n",
+                executions, System.currentTimeMillis() - start, heapBefore, heapAfter, fdsBefore, fdsAfter,
+                loggersBefore, loggersAfter);
+    
+            assertEquals((long) executions, metrics.get("files_closed"));
+            assertEquals(0, metrics.get("open_files"));
+            assertEquals(0L, metrics.get("files_evicted"));
+            assertEquals(0, metrics.get("stream_open_logs"));
+            assertEquals(0, metrics.get("limit_tracked_executions"));
+            assertEquals(loggersBefore, loggersAfter);
+            assertTrue(fdsAfter - fdsBefore <= MAX_FD_GROWTH,
+                "open file descriptors grew from " + fdsBefore + " to " + fdsAfter);
+            assertTrue(heapAfter - heapBefore <= MAX_HEAP_GROWTH_BYTES,
+                "heap grew from " + heapBefore + " to " + heapAfter + " bytes");
+        } finally {
+            logManager.shutdown();
+        }
+    }
+    
+    private static void runExecutions(LogManager logManager, int from, int to) {
+        for (int i = from; i < to; i++) {
+            String executionId = "soak-" + i;
+            String logFile = logManager.createLogFile(executionId, "SoakJob");
+            Logger log = logManager.openExecutionLog(executionId, logFile);
+            for (int line = 0; line < LINES_PER_EXECUTION; line++) {
+                log.info("Execution {} line {}", executionId, line);
+            }
+            logManager.closeExecutionLog(executionId);
+        }
+    }
+    
+    /**
+     * Waits until the appender has written and closed everything and the
+     * compressor and search indexer have caught up.
+     */
+    private static void awaitIdle(LogManager logManager) throws InterruptedException {
+        while (true) {
+            Map<String, Object> metrics = logManager.getMetrics();
+            if (isZero(metrics.get("queue_depth")) && isZero(metrics.get("open_files"))
+                && isZero(metrics.get("compression_pending")) && isZero(metrics.get("search_pending"))) {
+                return;
+            }
+            Thread.sleep(100);
+        }
+    }
+    
+    private static boolean isZero(Object value) {
+        return value == null || ((Number) value).longValue() == 0;
+    }
+    
+    /**
+     * Returns the smallest heap in use after a collection over a couple of
+     * seconds, since a single reading can land on a log or search index
+     * commit's short-lived write buffers.
+     */
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+            Thread.sleep(400);
+        }
+        return used;
+    }
+    
+    private static long openFileDescriptors() {
+        return ((UnixOperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean()).getOpenFileDescriptorCount();
+    }
+}
@@ -0,0 +1,157 @@
+package com.batchiller.server.store;
+
+import com.batchiller.api.JobExecutionInfo;
+import com.batchiller.api.JobStatus;
+import com.batchiller.server.config.BatchillerConfiguration;
+import com.batchiller.server.database.DatabaseManager;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * A plain timing harness comparing the write rates of the execution stores.
+ * Each worker thread writes the lifecycle of its executions the way the
+ * engine does (a QUEUED insert followed by RUNNING and COMPLETED updates)
+ * straight to the store, after a warm-up round. Writes go through
+ * {@link ExecutionStore#writeBatch} in groups of {@code batch}, as the
+ * persistence queue flushes them; a batch of 1 measures single-row
+ * {@code save}/{@code update} calls instead.
+ *
+ * <p>Run it from the IDE or with
+ * {@code java -cp <test classes>:<runtime classpath> com.batchiller.server.store.ExecutionStoreBenchmark [threads] [executions per thread] [batch]}.
+ * It is not part of the test suite.</p>
+ *
+ * @author Siddharth Mishra &lt;mishra.siddharth90@gmail.com&gt;
+ * @version 1.0
+ */
+public final class ExecutionStoreBenchmark {
+    
+    private static final int WRITES_PER_EXECUTION = 3;
+    
+    private ExecutionStoreBenchmark() {
+    }
+    
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int executions = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+        int batch = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+    
+        Path dir = Files.createTempDirectory("batchiller-store-benchmark");
+        DatabaseManager database = new DatabaseManager(config(dir, "jdbc", threads, executions));
+    
+        System.out.printf("%d threads, %d executions per thread, %d writes per execution, batches of %d%n",
+            threads, executions, WRITES_PER_EXECUTION, batch);
+        try {
+            run("memory", threads, executions, batch, dir,
+                config -> new MemoryExecutionStore(config.getExecutionStoreMemoryCapacity()));
+            run("log", threads, executions, batch, dir, SegmentLogExecutionStore::new);
+            run("jdbc", threads, executions, batch, dir, config -> new JdbcExecutionStore(database));
+        } finally {
+            database.close();
+            deleteRecursively(dir);
+        }
+    }
+    
+    private static BatchillerConfiguration config(Path dir, String name, int threads, int executions) {
+        Properties properties = new Properties();
+        properties.setProperty("db.h2.path", dir.resolve("batchiller").toString());
+        properties.setProperty("db.pool.max.size", String.valueOf(Math.max(10, threads)));
+        properties.setProperty("execution.store.log.directory", dir.resolve(name).toString());
+        properties.setProperty("execution.store.memory.capacity", String.valueOf(threads * executions));
+        return new BatchillerConfiguration(properties);
+    }
+    
+    private static void run(String name, int threads, int executions, int batch, Path dir,
+                            Function<BatchillerConfiguration, ExecutionStore> stores) throws Exception {
+        // The first round warms up the JIT and the store's files; only the second is reported
+        for (int round = 0; round < 2; round++) {
+            ExecutionStore store = stores.apply(config(dir, name + "-" + round, threads, executions));
+            try {
+                long nanos = time(store, name + "-" + round, threads, executions, batch);
+                if (round == 1) {
+                    long writes = (long) threads * executions * WRITES_PER_EXECUTION;
+                    System.out.printf("%-8s %,12d writes in %,8d ms  %,12.0f writes/s%n",
+                        name, writes, nanos / 1_000_000, writes / (nanos / 1e9));
+                }
+            } finally {
+                store.close();
+            }
+        }
+    }
+    
+    private static long time(ExecutionStore store, String prefix, int threads, int executions, int batch)
+            throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            String worker = prefix + "-" + t + "-";
+            workers.add(pool.submit(() -> {
+                start.await();
+                for (int first = 0; first < executions; first += batch) {
+                    if (batch == 1) {
+                        String executionId = worker + first;
+                        LocalDateTime startTime = LocalDateTime.now();
+                        store.save(execution(executionId, JobStatus.QUEUED, startTime));
+                        store.update(execution(executionId, JobStatus.RUNNING, startTime));
+                        store.update(execution(executionId, JobStatus.COMPLETED, startTime));
+                        continue;
+                    }
+                    int last = Math.min(executions, first + batch);
+                    LocalDateTime startTime = LocalDateTime.now();
+                    for (JobStatus status : List.of(JobStatus.QUEUED, JobStatus.RUNNING, JobStatus.COMPLETED)) {
+                        List<JobExecutionInfo> writes = new ArrayList<>(last - first);
+                        for (int i = first; i < last; i++) {
+                            writes.add(execution(worker + i, status, startTime));
+                        }
+                        if (status == JobStatus.QUEUED) {
+                            store.writeBatch(writes, List.of());
+                        } else {
+                            store.writeBatch(List.of(), writes);
+                        }
+                    }
+                }
+                return null;
+            }));
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Future<?> worker : workers) {
+            worker.get();
+        }
+        long elapsed = System.nanoTime() - begin;
+        pool.shutdown();
+        return elapsed;
+    }
+    
+    private static JobExecutionInfo execution(String executionId, JobStatus status, LocalDateTime startTime) {
+        return JobExecutionInfo.builder(executionId, "benchmark-job")
+            .status(status)
+            .startTime(startTime)
+            .endTime(status == JobStatus.COMPLETED ? LocalDateTime.now() : null)
+            .threadName(Thread.currentThread().getName())
+            .triggeredBy("benchmark")
+            .triggerType("MANUAL")
+            .build();
+    }
+    
+    private static void deleteRecursively(Path dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
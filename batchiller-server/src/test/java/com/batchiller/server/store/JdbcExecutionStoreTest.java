@@ -0,0 +1,73 @@
+package com.batchiller.server.store;
+
+import com.batchiller.api.JobExecutionInfo;
+import com.batchiller.api.JobStatus;
+import com.batchiller.server.config.BatchillerConfiguration;
+import com.batchiller.server.database.DatabaseManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests for how {@link JdbcExecutionStore} writes executions whose rows are missing.
+ *
+ * @author Siddharth Mishra &lt;mishra.siddharth90@gmail.com&gt;
+ * @version 1.0
+ */
+class JdbcExecutionStoreTest {
+    
+    @TempDir
+    Path dir;
+    
+    private DatabaseManager database;
+    private JdbcExecutionStore store;
+    
+    @BeforeEach
+    void setUp() {
+        Properties properties = new Properties();
+        properties.setProperty("db.h2.path", dir.resolve("batchiller").toString());
+        database = new DatabaseManager(new BatchillerConfiguration(properties));
+        store = new JdbcExecutionStore(database);
+    }
+    
+    @AfterEach
+    void tearDown() {
+        database.close();
+    }
+    
+    @Test
+    void updateOfAMissingExecutionInsertsIt() {
+        // The QUEUED insert never reached the database
+        store.update(execution("lost-insert", JobStatus.RUNNING));
+        store.update(execution("lost-insert", JobStatus.COMPLETED));
+    
+        assertEquals(JobStatus.COMPLETED, store.get("lost-insert").getStatus());
+    }
+    
+    @Test
+    void batchedUpdatesOfMissingExecutionsInsertThem() {
+        store.writeBatch(List.of(execution("stored", JobStatus.QUEUED)), List.of());
+    
+        store.writeBatch(List.of(), List.of(execution("stored", JobStatus.COMPLETED),
+            execution("lost-insert", JobStatus.FAILED)));
+    
+        assertEquals(JobStatus.COMPLETED, store.get("stored").getStatus());
+        assertEquals(JobStatus.FAILED, store.get("lost-insert").getStatus());
+        assertEquals(2, store.query(ExecutionQuery.builder().limit(10).build()).getExecutions().size());
+    }
+    
+    private static JobExecutionInfo execution(String executionId, JobStatus status) {
+        return JobExecutionInfo.builder(executionId, "job")
+            .status(status)
+            .startTime(LocalDateTime.now())
+            .build();
+    }
+}
@@ -0,0 +1,129 @@
+package com.batchiller.server.store;
+
+import com.batchiller.api.JobExecutionInfo;
+import com.batchiller.api.JobStatus;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Tests for the ring buffer behind {@link MemoryExecutionStore}.
+ *
+ * @author Siddharth Mishra &lt;mishra.siddharth90@gmail.com&gt;
+ * @version 1.0
+ */
+class MemoryExecutionStoreTest {
+    
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+    
+    @Test
+    void oldestExecutionsAreOverwrittenOnceFull() {
+        MemoryExecutionStore store = new MemoryExecutionStore(3);
+        for (int i = 0; i < 5; i++) {
+            store.save(execution("exec-" + i, JobStatus.QUEUED, i));
+        }
+    
+        assertNull(store.get("exec-0"));
+        assertNull(store.get("exec-1"));
+        assertNotNull(store.get("exec-4"));
+        assertEquals(3, store.getMetrics().get("executions"));
+        assertEquals(2L, store.getMetrics().get("evicted"));
+        assertEquals(START.plusSeconds(2), store.getOldestStartTime());
+    }
+    
+    @Test
+    void updateReplacesTheExecutionInPlace() {
+        MemoryExecutionStore store = new MemoryExecutionStore(2);
+        store.save(execution("first", JobStatus.QUEUED, 0));
+        store.save(execution("second", JobStatus.QUEUED, 1));
+    
+        store.update(execution("first", JobStatus.COMPLETED, 0));
+    
+        assertEquals(JobStatus.COMPLETED, store.get("first").getStatus());
+        assertEquals(JobStatus.QUEUED, store.get("second").getStatus());
+        assertEquals(0L, store.getMetrics().get("evicted"));
+    }
+    
+    @Test
+    void queryPagesNewestFirst() {
+        MemoryExecutionStore store = new MemoryExecutionStore(10);
+        // Saved out of start-time order
+        for (int i : new int[] {3, 0, 4, 1, 2}) {
+            store.save(execution("exec-" + i, JobStatus.COMPLETED, i));
+        }
+    
+        ExecutionPage first = store.query(ExecutionQuery.builder().limit(3).build());
+        assertEquals(List.of("exec-4", "exec-3", "exec-2"), ids(first));
+        assertNotNull(first.getNextCursor());
+    
+        ExecutionPage second = store.query(ExecutionQuery.builder().limit(3).cursor(first.getNextCursor()).build());
+        assertEquals(List.of("exec-1", "exec-0"), ids(second));
+        assertNull(second.getNextCursor());
+    }
+    
+    @Test
+    void purgeAndDeleteFreeSlots() {
+        MemoryExecutionStore store = new MemoryExecutionStore(10);
+        for (int i = 0; i < 6; i++) {
+            store.save(execution("exec-" + i, JobStatus.COMPLETED, i));
+        }
+    
+        assertEquals(2, store.purgeBefore(START.plusSeconds(2), 100));
+        assertEquals(1, store.delete(List.of("exec-2", "missing"), 100));
+        assertEquals(1, store.purgeBeyond(2, 100));
+    
+        assertEquals(List.of("exec-5", "exec-4"), ids(store.query(ExecutionQuery.builder().limit(10).build())));
+    }
+    
+    @Test
+    void concurrentWritersKeepEveryExecution() throws Exception {
+        int threads = 8;
+        int perThread = 5_000;
+        MemoryExecutionStore store = new MemoryExecutionStore(threads * perThread);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> writers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            String prefix = "writer-" + t + "-";
+            writers.add(pool.submit(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    store.save(execution(prefix + i, JobStatus.QUEUED, i));
+                    store.update(execution(prefix + i, JobStatus.COMPLETED, i));
+                }
+            }));
+        }
+        for (Future<?> writer : writers) {
+            writer.get();
+        }
+        pool.shutdown();
+    
+        assertEquals(threads * perThread, store.getMetrics().get("executions"));
+        assertEquals(0L, store.getMetrics().get("evicted"));
+        for (int t = 0; t < threads; t++) {
+            assertEquals(JobStatus.COMPLETED, store.get("writer-" + t + "-" + (perThread - 1)).getStatus());
+        }
+    }
+    
+    private static JobExecutionInfo execution(String executionId, JobStatus status, int second) {
+        return JobExecutionInfo.builder(executionId, "job")
+            .status(status)
+            .startTime(START.plusSeconds(second))
+            .build();
+    }
+    
+    private static List<String> ids(ExecutionPage page) {
+        List<String> ids = new ArrayList<>();
+        for (JobExecutionInfo info : page.getExecutions()) {
+            ids.add(info.getExecutionId());
+        }
+        return ids;
+    }
+}